@@ -0,0 +1,65 @@
+package us.ctic.jira;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures removing the empty columns from a synthetic Jira export (which always has some entirely empty custom fields,
+ * so both passes over the file are made) with {@link EmptyColumnRemover}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class EmptyColumnRemoverBenchmark
+{
+    private static final int USER_COUNT = 2000;
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int rowCount;
+
+    @Param({"false", "true"})
+    public boolean memoryMappedParsing;
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    private String csvFileName;
+    private ParallelCsvReader parallelCsvReader;
+
+    @Setup
+    public void setUp()
+    {
+        csvFileName = SyntheticJiraExport.getOrCreate(rowCount, USER_COUNT).toString();
+        parallelCsvReader = new ParallelCsvReader(0, 16 * 1024 * 1024);
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        parallelCsvReader.close();
+    }
+
+    @Benchmark
+    public String removeEmptyColumns(RecordCounter recordCounter)
+    {
+        EmptyColumnRemover emptyColumnRemover =
+                new EmptyColumnRemover(csvFileName, parallel ? parallelCsvReader : null, memoryMappedParsing);
+        recordCounter.records += rowCount;
+        return emptyColumnRemover.removeEmptyColumns();
+    }
+}
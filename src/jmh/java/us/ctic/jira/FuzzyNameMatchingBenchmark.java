@@ -0,0 +1,111 @@
+package us.ctic.jira;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures matching display names against a directory by similarity, with the blocking keys of the
+ * {@link FuzzyNameMatcher} and with a scan that scores every user of the directory the same way. The names are those of
+ * the synthetic source users of the {@link MockJiraServer}, written differently (last name first, with a middle initial
+ * and a suffix, or in lowercase) so they go through the normalization.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class FuzzyNameMatchingBenchmark
+{
+    private static final int LOOKUP_COUNT = 1000;
+
+    @Param({"10000", "100000"})
+    public int directorySize;
+
+    @Param({"blocking", "scan"})
+    public String matcher;
+
+    private List<String> displayNames;
+    private FuzzyNameMatcher fuzzyNameMatcher;
+    private String[][] targetWords;
+    private String[] targetJoinedWords;
+
+    @Setup
+    public void setUp()
+    {
+        displayNames = new ArrayList<>(LOOKUP_COUNT);
+        List<JiraUser> sourceUsers = MockJiraServer.createSourceUsers(directorySize);
+        for (int i = 0; i < LOOKUP_COUNT; i++)
+        {
+            // The synthetic display names are "First Last"
+            String[] names = sourceUsers.get(i).getDisplayName().split(" ");
+            switch (i % 3)
+            {
+                case 0:
+                    displayNames.add(names[1] + ", " + names[0]);
+                    break;
+                case 1:
+                    displayNames.add(names[0] + " Q. " + names[1] + " Jr.");
+                    break;
+                default:
+                    displayNames.add(sourceUsers.get(i).getDisplayName().toLowerCase());
+            }
+        }
+
+        List<JiraUser> targetUsers = MockJiraServer.createTargetUsers(directorySize);
+        fuzzyNameMatcher = new FuzzyNameMatcher(targetUsers);
+        targetWords = new String[targetUsers.size()][];
+        targetJoinedWords = new String[targetUsers.size()];
+        NameParts nameParts = new NameParts();
+        for (int i = 0; i < targetUsers.size(); i++)
+        {
+            targetWords[i] = FuzzyNameMatcher.normalizeName(targetUsers.get(i).getDisplayName(), nameParts);
+            targetJoinedWords[i] = String.join("", targetWords[i]);
+        }
+    }
+
+    @Benchmark
+    public void matchNames(Blackhole blackhole, LookupCounter lookupCounter)
+    {
+        boolean useBlocking = "blocking".equals(matcher);
+        for (String displayName : displayNames)
+        {
+            if (useBlocking)
+            {
+                blackhole.consume(fuzzyNameMatcher.match(displayName));
+            } else
+            {
+                blackhole.consume(scanForBestScore(displayName));
+            }
+        }
+        lookupCounter.lookups += displayNames.size();
+    }
+
+    private double scanForBestScore(String displayName)
+    {
+        String[] words = FuzzyNameMatcher.normalizeName(displayName, new NameParts());
+        String joinedWords = String.join("", words);
+
+        double bestScore = 0;
+        for (int i = 0; i < targetWords.length; i++)
+        {
+            bestScore = Math.max(bestScore, FuzzyNameMatcher.score(words, joinedWords, targetWords[i],
+                    targetJoinedWords[i]));
+        }
+        return bestScore;
+    }
+}
@@ -0,0 +1,30 @@
+package us.ctic.jira;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Counts the users looked up by a benchmark, the requests they took, and the new connections that were opened to the
+ * {@link MockJiraServer}s for them, so JMH reports the lookups per second alongside the operations. Dividing the
+ * {@code requests} rate by the {@code connections} rate gives the number of requests sent per connection; if the
+ * connections are reused, it grows with the length of the run.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class LookupCounter
+{
+    public long lookups;
+    public long requests;
+    public long connections;
+
+    @Setup(Level.Iteration)
+    public void reset()
+    {
+        lookups = 0;
+        requests = 0;
+        connections = 0;
+    }
+}
@@ -0,0 +1,85 @@
+package us.ctic.jira;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures applying the username and issue type mappings to a synthetic Jira export with
+ * {@code Main.updateCsvFileWithMappings}, comparing the {@link TextRecordMapper} and the
+ * {@link ColumnScopedRecordMapper} as the number of mapped usernames grows. {@link ReplaceEachMappingBenchmark} measures
+ * {@code StringUtils.replaceEach} on the smaller exports, for comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class MappingBenchmark
+{
+    private static final int USER_COUNT = 2000;
+
+    @Param({"10", "1000", "100000"})
+    public int rowCount;
+
+    @Param({"10", "1000", "10000"})
+    public int mappingCount;
+
+    @Param({"ahoCorasick", "columnScoped"})
+    public String mapper;
+
+    private List<String> sourceCsvFileNames;
+    private String targetCsvFileName;
+    private CsvRecordMapper recordMapper;
+    private ParallelCsvReader parallelCsvReader;
+
+    @Setup
+    public void setUp()
+    {
+        sourceCsvFileNames = Collections.singletonList(SyntheticJiraExport.getOrCreate(rowCount, USER_COUNT).toString());
+        targetCsvFileName = SyntheticJiraExport.getFolder().resolve("mapped.csv").toString();
+        parallelCsvReader = new ParallelCsvReader(0, 16 * 1024 * 1024);
+
+        Map<String, String> usernameMapping = SyntheticJiraExport.createUsernameMapping(mappingCount);
+        Map<String, String> issueTypeMapping = SyntheticJiraExport.createIssueTypeMapping();
+        switch (mapper)
+        {
+            case "ahoCorasick":
+                recordMapper = new TextRecordMapper(List.of(usernameMapping, issueTypeMapping));
+                break;
+            case "columnScoped":
+                recordMapper = new ColumnScopedRecordMapper(usernameMapping, issueTypeMapping);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown mapper: " + mapper);
+        }
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        parallelCsvReader.close();
+    }
+
+    @Benchmark
+    public void updateCsvFileWithMappings(RecordCounter recordCounter)
+    {
+        Main.updateCsvFileWithMappings(parallelCsvReader, sourceCsvFileNames, targetCsvFileName, recordMapper);
+        recordCounter.records += rowCount;
+    }
+}
@@ -0,0 +1,25 @@
+package us.ctic.jira;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Counts the CSV records processed by a benchmark, so JMH reports the throughput in records as well as in operations.
+ * Dividing the {@code gc.alloc.rate} reported by the GC profiler by the {@code records} rate gives the bytes allocated
+ * per record.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class RecordCounter
+{
+    public long records;
+
+    @Setup(Level.Iteration)
+    public void reset()
+    {
+        records = 0;
+    }
+}
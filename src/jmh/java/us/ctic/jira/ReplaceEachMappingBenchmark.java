@@ -0,0 +1,69 @@
+package us.ctic.jira;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures applying the mappings with {@code StringUtils.replaceEach} on every value, the way the CSV file was
+ * originally updated, as the baseline for {@link MappingBenchmark}. The time per value grows with the number of mapped
+ * usernames, so only the smaller exports and mappings are measured; a single operation on the largest ones would take
+ * minutes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class ReplaceEachMappingBenchmark
+{
+    private static final int USER_COUNT = 2000;
+
+    @Param({"10", "1000"})
+    public int rowCount;
+
+    @Param({"10", "1000"})
+    public int mappingCount;
+
+    private List<String> sourceCsvFileNames;
+    private String targetCsvFileName;
+    private CsvRecordMapper recordMapper;
+    private ParallelCsvReader parallelCsvReader;
+
+    @Setup
+    public void setUp()
+    {
+        sourceCsvFileNames = Collections.singletonList(SyntheticJiraExport.getOrCreate(rowCount, USER_COUNT).toString());
+        targetCsvFileName = SyntheticJiraExport.getFolder().resolve("mapped.csv").toString();
+        parallelCsvReader = new ParallelCsvReader(0, 16 * 1024 * 1024);
+        recordMapper = new ReplaceEachRecordMapper(List.of(SyntheticJiraExport.createUsernameMapping(mappingCount),
+                SyntheticJiraExport.createIssueTypeMapping()));
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        parallelCsvReader.close();
+    }
+
+    @Benchmark
+    public void updateCsvFileWithMappings(RecordCounter recordCounter)
+    {
+        Main.updateCsvFileWithMappings(parallelCsvReader, sourceCsvFileNames, targetCsvFileName, recordMapper);
+        recordCounter.records += rowCount;
+    }
+}
@@ -0,0 +1,39 @@
+package us.ctic.jira;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies the mappings to every value with {@code StringUtils.replaceEach}, the way the CSV file was originally updated
+ * (other than working on values instead of whole lines), to compare against the other {@link CsvRecordMapper}s.
+ */
+class ReplaceEachRecordMapper implements CsvRecordMapper
+{
+    private final String[] sourceValues;
+    private final String[] targetValues;
+
+    ReplaceEachRecordMapper(List<Map<String, String>> mappingsList)
+    {
+        sourceValues = mappingsList.stream().flatMap(mapping -> mapping.keySet().stream()).toArray(String[]::new);
+        targetValues = mappingsList.stream().flatMap(mapping -> mapping.values().stream()).toArray(String[]::new);
+    }
+
+    @Override
+    public void parseColumnHeaders(String[] headerRow)
+    {
+        // Every column is mapped, so the header doesn't matter
+    }
+
+    @Override
+    public String[] mapRecord(String[] values)
+    {
+        String[] mappedValues = new String[values.length];
+        for (int i = 0; i < values.length; i++)
+        {
+            mappedValues[i] = StringUtils.replaceEach(values[i], sourceValues, targetValues);
+        }
+        return mappedValues;
+    }
+}
@@ -0,0 +1,95 @@
+package us.ctic.jira;
+
+import org.apache.commons.lang3.StringUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the {@code StringUtils.replaceEach} approach originally used to apply the user and issue type mappings to
+ * each line of the CSV file with the {@link AhoCorasickReplacer}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReplacementBenchmark
+{
+    private static final int LINE_COUNT = 200;
+
+    @Param({"10", "1000", "8000"})
+    public int mappingCount;
+
+    private List<String> lines;
+    private String[] sourceNames;
+    private String[] targetNames;
+    private AhoCorasickReplacer replacer;
+
+    @Setup
+    public void setUp()
+    {
+        Random random = new Random(42);
+
+        Map<String, String> usernameMapping = new LinkedHashMap<>();
+        for (int i = 0; i < mappingCount; i++)
+        {
+            usernameMapping.put("source.user" + i, "target.user" + i);
+        }
+
+        Map<String, String> issueTypeMapping = new LinkedHashMap<>();
+        issueTypeMapping.put("Feature", "New Feature");
+        issueTypeMapping.put("Defect", "Bug");
+
+        List<Map<String, String>> mappingsList = List.of(usernameMapping, issueTypeMapping);
+        sourceNames = mappingsList.stream().flatMap(mapping -> mapping.keySet().stream()).toArray(String[]::new);
+        targetNames = mappingsList.stream().flatMap(mapping -> mapping.values().stream()).toArray(String[]::new);
+        replacer = new AhoCorasickReplacer(mappingsList);
+
+        // Lines roughly shaped like an exported issue: a few user columns, a comment with a tag, and some free text
+        lines = new ArrayList<>(LINE_COUNT);
+        for (int i = 0; i < LINE_COUNT; i++)
+        {
+            String user = "source.user" + random.nextInt(mappingCount);
+            String taggedUser = "source.user" + random.nextInt(mappingCount);
+            lines.add("PROJ-" + i + ",Defect,Summary of issue " + i + "," + user + "," + user + ","
+                    + "\"Some description text that is not very interesting but is reasonably long, as they tend to be\","
+                    + "\"01/Jan/21 10:00 AM;" + user + ";Please take a look [~" + taggedUser + "]\"");
+        }
+    }
+
+    @Benchmark
+    public void replaceEach(Blackhole blackhole)
+    {
+        for (String line : lines)
+        {
+            blackhole.consume(StringUtils.replaceEach(line, sourceNames, targetNames));
+        }
+    }
+
+    @Benchmark
+    public void ahoCorasick(Blackhole blackhole)
+    {
+        for (String line : lines)
+        {
+            blackhole.consume(replacer.replace(line));
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package us.ctic.jira;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures ordering the issues of a synthetic Jira export by issue type and splitting them into files with
+ * {@code Main.orderByIssueTypeAndSplitCsvFileByCount}, using the split size and memory budget from the configuration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class SplitBenchmark
+{
+    private static final int USER_COUNT = 2000;
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int rowCount;
+
+    private String csvFileName;
+    private Path splitFolder;
+    private Map<String, String> issueTypeMapping;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        csvFileName = SyntheticJiraExport.getOrCreate(rowCount, USER_COUNT).toString();
+        splitFolder = Files.createTempDirectory(SyntheticJiraExport.getFolder(), "split-");
+        issueTypeMapping = SyntheticJiraExport.createIssueTypeMapping();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException
+    {
+        try (Stream<Path> paths = Files.walk(splitFolder))
+        {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void orderByIssueTypeAndSplit(RecordCounter recordCounter)
+    {
+        Main.orderByIssueTypeAndSplitCsvFileByCount(csvFileName, splitFolder.toString(), issueTypeMapping);
+        recordCounter.records += rowCount;
+    }
+}
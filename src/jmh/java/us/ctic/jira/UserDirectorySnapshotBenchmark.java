@@ -0,0 +1,97 @@
+package us.ctic.jira;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures loading the {@link UserDirectorySnapshot}s of a pair of {@link MockJiraServer}s (including building the
+ * indexes of the directories) and creating the username mapping offline from them, without any requests. The snapshots
+ * are exported from the servers once, before the measurements.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class UserDirectorySnapshotBenchmark
+{
+    private static final int PAGE_SIZE = 1000;
+
+    @Param({"10000", "100000"})
+    public int directorySize;
+
+    private Path snapshotFolder;
+    private String sourceSnapshotFileName;
+    private String targetSnapshotFileName;
+    private Set<String> csvUsernames;
+
+    @Setup
+    public void exportSnapshots() throws IOException
+    {
+        snapshotFolder = Files.createTempDirectory("jira-user-snapshots");
+        sourceSnapshotFileName = snapshotFolder.resolve("source.snapshot").toString();
+        targetSnapshotFileName = snapshotFolder.resolve("target.snapshot").toString();
+        exportSnapshot(new MockJiraServer(MockJiraServer.createSourceUsers(directorySize), Duration.ZERO, 0, 0),
+                sourceSnapshotFileName);
+        exportSnapshot(new MockJiraServer(MockJiraServer.createTargetUsers(directorySize), Duration.ZERO, 0, 0),
+                targetSnapshotFileName);
+        csvUsernames = new LinkedHashSet<>(SyntheticJiraExport.createUsernameMapping(directorySize).keySet());
+    }
+
+    @TearDown
+    public void deleteSnapshots() throws IOException
+    {
+        Files.deleteIfExists(snapshotFolder.resolve("source.snapshot"));
+        Files.deleteIfExists(snapshotFolder.resolve("target.snapshot"));
+        Files.deleteIfExists(snapshotFolder);
+    }
+
+    @Benchmark
+    public UserDirectory loadSnapshot()
+    {
+        return UserDirectorySnapshot.load(targetSnapshotFileName);
+    }
+
+    @Benchmark
+    public Map<String, String> createUsernameMappingOffline()
+    {
+        return new UsernameMapper(UserDirectorySnapshot.load(sourceSnapshotFileName),
+                UserDirectorySnapshot.load(targetSnapshotFileName), MockJiraServer.DEFAULT_USERNAME, false)
+                .createUsernameMapping(csvUsernames);
+    }
+
+    private static void exportSnapshot(MockJiraServer server, String snapshotFileName) throws IOException
+    {
+        try (MockJiraServer closeableServer = server;
+             JiraService jiraService = new JiraService(closeableServer.getHost(), "user", "pass", "", "PROJ");
+             UserDirectorySnapshot.Writer writer = new UserDirectorySnapshot.Writer(snapshotFileName,
+                     jiraService.toString()))
+        {
+            if (!jiraService.exportUsers(".", PAGE_SIZE, writer))
+            {
+                throw new IOException("Couldn't export the users from " + jiraService);
+            }
+            writer.finish();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package us.ctic.jira;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Samples the latency of looking up a single user with {@link JiraService} (finding the source user by username, then
+ * the target user by email or name, like the {@link UsernameMapper} does), from as many threads as there are pooled
+ * connections, against a pair of {@link MockJiraServer}s with 100,000 users each. JMH reports the percentiles of the
+ * samples, so the tail latency added by the retries and the rate limiting shows up.
+ * <p>
+ * Each thread looks up the next user in the directory, and new services are created for each iteration, so none of
+ * the lookups are memoized as long as an iteration looks up fewer users than there are in the directory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Threads(8)
+@Fork(1)
+public class UserLookupBenchmark
+{
+    private static final int DIRECTORY_SIZE = 100_000;
+    private static final int MAX_CONNECTIONS_PER_ROUTE = 8;
+    // High enough that the requests are only slowed down when the server throttles them
+    private static final int REQUESTS_PER_SECOND = 2000;
+    private static final int BURST = 100;
+    private static final RetryPolicy RETRY_POLICY = new RetryPolicy(5, Duration.ofMillis(100), Duration.ofSeconds(5),
+            Duration.ofMinutes(1));
+
+    @Param({"0", "20"})
+    public int latencyMillis;
+
+    @Param({"0", "0.01"})
+    public double throttleRate;
+
+    @Param({"0", "0.01"})
+    public double errorRate;
+
+    private final AtomicInteger nextUserIndex = new AtomicInteger();
+    private List<JiraUser> sourceUsers;
+    private MockJiraServer sourceServer;
+    private MockJiraServer targetServer;
+    private JiraService sourceJiraService;
+    private JiraService targetJiraService;
+
+    @Setup
+    public void startServers() throws IOException
+    {
+        Duration latency = Duration.ofMillis(latencyMillis);
+        sourceUsers = MockJiraServer.createSourceUsers(DIRECTORY_SIZE);
+        sourceServer = new MockJiraServer(sourceUsers, latency, errorRate, throttleRate);
+        targetServer = new MockJiraServer(MockJiraServer.createTargetUsers(DIRECTORY_SIZE), latency, errorRate,
+                throttleRate);
+    }
+
+    @Setup(Level.Iteration)
+    public void createServices()
+    {
+        sourceJiraService = createJiraService(sourceServer);
+        targetJiraService = createJiraService(targetServer);
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeServices()
+    {
+        sourceJiraService.close();
+        targetJiraService.close();
+    }
+
+    @TearDown
+    public void stopServers()
+    {
+        sourceServer.close();
+        targetServer.close();
+    }
+
+    @Benchmark
+    public JiraUser lookUpUser() throws IOException
+    {
+        String username = sourceUsers.get(Math.floorMod(nextUserIndex.getAndIncrement(), sourceUsers.size())).getName();
+        JiraUser sourceUser = sourceJiraService.lookUpUser(username, null, null, null);
+        if (sourceUser == null) return null;
+
+        // The synthetic display names are "First Last"
+        String[] names = sourceUser.getDisplayName().split(" ");
+        return targetJiraService.lookUpUser(null, sourceUser.getEmailAddress(), names[0], names[1]);
+    }
+
+    private static JiraService createJiraService(MockJiraServer server)
+    {
+        return new JiraService(server.getHost(), "user", "pass", "", "PROJ", JiraConnectionSettings.builder()
+                .maxConnectionsPerRoute(MAX_CONNECTIONS_PER_ROUTE)
+                .rateLimiter(new RateLimiter(REQUESTS_PER_SECOND, BURST))
+                .retryPolicy(RETRY_POLICY)
+                .build());
+    }
+}
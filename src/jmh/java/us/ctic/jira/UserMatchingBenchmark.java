@@ -0,0 +1,69 @@
+package us.ctic.jira;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures finding the target users for a batch of source users in a downloaded directory, with the
+ * {@link UserMatcher} cascade of prefix searches over a {@link UserDirectory} and with the hash lookups and posting-list
+ * intersections of a {@link UserIndex}. The source users are the synthetic ones of the {@link MockJiraServer}, most of
+ * which are found by email and the rest by name.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class UserMatchingBenchmark
+{
+    private static final int LOOKUP_COUNT = 1000;
+
+    @Param({"10000", "100000"})
+    public int directorySize;
+
+    @Param({"search", "index"})
+    public String matcher;
+
+    private List<JiraUser> sourceUsers;
+    private UserDirectory userDirectory;
+    private UserIndex userIndex;
+
+    @Setup
+    public void setUp()
+    {
+        sourceUsers = MockJiraServer.createSourceUsers(directorySize).subList(0, LOOKUP_COUNT);
+        List<JiraUser> targetUsers = MockJiraServer.createTargetUsers(directorySize);
+        userDirectory = new UserDirectory(targetUsers);
+        userIndex = new UserIndex(targetUsers);
+    }
+
+    @Benchmark
+    public void findUsers(Blackhole blackhole, LookupCounter lookupCounter) throws IOException
+    {
+        boolean useIndex = "index".equals(matcher);
+        for (JiraUser sourceUser : sourceUsers)
+        {
+            // The synthetic display names are "First Last"
+            String[] names = sourceUser.getDisplayName().split(" ");
+            blackhole.consume(useIndex
+                    ? userIndex.findUser(null, sourceUser.getEmailAddress(), names[0], names[1])
+                    : UserMatcher.findUser(userDirectory, null, sourceUser.getEmailAddress(), names[0], names[1]));
+        }
+        lookupCounter.lookups += sourceUsers.size();
+    }
+}
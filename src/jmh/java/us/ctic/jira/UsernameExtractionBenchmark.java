@@ -0,0 +1,71 @@
+package us.ctic.jira;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures extracting the usernames from a synthetic Jira export with {@link UsernameExtractor}, sequentially and in
+ * parallel chunks, with and without the memory-mapped parsing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class UsernameExtractionBenchmark
+{
+    private static final int USER_COUNT = 2000;
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int rowCount;
+
+    @Param({"false", "true"})
+    public boolean memoryMappedParsing;
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    private String csvFileName;
+    private ParallelCsvReader parallelCsvReader;
+
+    @Setup
+    public void setUp()
+    {
+        csvFileName = SyntheticJiraExport.getOrCreate(rowCount, USER_COUNT).toString();
+        parallelCsvReader = new ParallelCsvReader(0, 16 * 1024 * 1024);
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        parallelCsvReader.close();
+    }
+
+    @Benchmark
+    public void extractUserNames(Blackhole blackhole, RecordCounter recordCounter)
+    {
+        UsernameExtractor usernameExtractor = new UsernameExtractor(csvFileName, memoryMappedParsing);
+        if (parallel)
+        {
+            usernameExtractor.extractUserNames(parallelCsvReader, blackhole::consume);
+        } else
+        {
+            usernameExtractor.extractUserNames(blackhole::consume);
+        }
+        recordCounter.records += rowCount;
+    }
+}
@@ -0,0 +1,160 @@
+package us.ctic.jira;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures creating the username mapping end to end with the {@link UsernameMapper} (a blocking request per lookup)
+ * and the {@link AsyncUsernameMapper} (non-blocking requests), against a pair of {@link MockJiraServer}s with 100,000
+ * users each. The servers can add latency and throttle some of the requests, to see how the rate limiting and retries
+ * hold up. New services are created for each mapping, so none of the users are memoized from a previous one.
+ * <p>
+ * The {@link LookupCounter} reports the lookups and requests per second and how many connections were opened.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class UsernameMappingBenchmark
+{
+    private static final int DIRECTORY_SIZE = 100_000;
+    private static final int MAX_CONNECTIONS_PER_ROUTE = 8;
+    // High enough that the requests are only slowed down when the server throttles them
+    private static final int REQUESTS_PER_SECOND = 2000;
+    private static final int BURST = 100;
+    private static final RetryPolicy RETRY_POLICY = new RetryPolicy(5, Duration.ofMillis(100), Duration.ofSeconds(5),
+            Duration.ofMinutes(1));
+
+    @Param({"1000", "10000"})
+    public int usernameCount;
+
+    @Param({"0", "20"})
+    public int latencyMillis;
+
+    @Param({"0", "0.01"})
+    public double throttleRate;
+
+    @Param({"blocking", "async"})
+    public String mapper;
+
+    // The lookup concurrency of each server for the blocking mapper, or the lookups in flight for the async one
+    @Param({"8", "64"})
+    public int concurrency;
+
+    private MockJiraServer sourceServer;
+    private MockJiraServer targetServer;
+    private Set<String> csvUsernames;
+    private JiraService sourceJiraService;
+    private JiraService targetJiraService;
+    private AsyncJiraService sourceAsyncJiraService;
+    private AsyncJiraService targetAsyncJiraService;
+
+    @Setup
+    public void startServers() throws IOException
+    {
+        int userCount = Math.max(DIRECTORY_SIZE, usernameCount);
+        Duration latency = Duration.ofMillis(latencyMillis);
+        sourceServer = new MockJiraServer(MockJiraServer.createSourceUsers(userCount), latency, 0, throttleRate);
+        targetServer = new MockJiraServer(MockJiraServer.createTargetUsers(userCount), latency, 0, throttleRate);
+        csvUsernames = new LinkedHashSet<>(SyntheticJiraExport.createUsernameMapping(usernameCount).keySet());
+    }
+
+    @Setup(Level.Invocation)
+    public void createServices()
+    {
+        if ("async".equals(mapper))
+        {
+            sourceAsyncJiraService = createAsyncJiraService(sourceServer);
+            targetAsyncJiraService = createAsyncJiraService(targetServer);
+        } else
+        {
+            sourceJiraService = createJiraService(sourceServer);
+            targetJiraService = createJiraService(targetServer);
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void closeServices()
+    {
+        if ("async".equals(mapper))
+        {
+            sourceAsyncJiraService.close();
+            targetAsyncJiraService.close();
+        } else
+        {
+            sourceJiraService.close();
+            targetJiraService.close();
+        }
+    }
+
+    @TearDown
+    public void stopServers()
+    {
+        sourceServer.close();
+        targetServer.close();
+    }
+
+    @Benchmark
+    public Map<String, String> createUsernameMapping(LookupCounter lookupCounter)
+    {
+        long requestCount = sourceServer.getRequestCount() + targetServer.getRequestCount();
+        int connectionCount = sourceServer.getConnectionCount() + targetServer.getConnectionCount();
+
+        Map<String, String> usernameMapping;
+        if ("async".equals(mapper))
+        {
+            usernameMapping = new AsyncUsernameMapper(sourceAsyncJiraService, targetAsyncJiraService,
+                    MockJiraServer.DEFAULT_USERNAME, false, concurrency, null)
+                    .createUsernameMapping(csvUsernames);
+        } else
+        {
+            usernameMapping = new UsernameMapper(sourceJiraService, targetJiraService,
+                    MockJiraServer.DEFAULT_USERNAME, false, concurrency, concurrency)
+                    .createUsernameMapping(csvUsernames);
+        }
+
+        lookupCounter.lookups += csvUsernames.size();
+        lookupCounter.requests += sourceServer.getRequestCount() + targetServer.getRequestCount() - requestCount;
+        lookupCounter.connections += sourceServer.getConnectionCount() + targetServer.getConnectionCount()
+                - connectionCount;
+        return usernameMapping;
+    }
+
+    private static JiraService createJiraService(MockJiraServer server)
+    {
+        return new JiraService(server.getHost(), "user", "pass", "", "PROJ", JiraConnectionSettings.builder()
+                .maxConnectionsPerRoute(MAX_CONNECTIONS_PER_ROUTE)
+                .rateLimiter(new RateLimiter(REQUESTS_PER_SECOND, BURST))
+                .retryPolicy(RETRY_POLICY)
+                .build());
+    }
+
+    private static AsyncJiraService createAsyncJiraService(MockJiraServer server)
+    {
+        return new AsyncJiraService(server.getHost(), "user", "pass", "", "PROJ", JiraConnectionSettings.builder()
+                .maxConnectionsPerRoute(MAX_CONNECTIONS_PER_ROUTE)
+                .rateLimiter(new RateLimiter(REQUESTS_PER_SECOND, BURST))
+                .retryPolicy(RETRY_POLICY)
+                .build());
+    }
+}
@@ -0,0 +1,256 @@
+package us.ctic.jira;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+
+/**
+ * Replaces all the source values of a set of mappings in a string with their target values. The mappings are compiled
+ * into an Aho-Corasick automaton up front, so each string is scanned once regardless of the number of mappings (unlike
+ * {@code StringUtils.replaceEach}, which scans the string once per mapping).
+ * <p>
+ * Matches are token-boundary-aware: a source value is only replaced when it isn't directly preceded or followed by a
+ * character that could be part of a username (letters, digits, and {@code _.@-}), so a mapping for {@code al} doesn't
+ * rewrite {@code also}. When matches overlap, the leftmost match wins, and of the matches starting at the same position
+ * the longest wins.
+ * <p>
+ * Instances are immutable and safe to share between threads.
+ *
+ * @since 1.1
+ */
+public class AhoCorasickReplacer
+{
+    private static final int ROOT = 0;
+    private static final int NO_NODE = -1;
+
+    // The transitions out of each node, stored as parallel arrays of sorted characters and target nodes
+    private final char[][] transitionChars;
+    private final int[][] transitionTargets;
+    private final int[] failureLinks;
+    // For each node, the nearest node (via the failure links, including itself) that ends a source value
+    private final int[] outputLinks;
+    // For each node that ends a source value, the index of the value; -1 otherwise
+    private final int[] valueIndices;
+    private final int[] depths;
+
+    private final String[] sourceValues;
+    private final String[] targetValues;
+
+    /**
+     * Constructor.
+     *
+     * @param mappingsList The mappings of source values to target values. If the same source value is in more than one
+     *                     mapping, the first mapping in the list is used.
+     */
+    public AhoCorasickReplacer(List<Map<String, String>> mappingsList)
+    {
+        Map<String, String> combinedMapping = new LinkedHashMap<>();
+        for (Map<String, String> mapping : mappingsList)
+        {
+            for (Map.Entry<String, String> entry : mapping.entrySet())
+            {
+                String sourceValue = entry.getKey();
+                if (sourceValue != null && !sourceValue.isEmpty() && entry.getValue() != null)
+                {
+                    combinedMapping.putIfAbsent(sourceValue, entry.getValue());
+                }
+            }
+        }
+
+        sourceValues = combinedMapping.keySet().toArray(new String[0]);
+        targetValues = combinedMapping.values().toArray(new String[0]);
+
+        // Build the trie using sorted maps so the compiled transitions are already in order for a binary search
+        List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+        List<Integer> nodeDepths = new ArrayList<>();
+        List<Integer> nodeValueIndices = new ArrayList<>();
+        trie.add(new TreeMap<>());
+        nodeDepths.add(0);
+        nodeValueIndices.add(-1);
+
+        for (int valueIndex = 0; valueIndex < sourceValues.length; valueIndex++)
+        {
+            String sourceValue = sourceValues[valueIndex];
+            int node = ROOT;
+            for (int i = 0; i < sourceValue.length(); i++)
+            {
+                Integer next = trie.get(node).get(sourceValue.charAt(i));
+                if (next == null)
+                {
+                    next = trie.size();
+                    trie.get(node).put(sourceValue.charAt(i), next);
+                    trie.add(new TreeMap<>());
+                    nodeDepths.add(i + 1);
+                    nodeValueIndices.add(-1);
+                }
+                node = next;
+            }
+            nodeValueIndices.set(node, valueIndex);
+        }
+
+        int nodeCount = trie.size();
+        transitionChars = new char[nodeCount][];
+        transitionTargets = new int[nodeCount][];
+        depths = new int[nodeCount];
+        valueIndices = new int[nodeCount];
+        for (int node = 0; node < nodeCount; node++)
+        {
+            TreeMap<Character, Integer> transitions = trie.get(node);
+            transitionChars[node] = new char[transitions.size()];
+            transitionTargets[node] = new int[transitions.size()];
+            int i = 0;
+            for (Map.Entry<Character, Integer> transition : transitions.entrySet())
+            {
+                transitionChars[node][i] = transition.getKey();
+                transitionTargets[node][i] = transition.getValue();
+                i++;
+            }
+            depths[node] = nodeDepths.get(node);
+            valueIndices[node] = nodeValueIndices.get(node);
+        }
+
+        // Compute the failure and output links breadth first, so the links of shallower nodes are always available
+        failureLinks = new int[nodeCount];
+        outputLinks = new int[nodeCount];
+        failureLinks[ROOT] = ROOT;
+        outputLinks[ROOT] = NO_NODE;
+
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int child : transitionTargets[ROOT])
+        {
+            failureLinks[child] = ROOT;
+            outputLinks[child] = valueIndices[child] >= 0 ? child : NO_NODE;
+            queue.add(child);
+        }
+
+        while (!queue.isEmpty())
+        {
+            int node = queue.remove();
+            for (int i = 0; i < transitionChars[node].length; i++)
+            {
+                char c = transitionChars[node][i];
+                int child = transitionTargets[node][i];
+
+                int fallback = failureLinks[node];
+                int failure = getTransition(fallback, c);
+                while (failure == NO_NODE && fallback != ROOT)
+                {
+                    fallback = failureLinks[fallback];
+                    failure = getTransition(fallback, c);
+                }
+                failureLinks[child] = failure == NO_NODE ? ROOT : failure;
+                outputLinks[child] = valueIndices[child] >= 0 ? child : outputLinks[failureLinks[child]];
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * Replaces all the source values in the text with the corresponding target values.
+     *
+     * @param text The text in which to replace values
+     * @return The text with the values replaced, or the same instance if there was nothing to replace
+     */
+    public String replace(String text)
+    {
+        if (text == null || text.isEmpty() || sourceValues.length == 0) return text;
+
+        // The value index of the longest valid match starting at each position (only allocated once there's a match)
+        int[] matchAtPosition = null;
+
+        int node = ROOT;
+        for (int position = 0; position < text.length(); position++)
+        {
+            char c = text.charAt(position);
+            int next = getTransition(node, c);
+            while (next == NO_NODE && node != ROOT)
+            {
+                node = failureLinks[node];
+                next = getTransition(node, c);
+            }
+            node = next == NO_NODE ? ROOT : next;
+
+            // Any value that ends here must be followed by a boundary to count
+            if (outputLinks[node] == NO_NODE || !isBoundary(text, position + 1)) continue;
+
+            for (int output = outputLinks[node]; output != NO_NODE; output = outputLinks[failureLinks[output]])
+            {
+                int start = position - depths[output] + 1;
+                if (!isBoundary(text, start - 1)) continue;
+
+                if (matchAtPosition == null)
+                {
+                    matchAtPosition = new int[text.length()];
+                    Arrays.fill(matchAtPosition, -1);
+                }
+
+                int existing = matchAtPosition[start];
+                if (existing == -1 || sourceValues[existing].length() < depths[output])
+                {
+                    matchAtPosition[start] = valueIndices[output];
+                }
+            }
+        }
+
+        if (matchAtPosition == null) return text;
+
+        StringBuilder builder = new StringBuilder(text.length());
+        int position = 0;
+        while (position < text.length())
+        {
+            int valueIndex = matchAtPosition[position];
+            if (valueIndex >= 0)
+            {
+                builder.append(targetValues[valueIndex]);
+                position += sourceValues[valueIndex].length();
+            } else
+            {
+                builder.append(text.charAt(position));
+                position++;
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * @return The number of distinct source values this replacer will replace
+     */
+    public int size()
+    {
+        return sourceValues.length;
+    }
+
+    /**
+     * Gets the node reached from the provided node with the provided character.
+     *
+     * @param node The current node
+     * @param c    The next character
+     * @return The next node or {@link #NO_NODE} if there is no transition for the character
+     */
+    private int getTransition(int node, char c)
+    {
+        int index = Arrays.binarySearch(transitionChars[node], c);
+        return index >= 0 ? transitionTargets[node][index] : NO_NODE;
+    }
+
+    /**
+     * Determines if the character at the provided index separates tokens. The positions before the start and after the
+     * end of the text are considered boundaries.
+     *
+     * @param text  The text
+     * @param index The index of the character to check
+     * @return True if the character is not part of a token
+     */
+    private static boolean isBoundary(String text, int index)
+    {
+        if (index < 0 || index >= text.length()) return true;
+
+        char c = text.charAt(index);
+        return !(Character.isLetterOrDigit(c) || c == '_' || c == '.' || c == '@' || c == '-');
+    }
+}
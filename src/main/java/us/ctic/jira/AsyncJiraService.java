@@ -0,0 +1,434 @@
+package us.ctic.jira;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.apache.http.client.utils.URIBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import us.ctic.jira.JiraResponses.IssueTypeNamesTypeReference;
+import us.ctic.jira.JiraResponses.UserListTypeReference;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandles;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A non-blocking variant of {@link JiraService}, for looking up many users at once. Every method returns a future
+ * rather than waiting for the server, so hundreds of lookups can be in flight without a thread per request. The
+ * requests are sent with the JDK's HTTP client, which uses HTTP/2 (multiplexing the requests over a single connection)
+ * if the server supports it, and HTTP/1.1 otherwise. Either way, only a limited number of requests are sent to the
+ * server at once (like the connection pool of {@link JiraService}); the rest wait, without a thread, for one of them
+ * to finish.
+ * <p>
+ * The cascade of searches for a user (username, then email, then name) is composed from futures with the same steps
+ * as the synchronous service (see {@link UserMatcher}), so one user's fallback searches never hold up another's. Like
+ * {@link JiraService}, the user searches are memoized for the life of the service (see {@link AsyncMemo}), the
+ * responses are cached in the {@link ResponseCache} (with the same keys, so the two services share the cached
+ * responses), and the requests are paced by a {@link RateLimiter} and retried according to a {@link RetryPolicy}.
+ * <p>
+ * Unlike {@link JiraService}, a failed request completes the future exceptionally rather than being logged and treated
+ * as an empty result. The service must be closed to release its threads.
+ *
+ * @since 1.1
+ */
+public class AsyncJiraService implements AutoCloseable
+{
+    private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    private final String host;
+    private final String projectKey;
+    private final JiraRequests requests;
+    private final RateLimiter rateLimiter;
+    private final RetryPolicy retryPolicy;
+    private final JiraMetrics metrics;
+    private final ExecutorService executorService;
+    private final HttpClient httpClient;
+    private final Semaphore requestPermits;
+    private final Queue<CompletableFuture<Void>> requestsWaitingForPermits = new ConcurrentLinkedQueue<>();
+    private final AsyncMemo<String, List<JiraUser>> searchesByQuery = new AsyncMemo<>();
+    private final AtomicLong retryCount = new AtomicLong();
+
+    /**
+     * Constructor. Connects to the server to verify it can be reached.
+     *
+     * @param host       The host of the Jira server (without http/https)
+     * @param username   The username with which to authenticate
+     * @param password   The password with which to authenticate
+     * @param token      A personal access token to use instead of the username and password, or empty
+     * @param projectKey The key of the project
+     * @param settings   How to connect to the server (the JDK's HTTP client manages its own connections, so the keep
+     *                   alive and idle timeout aren't used)
+     * @throws IllegalStateException If the server couldn't be reached
+     */
+    public AsyncJiraService(String host, String username, String password, String token, String projectKey,
+                            JiraConnectionSettings settings)
+    {
+        this.host = host;
+        this.projectKey = projectKey;
+        this.requests = new JiraRequests(host, username, password, token, settings.getResponseCache());
+        this.rateLimiter = settings.getRateLimiter();
+        this.retryPolicy = settings.getRetryPolicy();
+        this.metrics = settings.getMetrics();
+        requestPermits = new Semaphore(Math.max(settings.getMaxConnectionsPerRoute(), 1));
+
+        // The HTTP client only uses these threads to run the callbacks, which don't block, so a few are plenty
+        AtomicInteger threadNumber = new AtomicInteger();
+        int threadCount = Math.min(Runtime.getRuntime().availableProcessors(), 4);
+        executorService = Executors.newFixedThreadPool(threadCount, runnable -> {
+            Thread thread = new Thread(runnable, "jira-async-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofSeconds(30))
+                .executor(executorService)
+                .build();
+
+        // Perform a test connection to the server
+        try
+        {
+            JiraServerInfo serverInfo = getServerInfo().join();
+            logger.info("Connected to {} (version: {})", serverInfo.getServerTitle(), serverInfo.getVersion());
+        } catch (CompletionException e)
+        {
+            executorService.shutdownNow();
+            logger.error("Error connecting to Jira for {}", host, e.getCause());
+            throw new IllegalStateException("Unable to connect to " + host, e.getCause());
+        }
+    }
+
+    /**
+     * Queries the server info.
+     *
+     * @return The server info
+     * @see <a href="https://docs.atlassian.com/software/jira/docs/api/REST/8.13.5/#api/2/serverInfo">GET /rest/api/2/serverInfo</a>
+     */
+    public CompletableFuture<JiraServerInfo> getServerInfo()
+    {
+        // Never cached, since it's the test connection that checks the host and the credentials
+        return send(requests.getUriBuilder(JiraRequests.SERVER_INFO_PATH), JiraResponses::readServerInfo);
+    }
+
+    /**
+     * Gets all the issue type names from the JIRA server.
+     *
+     * @return a set of all the type names.
+     */
+    public CompletableFuture<Set<String>> getIssueTypeNames()
+    {
+        return getCached(JiraRequests.ISSUE_TYPE_PATH, JiraRequests.PROJECT_KEY_TOKEN + "=" + projectKey,
+                new IssueTypeNamesTypeReference(), () -> send(requests.getUriBuilder(JiraRequests.ISSUE_TYPE_PATH)
+                                .setParameter(JiraRequests.PROJECT_KEY_TOKEN, projectKey)
+                                .setParameter(JiraRequests.EXPAND_TOKEN, JiraRequests.EXPAND_VALUE),
+                        JiraResponses::readIssueTypeNames));
+    }
+
+    /**
+     * Attempts to find the user using the provided username.
+     *
+     * @param username The username for which to search
+     * @return The User, or null if not found
+     */
+    public CompletableFuture<JiraUser> findUserByUsername(String username)
+    {
+        return findUser(username, null, null, null);
+    }
+
+    /**
+     * Attempts to find the user using the provided username, email, last name, and first name, in that order. Each
+     * search is only sent if the previous ones didn't find the user.
+     *
+     * @param username  The username for which to search
+     * @param email     The email for the user
+     * @param firstName The first name for the user
+     * @param lastName  The last name for the user
+     * @return The User, or null if not found
+     * @see <a href="https://docs.atlassian.com/software/jira/docs/api/REST/8.13.5/#api/2/user-findUsers">GET /rest/api/2/user/search</a>
+     */
+    public CompletableFuture<JiraUser> findUser(String username, String email, String firstName, String lastName)
+    {
+        CompletableFuture<JiraUser> user = CompletableFuture.completedFuture(null);
+
+        if (username != null)
+        {
+            user = findUsers(username).thenApply(users -> UserMatcher.matchUsername(username, users));
+        }
+
+        if (email != null)
+        {
+            user = user.thenCompose(foundUser -> foundUser != null ? CompletableFuture.completedFuture(foundUser)
+                    : findUsers(email).thenApply(users -> UserMatcher.matchEmail(email, firstName, lastName, users)));
+        }
+
+        if (lastName != null || firstName != null)
+        {
+            user = user.thenCompose(foundUser -> foundUser != null ? CompletableFuture.completedFuture(foundUser)
+                    : findUsers(UserMatcher.getNameQuery(firstName, lastName))
+                    .thenApply(users -> UserMatcher.matchName(firstName, lastName, users)));
+        }
+
+        return user.thenApply(foundUser -> {
+            if (foundUser == null)
+            {
+                logger.debug("No users found for {}, {}, {}, {}", username, email, lastName, firstName);
+            }
+            return foundUser;
+        });
+    }
+
+    /**
+     * Searches for the users matching the query string, using the result of an earlier or in-flight search for the same
+     * query if there is one. Failed searches aren't remembered, so they're sent again the next time.
+     *
+     * @param queryString The query string for matching users
+     * @return The (unmodifiable) list of users matching the query string
+     */
+    private CompletableFuture<List<JiraUser>> findUsers(String queryString)
+    {
+        return searchesByQuery.get(queryString, query -> getCached(JiraRequests.USER_SEARCH_PATH, "username=" + query,
+                new UserListTypeReference(), () -> send(requests.getUriBuilder(JiraRequests.USER_SEARCH_PATH)
+                        .addParameter("username", query) // This parameter isn't named well; it's used for username, name, and email
+                        .addParameter("includeInactive", "true"), JiraResponses::readUsers))
+                .thenApply(users -> {
+                    logger.debug("Found {} users using `{}`", users.size(), query);
+                    return Collections.unmodifiableList(users);
+                }));
+    }
+
+    /**
+     * Returns the cached response for the request if there is one, otherwise sends the request and caches the
+     * response.
+     *
+     * @param path          The path of the endpoint
+     * @param query         The parameters that distinguish the request from other requests to the endpoint
+     * @param typeReference The type of the response
+     * @param request       Sends the request if the response isn't cached
+     * @param <T>           The type of the response
+     * @return The response
+     */
+    private <T> CompletableFuture<T> getCached(String path, String query, TypeReference<T> typeReference,
+                                               Supplier<CompletableFuture<T>> request)
+    {
+        T cachedResponse = requests.getCachedResponse(path, query, typeReference);
+        if (cachedResponse != null) return CompletableFuture.completedFuture(cachedResponse);
+
+        return request.get().thenApply(response -> {
+            requests.cacheResponse(path, query, response);
+            return response;
+        });
+    }
+
+    /**
+     * Sends a GET request (once the rate limiter allows it and fewer than the maximum number of requests are in
+     * flight), retrying it as needed, and parses the response.
+     *
+     * @param uriBuilder The URI of the request
+     * @param parser     The parser for the body of a successful response
+     * @param <T>        The type of the response
+     * @return The response
+     */
+    private <T> CompletableFuture<T> send(URIBuilder uriBuilder, ResponseParser<T> parser)
+    {
+        HttpRequest request;
+        try
+        {
+            request = HttpRequest.newBuilder(uriBuilder.build())
+                    .header("Authorization", requests.getAuthorization())
+                    .header("Accept", "application/json")
+                    .timeout(retryPolicy.getDeadline())
+                    .GET()
+                    .build();
+        } catch (URISyntaxException e)
+        {
+            return CompletableFuture.failedFuture(new IOException("Invalid request to " + host, e));
+        }
+
+        return send(request, parser, 1, System.nanoTime() + retryPolicy.getDeadline().toNanos());
+    }
+
+    /**
+     * Makes an attempt at sending a request, and schedules the next attempt if it fails in a way that can be retried
+     * (the same as {@link JiraService}: the server is throttling or temporarily unavailable, or the connection failed).
+     * Each attempt is recorded in the {@link JiraMetrics}.
+     *
+     * @param request       The request
+     * @param parser        The parser for the body of a successful response
+     * @param attempt       The number of the attempt, starting at 1
+     * @param deadlineNanos The {@link System#nanoTime()} by which the request must be done
+     * @param <T>           The type of the response
+     * @return The response
+     */
+    private <T> CompletableFuture<T> send(HttpRequest request, ResponseParser<T> parser, int attempt,
+                                          long deadlineNanos)
+    {
+        long waitNanos = rateLimiter.reserve(deadlineNanos);
+        if (waitNanos < 0)
+        {
+            return CompletableFuture.failedFuture(new IOException("Timed out waiting to send a request to " + host));
+        }
+
+        return delay(waitNanos)
+                .thenCompose(ignored -> acquireRequestPermit())
+                .thenCompose(ignored -> {
+                    long sentNanos = System.nanoTime();
+                    return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                            .whenComplete((response, error) -> {
+                                releaseRequestPermit();
+                                metrics.recordAttempt(host, request.uri().getPath(),
+                                        response == null ? 0 : response.statusCode(),
+                                        response == null ? 0 : response.body().length,
+                                        System.nanoTime() - sentNanos);
+                            });
+                })
+                .handle((response, error) -> {
+                    IOException failure;
+                    Duration retryDelay;
+                    if (error != null)
+                    {
+                        Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                        if (!(cause instanceof IOException)) return CompletableFuture.<T>failedFuture(cause);
+
+                        failure = (IOException) cause;
+                        retryDelay = retryPolicy.getRetryDelay(attempt, 0, null, rateLimiter, deadlineNanos);
+                    } else
+                    {
+                        rateLimiter.onResponseHeaders(name -> response.headers().firstValue(name).orElse(null));
+                        int statusCode = response.statusCode();
+                        if (statusCode < 300)
+                        {
+                            rateLimiter.onSuccess();
+                            try
+                            {
+                                return CompletableFuture.completedFuture(
+                                        parser.parse(new ByteArrayInputStream(response.body())));
+                            } catch (IOException e)
+                            {
+                                return CompletableFuture.<T>failedFuture(e);
+                            }
+                        }
+
+                        failure = new IOException("Request to " + request.uri() + " failed with status " + statusCode);
+                        retryDelay = retryPolicy.getRetryDelay(attempt, statusCode, RetryPolicy.parseRetryAfter(
+                                response.headers().firstValue("Retry-After").orElse(null)), rateLimiter, deadlineNanos);
+                    }
+
+                    if (retryDelay == null) return CompletableFuture.<T>failedFuture(failure);
+
+                    retryCount.incrementAndGet();
+                    metrics.recordRetry(host, request.uri().getPath());
+                    logger.warn("Request to {} failed ({}); retrying (attempt {} of {})", host, failure.getMessage(),
+                            attempt + 1, retryPolicy.getMaxAttempts());
+                    return delay(retryDelay.toNanos())
+                            .thenCompose(ignored -> send(request, parser, attempt + 1, deadlineNanos));
+                })
+                .thenCompose(Function.identity());
+    }
+
+    /**
+     * Waits (without blocking a thread) until fewer than the maximum number of requests are in flight, and takes a
+     * permit to send one. The permit must be released with {@link #releaseRequestPermit()} once the request is done.
+     *
+     * @return A future that completes once the permit is taken
+     */
+    private CompletableFuture<Void> acquireRequestPermit()
+    {
+        if (requestPermits.tryAcquire()) return CompletableFuture.completedFuture(null);
+
+        CompletableFuture<Void> waitingRequest = new CompletableFuture<>();
+        requestsWaitingForPermits.add(waitingRequest);
+        // A permit may have been released while the request was being queued, with no one waiting to take it
+        if (requestPermits.tryAcquire()) releaseRequestPermit();
+        return waitingRequest;
+    }
+
+    /**
+     * Releases the permit of a request that is done, handing it to the next request waiting for one if there is any.
+     */
+    private void releaseRequestPermit()
+    {
+        CompletableFuture<Void> waitingRequest = requestsWaitingForPermits.poll();
+        if (waitingRequest == null)
+        {
+            requestPermits.release();
+        } else
+        {
+            // Send the next request from the service's threads rather than from the callback of this one
+            waitingRequest.completeAsync(() -> null, executorService);
+        }
+    }
+
+    /**
+     * @return The metrics of the requests sent by the service
+     */
+    public JiraMetrics getMetrics()
+    {
+        return metrics;
+    }
+
+    /**
+     * @param nanos How long to wait
+     * @return A future that completes (on the service's threads) after the wait
+     */
+    private CompletableFuture<Void> delay(long nanos)
+    {
+        if (nanos <= 0) return CompletableFuture.completedFuture(null);
+
+        return CompletableFuture.runAsync(() -> {
+        }, CompletableFuture.delayedExecutor(nanos, TimeUnit.NANOSECONDS, executorService));
+    }
+
+    /**
+     * Stops the threads of the service. Any requests still in flight are abandoned.
+     */
+    @Override
+    public void close()
+    {
+        logger.info("Searched for users {} times on {}; {} were answered by an earlier search for the same query",
+                searchesByQuery.getRequestCount(), host, searchesByQuery.getMemoizedCount());
+        if (retryCount.get() > 0)
+        {
+            logger.info("Retried {} requests to {}; the rate ended at {} requests per second", retryCount.get(), host,
+                    String.format("%.1f", rateLimiter.getRequestsPerSecond()));
+        }
+
+        executorService.shutdownNow();
+    }
+
+    @Override
+    public String toString()
+    {
+        return host;
+    }
+
+    /**
+     * A parser for the body of a response.
+     *
+     * @param <T> The type of the response
+     */
+    @FunctionalInterface
+    private interface ResponseParser<T>
+    {
+        T parse(InputStream body) throws IOException;
+    }
+}
@@ -0,0 +1,85 @@
+package us.ctic.jira;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Remembers the future results of computations by key, so each distinct key is only computed once. Concurrent
+ * requests for the same key share a single computation that is already in flight instead of starting their own.
+ * Computations that fail are not remembered, so they are tried again the next time.
+ * <p>
+ * Instances are safe to use from multiple threads.
+ *
+ * @param <K> The type of the keys
+ * @param <V> The type of the results
+ * @since 1.1
+ */
+public class AsyncMemo<K, V>
+{
+    private final ConcurrentMap<K, CompletableFuture<V>> resultsByKey = new ConcurrentHashMap<>();
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong memoizedCount = new AtomicLong();
+
+    /**
+     * Gets the result for the key, using the result of an earlier or in-flight computation for the same key if there
+     * is one. Otherwise the result is computed (on the calling thread, up to the future it returns).
+     *
+     * @param key     The key of the result
+     * @param compute Starts computing the result for a key
+     * @return The result
+     */
+    public CompletableFuture<V> get(K key, Function<? super K, CompletableFuture<V>> compute)
+    {
+        requestCount.incrementAndGet();
+
+        CompletableFuture<V> newResult = new CompletableFuture<>();
+        CompletableFuture<V> existingResult = resultsByKey.putIfAbsent(key, newResult);
+        if (existingResult != null)
+        {
+            memoizedCount.incrementAndGet();
+            return existingResult;
+        }
+
+        // This is the first request for the key, so it's up to us to compute it
+        CompletableFuture<V> result;
+        try
+        {
+            result = compute.apply(key);
+        } catch (RuntimeException e)
+        {
+            result = CompletableFuture.failedFuture(e);
+        }
+
+        result.whenComplete((value, error) -> {
+            if (error != null)
+            {
+                // Don't remember the failure, so the next request for the key tries again
+                resultsByKey.remove(key, newResult);
+                newResult.completeExceptionally(error);
+            } else
+            {
+                newResult.complete(value);
+            }
+        });
+        return newResult;
+    }
+
+    /**
+     * @return The total number of results requested
+     */
+    public long getRequestCount()
+    {
+        return requestCount.get();
+    }
+
+    /**
+     * @return The number of requests answered by an earlier or in-flight computation for the same key
+     */
+    public long getMemoizedCount()
+    {
+        return memoizedCount.get();
+    }
+}
@@ -0,0 +1,212 @@
+package us.ctic.jira;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Maps the usernames found in the CSV export to usernames on the target Jira instance, like {@link UsernameMapper},
+ * but with the non-blocking {@link AsyncJiraService}. Rather than a thread per lookup, a fixed number of lookups are
+ * kept in flight: as soon as one user is resolved, the lookup of the next one starts. Each lookup goes straight from
+ * the source user to the target user, and the servers' rate limiters pace the requests.
+ * <p>
+ * As with {@link UsernameMapper}, users that can't be found are mapped to the default user (unless they match a user of
+ * the downloaded directory by a similar name), while users that couldn't be looked up because of an error are logged
+ * and left out of the mapping.
+ *
+ * @since 1.1
+ */
+public class AsyncUsernameMapper
+{
+    private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    private static final int PROGRESS_LOG_INTERVAL = 500;
+
+    private final AsyncJiraService sourceJiraService;
+    private final AsyncJiraService targetJiraService;
+    private final String defaultTargetUsername;
+    private final boolean lastNameDisplayedFirst;
+    private final int maxLookupsInFlight;
+    private final UserDirectory targetUserDirectory;
+    private final Map<String, NameMatch> ambiguousMatches = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param sourceJiraService      The service for the source Jira instance
+     * @param targetJiraService      The service for the target Jira instance
+     * @param defaultTargetUsername  The username to use when a user can't be found on the target instance
+     * @param lastNameDisplayedFirst True if the last name is listed first in the display names on the source instance
+     * @param maxLookupsInFlight     The maximum number of users being looked up at once
+     * @param targetUserDirectory    The users of the target instance, downloaded in advance, in which to find the
+     *                               target users locally; or null to search the target instance for each user
+     */
+    public AsyncUsernameMapper(AsyncJiraService sourceJiraService, AsyncJiraService targetJiraService,
+                               String defaultTargetUsername, boolean lastNameDisplayedFirst, int maxLookupsInFlight,
+                               UserDirectory targetUserDirectory)
+    {
+        this.sourceJiraService = sourceJiraService;
+        this.targetJiraService = targetJiraService;
+        this.defaultTargetUsername = defaultTargetUsername;
+        this.lastNameDisplayedFirst = lastNameDisplayedFirst;
+        this.maxLookupsInFlight = Math.max(maxLookupsInFlight, 1);
+        this.targetUserDirectory = targetUserDirectory;
+    }
+
+    /**
+     * Creates a mapping of source username to target username for the set of provided names. If a user from the source
+     * Jira instance cannot be found on the target instance, a default user is used instead. Users that couldn't be
+     * looked up because of an error are logged and left out.
+     *
+     * @param csvUsernames The usernames found in the Jira CSV export
+     * @return A map of source usernames to target usernames, sorted by source username
+     */
+    public Map<String, String> createUsernameMapping(Set<String> csvUsernames)
+    {
+        logger.info("Verifying default user {} exists on target server...", defaultTargetUsername);
+        JiraUser defaultUser = targetUserDirectory != null
+                ? targetUserDirectory.findUser(defaultTargetUsername, null, null, null)
+                : targetJiraService.findUserByUsername(defaultTargetUsername).exceptionally(e -> {
+                    logger.error("Error looking up the default user on {}", targetJiraService, e);
+                    return null;
+                }).join();
+        if (defaultUser != null)
+        {
+            logger.info("Found default user: {}", defaultUser);
+        } else
+        {
+            logger.warn("Couldn't find default user on {}: {}", targetJiraService, defaultTargetUsername);
+        }
+
+        logger.info("Looking up {} users on {} and {} (up to {} at a time)...", csvUsernames.size(), sourceJiraService,
+                targetJiraService, maxLookupsInFlight);
+
+        Queue<String> pendingUsernames = new ConcurrentLinkedQueue<>(csvUsernames);
+        Map<String, String> sourceUserToTargetUserMap = new ConcurrentHashMap<>();
+        Queue<String> failedUsernames = new ConcurrentLinkedQueue<>();
+        AtomicInteger resolvedCount = new AtomicInteger();
+
+        List<CompletableFuture<Void>> lookups = new ArrayList<>();
+        for (int i = 0; i < Math.min(maxLookupsInFlight, csvUsernames.size()); i++)
+        {
+            lookups.add(resolveRemainingUsernames(pendingUsernames, sourceUserToTargetUserMap, failedUsernames,
+                    resolvedCount, csvUsernames.size()));
+        }
+        CompletableFuture.allOf(lookups.toArray(new CompletableFuture<?>[0])).join();
+
+        if (!failedUsernames.isEmpty())
+        {
+            logger.error("Couldn't look up {} users because of errors, so they were left out of the mapping; " +
+                    "run the mapping again to retry them: {}", failedUsernames.size(), failedUsernames);
+        }
+
+        return new TreeMap<>(sourceUserToTargetUserMap);
+    }
+
+    /**
+     * Resolves the pending usernames one after another until there are none left.
+     *
+     * @param pendingUsernames          The usernames that haven't been looked up yet
+     * @param sourceUserToTargetUserMap The map to which to add the resolved usernames
+     * @param failedUsernames           The list to which to add the usernames that couldn't be looked up
+     * @param resolvedCount             The number of usernames looked up so far
+     * @param totalCount                The total number of usernames
+     * @return A future that completes when there are no pending usernames left
+     */
+    private CompletableFuture<Void> resolveRemainingUsernames(Queue<String> pendingUsernames,
+                                                              Map<String, String> sourceUserToTargetUserMap,
+                                                              Queue<String> failedUsernames,
+                                                              AtomicInteger resolvedCount, int totalCount)
+    {
+        String sourceUsername = pendingUsernames.poll();
+        if (sourceUsername == null) return CompletableFuture.completedFuture(null);
+
+        return resolveUsername(sourceUsername)
+                .handle((targetUsername, error) -> {
+                    if (error != null)
+                    {
+                        logger.error("Error looking up {}", sourceUsername,
+                                error instanceof CompletionException ? error.getCause() : error);
+                        failedUsernames.add(sourceUsername);
+                    } else
+                    {
+                        sourceUserToTargetUserMap.put(sourceUsername, targetUsername);
+                    }
+
+                    int count = resolvedCount.incrementAndGet();
+                    if (count % PROGRESS_LOG_INTERVAL == 0)
+                    {
+                        logger.info("Resolved {} of {} users...", count, totalCount);
+                    }
+                    return null;
+                })
+                // Continue asynchronously, so lookups answered from the caches don't recurse deeper and deeper
+                .thenComposeAsync(ignored -> resolveRemainingUsernames(pendingUsernames, sourceUserToTargetUserMap,
+                        failedUsernames, resolvedCount, totalCount));
+    }
+
+    /**
+     * Looks up the user on the source instance and then the corresponding user on the target instance.
+     *
+     * @param sourceUsername The username from the CSV export
+     * @return The username on the target instance, or the default username if the user couldn't be found
+     */
+    private CompletableFuture<String> resolveUsername(String sourceUsername)
+    {
+        return sourceJiraService.findUserByUsername(sourceUsername).thenCompose(sourceUser -> {
+            if (sourceUser == null)
+            {
+                logger.warn("User no longer exists on {}: {}; using default instead: {}", sourceJiraService,
+                        sourceUsername, defaultTargetUsername);
+                return CompletableFuture.completedFuture(defaultTargetUsername);
+            }
+            logger.debug("Found user: {}", sourceUser);
+
+            NameParts nameParts = ParseUtils.parseName(sourceUser.getDisplayName(), lastNameDisplayedFirst,
+                    new NameParts());
+            if (!nameParts.hasFirstAndLastName())
+            {
+                logger.debug("Couldn't parse a first and last name from {}: {}", sourceUser, nameParts);
+            }
+            String firstName = nameParts.getFirstName();
+            String lastName = nameParts.getLastName();
+
+            CompletableFuture<JiraUser> targetUser = targetUserDirectory != null
+                    ? CompletableFuture.completedFuture(UserMatcher.findUserInDirectory(targetUserDirectory,
+                    sourceUsername, sourceUser, firstName, lastName, ambiguousMatches))
+                    : targetJiraService.findUser(null, sourceUser.getEmailAddress(), firstName, lastName);
+            return targetUser.thenApply(foundUser -> {
+                if (foundUser == null)
+                {
+                    logger.warn("Couldn't find user on {}: {}; using default instead: {}", targetJiraService,
+                            sourceUser, defaultTargetUsername);
+                    return defaultTargetUsername;
+                }
+
+                logger.debug("Found user: {}", foundUser);
+                return foundUser.getName();
+            });
+        });
+    }
+
+    /**
+     * @return The source usernames that were mapped to the default user although there are users with similar names on
+     * the target instance, and the matches with those users, sorted by source username
+     */
+    public Map<String, NameMatch> getAmbiguousMatches()
+    {
+        return new TreeMap<>(ambiguousMatches);
+    }
+}
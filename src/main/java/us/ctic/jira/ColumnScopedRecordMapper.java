@@ -0,0 +1,181 @@
+package us.ctic.jira;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+
+/**
+ * Maps records by only updating the columns that can contain usernames or issue types: the user columns, the author of
+ * each work log and comment, the users tagged in comments, and the issue type. All other fields (e.g. Summary and
+ * Description) are copied through untouched, so their text is never scanned.
+ *
+ * @since 1.1
+ */
+public class ColumnScopedRecordMapper implements CsvRecordMapper
+{
+    private final Map<String, String> usernameMapping;
+    private final Map<String, String> issueTypeMapping;
+
+    private int[] userColumnIndices = new int[0];
+    private int[] workLogColumnIndices = new int[0];
+    private int[] commentColumnIndices = new int[0];
+    private int[] issueTypeColumnIndices = new int[0];
+
+    /**
+     * Constructor.
+     *
+     * @param usernameMapping  The mapping of source usernames to target usernames
+     * @param issueTypeMapping The mapping of source issue types to target issue types
+     */
+    public ColumnScopedRecordMapper(Map<String, String> usernameMapping, Map<String, String> issueTypeMapping)
+    {
+        this.usernameMapping = usernameMapping;
+        this.issueTypeMapping = issueTypeMapping;
+    }
+
+    @Override
+    public void parseColumnHeaders(String[] headerRow)
+    {
+        List<Integer> userColumns = new ArrayList<>();
+        List<Integer> workLogColumns = new ArrayList<>();
+        List<Integer> commentColumns = new ArrayList<>();
+        List<Integer> issueTypeColumns = new ArrayList<>();
+
+        // Jira reuses column names for things like Comment, so there can be many columns of each kind
+        for (int i = 0; i < headerRow.length; i++)
+        {
+            String columnName = headerRow[i];
+            if (UsernameExtractor.USER_COLUMN_NAMES.contains(columnName))
+            {
+                userColumns.add(i);
+            } else if (UsernameExtractor.WORK_LOG_COLUMN_NAME.equals(columnName))
+            {
+                workLogColumns.add(i);
+            } else if (UsernameExtractor.COMMENT_COLUMN_NAME.equals(columnName))
+            {
+                commentColumns.add(i);
+            } else if (CsvConversionPipeline.ISSUE_TYPE_COLUMN_NAME.equals(columnName))
+            {
+                issueTypeColumns.add(i);
+            }
+        }
+
+        userColumnIndices = toIntArray(userColumns);
+        workLogColumnIndices = toIntArray(workLogColumns);
+        commentColumnIndices = toIntArray(commentColumns);
+        issueTypeColumnIndices = toIntArray(issueTypeColumns);
+    }
+
+    @Override
+    public String[] mapRecord(String[] values)
+    {
+        for (int columnIndex : userColumnIndices)
+        {
+            if (columnIndex < values.length)
+            {
+                values[columnIndex] = usernameMapping.getOrDefault(values[columnIndex], values[columnIndex]);
+            }
+        }
+
+        for (int columnIndex : workLogColumnIndices)
+        {
+            if (columnIndex < values.length)
+            {
+                values[columnIndex] = mapWorkLog(values[columnIndex]);
+            }
+        }
+
+        for (int columnIndex : commentColumnIndices)
+        {
+            if (columnIndex < values.length)
+            {
+                values[columnIndex] = mapComment(values[columnIndex]);
+            }
+        }
+
+        for (int columnIndex : issueTypeColumnIndices)
+        {
+            if (columnIndex < values.length)
+            {
+                values[columnIndex] = issueTypeMapping.getOrDefault(values[columnIndex], values[columnIndex]);
+            }
+        }
+
+        return values;
+    }
+
+    /**
+     * Replaces the username in the provided work log.
+     *
+     * @param workLog The work log to update
+     * @return The updated work log
+     */
+    private String mapWorkLog(String workLog)
+    {
+        // A work log is formatted as <comment>;<date>;<user>;<time_minutes>
+        String[] workLogFields = workLog.split(";", -1);
+
+        if (workLogFields.length < 3) return workLog;
+
+        String targetUsername = usernameMapping.get(workLogFields[2]);
+        if (targetUsername == null) return workLog;
+
+        workLogFields[2] = targetUsername;
+        return String.join(";", workLogFields);
+    }
+
+    /**
+     * Replaces the username of the commenter and any users tagged in the provided comment.
+     *
+     * @param comment The comment to update
+     * @return The updated comment
+     */
+    private String mapComment(String comment)
+    {
+        // A comment is formatted as <date>;<user>;<text>
+        String[] commentFields = comment.split(";", 3);
+
+        if (commentFields.length != 3) return comment;
+
+        String username = usernameMapping.getOrDefault(commentFields[1], commentFields[1]);
+        String text = mapUserTags(commentFields[2]);
+        if (username.equals(commentFields[1]) && text == commentFields[2]) return comment;
+
+        return commentFields[0] + ';' + username + ';' + text;
+    }
+
+    /**
+     * Replaces the usernames in any user tags (e.g. "[~username]") in the provided text.
+     *
+     * @param text The text to update
+     * @return The updated text
+     */
+    private String mapUserTags(String text)
+    {
+        // Most comments don't tag anyone, so avoid the regex entirely for them
+        if (!text.contains("[~")) return text;
+
+        Matcher matcher = UsernameExtractor.USER_TAG_PATTERN.matcher(text);
+        StringBuilder builder = new StringBuilder(text.length());
+        int copiedUpTo = 0;
+        while (matcher.find())
+        {
+            String targetUsername = usernameMapping.get(matcher.group(1));
+            if (targetUsername != null)
+            {
+                builder.append(text, copiedUpTo, matcher.start(1)).append(targetUsername);
+                copiedUpTo = matcher.end(1);
+            }
+        }
+
+        if (copiedUpTo == 0) return text;
+
+        return builder.append(text, copiedUpTo, text.length()).toString();
+    }
+
+    private static int[] toIntArray(List<Integer> list)
+    {
+        return list.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
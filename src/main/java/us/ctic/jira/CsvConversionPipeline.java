@@ -0,0 +1,243 @@
+package us.ctic.jira;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.commons.csv.CSVRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.invoke.MethodHandles;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Converts the exported CSV file(s) in a single streaming pass: each record is read once, the mappings are applied to
+ * it, the columns with data are tracked, and the record is added to the {@link RecordBuckets} for its issue type.
+ * Once all the records have been read, the buckets are written out in issue type order to the final split files with
+ * the empty columns removed. Unlike the step-by-step conversion, no intermediate CSV files are left behind.
+ *
+ * @since 1.1
+ */
+public class CsvConversionPipeline
+{
+    private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    static final String ISSUE_TYPE_COLUMN_NAME = "Issue Type";
+
+    private final List<String> sourceCsvFileNames;
+    private final String targetCsvFileName;
+    private final String splitFolder;
+    private final CsvRecordMapper recordMapper;
+    private final Map<String, String> issueTypeMapping;
+    private final int splitFileMaxIssueCount;
+    private final String tempFolderName;
+    private final long bucketMemoryBudgetBytes;
+
+    private String[] headerRow;
+    private BitSet columnsWithData;
+
+    /**
+     * Constructor.
+     *
+     * @param sourceCsvFileNames      The exported CSV files to convert
+     * @param targetCsvFileName       The file name the converted CSV is based on; used to name the output file(s)
+     * @param splitFolder             The folder to which to save the split files
+     * @param recordMapper            The mapper to apply the user and issue type mappings to each record
+     * @param issueTypeMapping        The mapping of source issue types to target issue types, in import order. If
+     *                                empty, the records aren't ordered or split and a single file is written instead.
+     * @param splitFileMaxIssueCount  The maximum number of issues in each split file
+     * @param tempFolderName          The folder for temporary files, or empty to use the system default
+     * @param bucketMemoryBudgetBytes The approximate number of bytes of records to hold in memory before spilling
+     *                                them to temporary files
+     */
+    public CsvConversionPipeline(List<String> sourceCsvFileNames, String targetCsvFileName, String splitFolder,
+                                 CsvRecordMapper recordMapper, Map<String, String> issueTypeMapping,
+                                 int splitFileMaxIssueCount, String tempFolderName, long bucketMemoryBudgetBytes)
+    {
+        this.sourceCsvFileNames = sourceCsvFileNames;
+        this.targetCsvFileName = targetCsvFileName;
+        this.splitFolder = splitFolder;
+        this.recordMapper = recordMapper;
+        this.issueTypeMapping = issueTypeMapping;
+        this.splitFileMaxIssueCount = splitFileMaxIssueCount;
+        this.tempFolderName = tempFolderName;
+        this.bucketMemoryBudgetBytes = bucketMemoryBudgetBytes;
+    }
+
+    /**
+     * Runs the conversion, writing the final file(s) and cleaning up any temporary files.
+     */
+    public void run()
+    {
+        try (RecordBuckets recordBuckets = new RecordBuckets(tempFolderName, bucketMemoryBudgetBytes))
+        {
+            logger.info("Updating usernames and issue types in CSV file(s): {}", sourceCsvFileNames);
+            for (String sourceCsvFileName : sourceCsvFileNames)
+            {
+                readSourceFile(sourceCsvFileName, recordBuckets);
+            }
+
+            if (headerRow == null || recordBuckets.getRecordCount() == 0)
+            {
+                logger.error("No jira issues found in CSV file(s).");
+                return;
+            }
+
+            writeOutput(recordBuckets);
+        } catch (IOException e)
+        {
+            logger.error("Error converting csv file(s): {}", sourceCsvFileNames, e);
+        }
+    }
+
+    /**
+     * Orders the issue types found in the CSV file(s) by the order of the issue type mapping. Any issue types that
+     * aren't in the mapping are put at the end.
+     *
+     * @param issueTypeMapping The mapping of source issue types to target issue types, in import order
+     * @param foundIssueTypes  The (target) issue types found in the CSV file(s)
+     * @return All the issue types in the order the issues should be imported
+     */
+    static List<String> getIssueTypesInOrder(Map<String, String> issueTypeMapping, Collection<String> foundIssueTypes)
+    {
+        List<String> orderedIssueTypes = issueTypeMapping.values().stream()
+                .distinct()
+                .collect(Collectors.toList());
+
+        List<String> unOrderedIssueTypes = foundIssueTypes.stream()
+                .filter(Predicate.not(orderedIssueTypes::contains))
+                .collect(Collectors.toList());
+
+        if (!unOrderedIssueTypes.isEmpty())
+        {
+            logger.warn("Found Issue Types in the CSV file that were not in the project issue type mapping file: {}",
+                    String.join(", ", unOrderedIssueTypes));
+        }
+
+        return Stream.concat(orderedIssueTypes.stream(), unOrderedIssueTypes.stream())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Streams the records from the source file into the buckets, applying the mappings and noting which columns have
+     * data along the way.
+     *
+     * @param sourceCsvFileName The exported CSV file to read
+     * @param recordBuckets     The buckets for the records
+     * @throws IOException If an error occurs reading the file or writing the buckets, or if the columns of the file
+     *                     don't match the columns of the first file
+     */
+    private void readSourceFile(String sourceCsvFileName, RecordBuckets recordBuckets) throws IOException
+    {
+        try (Reader reader = new FileReader(sourceCsvFileName);
+             CSVParser csvParser = new CSVParser(reader, CSVFormat.DEFAULT))
+        {
+            Iterator<CSVRecord> iterator = csvParser.iterator();
+            if (!iterator.hasNext())
+            {
+                logger.warn("No records found in file {}", sourceCsvFileName);
+                return;
+            }
+
+            // Every exported file has its own header row. The records of all the files are written under the header
+            // row of the first file, so the columns of the other files have to match it exactly.
+            String[] fileHeaderRow = CsvUtils.toArray(iterator.next());
+            if (headerRow == null)
+            {
+                headerRow = fileHeaderRow;
+                columnsWithData = new BitSet(headerRow.length);
+            } else if (!Arrays.equals(fileHeaderRow, headerRow))
+            {
+                throw new IOException("The columns in " + sourceCsvFileName + " don't match the columns in the " +
+                        "first file; export all the files with the same columns");
+            }
+            recordMapper.parseColumnHeaders(fileHeaderRow);
+
+            final int issueTypeIndex = issueTypeMapping.isEmpty()
+                    ? -1
+                    : Arrays.asList(fileHeaderRow).indexOf(ISSUE_TYPE_COLUMN_NAME);
+
+            while (iterator.hasNext())
+            {
+                String[] values = recordMapper.mapRecord(CsvUtils.toArray(iterator.next()));
+
+                // We only need to check the columns where we haven't found data yet
+                for (int columnIndex = columnsWithData.nextClearBit(0);
+                     columnIndex < values.length;
+                     columnIndex = columnsWithData.nextClearBit(columnIndex + 1))
+                {
+                    if (!values[columnIndex].isEmpty())
+                    {
+                        columnsWithData.set(columnIndex);
+                    }
+                }
+
+                String issueType = issueTypeIndex >= 0 && issueTypeIndex < values.length ? values[issueTypeIndex] : "";
+                recordBuckets.add(issueType, values);
+            }
+        }
+    }
+
+    /**
+     * Writes the buckets to the final file(s), leaving out the columns that didn't have any data.
+     *
+     * @param recordBuckets The buckets of records by issue type
+     * @throws IOException If an error occurs reading the buckets or writing the output
+     */
+    private void writeOutput(RecordBuckets recordBuckets) throws IOException
+    {
+        final int[] projection = columnsWithData.stream().toArray();
+        logger.info("Removing {} empty columns of {}", headerRow.length - projection.length, headerRow.length);
+
+        final String[] projectedHeaderRow = CsvUtils.project(headerRow, projection);
+        final String outputFileName = EmptyColumnRemover.getTargetFileName(targetCsvFileName);
+
+        if (issueTypeMapping.isEmpty() || !Arrays.asList(headerRow).contains(ISSUE_TYPE_COLUMN_NAME))
+        {
+            if (!issueTypeMapping.isEmpty())
+            {
+                logger.error("Could not find an issue type column in the CSV file; not splitting the file.");
+            }
+
+            logger.info("Writing converted csv to {}", outputFileName);
+            try (CSVPrinter csvPrinter = new CSVPrinter(new FileWriter(outputFileName),
+                    CSVFormat.DEFAULT.withHeader(projectedHeaderRow)))
+            {
+                for (String issueType : recordBuckets.getKeys())
+                {
+                    recordBuckets.forEachRecord(issueType,
+                            values -> csvPrinter.printRecord((Object[]) CsvUtils.project(values, projection)));
+                }
+            }
+            return;
+        }
+
+        List<String> allIssueTypesInOrder = getIssueTypesInOrder(issueTypeMapping, recordBuckets.getKeys());
+
+        final String fileNamePrefix = ParseUtils.getFileNameWithoutPathOrExtension(outputFileName);
+        try (SplitCsvWriter splitCsvWriter = new SplitCsvWriter(splitFolder, fileNamePrefix, projectedHeaderRow,
+                splitFileMaxIssueCount))
+        {
+            for (String issueType : allIssueTypesInOrder)
+            {
+                recordBuckets.forEachRecord(issueType,
+                        values -> splitCsvWriter.printRecord((Object[]) CsvUtils.project(values, projection)));
+            }
+
+            logger.info("Completed splitting csv into {} files with {} records.", splitCsvWriter.getFileCount(),
+                    splitCsvWriter.getRecordCount());
+        }
+    }
+}
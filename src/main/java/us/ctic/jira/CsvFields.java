@@ -0,0 +1,59 @@
+package us.ctic.jira;
+
+import org.apache.commons.csv.CSVRecord;
+
+/**
+ * Read access to the fields of a CSV record, regardless of how the record was parsed.
+ *
+ * @since 1.1
+ */
+public interface CsvFields
+{
+    /**
+     * @return The number of fields in the record
+     */
+    int size();
+
+    /**
+     * Gets the value of a field.
+     *
+     * @param index The index of the field
+     * @return The value of the field
+     */
+    String get(int index);
+
+    /**
+     * Determines if a field is empty. Implementations should avoid creating the value of the field to check this.
+     *
+     * @param index The index of the field
+     * @return True if the field is empty
+     */
+    default boolean isEmpty(int index)
+    {
+        return get(index).isEmpty();
+    }
+
+    /**
+     * Adapts a record parsed by Apache Commons CSV.
+     *
+     * @param record The CSV record
+     * @return The fields of the record
+     */
+    static CsvFields of(CSVRecord record)
+    {
+        return new CsvFields()
+        {
+            @Override
+            public int size()
+            {
+                return record.size();
+            }
+
+            @Override
+            public String get(int index)
+            {
+                return record.get(index);
+            }
+        };
+    }
+}
@@ -0,0 +1,26 @@
+package us.ctic.jira;
+
+/**
+ * Applies the user and issue type mappings to the records of an exported CSV file.
+ *
+ * @since 1.1
+ */
+public interface CsvRecordMapper
+{
+    /**
+     * Parses the header row of the file whose records are about to be mapped. This must be called before mapping the
+     * records of each file, since the columns can differ between exports.
+     *
+     * @param headerRow The values of the header row
+     */
+    void parseColumnHeaders(String[] headerRow);
+
+    /**
+     * Applies the mappings to the values of a record. Once the header row has been parsed, this may be called
+     * concurrently for the records of the file.
+     *
+     * @param values The values of the record, which may be updated in place
+     * @return The mapped values
+     */
+    String[] mapRecord(String[] values);
+}
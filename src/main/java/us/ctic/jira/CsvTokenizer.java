@@ -0,0 +1,280 @@
+package us.ctic.jira;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Splits CSV records in a byte buffer into fields without copying them. Each field is tracked as an offset and length
+ * into the buffer, and a {@code String} is only created when the value of a field is actually requested, so checking
+ * whether a field is empty or reading just a few columns doesn't allocate anything per field.
+ * <p>
+ * The same {@link Record} instance is reused for every record, so its fields are only valid until the next call to
+ * {@link #nextRecord()}. Like Apache Commons CSV's default format, fields are separated by commas, may be quoted with
+ * double quotes (with {@code ""} as an escaped quote), and empty lines are skipped. The bytes must be in an ASCII
+ * compatible charset (e.g. UTF-8).
+ *
+ * @since 1.1
+ */
+public class CsvTokenizer
+{
+    private static final byte QUOTE = '"';
+    private static final byte COMMA = ',';
+    private static final byte CARRIAGE_RETURN = '\r';
+    private static final byte LINE_FEED = '\n';
+
+    private final ByteBuffer buffer;
+    private final int limit;
+    private final boolean endOfInput;
+    private final Charset charset;
+    private final Record record = new Record();
+
+    private int position;
+    private boolean incomplete;
+
+    /**
+     * Constructor.
+     *
+     * @param buffer     The buffer containing the CSV data, from its position to its limit
+     * @param endOfInput True if the buffer contains the end of the data. If false, a record that runs up to the limit
+     *                   is treated as incomplete rather than ending at the limit.
+     * @param charset    The charset of the data
+     */
+    public CsvTokenizer(ByteBuffer buffer, boolean endOfInput, Charset charset)
+    {
+        this.buffer = buffer;
+        this.position = buffer.position();
+        this.limit = buffer.limit();
+        this.endOfInput = endOfInput;
+        this.charset = charset;
+    }
+
+    /**
+     * Advances to the next record.
+     *
+     * @return True if there was another complete record, or false if the end of the buffer was reached (in which case
+     * {@link #isIncomplete()} indicates if there was a partial record at the end)
+     */
+    public boolean nextRecord()
+    {
+        // Skip any empty lines
+        while (position < limit && isLineBreak(buffer.get(position)))
+        {
+            position++;
+        }
+
+        if (position >= limit) return false;
+
+        final int recordStart = position;
+        record.fieldCount = 0;
+
+        int index = position;
+        while (true)
+        {
+            int start;
+            int end;
+            boolean escapedQuotes = false;
+
+            if (buffer.get(index) == QUOTE)
+            {
+                start = ++index;
+                while (true)
+                {
+                    if (index >= limit) return endRecord(recordStart, -1);
+
+                    if (buffer.get(index) == QUOTE)
+                    {
+                        if (index + 1 >= limit && !endOfInput) return endRecord(recordStart, -1);
+
+                        if (index + 1 < limit && buffer.get(index + 1) == QUOTE)
+                        {
+                            escapedQuotes = true;
+                            index += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    index++;
+                }
+                end = index++;
+
+                // Anything between the closing quote and the delimiter is malformed, so just skip it
+                while (index < limit && buffer.get(index) != COMMA && !isLineBreak(buffer.get(index)))
+                {
+                    index++;
+                }
+            } else
+            {
+                start = index;
+                while (index < limit && buffer.get(index) != COMMA && !isLineBreak(buffer.get(index)))
+                {
+                    index++;
+                }
+                end = index;
+            }
+
+            record.addField(start, end, escapedQuotes);
+
+            if (index >= limit)
+            {
+                return endRecord(recordStart, endOfInput ? index : -1);
+            }
+
+            byte delimiter = buffer.get(index++);
+            if (delimiter == COMMA)
+            {
+                if (index >= limit)
+                {
+                    if (!endOfInput) return endRecord(recordStart, -1);
+
+                    // A trailing comma at the very end means there's one more (empty) field
+                    record.addField(index, index, false);
+                    return endRecord(recordStart, index);
+                }
+                continue;
+            }
+
+            if (delimiter == CARRIAGE_RETURN && index < limit && buffer.get(index) == LINE_FEED)
+            {
+                index++;
+            }
+            return endRecord(recordStart, index);
+        }
+    }
+
+    /**
+     * @return The current record; only valid until the next call to {@link #nextRecord()}
+     */
+    public Record getRecord()
+    {
+        return record;
+    }
+
+    /**
+     * @return True if the end of the buffer was reached in the middle of a record
+     */
+    public boolean isIncomplete()
+    {
+        return incomplete;
+    }
+
+    /**
+     * @return The position in the buffer after the last complete record (or at the start of the incomplete one)
+     */
+    public int getPosition()
+    {
+        return position;
+    }
+
+    /**
+     * Finishes reading a record.
+     *
+     * @param recordStart The position where the record started
+     * @param recordEnd   The position after the end of the record, or -1 if the record is incomplete
+     * @return True if the record is complete
+     */
+    private boolean endRecord(int recordStart, int recordEnd)
+    {
+        if (recordEnd < 0)
+        {
+            incomplete = true;
+            position = recordStart;
+            record.fieldCount = 0;
+            return false;
+        }
+
+        position = recordEnd;
+        return true;
+    }
+
+    private static boolean isLineBreak(byte b)
+    {
+        return b == LINE_FEED || b == CARRIAGE_RETURN;
+    }
+
+    /**
+     * A reusable view of the fields of the current record.
+     */
+    public class Record implements CsvFields
+    {
+        private int[] fieldStarts = new int[64];
+        private int[] fieldEnds = new int[64];
+        private boolean[] fieldHasEscapedQuotes = new boolean[64];
+        private int fieldCount;
+
+        private void addField(int start, int end, boolean escapedQuotes)
+        {
+            if (fieldCount == fieldStarts.length)
+            {
+                fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+                fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+                fieldHasEscapedQuotes = Arrays.copyOf(fieldHasEscapedQuotes, fieldCount * 2);
+            }
+            fieldStarts[fieldCount] = start;
+            fieldEnds[fieldCount] = end;
+            fieldHasEscapedQuotes[fieldCount] = escapedQuotes;
+            fieldCount++;
+        }
+
+        @Override
+        public int size()
+        {
+            return fieldCount;
+        }
+
+        @Override
+        public boolean isEmpty(int index)
+        {
+            checkIndex(index);
+            return fieldStarts[index] == fieldEnds[index];
+        }
+
+        /**
+         * @param index The index of the field
+         * @return The number of bytes in the (unquoted) field
+         */
+        public int getLength(int index)
+        {
+            checkIndex(index);
+            return fieldEnds[index] - fieldStarts[index];
+        }
+
+        @Override
+        public String get(int index)
+        {
+            checkIndex(index);
+            int start = fieldStarts[index];
+            int end = fieldEnds[index];
+            if (start == end) return "";
+
+            byte[] bytes = new byte[end - start];
+            ByteBuffer field = buffer.duplicate();
+            field.limit(end).position(start);
+            field.get(bytes);
+
+            String value = new String(bytes, charset);
+            return fieldHasEscapedQuotes[index] ? value.replace("\"\"", "\"") : value;
+        }
+
+        /**
+         * @return The values of all the fields
+         */
+        public String[] toArray()
+        {
+            String[] values = new String[fieldCount];
+            for (int i = 0; i < fieldCount; i++)
+            {
+                values[i] = get(i);
+            }
+            return values;
+        }
+
+        private void checkIndex(int index)
+        {
+            if (index < 0 || index >= fieldCount)
+            {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for " + fieldCount + " fields");
+            }
+        }
+    }
+}
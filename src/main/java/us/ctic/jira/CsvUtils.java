@@ -0,0 +1,75 @@
+package us.ctic.jira;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Helpers for working with the values of CSV records.
+ *
+ * @since 1.1
+ */
+public class CsvUtils
+{
+    /**
+     * Copies the values out of the record.
+     *
+     * @param record The CSV record
+     * @return The values of the record
+     */
+    public static String[] toArray(CSVRecord record)
+    {
+        String[] values = new String[record.size()];
+        for (int i = 0; i < values.length; i++)
+        {
+            values[i] = record.get(i);
+        }
+        return values;
+    }
+
+    /**
+     * Gets just the values at the provided indices. Indices beyond the end of the values result in empty strings.
+     *
+     * @param values     The values of a record
+     * @param projection The indices of the values to keep
+     * @return The projected values
+     */
+    public static String[] project(String[] values, int[] projection)
+    {
+        String[] projectedValues = new String[projection.length];
+        for (int i = 0; i < projection.length; i++)
+        {
+            int columnIndex = projection[i];
+            projectedValues[i] = columnIndex < values.length ? values[columnIndex] : "";
+        }
+        return projectedValues;
+    }
+
+    /**
+     * Formats the records as CSV text.
+     *
+     * @param records The values of each record
+     * @return The CSV text, with a record separator after each record
+     * @throws IOException If the records couldn't be formatted
+     */
+    public static String toCsvText(List<String[]> records) throws IOException
+    {
+        StringBuilder csvText = new StringBuilder();
+        try (CSVPrinter csvPrinter = new CSVPrinter(csvText, CSVFormat.DEFAULT))
+        {
+            for (String[] values : records)
+            {
+                csvPrinter.printRecord((Object[]) values);
+            }
+        }
+        return csvText.toString();
+    }
+
+    private CsvUtils()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
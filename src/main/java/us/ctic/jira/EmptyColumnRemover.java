@@ -7,11 +7,17 @@ import org.apache.commons.csv.CSVRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedWriter;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.Reader;
+import java.io.Writer;
 import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -25,6 +31,8 @@ public class EmptyColumnRemover
 
     private static final String FILE_SUFFIX = "_noEmptyColumns.csv";
     private final String sourceCsvFileName;
+    private final ParallelCsvReader parallelCsvReader;
+    private final boolean memoryMappedParsing;
 
     /**
      * Constructor.
@@ -32,82 +40,299 @@ public class EmptyColumnRemover
      * @param sourceCsvFileName The name of the file from which to remove empty columns
      */
     public EmptyColumnRemover(String sourceCsvFileName)
+    {
+        this(sourceCsvFileName, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param sourceCsvFileName The name of the file from which to remove empty columns
+     * @param parallelCsvReader The reader with which to parse chunks of the file in parallel, or null to parse the
+     *                          file sequentially
+     * @since 1.1
+     */
+    public EmptyColumnRemover(String sourceCsvFileName, ParallelCsvReader parallelCsvReader)
+    {
+        this(sourceCsvFileName, parallelCsvReader, false);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param sourceCsvFileName   The name of the file from which to remove empty columns
+     * @param parallelCsvReader   The reader with which to parse chunks of the file in parallel, or null to parse the
+     *                            file sequentially
+     * @param memoryMappedParsing True to find the empty columns by splitting the records into fields directly over the
+     *                            bytes of the file (see {@link MappedCsvReader}), without decoding the values; false to
+     *                            parse the file with Apache Commons CSV
+     * @since 1.1
+     */
+    public EmptyColumnRemover(String sourceCsvFileName, ParallelCsvReader parallelCsvReader,
+                              boolean memoryMappedParsing)
     {
         this.sourceCsvFileName = sourceCsvFileName;
+        this.parallelCsvReader = parallelCsvReader;
+        this.memoryMappedParsing = memoryMappedParsing;
     }
 
     /**
      * Searches the file to determine which columns are empty across all records, removes them, and writes the data to a
-     * new file.
+     * new file. The records are streamed, so the file is never loaded into memory all at once.
      *
-     * @return The name of the new file containing the data without the empty columns
+     * @return The name of the new file containing the data without the empty columns, or the name of the source file if
+     * there weren't any empty columns to remove
      */
     public String removeEmptyColumns()
     {
-        boolean[] columnHasDataArray;
+        if (parallelCsvReader != null)
+        {
+            return removeEmptyColumnsInParallel();
+        }
+
+        final BitSet columnsWithData = new BitSet();
+        final int columnCount = memoryMappedParsing
+                ? findColumnsWithDataInMappedFile(columnsWithData)
+                : findColumnsWithData(columnsWithData);
+
+        if (columnCount < 0) return sourceCsvFileName;
+
+        if (columnsWithData.cardinality() == columnCount)
+        {
+            logger.info("No empty columns found in file {}", sourceCsvFileName);
+            return sourceCsvFileName;
+        }
+
+        final int[] projection = columnsWithData.stream().toArray();
+        logger.info("Removing {} empty columns of {} from file {}", columnCount - projection.length, columnCount,
+                sourceCsvFileName);
 
-        // First loop over all CSV records and keep track of any columns that don't have any data
+        final String targetFileName = getTargetFileName(sourceCsvFileName);
+
+        // Loop back over the records again, but only write out columns with data
+        try (Reader reader = new FileReader(sourceCsvFileName);
+             CSVParser csvParser = new CSVParser(reader, CSVFormat.DEFAULT);
+             CSVPrinter csvPrinter = new CSVPrinter(new FileWriter(targetFileName), CSVFormat.DEFAULT))
+        {
+            for (CSVRecord record : csvParser)
+            {
+                for (int columnIndex : projection)
+                {
+                    csvPrinter.print(columnIndex < record.size() ? record.get(columnIndex) : "");
+                }
+                csvPrinter.println(); // Print the record separator
+            }
+        } catch (IOException e)
+        {
+            logger.error("Error writing to file: {}", targetFileName, e);
+        }
+
+        return targetFileName;
+    }
+
+    /**
+     * Searches the file for the columns that have data in any record, parsing it with Apache Commons CSV.
+     *
+     * @param columnsWithData The set to which to add the columns with data
+     * @return The number of columns, or -1 if the file couldn't be searched
+     */
+    private int findColumnsWithData(BitSet columnsWithData)
+    {
         try (Reader reader = new FileReader(sourceCsvFileName);
              CSVParser csvParser = new CSVParser(reader, CSVFormat.DEFAULT))
         {
-            List<CSVRecord> records = csvParser.getRecords();
+            Iterator<CSVRecord> iterator = csvParser.iterator();
 
-            if (records.isEmpty())
+            if (!iterator.hasNext())
             {
                 logger.warn("No records found in file {}", sourceCsvFileName);
-                return sourceCsvFileName;
+                return -1;
             }
 
-            columnHasDataArray = new boolean[records.get(0).size()];
-            for (int i = 1; i < records.size(); i++) // Skip header row (since it will obviously not be empty)
+            final int columnCount = iterator.next().size(); // Skip header row (since it will obviously not be empty)
+
+            // Once every column has data there's nothing left to find, so we can stop reading
+            while (columnsWithData.cardinality() < columnCount && iterator.hasNext())
             {
-                CSVRecord record = records.get(i);
-                for (int columnIndex = 0; columnIndex < columnHasDataArray.length; columnIndex++)
-                {
-                    final boolean columnHasData = columnHasDataArray[columnIndex];
-
-                    // We only need to check the record for columns where we haven't found data yet
-                    if (!columnHasData)
-                    {
-                        final String columnText = record.get(columnIndex);
-                        columnHasDataArray[columnIndex] = columnText != null && !columnText.isEmpty();
-                    }
-                }
+                addColumnsWithData(CsvFields.of(iterator.next()), columnCount, columnsWithData);
             }
+            return columnCount;
         } catch (IOException e)
         {
             logger.error("Error parsing file: {}; empty columns not removed", sourceCsvFileName, e);
-            return sourceCsvFileName;
+            return -1;
         }
+    }
 
-        final String fileNameWithoutExtension = ParseUtils.getFileNameWithoutExtension(sourceCsvFileName);
-        final String targetFileName = fileNameWithoutExtension + FILE_SUFFIX;
-
-        // Loop back over the records again, but only write out columns with data
-        try (Reader reader = new FileReader(sourceCsvFileName);
-             CSVParser csvParser = new CSVParser(reader, CSVFormat.DEFAULT);
-             CSVPrinter csvPrinter = new CSVPrinter(new FileWriter(targetFileName), CSVFormat.DEFAULT))
+    /**
+     * Searches the memory-mapped file for the columns that have data in any record. Only the lengths of the fields are
+     * checked, so none of the values are decoded.
+     *
+     * @param columnsWithData The set to which to add the columns with data
+     * @return The number of columns, or -1 if the file couldn't be searched
+     */
+    private int findColumnsWithDataInMappedFile(BitSet columnsWithData)
+    {
+        try (MappedCsvReader csvReader = new MappedCsvReader(sourceCsvFileName))
         {
-            List<CSVRecord> records = csvParser.getRecords();
+            if (!csvReader.nextRecord())
+            {
+                logger.warn("No records found in file {}", sourceCsvFileName);
+                return -1;
+            }
+
+            final int columnCount = csvReader.getRecord().size(); // Skip header row
 
-            for (CSVRecord record : records)
+            while (columnsWithData.cardinality() < columnCount && csvReader.nextRecord())
             {
-                for (int columnIndex = 0; columnIndex < columnHasDataArray.length; columnIndex++)
-                {
-                    final boolean columnHasData = columnHasDataArray[columnIndex];
+                addColumnsWithData(csvReader.getRecord(), columnCount, columnsWithData);
+            }
+            return columnCount;
+        } catch (IOException e)
+        {
+            logger.error("Error parsing file: {}; empty columns not removed", sourceCsvFileName, e);
+            return -1;
+        }
+    }
 
-                    if (columnHasData)
-                    {
-                        csvPrinter.print(record.get(columnIndex));
-                    }
-                }
-                csvPrinter.println(); // Print the record separator
+    /**
+     * Same as {@link #removeEmptyColumns()}, but parses chunks of the file in parallel. The chunks are written to the new
+     * file in their original order, so the output is the same.
+     *
+     * @return The name of the new file containing the data without the empty columns, or the name of the source file if
+     * there weren't any empty columns to remove
+     */
+    private String removeEmptyColumnsInParallel()
+    {
+        final int[] columnCount = {-1};
+        final BitSet columnsWithData = new BitSet();
+
+        // First find the columns with data in each chunk and combine them, stopping once every column has data
+        try
+        {
+            ParallelCsvReader.HeaderHandler headerHandler = headerRow -> columnCount[0] = headerRow.length;
+            ParallelCsvReader.ResultConsumer<BitSet> resultConsumer = chunkColumnsWithData -> {
+                columnsWithData.or(chunkColumnsWithData);
+                return columnsWithData.cardinality() < columnCount[0];
+            };
+
+            if (memoryMappedParsing)
+            {
+                parallelCsvReader.tokenizeChunks(sourceCsvFileName, headerHandler,
+                        tokenizer -> {
+                            BitSet chunkColumnsWithData = new BitSet(columnCount[0]);
+                            while (chunkColumnsWithData.cardinality() < columnCount[0] && tokenizer.nextRecord())
+                            {
+                                addColumnsWithData(tokenizer.getRecord(), columnCount[0], chunkColumnsWithData);
+                            }
+                            return chunkColumnsWithData;
+                        },
+                        resultConsumer);
+            } else
+            {
+                parallelCsvReader.processChunks(sourceCsvFileName, headerHandler,
+                        records -> findColumnsWithData(records, columnCount[0]),
+                        resultConsumer);
             }
         } catch (IOException e)
+        {
+            logger.error("Error parsing file: {}; empty columns not removed", sourceCsvFileName, e);
+            return sourceCsvFileName;
+        }
+
+        if (columnCount[0] < 0)
+        {
+            logger.warn("No records found in file {}", sourceCsvFileName);
+            return sourceCsvFileName;
+        }
+
+        if (columnsWithData.cardinality() == columnCount[0])
+        {
+            logger.info("No empty columns found in file {}", sourceCsvFileName);
+            return sourceCsvFileName;
+        }
+
+        final int[] projection = columnsWithData.stream().toArray();
+        logger.info("Removing {} empty columns of {} from file {}", columnCount[0] - projection.length, columnCount[0],
+                sourceCsvFileName);
+
+        final String targetFileName = getTargetFileName(sourceCsvFileName);
+
+        // Project each chunk to CSV text in parallel, and write the text out in order
+        try (Writer writer = new BufferedWriter(new FileWriter(targetFileName)))
+        {
+            parallelCsvReader.processChunks(sourceCsvFileName,
+                    headerRow -> writer.write(CsvUtils.toCsvText(Collections.singletonList(CsvUtils.project(headerRow, projection)))),
+                    records -> {
+                        List<String[]> projectedRecords = new ArrayList<>();
+                        for (CSVRecord record : records)
+                        {
+                            projectedRecords.add(CsvUtils.project(CsvUtils.toArray(record), projection));
+                        }
+                        return CsvUtils.toCsvText(projectedRecords);
+                    },
+                    csvText -> {
+                        writer.write(csvText);
+                        return true;
+                    });
+        } catch (IOException e)
         {
             logger.error("Error writing to file: {}", targetFileName, e);
         }
 
         return targetFileName;
     }
+
+    /**
+     * Finds the columns that have data in any of the provided records.
+     *
+     * @param records     The records to search
+     * @param columnCount The number of columns
+     * @return The set of columns with data
+     */
+    private static BitSet findColumnsWithData(Iterable<CSVRecord> records, int columnCount)
+    {
+        BitSet columnsWithData = new BitSet(columnCount);
+        for (CSVRecord record : records)
+        {
+            addColumnsWithData(CsvFields.of(record), columnCount, columnsWithData);
+
+            if (columnsWithData.cardinality() == columnCount) break;
+        }
+        return columnsWithData;
+    }
+
+    /**
+     * Adds the columns that have data in the provided record to the set. Only the columns that aren't already in the set
+     * are checked.
+     *
+     * @param record          The fields of the record
+     * @param columnCount     The number of columns
+     * @param columnsWithData The set of columns with data
+     */
+    private static void addColumnsWithData(CsvFields record, int columnCount, BitSet columnsWithData)
+    {
+        final int recordSize = Math.min(record.size(), columnCount);
+
+        for (int columnIndex = columnsWithData.nextClearBit(0);
+             columnIndex < recordSize;
+             columnIndex = columnsWithData.nextClearBit(columnIndex + 1))
+        {
+            if (!record.isEmpty(columnIndex))
+            {
+                columnsWithData.set(columnIndex);
+            }
+        }
+    }
+
+    /**
+     * Gets the name of the file to which the data without the empty columns is written.
+     *
+     * @param sourceCsvFileName The name of the file from which empty columns are removed
+     * @return The name of the file without the empty columns
+     */
+    static String getTargetFileName(String sourceCsvFileName)
+    {
+        return ParseUtils.getFileNameWithoutExtension(sourceCsvFileName) + FILE_SUFFIX;
+    }
 }
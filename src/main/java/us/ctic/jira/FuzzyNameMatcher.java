@@ -0,0 +1,513 @@
+package us.ctic.jira;
+
+import org.apache.commons.codec.language.DoubleMetaphone;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds the users whose display names are similar to a name, for the people that can't be found by email or by an
+ * exact first and last name: compound names ("Ann Marie Smith" and "Annmarie Smith"), nicknames ("Bill" and
+ * "William"), accents ("Jos&eacute;" and "Jose"), suffixes and middle initials, and names in a different order
+ * ("Smith, John" and "John Smith").
+ * <p>
+ * Names are normalized into words first with {@link ParseUtils#normalizeName(String, NameParts)}: accents are removed,
+ * everything is lowercased and split on anything that isn't a letter or a digit, suffixes and titles are dropped (and
+ * middle initials, if there are at least two other words), and then common nicknames are replaced by the full name. To
+ * avoid scoring every user, the candidates are found through blocking keys: the Double Metaphone codes of each word
+ * (and longer codes of each pair of adjacent words, for compound names) and the trigrams of each word. A word's block
+ * is the users with a word that sounds the same or, if that's an uncommon word, that shares at least half its trigrams.
+ * The candidates are the users in the blocks of the uncommon words and word pairs, plus the users in the blocks of at
+ * least two of the common words (e.g. the users named both "John" and "Smith").
+ * <p>
+ * Each candidate is scored from 0 to 1 with the Jaro-Winkler similarity of the words: the score is that of the worst
+ * matching word of the shorter name (with the best matching word of the other name), lowered a little for each extra
+ * word of the longer one. Names that are the same once the spaces are removed score 1. The best candidate is a
+ * confident match if it scores at least {@value #ACCEPT_SCORE} and at least {@value #MIN_MARGIN} more than the next
+ * one; otherwise the candidates that score at least {@value #REVIEW_SCORE} are reported for review.
+ * <p>
+ * Instances are immutable and safe to share between threads.
+ *
+ * @since 1.1
+ */
+public class FuzzyNameMatcher
+{
+    static final double ACCEPT_SCORE = 0.93;
+    static final double REVIEW_SCORE = 0.85;
+    static final double MIN_MARGIN = 0.02;
+
+    // The users in the blocks of a word beyond which the word is too common to narrow down the candidates on its own
+    private static final int MAX_BLOCK_SIZE = 1000;
+    // Trigrams shared by more users than this (e.g. " jo") aren't used for blocking
+    private static final int MAX_TRIGRAM_BLOCK_SIZE = 10 * MAX_BLOCK_SIZE;
+    private static final int MAX_REPORTED_CANDIDATES = 3;
+    // A name with extra words (e.g. a middle name) can still match, but less well for each one
+    private static final double EXTRA_WORD_FACTOR = 0.97;
+    // The similarity of an initial with a word that starts with it
+    private static final double INITIAL_SCORE = 0.9;
+    // A single word isn't enough to identify a person, so it never matches confidently
+    private static final double MAX_SINGLE_WORD_SCORE = 0.9;
+    private static final double WINKLER_PREFIX_SCALE = 0.1;
+    private static final int WINKLER_MAX_PREFIX = 4;
+
+    // Each row is a name followed by its nicknames and variants
+    private static final String[][] NICKNAMES = {
+            {"william", "bill", "billy", "will", "willy", "liam"},
+            {"robert", "bob", "bobby", "rob", "robbie", "bert"},
+            {"richard", "rick", "ricky", "rich", "dick"},
+            {"james", "jim", "jimmy", "jamie"},
+            {"john", "jack", "johnny", "jon"},
+            {"joseph", "joe", "joey"},
+            {"thomas", "tom", "tommy"},
+            {"michael", "mike", "mikey", "mick"},
+            {"christopher", "chris", "kit"},
+            {"daniel", "dan", "danny"},
+            {"david", "dave", "davey"},
+            {"matthew", "matt"},
+            {"anthony", "tony"},
+            {"andrew", "andy", "drew"},
+            {"steven", "steve", "stephen", "stevie"},
+            {"edward", "ed", "eddie", "ted", "ned"},
+            {"charles", "charlie", "chuck", "chas"},
+            {"benjamin", "ben", "benny"},
+            {"samuel", "sam", "sammy"},
+            {"alexander", "alex"},
+            {"nicholas", "nick", "nicky"},
+            {"timothy", "tim", "timmy"},
+            {"patrick", "pat", "paddy"},
+            {"gregory", "greg"},
+            {"jeffrey", "jeff", "geoffrey"},
+            {"kenneth", "ken", "kenny"},
+            {"ronald", "ron", "ronnie"},
+            {"donald", "don", "donnie"},
+            {"douglas", "doug"},
+            {"peter", "pete"},
+            {"raymond", "ray"},
+            {"lawrence", "larry", "laurence"},
+            {"gerald", "gerry", "jerry"},
+            {"frederick", "fred", "freddie"},
+            {"elizabeth", "liz", "lizzie", "beth", "betty", "eliza"},
+            {"margaret", "maggie", "meg", "peggy", "marge"},
+            {"katherine", "kate", "katie", "kathy", "catherine", "kathryn", "cathy"},
+            {"jennifer", "jen", "jenny"},
+            {"susan", "sue", "susie"},
+            {"deborah", "debbie", "deb", "debra"},
+            {"rebecca", "becky", "becca"},
+            {"patricia", "patty", "trish", "tricia"},
+            {"barbara", "barb"},
+            {"victoria", "vicky", "tori"},
+            {"abigail", "abby"},
+            {"jacqueline", "jackie"},
+            {"theresa", "teresa", "terri", "tess"},
+            {"pamela", "pam"},
+            {"cynthia", "cindy"},
+            {"kimberly", "kim"},
+    };
+    private static final Map<String, String> NAMES_BY_NICKNAME = new HashMap<>();
+
+    static
+    {
+        for (String[] names : NICKNAMES)
+        {
+            for (int i = 1; i < names.length; i++)
+            {
+                NAMES_BY_NICKNAME.putIfAbsent(names[i], names[0]);
+            }
+        }
+    }
+
+    private static final DoubleMetaphone wordEncoder = new DoubleMetaphone();
+    // Longer codes for the pairs of words, since the default four characters would only encode the first word
+    private static final DoubleMetaphone wordPairEncoder = new DoubleMetaphone();
+
+    static
+    {
+        wordPairEncoder.setMaxCodeLen(8);
+    }
+
+    // The users in username order; a user's id is its position
+    private final JiraUser[] users;
+    private final String[][] userWords;
+    private final String[] userJoinedWords;
+    private final Map<String, int[]> userIdsByPhoneticCode;
+    private final Map<String, int[]> userIdsByTrigram;
+
+    /**
+     * Constructor.
+     *
+     * @param users The users to match against, with unique usernames
+     */
+    public FuzzyNameMatcher(Collection<JiraUser> users)
+    {
+        this.users = users.stream().filter(user -> user.getName() != null).toArray(JiraUser[]::new);
+        Arrays.sort(this.users, (user1, user2) -> user1.getName().compareTo(user2.getName()));
+
+        userWords = new String[this.users.length][];
+        userJoinedWords = new String[this.users.length];
+        Map<String, PostingLists.Builder> phoneticCodePostings = new HashMap<>();
+        Map<String, PostingLists.Builder> trigramPostings = new HashMap<>();
+        // Most words are shared by many users, so compute their keys once
+        Map<String, Set<String>> phoneticCodesByWord = new HashMap<>();
+        Map<String, Set<String>> phoneticCodesByWordPair = new HashMap<>();
+        Map<String, List<String>> trigramsByWord = new HashMap<>();
+        NameParts nameParts = new NameParts();
+        for (int id = 0; id < this.users.length; id++)
+        {
+            String[] words = normalizeName(this.users[id].getDisplayName(), nameParts);
+            userWords[id] = words;
+            userJoinedWords[id] = String.join("", words);
+            for (String word : words)
+            {
+                for (String code : phoneticCodesByWord.computeIfAbsent(word, w -> getPhoneticCodes(w, wordEncoder)))
+                {
+                    phoneticCodePostings.computeIfAbsent(code, k -> new PostingLists.Builder()).add(id);
+                }
+                for (String trigram : trigramsByWord.computeIfAbsent(word, FuzzyNameMatcher::getTrigrams))
+                {
+                    trigramPostings.computeIfAbsent(trigram, k -> new PostingLists.Builder()).add(id);
+                }
+            }
+            for (String wordPair : getWordPairs(userWords[id]))
+            {
+                for (String code : phoneticCodesByWordPair.computeIfAbsent(wordPair,
+                        w -> getPhoneticCodes(w, wordPairEncoder)))
+                {
+                    phoneticCodePostings.computeIfAbsent(code, k -> new PostingLists.Builder()).add(id);
+                }
+            }
+        }
+
+        userIdsByPhoneticCode = PostingLists.build(phoneticCodePostings);
+        userIdsByTrigram = PostingLists.build(trigramPostings);
+    }
+
+    /**
+     * Finds the users with names similar to a display name.
+     *
+     * @param displayName The display name
+     * @return The match, with the candidates that scored at least {@value #REVIEW_SCORE}
+     */
+    public NameMatch match(String displayName)
+    {
+        String[] words = normalizeName(displayName, new NameParts());
+        if (words.length == 0) return NameMatch.NO_MATCH;
+
+        String joinedWords = String.join("", words);
+
+        // The best candidates so far, best first
+        int[] bestIds = new int[MAX_REPORTED_CANDIDATES + 1];
+        double[] bestScores = new double[MAX_REPORTED_CANDIDATES + 1];
+        int bestCount = 0;
+        for (int id : findCandidateIds(words))
+        {
+            double score = score(words, joinedWords, userWords[id], userJoinedWords[id]);
+            if (score < REVIEW_SCORE) continue;
+
+            // Insert it in order; ids are visited in increasing order, so ties stay in username order
+            int i = bestCount++;
+            while (i > 0 && bestScores[i - 1] < score)
+            {
+                bestIds[i] = bestIds[i - 1];
+                bestScores[i] = bestScores[i - 1];
+                i--;
+            }
+            bestIds[i] = id;
+            bestScores[i] = score;
+            bestCount = Math.min(bestCount, MAX_REPORTED_CANDIDATES);
+        }
+        if (bestCount == 0) return NameMatch.NO_MATCH;
+
+        List<JiraUser> candidates = new ArrayList<>(bestCount);
+        for (int i = 0; i < bestCount; i++)
+        {
+            candidates.add(users[bestIds[i]]);
+        }
+        boolean confident = bestScores[0] >= ACCEPT_SCORE
+                && (bestCount == 1 || bestScores[0] - bestScores[1] >= MIN_MARGIN);
+        return new NameMatch(candidates, Arrays.copyOf(bestScores, bestCount), confident);
+    }
+
+    /**
+     * @return The number of users that can be matched
+     */
+    public int size()
+    {
+        return users.length;
+    }
+
+    /**
+     * @param words The normalized words of a name
+     * @return The concatenations of each pair of adjacent words, so compound names are in the same blocks whether
+     * they're written as one word or two (e.g. "Annmarie" and "Ann Marie")
+     */
+    private static List<String> getWordPairs(String[] words)
+    {
+        if (words.length < 2) return Collections.emptyList();
+
+        List<String> wordPairs = new ArrayList<>(words.length - 1);
+        for (int i = 1; i < words.length; i++)
+        {
+            wordPairs.add(words[i - 1] + words[i]);
+        }
+        return wordPairs;
+    }
+
+    private int[] findCandidateIds(String[] words)
+    {
+        int[] candidateIds = PostingLists.EMPTY;
+        List<int[]> commonBlocks = new ArrayList<>(words.length);
+        for (String word : words)
+        {
+            int[] block = findBlock(word);
+            if (block.length > MAX_BLOCK_SIZE)
+            {
+                commonBlocks.add(block);
+            } else
+            {
+                candidateIds = PostingLists.union(candidateIds, block);
+            }
+        }
+
+        // The blocks of the common words are too big to score on their own, but the users in more than one of them
+        // (e.g. the users named both "John" and "Smith") are likely enough
+        if (commonBlocks.size() == 1)
+        {
+            candidateIds = PostingLists.union(candidateIds, commonBlocks.get(0));
+        }
+        for (int i = 0; i < commonBlocks.size(); i++)
+        {
+            for (int j = i + 1; j < commonBlocks.size(); j++)
+            {
+                candidateIds = PostingLists.union(candidateIds,
+                        PostingLists.intersect(commonBlocks.get(i), commonBlocks.get(j)));
+            }
+        }
+
+        // The pairs of words are only blocked by sound, since their trigrams are mostly those of the single words
+        for (String wordPair : getWordPairs(words))
+        {
+            int[] block = findIdsByPhoneticCodes(wordPair, wordPairEncoder);
+            if (block.length <= MAX_BLOCK_SIZE) candidateIds = PostingLists.union(candidateIds, block);
+        }
+        return candidateIds;
+    }
+
+    /**
+     * @param word A normalized word
+     * @return The ids of the users with a word that sounds the same, and if that's an uncommon word, also those with a
+     * word that shares at least half its trigrams
+     */
+    private int[] findBlock(String word)
+    {
+        int[] block = findIdsByPhoneticCodes(word, wordEncoder);
+        // The trigrams of a common word would only make its block bigger
+        if (block.length > MAX_BLOCK_SIZE) return block;
+
+        // The trigrams catch misspellings that sound different, unless they pull in a common word (e.g. "Smithers" and
+        // "Smith"), in which case they would hide an uncommon word among the common ones
+        int[] blockWithTrigrams = PostingLists.union(block, findUserIdsByTrigrams(word));
+        return blockWithTrigrams.length > MAX_BLOCK_SIZE ? block : blockWithTrigrams;
+    }
+
+    private int[] findIdsByPhoneticCodes(String word, DoubleMetaphone encoder)
+    {
+        int[] ids = PostingLists.EMPTY;
+        for (String code : getPhoneticCodes(word, encoder))
+        {
+            ids = PostingLists.union(ids, userIdsByPhoneticCode.getOrDefault(code, PostingLists.EMPTY));
+        }
+        return ids;
+    }
+
+    private int[] findUserIdsByTrigrams(String word)
+    {
+        List<int[]> postingLists = new ArrayList<>();
+        for (String trigram : getTrigrams(word))
+        {
+            int[] ids = userIdsByTrigram.getOrDefault(trigram, PostingLists.EMPTY);
+            if (ids.length <= MAX_TRIGRAM_BLOCK_SIZE) postingLists.add(ids);
+        }
+        return findIdsInAtLeast(postingLists, (postingLists.size() + 1) / 2);
+    }
+
+    /**
+     * @param postingLists Sorted posting lists
+     * @param minCount     The minimum number of lists an id must be in
+     * @return The ids in at least that many of the lists, sorted
+     */
+    private static int[] findIdsInAtLeast(List<int[]> postingLists, int minCount)
+    {
+        int totalSize = 0;
+        for (int[] ids : postingLists)
+        {
+            totalSize += ids.length;
+        }
+        if (totalSize == 0) return PostingLists.EMPTY;
+
+        // Count how many of the lists each id is in by sorting the ids of all the lists together
+        int[] allIds = new int[totalSize];
+        int offset = 0;
+        for (int[] ids : postingLists)
+        {
+            System.arraycopy(ids, 0, allIds, offset, ids.length);
+            offset += ids.length;
+        }
+        Arrays.sort(allIds);
+
+        PostingLists.Builder matchingIds = new PostingLists.Builder();
+        for (int start = 0, end; start < allIds.length; start = end)
+        {
+            end = start + 1;
+            while (end < allIds.length && allIds[end] == allIds[start]) end++;
+            if (end - start >= minCount) matchingIds.add(allIds[start]);
+        }
+        return matchingIds.toArray();
+    }
+
+    /**
+     * Scores the similarity of two names.
+     *
+     * @param words1       The normalized words of one name
+     * @param joinedWords1 The words of that name without spaces
+     * @param words2       The normalized words of the other name
+     * @param joinedWords2 The words of the other name without spaces
+     * @return The score, from 0 to 1
+     */
+    static double score(String[] words1, String joinedWords1, String[] words2, String joinedWords2)
+    {
+        if (words1.length == 0 || words2.length == 0) return 0;
+
+        String[] shorterWords = words1.length <= words2.length ? words1 : words2;
+        String[] longerWords = words1.length <= words2.length ? words2 : words1;
+
+        double score;
+        if (joinedWords1.equals(joinedWords2))
+        {
+            score = 1;
+        } else
+        {
+            score = 1;
+            for (String word : shorterWords)
+            {
+                double bestWordScore = 0;
+                for (String otherWord : longerWords)
+                {
+                    bestWordScore = Math.max(bestWordScore, scoreWords(word, otherWord));
+                }
+                score = Math.min(score, bestWordScore);
+            }
+            score *= Math.pow(EXTRA_WORD_FACTOR, longerWords.length - shorterWords.length);
+        }
+
+        return shorterWords.length < 2 ? Math.min(score, MAX_SINGLE_WORD_SCORE) : score;
+    }
+
+    private static double scoreWords(String word1, String word2)
+    {
+        if (word1.length() == 1 || word2.length() == 1)
+        {
+            return word1.charAt(0) == word2.charAt(0) ? INITIAL_SCORE : 0;
+        }
+        return jaroWinkler(word1, word2);
+    }
+
+    /**
+     * Computes the Jaro-Winkler similarity of two strings, which counts the characters they have in common (near the
+     * same positions) and the transpositions among them, and favors strings with the same first few characters.
+     *
+     * @param s1 A string
+     * @param s2 Another string
+     * @return The similarity, from 0 (nothing in common) to 1 (the same)
+     */
+    static double jaroWinkler(String s1, String s2)
+    {
+        if (s1.equals(s2)) return 1;
+        if (s1.isEmpty() || s2.isEmpty()) return 0;
+
+        int window = Math.max(Math.max(s1.length(), s2.length()) / 2 - 1, 0);
+        boolean[] matched1 = new boolean[s1.length()];
+        boolean[] matched2 = new boolean[s2.length()];
+        int matches = 0;
+        for (int i = 0; i < s1.length(); i++)
+        {
+            int end = Math.min(i + window + 1, s2.length());
+            for (int j = Math.max(0, i - window); j < end; j++)
+            {
+                if (!matched2[j] && s1.charAt(i) == s2.charAt(j))
+                {
+                    matched1[i] = true;
+                    matched2[j] = true;
+                    matches++;
+                    break;
+                }
+            }
+        }
+        if (matches == 0) return 0;
+
+        int halfTranspositions = 0;
+        for (int i = 0, j = 0; i < s1.length(); i++)
+        {
+            if (!matched1[i]) continue;
+
+            while (!matched2[j]) j++;
+            if (s1.charAt(i) != s2.charAt(j)) halfTranspositions++;
+            j++;
+        }
+
+        double jaro = ((double) matches / s1.length() + (double) matches / s2.length()
+                + (matches - halfTranspositions / 2.0) / matches) / 3;
+
+        int prefixLength = 0;
+        int maxPrefixLength = Math.min(WINKLER_MAX_PREFIX, Math.min(s1.length(), s2.length()));
+        while (prefixLength < maxPrefixLength && s1.charAt(prefixLength) == s2.charAt(prefixLength)) prefixLength++;
+
+        return jaro + prefixLength * WINKLER_PREFIX_SCALE * (1 - jaro);
+    }
+
+    /**
+     * Splits a display name into normalized words (see {@link ParseUtils#normalizeName(String, NameParts)}), with
+     * common nicknames replaced by the full name.
+     *
+     * @param displayName The display name, or null
+     * @param nameParts   The instance to parse the name into
+     * @return The words of the name
+     */
+    static String[] normalizeName(String displayName, NameParts nameParts)
+    {
+        String[] words = ParseUtils.normalizeName(displayName, nameParts).toArray();
+        for (int i = 0; i < words.length; i++)
+        {
+            words[i] = NAMES_BY_NICKNAME.getOrDefault(words[i], words[i]);
+        }
+        return words;
+    }
+
+    private static Set<String> getPhoneticCodes(String word, DoubleMetaphone encoder)
+    {
+        Set<String> codes = new LinkedHashSet<>(2);
+        String primaryCode = encoder.doubleMetaphone(word);
+        if (primaryCode != null && !primaryCode.isEmpty()) codes.add(primaryCode);
+        String alternateCode = encoder.doubleMetaphone(word, true);
+        if (alternateCode != null && !alternateCode.isEmpty()) codes.add(alternateCode);
+        return codes;
+    }
+
+    private static List<String> getTrigrams(String word)
+    {
+        // Pad the word, so its first and last letters are in trigrams of their own
+        String paddedWord = ' ' + word + ' ';
+        List<String> trigrams = new ArrayList<>(paddedWord.length() - 2);
+        for (int i = 0; i + 3 <= paddedWord.length(); i++)
+        {
+            trigrams.add(paddedWord.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+}
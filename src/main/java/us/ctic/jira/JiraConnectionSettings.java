@@ -0,0 +1,212 @@
+package us.ctic.jira;
+
+import java.time.Duration;
+
+/**
+ * How a {@link JiraService} or {@link AsyncJiraService} connects to its server: the size and lifetime of the
+ * connections, the cache of the responses, and the pacing, retrying and recording of the requests. Anything that isn't
+ * set on the {@link Builder} keeps its default.
+ *
+ * @since 1.1
+ */
+public final class JiraConnectionSettings
+{
+    private final static int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 8;
+    private final static Duration DEFAULT_KEEP_ALIVE = Duration.ofSeconds(30);
+    private final static Duration DEFAULT_IDLE_TIMEOUT = Duration.ofSeconds(10);
+    private final static double DEFAULT_REQUESTS_PER_SECOND = 20;
+    private final static int DEFAULT_BURST = 10;
+    private final static RetryPolicy DEFAULT_RETRY_POLICY = new RetryPolicy(5, Duration.ofMillis(500),
+            Duration.ofSeconds(30), Duration.ofMinutes(2));
+
+    private final int maxConnectionsPerRoute;
+    private final Duration keepAlive;
+    private final Duration idleTimeout;
+    private final ResponseCache responseCache;
+    private final RateLimiter rateLimiter;
+    private final RetryPolicy retryPolicy;
+    private final JiraMetrics metrics;
+
+    private JiraConnectionSettings(Builder builder)
+    {
+        maxConnectionsPerRoute = builder.maxConnectionsPerRoute;
+        keepAlive = builder.keepAlive;
+        idleTimeout = builder.idleTimeout;
+        responseCache = builder.responseCache;
+        rateLimiter = builder.rateLimiter != null
+                ? builder.rateLimiter
+                : new RateLimiter(DEFAULT_REQUESTS_PER_SECOND, DEFAULT_BURST);
+        retryPolicy = builder.retryPolicy;
+        metrics = builder.metrics != null ? builder.metrics : new JiraMetrics();
+    }
+
+    /**
+     * @return A builder of the settings, starting from the defaults
+     */
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    /**
+     * @return The settings with all the defaults
+     */
+    public static JiraConnectionSettings defaults()
+    {
+        return builder().build();
+    }
+
+    /**
+     * @return The maximum number of connections to (or requests in flight to) the server
+     */
+    public int getMaxConnectionsPerRoute()
+    {
+        return maxConnectionsPerRoute;
+    }
+
+    /**
+     * @return How long to keep an idle connection open when the server doesn't say (only used by {@link JiraService})
+     */
+    public Duration getKeepAlive()
+    {
+        return keepAlive;
+    }
+
+    /**
+     * @return How long a connection can be idle before it is closed by the background evictor (only used by
+     * {@link JiraService})
+     */
+    public Duration getIdleTimeout()
+    {
+        return idleTimeout;
+    }
+
+    /**
+     * @return The cache in which to look for responses before sending requests (and to which to add the responses), or
+     * null to always send the requests
+     */
+    public ResponseCache getResponseCache()
+    {
+        return responseCache;
+    }
+
+    /**
+     * @return The rate limiter for the requests to the host (shared with any other services for the same host)
+     */
+    public RateLimiter getRateLimiter()
+    {
+        return rateLimiter;
+    }
+
+    /**
+     * @return How to retry the requests that fail
+     */
+    public RetryPolicy getRetryPolicy()
+    {
+        return retryPolicy;
+    }
+
+    /**
+     * @return The metrics in which to record the requests (which may be shared with other services)
+     */
+    public JiraMetrics getMetrics()
+    {
+        return metrics;
+    }
+
+    /**
+     * Builds the settings. Each call of {@link #build()} without a rate limiter or metrics gets its own.
+     */
+    public static final class Builder
+    {
+        private int maxConnectionsPerRoute = DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
+        private Duration keepAlive = DEFAULT_KEEP_ALIVE;
+        private Duration idleTimeout = DEFAULT_IDLE_TIMEOUT;
+        private ResponseCache responseCache;
+        private RateLimiter rateLimiter;
+        private RetryPolicy retryPolicy = DEFAULT_RETRY_POLICY;
+        private JiraMetrics metrics;
+
+        private Builder()
+        {
+        }
+
+        /**
+         * @param maxConnectionsPerRoute The maximum number of connections to (or requests in flight to) the server
+         * @return This builder
+         */
+        public Builder maxConnectionsPerRoute(int maxConnectionsPerRoute)
+        {
+            this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+            return this;
+        }
+
+        /**
+         * @param keepAlive How long to keep an idle connection open when the server doesn't say
+         * @return This builder
+         */
+        public Builder keepAlive(Duration keepAlive)
+        {
+            this.keepAlive = keepAlive;
+            return this;
+        }
+
+        /**
+         * @param idleTimeout How long a connection can be idle before it is closed by the background evictor
+         * @return This builder
+         */
+        public Builder idleTimeout(Duration idleTimeout)
+        {
+            this.idleTimeout = idleTimeout;
+            return this;
+        }
+
+        /**
+         * @param responseCache The cache of the responses, or null to always send the requests
+         * @return This builder
+         */
+        public Builder responseCache(ResponseCache responseCache)
+        {
+            this.responseCache = responseCache;
+            return this;
+        }
+
+        /**
+         * @param rateLimiter The rate limiter for the requests to the host
+         * @return This builder
+         */
+        public Builder rateLimiter(RateLimiter rateLimiter)
+        {
+            this.rateLimiter = rateLimiter;
+            return this;
+        }
+
+        /**
+         * @param retryPolicy How to retry the requests that fail
+         * @return This builder
+         */
+        public Builder retryPolicy(RetryPolicy retryPolicy)
+        {
+            this.retryPolicy = retryPolicy;
+            return this;
+        }
+
+        /**
+         * @param metrics The metrics in which to record the requests
+         * @return This builder
+         */
+        public Builder metrics(JiraMetrics metrics)
+        {
+            this.metrics = metrics;
+            return this;
+        }
+
+        /**
+         * @return The settings
+         */
+        public JiraConnectionSettings build()
+        {
+            return new JiraConnectionSettings(this);
+        }
+    }
+}
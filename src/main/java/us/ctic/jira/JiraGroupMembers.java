@@ -0,0 +1,56 @@
+package us.ctic.jira;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Collections;
+import java.util.List;
+
+@SuppressWarnings("unused") // Fields are being set by Jackson
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class JiraGroupMembers
+{
+    private List<JiraUser> values;
+    @JsonProperty("isLast")
+    private boolean last;
+    private int startAt;
+    private int maxResults;
+    private int total;
+
+    public List<JiraUser> getValues()
+    {
+        return values == null ? Collections.emptyList() : Collections.unmodifiableList(values);
+    }
+
+    public boolean isLast()
+    {
+        return last;
+    }
+
+    public int getStartAt()
+    {
+        return startAt;
+    }
+
+    public int getMaxResults()
+    {
+        return maxResults;
+    }
+
+    public int getTotal()
+    {
+        return total;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "JiraGroupMembers{" +
+                "startAt=" + startAt +
+                ", maxResults=" + maxResults +
+                ", total=" + total +
+                ", isLast=" + last +
+                ", values=" + values +
+                '}';
+    }
+}
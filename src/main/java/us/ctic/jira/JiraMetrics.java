@@ -0,0 +1,191 @@
+package us.ctic.jira;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of the requests sent to the Jira servers, per host and endpoint: the number of requests, the bytes received,
+ * the number of responses with each status code, the number of retries, and a histogram of the latencies. Every attempt
+ * at a request is counted separately, so a request that is retried twice counts as three requests.
+ * <p>
+ * One instance is meant to be shared by all the services of a run (like the {@link RateLimiter} of a host), so the
+ * summary shows where the time went across both servers. Instances are safe to use from multiple threads.
+ *
+ * @since 1.1
+ */
+public class JiraMetrics
+{
+    private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    private static final String REST_PATH = "/rest/api/2/";
+    // The status "code" of the attempts that didn't get a response (e.g. the connection was reset)
+    private static final String NO_RESPONSE = "none";
+    private static final double BYTES_PER_MEGABYTE = 1024 * 1024;
+
+    // Sorted so the summary is in a stable order
+    private final ConcurrentMap<String, ConcurrentMap<String, EndpointMetrics>> metricsByHost =
+            new ConcurrentSkipListMap<>();
+
+    /**
+     * Records an attempt at sending a request.
+     *
+     * @param host          The host the request was sent to
+     * @param path          The path of the request (e.g. {@code /rest/api/2/user/search})
+     * @param statusCode    The status code of the response, or 0 if there wasn't one
+     * @param bytesReceived The number of bytes in the body of the response
+     * @param latencyNanos  How long it took from sending the request until the response was received
+     */
+    public void recordAttempt(String host, String path, int statusCode, long bytesReceived, long latencyNanos)
+    {
+        EndpointMetrics endpointMetrics = getEndpointMetrics(host, path);
+        endpointMetrics.requestCount.increment();
+        endpointMetrics.bytesReceived.add(bytesReceived);
+        endpointMetrics.statusCounts
+                .computeIfAbsent(statusCode == 0 ? NO_RESPONSE : String.valueOf(statusCode), k -> new LongAdder())
+                .increment();
+        endpointMetrics.latencies.record(latencyNanos);
+    }
+
+    /**
+     * Records that a request is being retried.
+     *
+     * @param host The host the request was sent to
+     * @param path The path of the request
+     */
+    public void recordRetry(String host, String path)
+    {
+        getEndpointMetrics(host, path).retryCount.increment();
+    }
+
+    /**
+     * @param host The host
+     * @return The number of requests to the host that were retried
+     */
+    public long getRetryCount(String host)
+    {
+        Map<String, EndpointMetrics> metricsByEndpoint = metricsByHost.get(host);
+        if (metricsByEndpoint == null) return 0;
+
+        long retryCount = 0;
+        for (EndpointMetrics endpointMetrics : metricsByEndpoint.values())
+        {
+            retryCount += endpointMetrics.retryCount.sum();
+        }
+        return retryCount;
+    }
+
+    /**
+     * Logs a line with the metrics of each endpoint of each host.
+     */
+    public void logSummary()
+    {
+        metricsByHost.forEach((host, metricsByEndpoint) -> metricsByEndpoint.forEach((endpoint, endpointMetrics) -> {
+            LatencyHistogram latencies = endpointMetrics.latencies;
+            logger.info("{} {}: {} requests {}, {} retries, {} MB received; latency (ms) mean {}, p50 {}, p99 {}, "
+                            + "p99.9 {}, max {}",
+                    host, endpoint, endpointMetrics.requestCount.sum(), getStatusCounts(endpointMetrics),
+                    endpointMetrics.retryCount.sum(),
+                    String.format("%.1f", endpointMetrics.bytesReceived.sum() / BYTES_PER_MEGABYTE),
+                    format(latencies.getMeanMillis()), format(latencies.getPercentileMillis(50)),
+                    format(latencies.getPercentileMillis(99)), format(latencies.getPercentileMillis(99.9)),
+                    format(latencies.getMaxMillis()));
+        }));
+    }
+
+    /**
+     * Writes the metrics to a JSON file, overwriting it if it exists.
+     *
+     * @param fileName The name of the file
+     * @throws IOException If the file couldn't be written
+     */
+    public void writeJson(String fileName) throws IOException
+    {
+        Map<String, Object> hosts = new LinkedHashMap<>();
+        metricsByHost.forEach((host, metricsByEndpoint) -> {
+            Map<String, Object> endpoints = new LinkedHashMap<>();
+            metricsByEndpoint.forEach((endpoint, endpointMetrics) -> endpoints.put(endpoint, toJson(endpointMetrics)));
+            hosts.put(host, endpoints);
+        });
+
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("writtenAt", Instant.now().toString());
+        json.put("hosts", hosts);
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(new File(fileName), json);
+    }
+
+    private EndpointMetrics getEndpointMetrics(String host, String path)
+    {
+        return metricsByHost.computeIfAbsent(host, h -> new ConcurrentSkipListMap<>())
+                .computeIfAbsent(getEndpoint(path), e -> new EndpointMetrics());
+    }
+
+    /**
+     * @param path The path of a request
+     * @return The endpoint, without the REST API prefix (e.g. {@code user/search})
+     */
+    private static String getEndpoint(String path)
+    {
+        if (path == null) return "";
+
+        int restPathIndex = path.indexOf(REST_PATH);
+        return restPathIndex < 0 ? path : path.substring(restPathIndex + REST_PATH.length());
+    }
+
+    private static Map<String, Long> getStatusCounts(EndpointMetrics endpointMetrics)
+    {
+        Map<String, Long> statusCounts = new TreeMap<>();
+        endpointMetrics.statusCounts.forEach((status, count) -> statusCounts.put(status, count.sum()));
+        return statusCounts;
+    }
+
+    private static Map<String, Object> toJson(EndpointMetrics endpointMetrics)
+    {
+        LatencyHistogram latencies = endpointMetrics.latencies;
+        Map<String, Object> latencyMillis = new LinkedHashMap<>();
+        latencyMillis.put("mean", latencies.getMeanMillis());
+        latencyMillis.put("p50", latencies.getPercentileMillis(50));
+        latencyMillis.put("p90", latencies.getPercentileMillis(90));
+        latencyMillis.put("p99", latencies.getPercentileMillis(99));
+        latencyMillis.put("p99.9", latencies.getPercentileMillis(99.9));
+        latencyMillis.put("max", latencies.getMaxMillis());
+
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("requests", endpointMetrics.requestCount.sum());
+        json.put("retries", endpointMetrics.retryCount.sum());
+        json.put("bytesReceived", endpointMetrics.bytesReceived.sum());
+        json.put("statusCodes", getStatusCounts(endpointMetrics));
+        json.put("latencyMillis", latencyMillis);
+        return json;
+    }
+
+    private static String format(double millis)
+    {
+        return String.format("%.1f", millis);
+    }
+
+    /**
+     * The metrics of the requests to one endpoint of a host.
+     */
+    private static class EndpointMetrics
+    {
+        private final LongAdder requestCount = new LongAdder();
+        private final LongAdder retryCount = new LongAdder();
+        private final LongAdder bytesReceived = new LongAdder();
+        private final ConcurrentMap<String, LongAdder> statusCounts = new ConcurrentHashMap<>();
+        private final LatencyHistogram latencies = new LatencyHistogram();
+    }
+}
@@ -0,0 +1,114 @@
+package us.ctic.jira;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.apache.http.client.utils.URIBuilder;
+
+import java.util.Base64;
+
+/**
+ * The parts of the requests to a Jira server that {@link JiraService} and {@link AsyncJiraService} share: the paths of
+ * the endpoints, the credentials, and the keys of the cached responses (so the two services share the cached
+ * responses for a host).
+ *
+ * @since 1.1
+ */
+final class JiraRequests
+{
+    private final static String REST_PATH = "/rest/api/2";
+    final static String SERVER_INFO_PATH = REST_PATH + "/serverInfo";
+    final static String USER_SEARCH_PATH = REST_PATH + "/user/search";
+    final static String ISSUE_TYPE_PATH = REST_PATH + "/issue/createmeta";
+    final static String GROUP_MEMBER_PATH = REST_PATH + "/group/member";
+    final static String PROJECT_KEY_TOKEN = "projectKeys";
+    final static String EXPAND_TOKEN = "expand";
+    final static String EXPAND_VALUE = "issuetypeNames";
+
+    private final String host;
+    private final String authorization;
+    private final ResponseCache responseCache;
+
+    /**
+     * Constructor.
+     *
+     * @param host          The host of the Jira server (without http/https)
+     * @param username      The username with which to authenticate
+     * @param password      The password with which to authenticate
+     * @param token         A personal access token to use instead of the username and password, or empty
+     * @param responseCache The cache of the responses, or null to always send the requests
+     */
+    JiraRequests(String host, String username, String password, String token, ResponseCache responseCache)
+    {
+        this.host = host;
+        this.responseCache = responseCache;
+
+        String userPass = username + ":" + password;
+        String encodedCredentials = "Basic " + Base64.getEncoder().encodeToString(userPass.getBytes());
+        if (token != null && !token.isEmpty())
+        {
+            encodedCredentials = "Bearer " + token;
+        }
+        authorization = encodedCredentials;
+    }
+
+    /**
+     * @return The value of the Authorization header of the requests
+     */
+    String getAuthorization()
+    {
+        return authorization;
+    }
+
+    /**
+     * @param path The path of the endpoint
+     * @return A builder for the URI of a request to the endpoint, to which the parameters can be added
+     */
+    URIBuilder getUriBuilder(String path)
+    {
+        return new URIBuilder()
+                .setScheme("http")
+                .setHost(host)
+                .setPath(path);
+    }
+
+    /**
+     * Gets the cached response for a request.
+     *
+     * @param path          The path of the endpoint
+     * @param query         The parameters that distinguish the request from other requests to the endpoint
+     * @param typeReference The type of the response
+     * @param <T>           The type of the response
+     * @return The cached response, or null if it isn't cached (or there's no cache)
+     */
+    <T> T getCachedResponse(String path, String query, TypeReference<T> typeReference)
+    {
+        return responseCache == null ? null : responseCache.get(getKey(path, query), typeReference);
+    }
+
+    /**
+     * Adds the response for a request to the cache, if there is one.
+     *
+     * @param path     The path of the endpoint
+     * @param query    The parameters that distinguish the request from other requests to the endpoint
+     * @param response The response, which isn't cached if it's null
+     */
+    void cacheResponse(String path, String query, Object response)
+    {
+        if (responseCache != null && response != null) responseCache.put(getKey(path, query), response);
+    }
+
+    /**
+     * Drops the cached responses from an endpoint, so the requests are sent to the server again.
+     *
+     * @param path The path of the endpoint
+     * @return The number of responses that were dropped
+     */
+    int refreshCachedResponses(String path)
+    {
+        return responseCache == null ? 0 : responseCache.refresh(host + path);
+    }
+
+    private String getKey(String path, String query)
+    {
+        return host + path + "?" + query;
+    }
+}
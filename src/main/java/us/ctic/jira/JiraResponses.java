@@ -0,0 +1,182 @@
+package us.ctic.jira;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Parses the responses of the Jira REST APIs, for both {@link JiraService} and {@link AsyncJiraService}.
+ * <p>
+ * The responses are parsed straight from streams by readers that are built once and shared (readers are immutable and
+ * thread-safe), and the properties that aren't needed are skipped without being materialized.
+ *
+ * @since 1.1
+ */
+final class JiraResponses
+{
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+            .enable(DeserializationFeature.ACCEPT_SINGLE_VALUE_AS_ARRAY);
+    private static final ObjectReader SERVER_INFO_READER = OBJECT_MAPPER.readerFor(JiraServerInfo.class);
+    private static final ObjectReader USER_LIST_READER = OBJECT_MAPPER.readerFor(new UserListTypeReference());
+    private static final ObjectReader GROUP_MEMBERS_READER = OBJECT_MAPPER.readerFor(JiraGroupMembers.class);
+
+    private JiraResponses()
+    {
+    }
+
+    /**
+     * Reads the response of a server info request.
+     *
+     * @param inputStream The body of the response
+     * @return The server info
+     * @throws IOException If the response couldn't be read
+     */
+    static JiraServerInfo readServerInfo(InputStream inputStream) throws IOException
+    {
+        return SERVER_INFO_READER.readValue(inputStream);
+    }
+
+    /**
+     * Reads the response of a user search request.
+     *
+     * @param inputStream The body of the response
+     * @return The users (never null)
+     * @throws IOException If the response couldn't be read
+     */
+    static List<JiraUser> readUsers(InputStream inputStream) throws IOException
+    {
+        List<JiraUser> userList = USER_LIST_READER.readValue(inputStream);
+        return userList == null ? Collections.emptyList() : userList;
+    }
+
+    /**
+     * Reads the response of a group member request.
+     *
+     * @param inputStream The body of the response
+     * @return The page of group members
+     * @throws IOException If the response couldn't be read
+     */
+    static JiraGroupMembers readGroupMembers(InputStream inputStream) throws IOException
+    {
+        return GROUP_MEMBERS_READER.readValue(inputStream);
+    }
+
+    /**
+     * Reads the names of the issue types from the response of a create meta request. Only the names of the issue types
+     * are needed, so rather than binding the whole response to objects, the names are picked out with a streaming
+     * parser and everything else (like the avatar URLs) is skipped.
+     *
+     * @param inputStream The body of the response
+     * @return The names of the issue types of all the projects
+     * @throws IOException If the response couldn't be read, or isn't an object (e.g. it's empty)
+     */
+    static Set<String> readIssueTypeNames(InputStream inputStream) throws IOException
+    {
+        try (JsonParser parser = OBJECT_MAPPER.getFactory().createParser(inputStream))
+        {
+            if (parser.nextToken() != JsonToken.START_OBJECT)
+            {
+                throw new IOException("Expected the issue types to be in an object, but found " + parser.currentToken());
+            }
+
+            Set<String> issueTypeNames = new HashSet<>();
+
+            forEachField(parser, "projects", () ->
+                    forEachArrayElement(parser, () ->
+                            forEachField(parser, "issuetypes", () ->
+                                    forEachArrayElement(parser, () ->
+                                            forEachField(parser, "name", () -> {
+                                                if (parser.currentToken() == JsonToken.VALUE_STRING)
+                                                {
+                                                    issueTypeNames.add(parser.getText());
+                                                }
+                                            })))));
+            return issueTypeNames;
+        }
+    }
+
+    /**
+     * Handles the value of the named field of the current object, skipping the other fields. The parser must be at the
+     * start of the object, and is left at its end.
+     *
+     * @param parser       The parser
+     * @param fieldName    The name of the field
+     * @param valueHandler The handler for the value of the field, called with the parser at the start of the value (and
+     *                     which must leave the parser at its end)
+     * @throws IOException If the JSON couldn't be parsed
+     */
+    private static void forEachField(JsonParser parser, String fieldName, ValueHandler valueHandler) throws IOException
+    {
+        if (parser.currentToken() != JsonToken.START_OBJECT)
+        {
+            parser.skipChildren();
+            return;
+        }
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME)
+        {
+            boolean matches = fieldName.equals(parser.getCurrentName());
+            parser.nextToken();
+            if (matches)
+            {
+                valueHandler.handle();
+            } else
+            {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    /**
+     * Handles each element of the current array. The parser must be at the start of the array, and is left at its end.
+     *
+     * @param parser         The parser
+     * @param elementHandler The handler for each element, called with the parser at the start of the element (and which
+     *                       must leave the parser at its end)
+     * @throws IOException If the JSON couldn't be parsed
+     */
+    private static void forEachArrayElement(JsonParser parser, ValueHandler elementHandler) throws IOException
+    {
+        if (parser.currentToken() != JsonToken.START_ARRAY)
+        {
+            parser.skipChildren();
+            return;
+        }
+
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null)
+        {
+            elementHandler.handle();
+        }
+    }
+
+    /**
+     * A handler for the current value of a streaming parser.
+     */
+    @FunctionalInterface
+    private interface ValueHandler
+    {
+        void handle() throws IOException;
+    }
+
+    /**
+     * Type reference for Jackson to allow mapping the JSON array to a list of users.
+     */
+    static class UserListTypeReference extends TypeReference<List<JiraUser>>
+    {
+    }
+
+    static class IssueTypeNamesTypeReference extends TypeReference<Set<String>>
+    {
+    }
+}
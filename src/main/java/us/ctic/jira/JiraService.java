@@ -1,83 +1,109 @@
 package us.ctic.jira;
 
 import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.http.Header;
 import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.NoHttpResponseException;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.client.ResponseHandler;
 import org.apache.http.client.methods.HttpGet;
-import org.apache.http.client.utils.URIBuilder;
-import org.apache.http.config.Registry;
-import org.apache.http.config.RegistryBuilder;
-import org.apache.http.conn.socket.ConnectionSocketFactory;
-import org.apache.http.conn.socket.PlainConnectionSocketFactory;
-import org.apache.http.conn.ssl.NoopHostnameVerifier;
-import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.entity.HttpEntityWrapper;
 import org.apache.http.impl.client.AbstractResponseHandler;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClients;
-import org.apache.http.impl.conn.BasicHttpClientConnectionManager;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.message.BasicHeader;
-import org.apache.http.ssl.SSLContexts;
-import org.apache.http.ssl.TrustStrategy;
-import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import us.ctic.jira.JiraResponses.IssueTypeNamesTypeReference;
+import us.ctic.jira.JiraResponses.UserListTypeReference;
 
-import javax.net.ssl.SSLContext;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.lang.invoke.MethodHandles;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.security.KeyManagementException;
-import java.security.KeyStoreException;
-import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.util.ArrayList;
-import java.util.Base64;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Service for interacting with the necessary Jira REST APIs.
+ * <p>
+ * All the requests share a single HTTP client with a pool of persistent connections, so a run that looks up thousands
+ * of users only pays for a new connection (and TLS handshake) when the pool needs one. The service must be closed to
+ * release the connections.
+ * <p>
+ * The results of the user searches are remembered for the life of the service (see {@link MemoizingUserSearcher}), so
+ * each distinct query is only sent once per run.
+ * <p>
+ * The responses are parsed straight from the response streams (rather than buffered as strings first), and the
+ * properties that aren't needed are skipped without being materialized (see {@link JiraResponses}).
+ * <p>
+ * The requests are paced by a {@link RateLimiter} for the host, and requests that fail because the server is throttling
+ * or temporarily unavailable (or because of a dropped connection) are retried according to a {@link RetryPolicy}.
  *
  * @see <a href="https://docs.atlassian.com/software/jira/docs/api/REST/8.13.5/">Jira REST API</a>
  * @see <a href="https://developer.atlassian.com/server/jira/platform/basic-authentication/">Jira basic authentication</a>
  */
-public class JiraService
+public class JiraService implements AutoCloseable
 {
     private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
-    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
-    private final static String REST_PATH = "/rest/api/2";
-    private final static String SERVER_INFO_PATH = REST_PATH + "/serverInfo";
-    private final static String USER_SEARCH_PATH = REST_PATH + "/user/search";
-    private final static String ISSUE_TYPE_PATH = REST_PATH + "/issue/createmeta";
-    private final static String PROJECT_KEY_TOKEN = "projectKeys";
-    private final static String EXPAND_TOKEN = "expand";
-    private final static String EXPAND_VALUE = "issuetypeNames";
     private final String host;
     private final String projectKey;
+    private final JiraRequests requests;
     private final BasicHeader authorizationHeader;
+    private final CloseableHttpClient httpClient;
+    private final RateLimiter rateLimiter;
+    private final RetryPolicy retryPolicy;
+    private final JiraMetrics metrics;
+    private final AtomicLong retryCount = new AtomicLong();
+    private final MemoizingUserSearcher userSearcher = new MemoizingUserSearcher(this::findUsers);
 
     public JiraService(String host, String username, String password, String token, String projectKey)
+    {
+        this(host, username, password, token, projectKey, JiraConnectionSettings.defaults());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param host       The host of the Jira server (without http/https)
+     * @param username   The username with which to authenticate
+     * @param password   The password with which to authenticate
+     * @param token      A personal access token to use instead of the username and password, or empty
+     * @param projectKey The key of the project
+     * @param settings   How to connect to the server
+     * @since 1.1
+     */
+    public JiraService(String host, String username, String password, String token, String projectKey,
+                       JiraConnectionSettings settings)
     {
         this.host = host;
         this.projectKey = projectKey;
-
-        String userPass = username + ":" + password;
-        String encodedCredentials = "Basic " + Base64.getEncoder().encodeToString(userPass.getBytes());
-        if (token != null && !token.isEmpty())
-        {
-            encodedCredentials = "Bearer " + token;
-        }
-        authorizationHeader = new BasicHeader("Authorization", encodedCredentials);
+        this.httpClient = createHttpClient(settings.getMaxConnectionsPerRoute(), settings.getKeepAlive(),
+                settings.getIdleTimeout());
+        this.requests = new JiraRequests(host, username, password, token, settings.getResponseCache());
+        this.rateLimiter = settings.getRateLimiter();
+        this.retryPolicy = settings.getRetryPolicy();
+        this.metrics = settings.getMetrics();
+        authorizationHeader = new BasicHeader("Authorization", requests.getAuthorization());
 
         // Perform a test connection to the server
         JiraServerInfo serverInfo = getServerInfo();
         logger.info("Connected to {} (version: {})", serverInfo.getServerTitle(), serverInfo.getVersion());
-
-        OBJECT_MAPPER.enable(DeserializationFeature.ACCEPT_SINGLE_VALUE_AS_ARRAY);
     }
 
     /**
@@ -88,13 +114,14 @@ public class JiraService
      */
     public JiraServerInfo getServerInfo()
     {
-        try (CloseableHttpClient httpClient = HttpClients.createDefault())
+        try
         {
-            URI uri = getUriBuilderWithHost().setPath(SERVER_INFO_PATH).build();
+            // Never cached, since it's the test connection that checks the host and the credentials
+            URI uri = requests.getUriBuilder(JiraRequests.SERVER_INFO_PATH).build();
             HttpGet httpGet = new HttpGet(uri);
             httpGet.addHeader(authorizationHeader);
 
-            return httpClient.execute(httpGet, new ServerInfoResponseHandler());
+            return execute(httpGet, new ServerInfoResponseHandler());
         } catch (IOException | URISyntaxException e)
         {
             logger.error("Error connecting to Jira for {}", host, e);
@@ -103,29 +130,34 @@ public class JiraService
         return null;
     }
 
-    private URIBuilder getUriBuilderWithHost()
-    {
-        return new URIBuilder()
-                .setScheme("http")
-                .setHost(host);
-    }
-
-    private CloseableHttpClient getCloseableHttpClient() throws NoSuchAlgorithmException, KeyManagementException, KeyStoreException
+    /**
+     * Creates the HTTP client shared by all the requests. The client's own retries are disabled, since the requests are
+     * retried (with backoff) by {@link #execute(HttpGet, ResponseHandler)}.
+     *
+     * @param maxConnectionsPerRoute The maximum number of pooled connections to the server
+     * @param keepAlive              How long to keep an idle connection open when the server doesn't say
+     * @param idleTimeout            How long a connection can be idle before it is evicted
+     * @return The HTTP client
+     */
+    private static CloseableHttpClient createHttpClient(int maxConnectionsPerRoute, Duration keepAlive,
+                                                        Duration idleTimeout)
     {
-        //TODO we may need this
-        TrustStrategy acceptingTrustStrategy = (chain, authType) -> true;
-        SSLContext sslContext = SSLContexts.custom().loadTrustMaterial(null, acceptingTrustStrategy).build();
-        SSLConnectionSocketFactory sslConnectionSocketFactory = new SSLConnectionSocketFactory(sslContext, NoopHostnameVerifier.INSTANCE);
-
-        Registry<ConnectionSocketFactory> socketFactoryRegistry = RegistryBuilder.<ConnectionSocketFactory>create()
-                .register("https", sslConnectionSocketFactory)
-                .register("http", new PlainConnectionSocketFactory())
-                .build();
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+        connectionManager.setMaxTotal(maxConnectionsPerRoute);
 
-        BasicHttpClientConnectionManager connectionManager = new BasicHttpClientConnectionManager(socketFactoryRegistry);
+        long keepAliveMillis = keepAlive.toMillis();
         return HttpClients.custom()
-                .setSSLSocketFactory(sslConnectionSocketFactory)
                 .setConnectionManager(connectionManager)
+                // Honor the server's Keep-Alive header if it sends one, but never keep a connection longer than configured
+                .setKeepAliveStrategy((response, context) -> {
+                    long serverKeepAliveMillis = DefaultConnectionKeepAliveStrategy.INSTANCE
+                            .getKeepAliveDuration(response, context);
+                    return serverKeepAliveMillis > 0 ? Math.min(serverKeepAliveMillis, keepAliveMillis) : keepAliveMillis;
+                })
+                .disableAutomaticRetries()
+                .evictExpiredConnections()
+                .evictIdleConnections(idleTimeout.toMillis(), TimeUnit.MILLISECONDS)
                 .build();
     }
 
@@ -147,17 +179,19 @@ public class JiraService
      */
     public Set<String> getIssueTypeNames()
     {
-        try (CloseableHttpClient httpClient = HttpClients.createDefault())
+        try
         {
-            URI uri = getUriBuilderWithHost()
-                    .setPath(ISSUE_TYPE_PATH)
-                    .setParameter(PROJECT_KEY_TOKEN, projectKey)
-                    .setParameter(EXPAND_TOKEN, EXPAND_VALUE)
-                    .build();
-            HttpGet httpGet = new HttpGet(uri);
-            httpGet.addHeader(authorizationHeader);
-
-            return httpClient.execute(httpGet, new IssueTypeHandler());
+            return executeCached(JiraRequests.ISSUE_TYPE_PATH, JiraRequests.PROJECT_KEY_TOKEN + "=" + projectKey,
+                    new IssueTypeNamesTypeReference(), () -> {
+                        URI uri = requests.getUriBuilder(JiraRequests.ISSUE_TYPE_PATH)
+                                .setParameter(JiraRequests.PROJECT_KEY_TOKEN, projectKey)
+                                .setParameter(JiraRequests.EXPAND_TOKEN, JiraRequests.EXPAND_VALUE)
+                                .build();
+                        HttpGet httpGet = new HttpGet(uri);
+                        httpGet.addHeader(authorizationHeader);
+
+                        return execute(httpGet, new IssueTypeHandler());
+                    });
         } catch (IOException | URISyntaxException e)
         {
             logger.error("Error connecting to Jira for issue types with {}", host, e);
@@ -177,153 +211,431 @@ public class JiraService
      */
     public JiraUser findUser(String username, String email, String firstName, String lastName)
     {
-        try (CloseableHttpClient httpClient = HttpClients.createDefault())
+        try
         {
-            URIBuilder uriBuilder = getUriBuilderWithHost().setPath(USER_SEARCH_PATH);
-            List<JiraUser> users;
-
-            if (username != null)
-            {
-                users = findUsers(httpClient, uriBuilder, username);
-                if (!users.isEmpty())
-                {
-                    if (users.size() == 1)
-                    {
-                        return users.get(0);
-                    }
+            return lookUpUser(username, email, firstName, lastName);
+        } catch (IOException e)
+        {
+            logger.error("Error connecting to Jira for user names with {}", host, e);
+        }
 
-                    // It's possible to find multiple matches since the query isn't applied to just the username. For example,
-                    // for a username of "john.doe", it may match another user named "john.f.doe" if his email was "john.doe@gmail.com".
-                    // If that happens, return the one with the right username.
-                    for (JiraUser user : users)
-                    {
-                        if (user.getName().equals(username)) return user;
-                    }
-                }
-            }
+        return null;
+    }
 
-            if (email != null)
-            {
-                users = findUsers(httpClient, uriBuilder, email);
+    /**
+     * Attempts to find the user using the provided username, email, last name, and first name, in that order. Unlike
+     * {@link #findUser(String, String, String, String)}, a failure to search (even after retrying) is thrown rather
+     * than treated as the user not being found.
+     *
+     * @param username  The username for which to search
+     * @param email     The email for the user
+     * @param firstName The first name for the user
+     * @param lastName  The last name for the user
+     * @return The User or null if not found.
+     * @throws IOException If a problem occurred when searching
+     * @since 1.1
+     */
+    public JiraUser lookUpUser(String username, String email, String firstName, String lastName) throws IOException
+    {
+        return UserMatcher.findUser(userSearcher, username, email, firstName, lastName);
+    }
 
-                if (users.size() == 1)
-                {
-                    return users.get(0);
-                }
+    /**
+     * Drops the cached user searches and user downloads of the server (which the {@link AsyncJiraService} for the
+     * server shares), so they're sent to the server again, e.g. to find the users created since they were cached.
+     *
+     * @since 1.1
+     */
+    public void refreshCachedUsers()
+    {
+        int droppedCount = requests.refreshCachedResponses(JiraRequests.USER_SEARCH_PATH)
+                + requests.refreshCachedResponses(JiraRequests.GROUP_MEMBER_PATH);
+        logger.info("Dropped {} cached user responses from {}", droppedCount, host);
+    }
 
-                // Email should be unique, but there may be more than one user for an email address if a service account
-                // reuses a user's email. Let's use the last name or first name to narrow it down.
-                String name = lastName == null ? firstName : lastName;
-                List<JiraUser> usersWithName = filterUsersWithName(name, users);
+    /**
+     * Downloads all the users that match a query, one page at a time. On Jira Server and Data Center, a query of
+     * {@code .} matches every user.
+     *
+     * @param query    The query string for matching users
+     * @param pageSize The number of users to request per page (Jira caps this at 1000)
+     * @return The matching users, or null if an error occurred
+     * @see <a href="https://docs.atlassian.com/software/jira/docs/api/REST/8.13.5/#api/2/user-findUsers">GET /rest/api/2/user/search</a>
+     * @since 1.1
+     */
+    public List<JiraUser> getAllUsers(String query, int pageSize)
+    {
+        try
+        {
+            return executeCached(JiraRequests.USER_SEARCH_PATH, "username=" + query + "&all",
+                    new UserListTypeReference(), () -> {
+                List<JiraUser> allUsers = new ArrayList<>();
+                downloadUsers(query, pageSize, allUsers::addAll);
+                return allUsers;
+            });
+        } catch (IOException | URISyntaxException e)
+        {
+            logger.error("Error downloading users from {}", host, e);
+        }
 
-                if (!usersWithName.isEmpty())
-                {
-                    JiraUser firstUser = usersWithName.get(0);
-                    if (usersWithName.size() > 1)
-                    {
-                        logger.warn("Multiple users found with the email `{}`; returning the first one: {}",
-                                email, firstUser);
-                    }
+        return null;
+    }
 
-                    return firstUser;
-                }
-            }
+    /**
+     * Downloads all the users that match a query, one page at a time, and writes each page to a snapshot as it
+     * arrives, so the users are never all held in memory. The responses aren't cached.
+     *
+     * @param query    The query string for matching users
+     * @param pageSize The number of users to request per page (Jira caps this at 1000)
+     * @param writer   The writer of the snapshot
+     * @return True if all the users were downloaded and written
+     * @see #getAllUsers(String, int)
+     * @since 1.1
+     */
+    public boolean exportUsers(String query, int pageSize, UserDirectorySnapshot.Writer writer)
+    {
+        try
+        {
+            downloadUsers(query, pageSize, writer::write);
+            return true;
+        } catch (IOException | URISyntaxException e)
+        {
+            logger.error("Error exporting users from {}", host, e);
+        }
 
-            // If we get to this point, let's search by last name and then try to refine by first name (if provided).
-            // The REST API only supports substring matching, and we don't want to just concatenate the first name and
-            // last name for several reasons:
-            //  - the display name could be in several different formats (e.g. "first last" vs. "last, first")
-            //  - the user may have a middle initial included in the display name (e.g. "first MI last")
-            if (lastName != null || firstName != null)
-            {
-                String initialSearchName = lastName == null ? firstName : lastName;
-                users = findUsers(httpClient, uriBuilder, initialSearchName);
+        return false;
+    }
 
-                if (!users.isEmpty())
-                {
-                    // Maybe we got lucky and only got one result...
-                    if (users.size() == 1)
-                    {
-                        return users.get(0);
-                    }
+    /**
+     * Downloads all the members of a group, one page at a time.
+     *
+     * @param groupName The name of the group
+     * @param pageSize  The number of users to request per page
+     * @return The members of the group, or null if an error occurred
+     * @see <a href="https://docs.atlassian.com/software/jira/docs/api/REST/8.13.5/#api/2/group-getUsersFromGroup">GET /rest/api/2/group/member</a>
+     * @since 1.1
+     */
+    public List<JiraUser> getGroupMembers(String groupName, int pageSize)
+    {
+        try
+        {
+            return executeCached(JiraRequests.GROUP_MEMBER_PATH, "groupname=" + groupName,
+                    new UserListTypeReference(), () -> {
+                List<JiraUser> members = new ArrayList<>();
+                downloadGroupMembers(groupName, pageSize, members::addAll);
+                return members;
+            });
+        } catch (IOException | URISyntaxException e)
+        {
+            logger.error("Error downloading the members of {} from {}", groupName, host, e);
+        }
 
-                    // ...but probably not, so refine with the first name (if both were provided)
-                    if (lastName != null && firstName != null)
-                    {
-                        List<JiraUser> usersWithBothNames = filterUsersWithName(firstName, users);
-
-                        if (!usersWithBothNames.isEmpty())
-                        {
-                            JiraUser firstUser = usersWithBothNames.get(0);
-                            if (usersWithBothNames.size() > 1)
-                            {
-                                // This isn't perfect, but not sure what else to do... hopefully the username mapping
-                                // file will be double checked before the final CSV conversion.
-                                logger.warn("Multiple users found with the name `{} {}`; returning the first one: {}",
-                                        firstName, lastName, firstUser);
-                            }
-
-                            return firstUser;
-                        }
-                    }
-                }
+        return null;
+    }
 
-                logger.debug("No users found for {}, {}, {}, {}", username, email, lastName, firstName);
-            }
+    /**
+     * Downloads all the members of a group, one page at a time, and writes each page to a snapshot as it arrives. The
+     * responses aren't cached.
+     *
+     * @param groupName The name of the group
+     * @param pageSize  The number of users to request per page
+     * @param writer    The writer of the snapshot
+     * @return True if all the members were downloaded and written
+     * @see #getGroupMembers(String, int)
+     * @since 1.1
+     */
+    public boolean exportGroupMembers(String groupName, int pageSize, UserDirectorySnapshot.Writer writer)
+    {
+        try
+        {
+            downloadGroupMembers(groupName, pageSize, writer::write);
+            return true;
         } catch (IOException | URISyntaxException e)
         {
-            logger.error("Error connecting to Jira for user names with {}", host, e);
+            logger.error("Error exporting the members of {} from {}", groupName, host, e);
         }
 
-        return null;
+        return false;
     }
 
     /**
-     * Queries the Jira instance to find users matching the query string.
+     * Downloads all the users that match a query, one page at a time.
      *
-     * @param httpClient  The HTTP client for the request
-     * @param uriBuilder  A URI builder for constructing the URI for the request
-     * @param queryString The query string for matching users
-     * @return The list of returned users matching the query string
+     * @param query       The query string for matching users
+     * @param pageSize    The number of users to request per page (Jira caps this at 1000)
+     * @param pageHandler The handler for each page of users
+     * @throws IOException        If a problem occurred when making a request or handling a page
      * @throws URISyntaxException If the URI is invalid
-     * @throws IOException        If a problem occurred when making the request
      */
-    private List<JiraUser> findUsers(CloseableHttpClient httpClient, URIBuilder uriBuilder, String queryString)
-            throws URISyntaxException, IOException
+    private void downloadUsers(String query, int pageSize, PageHandler pageHandler)
+            throws IOException, URISyntaxException
     {
-        URI uri = uriBuilder.clearParameters() // In case we have already used this builder
-                .addParameter("username", queryString) // This parameter isn't named well; it's used for username, name, and email
-                .addParameter("includeInactive", "true")
-                .build();
-        HttpGet httpGet = new HttpGet(uri);
-        httpGet.addHeader(authorizationHeader);
+        int userCount = 0;
+        List<JiraUser> previousUsers = Collections.emptyList();
+        while (true)
+        {
+            URI uri = requests.getUriBuilder(JiraRequests.USER_SEARCH_PATH)
+                    .addParameter("username", query)
+                    .addParameter("includeInactive", "true")
+                    .addParameter("startAt", String.valueOf(userCount))
+                    .addParameter("maxResults", String.valueOf(pageSize))
+                    .build();
+            HttpGet httpGet = new HttpGet(uri);
+            httpGet.addHeader(authorizationHeader);
+
+            List<JiraUser> users = execute(httpGet, new UserSearchResponseHandler());
+            if (isRepeatedPage(previousUsers, users)) return;
+            previousUsers = users;
+
+            pageHandler.handle(users);
+            userCount += users.size();
+            logger.debug("Downloaded {} users from {}", userCount, host);
+
+            // The server may return fewer than requested if it caps the page size (and the cap varies between
+            // versions), so a short page doesn't mean it's the last; only an empty one does
+            if (users.isEmpty()) return;
+        }
+    }
+
+    /**
+     * Downloads all the members of a group, one page at a time.
+     *
+     * @param groupName   The name of the group
+     * @param pageSize    The number of users to request per page
+     * @param pageHandler The handler for each page of members
+     * @throws IOException        If a problem occurred when making a request or handling a page
+     * @throws URISyntaxException If the URI is invalid
+     */
+    private void downloadGroupMembers(String groupName, int pageSize, PageHandler pageHandler)
+            throws IOException, URISyntaxException
+    {
+        int memberCount = 0;
+        List<JiraUser> previousMembers = Collections.emptyList();
+        while (true)
+        {
+            URI uri = requests.getUriBuilder(JiraRequests.GROUP_MEMBER_PATH)
+                    .addParameter("groupname", groupName)
+                    .addParameter("includeInactiveUsers", "true")
+                    .addParameter("startAt", String.valueOf(memberCount))
+                    .addParameter("maxResults", String.valueOf(pageSize))
+                    .build();
+            HttpGet httpGet = new HttpGet(uri);
+            httpGet.addHeader(authorizationHeader);
+
+            JiraGroupMembers page = execute(httpGet, new GroupMembersResponseHandler());
+            if (isRepeatedPage(previousMembers, page.getValues())) return;
+            previousMembers = page.getValues();
+
+            pageHandler.handle(page.getValues());
+            memberCount += page.getValues().size();
+            logger.debug("Downloaded {} members of {} from {}", memberCount, groupName, host);
+
+            if (page.isLast() || page.getValues().isEmpty()) return;
+        }
+    }
+
+    /**
+     * Checks whether a page starts with the same user as the previous page, which means the server ignored the
+     * {@code startAt} parameter and would return the same page forever.
+     *
+     * @param previousUsers The users of the previous page (or an empty list for the first page)
+     * @param users         The users of the page
+     * @return True if the download should stop without handling the page
+     */
+    private boolean isRepeatedPage(List<JiraUser> previousUsers, List<JiraUser> users)
+    {
+        if (previousUsers.isEmpty() || users.isEmpty()
+                || !Objects.equals(previousUsers.get(0).getName(), users.get(0).getName())) return false;
 
-        List<JiraUser> users = httpClient.execute(httpGet, new UserSearchResponseHandler());
+        logger.warn("{} returned the same page again (starting with {}), so it doesn't seem to support paging; " +
+                "stopping the download", host, users.get(0));
+        return true;
+    }
 
-        logger.debug("Found {} users using `{}`", users.size(), queryString);
+    /**
+     * Queries the Jira instance to find users matching the query string.
+     *
+     * @param queryString The query string for matching users
+     * @return The list of returned users matching the query string
+     * @throws IOException If a problem occurred when making the request
+     */
+    private List<JiraUser> findUsers(String queryString) throws IOException
+    {
+        try
+        {
+            return executeCached(JiraRequests.USER_SEARCH_PATH, "username=" + queryString,
+                    new UserListTypeReference(), () -> {
+                URI uri = requests.getUriBuilder(JiraRequests.USER_SEARCH_PATH)
+                        .addParameter("username", queryString) // This parameter isn't named well; it's used for username, name, and email
+                        .addParameter("includeInactive", "true")
+                        .build();
+                HttpGet httpGet = new HttpGet(uri);
+                httpGet.addHeader(authorizationHeader);
+
+                List<JiraUser> users = execute(httpGet, new UserSearchResponseHandler());
+
+                logger.debug("Found {} users using `{}`", users.size(), queryString);
+
+                return users;
+            });
+        } catch (URISyntaxException e)
+        {
+            throw new IOException("Invalid user search for " + queryString, e);
+        }
+    }
 
-        return users;
+    /**
+     * Returns the cached response for the request if there is one, otherwise executes the request and caches the
+     * response.
+     *
+     * @param path          The path of the endpoint
+     * @param query         The parameters that distinguish the request from other requests to the endpoint
+     * @param typeReference The type of the response
+     * @param request       The request to execute if the response isn't cached
+     * @param <T>           The type of the response
+     * @return The response
+     * @throws IOException        If a problem occurred when making the request
+     * @throws URISyntaxException If the URI is invalid
+     */
+    private <T> T executeCached(String path, String query, TypeReference<T> typeReference, Request<T> request)
+            throws IOException, URISyntaxException
+    {
+        T response = requests.getCachedResponse(path, query, typeReference);
+        if (response == null)
+        {
+            response = request.execute();
+            requests.cacheResponse(path, query, response);
+        }
+        return response;
     }
 
     /**
-     * Searches for the users that have the provided name as part of their display name.
+     * Sends the request, waiting for the rate limiter first, and retries it if it fails because the server is
+     * throttling (429 or 503) or temporarily unavailable (502 or 504), or because of a dropped connection. When the
+     * server throttles a request, all the requests to the host are paused for its {@code Retry-After} (or the backoff,
+     * if it doesn't send one) and slowed down. Each attempt is recorded in the {@link JiraMetrics}.
      *
-     * @param name  The name
-     * @param users The users to search
-     * @return The list of users that have the provided name in their display name.
+     * @param httpGet         The request
+     * @param responseHandler The handler for a successful response
+     * @param <T>             The type of the response
+     * @return The response
+     * @throws IOException If the request failed and couldn't be retried (or ran out of attempts or time)
      */
-    private List<JiraUser> filterUsersWithName(String name, List<JiraUser> users)
+    private <T> T execute(HttpGet httpGet, ResponseHandler<? extends T> responseHandler) throws IOException
     {
-        List<JiraUser> usersWithName = new ArrayList<>();
-        for (JiraUser user : users)
+        String path = httpGet.getURI().getPath();
+        long deadlineNanos = System.nanoTime() + retryPolicy.getDeadline().toNanos();
+        for (int attempt = 1; ; attempt++)
         {
-            String displayName = user.getDisplayName();
-            if (displayName.contains(name))
+            try
             {
-                usersWithName.add(user);
+                if (!rateLimiter.acquire(deadlineNanos))
+                {
+                    throw new IOException("Timed out waiting to send a request to " + host);
+                }
+            } catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting to send a request to " + host);
+            }
+
+            IOException failure;
+            int failedStatusCode = 0;
+            Duration retryAfter = null;
+            long sentNanos = System.nanoTime();
+            // The status code and the body (counted as it's read) of the response, for the metrics
+            int[] statusCode = {0};
+            CountingEntity[] countingEntity = {null};
+            try
+            {
+                return httpClient.execute(httpGet, response -> {
+                    statusCode[0] = response.getStatusLine().getStatusCode();
+                    if (response.getEntity() != null)
+                    {
+                        countingEntity[0] = new CountingEntity(response.getEntity());
+                        response.setEntity(countingEntity[0]);
+                    }
+
+                    rateLimiter.onResponseHeaders(name -> getHeaderValue(response, name));
+                    if (RetryPolicy.isRetryableStatus(statusCode[0]))
+                    {
+                        throw new RetryableStatusException(statusCode[0], response.getStatusLine().getReasonPhrase(),
+                                RetryPolicy.parseRetryAfter(getHeaderValue(response, "Retry-After")));
+                    }
+
+                    rateLimiter.onSuccess();
+                    return responseHandler.handleResponse(response);
+                });
+            } catch (RetryableStatusException e)
+            {
+                failure = e;
+                failedStatusCode = e.getStatusCode();
+                retryAfter = e.getRetryAfter();
+            } catch (NoHttpResponseException | ConnectTimeoutException | SocketException | SocketTimeoutException e)
+            {
+                failure = e;
+            } finally
+            {
+                metrics.recordAttempt(host, path, statusCode[0],
+                        countingEntity[0] == null ? 0 : countingEntity[0].getByteCount(),
+                        System.nanoTime() - sentNanos);
             }
+
+            Duration delay = retryPolicy.getRetryDelay(attempt, failedStatusCode, retryAfter, rateLimiter,
+                    deadlineNanos);
+            if (delay == null) throw failure;
+
+            retryCount.incrementAndGet();
+            metrics.recordRetry(host, path);
+            logger.warn("Request to {} failed ({}); retrying (attempt {} of {})", host, failure.getMessage(),
+                    attempt + 1, retryPolicy.getMaxAttempts());
+            try
+            {
+                TimeUnit.NANOSECONDS.sleep(delay.toNanos());
+            } catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting to retry a request to " + host);
+            }
+        }
+    }
+
+    /**
+     * @return The metrics of the requests sent by the service
+     * @since 1.1
+     */
+    public JiraMetrics getMetrics()
+    {
+        return metrics;
+    }
+
+    private static String getHeaderValue(HttpResponse response, String name)
+    {
+        Header header = response.getFirstHeader(name);
+        return header == null ? null : header.getValue();
+    }
+
+    /**
+     * Closes the pooled connections to the server.
+     */
+    @Override
+    public void close()
+    {
+        logger.info("Searched for users {} times on {}; {} were answered by an earlier search for the same query",
+                userSearcher.getSearchCount(), host, userSearcher.getMemoizedCount());
+        if (retryCount.get() > 0)
+        {
+            logger.info("Retried {} requests to {}; the rate ended at {} requests per second", retryCount.get(), host,
+                    String.format("%.1f", rateLimiter.getRequestsPerSecond()));
+        }
+
+        try
+        {
+            httpClient.close();
+        } catch (IOException e)
+        {
+            logger.warn("Error closing the connections to {}", host, e);
         }
-        return usersWithName;
     }
 
     @Override
@@ -340,8 +652,10 @@ public class JiraService
         @Override
         public JiraServerInfo handleEntity(HttpEntity entity) throws IOException
         {
-            String jsonString = EntityUtils.toString(entity);
-            return OBJECT_MAPPER.readValue(jsonString, JiraServerInfo.class);
+            try (InputStream inputStream = entity.getContent())
+            {
+                return JiraResponses.readServerInfo(inputStream);
+            }
         }
     }
 
@@ -353,49 +667,131 @@ public class JiraService
         @Override
         public List<JiraUser> handleEntity(HttpEntity entity) throws IOException
         {
-            String jsonString = EntityUtils.toString(entity);
-            List<JiraUser> userList = OBJECT_MAPPER.readValue(jsonString, new UserListTypeReference());
-
-            return userList == null ? Collections.emptyList() : userList;
+            try (InputStream inputStream = entity.getContent())
+            {
+                return JiraResponses.readUsers(inputStream);
+            }
         }
     }
 
     /**
-     * Type reference for Jackson to allow mapping the JSON array to a list of users.
+     * The response handler for a page of group members.
      */
-    private static class UserListTypeReference extends TypeReference<List<JiraUser>>
+    private static class GroupMembersResponseHandler extends AbstractResponseHandler<JiraGroupMembers>
     {
+        @Override
+        public JiraGroupMembers handleEntity(HttpEntity entity) throws IOException
+        {
+            try (InputStream inputStream = entity.getContent())
+            {
+                return JiraResponses.readGroupMembers(inputStream);
+            }
+        }
     }
 
     /**
-     * Gets the issue types from JIRA for a single project or all
+     * Gets the issue types from JIRA for a single project or all. A response that can't be parsed is thrown rather than
+     * treated as no issue types, so it isn't cached.
      */
     private static class IssueTypeHandler extends AbstractResponseHandler<Set<String>>
     {
 
         @Override
-        public Set<String> handleEntity(HttpEntity entity)
+        public Set<String> handleEntity(HttpEntity entity) throws IOException
         {
-            try
+            try (InputStream inputStream = entity.getContent())
             {
-                String jsonString = EntityUtils.toString(entity);
-                JiraExpand jiraExpand = OBJECT_MAPPER.readValue(jsonString, new ExpandReference());
-                if (jiraExpand == null) return Collections.emptySet();
-
-                return jiraExpand.getProjects().stream()
-                        .map(JiraProject::getIssueTypes)
-                        .flatMap(Collection::stream)
-                        .map(JiraIssueType::getName)
-                        .collect(Collectors.toSet());
-            } catch (Exception e)
+                return JiraResponses.readIssueTypeNames(inputStream);
+            } catch (IOException e)
             {
-                logger.error("Could not parse project data: ", e);
+                throw new IOException("Could not parse project data", e);
             }
-            return Collections.emptySet();
         }
     }
 
-    private static class ExpandReference extends TypeReference<JiraExpand>
+    /**
+     * A response with a status that means the request can be retried.
+     */
+    private static class RetryableStatusException extends HttpResponseException
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final Duration retryAfter;
+
+        RetryableStatusException(int statusCode, String reasonPhrase, Duration retryAfter)
+        {
+            super(statusCode, reasonPhrase);
+            this.retryAfter = retryAfter;
+        }
+
+        Duration getRetryAfter()
+        {
+            return retryAfter;
+        }
+    }
+
+    /**
+     * Wraps the body of a response to count the bytes read from it.
+     */
+    private static class CountingEntity extends HttpEntityWrapper
+    {
+        private long byteCount;
+
+        CountingEntity(HttpEntity wrappedEntity)
+        {
+            super(wrappedEntity);
+        }
+
+        @Override
+        public InputStream getContent() throws IOException
+        {
+            return new FilterInputStream(super.getContent())
+            {
+                @Override
+                public int read() throws IOException
+                {
+                    int b = super.read();
+                    if (b >= 0) byteCount++;
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) throws IOException
+                {
+                    int count = super.read(buffer, offset, length);
+                    if (count > 0) byteCount += count;
+                    return count;
+                }
+            };
+        }
+
+        /**
+         * @return The number of bytes in the body: the bytes read, or the content length if the rest of the body was
+         * discarded without being read
+         */
+        long getByteCount()
+        {
+            return Math.max(byteCount, getContentLength());
+        }
+    }
+
+    /**
+     * A request to the server.
+     *
+     * @param <T> The type of the response
+     */
+    @FunctionalInterface
+    private interface Request<T>
+    {
+        T execute() throws IOException, URISyntaxException;
+    }
+
+    /**
+     * Handles a page of downloaded users.
+     */
+    @FunctionalInterface
+    private interface PageHandler
     {
+        void handle(List<JiraUser> users) throws IOException;
     }
 }
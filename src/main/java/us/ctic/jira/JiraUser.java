@@ -10,6 +10,25 @@ public class JiraUser
     private String emailAddress;
     private String displayName;
 
+    private JiraUser()
+    {
+    }
+
+    /**
+     * Constructor, for users that aren't parsed from a response (e.g. those read from a {@link UserDirectorySnapshot}).
+     *
+     * @param name         The username
+     * @param emailAddress The email address, or null
+     * @param displayName  The display name, or null
+     * @since 1.1
+     */
+    JiraUser(String name, String emailAddress, String displayName)
+    {
+        this.name = name;
+        this.emailAddress = emailAddress;
+        this.displayName = displayName;
+    }
+
     public String getName()
     {
         return name;
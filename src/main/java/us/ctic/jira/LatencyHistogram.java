@@ -0,0 +1,119 @@
+package us.ctic.jira;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of latencies with a fixed relative precision, in the style of HdrHistogram: the values are counted in
+ * buckets whose width grows with the value, so each bucket is within about 1.6% of the values counted in it, from a
+ * microsecond up to hours, in a few thousand counters. Recording a value is a few bit operations and an atomic
+ * increment, so it can be done for every request.
+ * <p>
+ * Instances are safe to use from multiple threads. The percentiles read while values are being recorded may be
+ * slightly inconsistent with the count.
+ *
+ * @since 1.1
+ */
+public class LatencyHistogram
+{
+    // The values below SUB_BUCKET_COUNT get a bucket each, and each power of two range above that is split into
+    // SUB_BUCKET_COUNT / 2 buckets, by the top SUB_BUCKET_BITS bits of the value
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_SUB_BUCKET_COUNT = SUB_BUCKET_COUNT / 2;
+    // Enough buckets for any long value
+    private static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS) * HALF_SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalMicros = new LongAdder();
+    private final LongAccumulator maxMicros = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos The latency in nanoseconds (recorded to the microsecond)
+     */
+    public void record(long nanos)
+    {
+        long micros = Math.max(TimeUnit.NANOSECONDS.toMicros(nanos), 0);
+        counts.incrementAndGet(getIndex(micros));
+        count.increment();
+        totalMicros.add(micros);
+        maxMicros.accumulate(micros);
+    }
+
+    /**
+     * @return The number of latencies recorded
+     */
+    public long getCount()
+    {
+        return count.sum();
+    }
+
+    /**
+     * @return The mean latency in milliseconds, or 0 if none were recorded
+     */
+    public double getMeanMillis()
+    {
+        long currentCount = count.sum();
+        return currentCount == 0 ? 0 : totalMicros.sum() / 1000.0 / currentCount;
+    }
+
+    /**
+     * @return The highest latency in milliseconds, or 0 if none were recorded
+     */
+    public double getMaxMillis()
+    {
+        return maxMicros.get() / 1000.0;
+    }
+
+    /**
+     * Gets the latency that the given percentage of the recorded latencies are at or below.
+     *
+     * @param percentile The percentile, from 0 to 100 (e.g. 99.9)
+     * @return The latency in milliseconds, or 0 if none were recorded
+     */
+    public double getPercentileMillis(double percentile)
+    {
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++)
+        {
+            total += counts.get(i);
+        }
+        if (total == 0) return 0;
+
+        long rank = Math.max((long) Math.ceil(percentile / 100 * total), 1);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++)
+        {
+            seen += counts.get(i);
+            if (seen >= rank)
+            {
+                // The top of the bucket, but never more than the highest value actually recorded
+                return Math.min(getHighestValue(i), maxMicros.get()) / 1000.0;
+            }
+        }
+        return getMaxMillis();
+    }
+
+    private static int getIndex(long value)
+    {
+        if (value < SUB_BUCKET_COUNT) return (int) value;
+
+        // Keep the top bits of the value, which fall in [SUB_BUCKET_COUNT / 2, SUB_BUCKET_COUNT)
+        int shift = Long.SIZE - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return shift * HALF_SUB_BUCKET_COUNT + (int) (value >>> shift);
+    }
+
+    private static long getHighestValue(int index)
+    {
+        if (index < SUB_BUCKET_COUNT) return index;
+
+        int shift = index / HALF_SUB_BUCKET_COUNT - 1;
+        long topBits = index % HALF_SUB_BUCKET_COUNT + HALF_SUB_BUCKET_COUNT;
+        return ((topBits + 1) << shift) - 1;
+    }
+}
@@ -6,32 +6,35 @@ import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVPrinter;
 import org.apache.commons.csv.CSVRecord;
-import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.io.Reader;
+import java.io.Writer;
 import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Set;
 import java.util.TreeMap;
-import java.util.function.Predicate;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 public class Main
 {
@@ -42,14 +45,27 @@ public class Main
     private static final String SOURCE = "source";
     private static final String TARGET = "target";
     private static final String NO_TARGET_MATCH = "NO_TARGET_MATCH";
-    private static final String ISSUE_TYPE_CSV_KEY = "Issue Type";
     private static final int SPLIT_COUNT = config.getInt("us.ctic.jira.splitFileMaxIssueCount");
+    private static final String TEMP_FOLDER_NAME = config.getString("us.ctic.jira.tempFolderName");
+    private static final long BUCKET_MEMORY_BUDGET_BYTES = config.getBytes("us.ctic.jira.bucketMemoryBudget");
+    private static final int PARALLEL_CHUNK_SIZE = Math.toIntExact(config.getBytes("us.ctic.jira.parallelChunkSize"));
+    private static final boolean MEMORY_MAPPED_PARSING = config.getBoolean("us.ctic.jira.memoryMappedParsing");
 
     private static boolean createUserMap = false;
     private static boolean updateCsvFile = false;
     private static boolean createIssueTypeMap = false;
+    private static boolean refreshCache = false;
+    private static boolean exportUserDirectories = false;
+    private static ResponseCache responseCache;
+    // One rate limiter per host, so the source and target services share it if they're on the same server
+    private static final Map<String, RateLimiter> rateLimitersByHost = new LinkedHashMap<>();
+    // The metrics of the requests to all the servers
+    private static final JiraMetrics jiraMetrics = new JiraMetrics();
     private static JiraService sourceJiraService;
     private static JiraService targetJiraService;
+    // The users of the instances, loaded from their snapshots when the user mapping is created offline
+    private static UserDirectory sourceUserDirectory;
+    private static UserDirectory targetUserDirectory;
 
     /**
      * Main method for updating Jira CSV files for porting to a new instance.
@@ -58,46 +74,114 @@ public class Main
      *             -m   Create a file mapping usernames found in the CSV to usernames in the target Jira instance.
      *             -i   Create issue type map file
      *             -u   Update the provided CSV file to replace usernames using the mapping
+     *             -s   Export the user directories of the Jira instances to snapshot files
+     *             --refresh   Ignore the cached Jira responses and query the servers again
      */
     public static void main(String[] args)
     {
         // First determine which tasks will be executed this run
         processCommandLineArguments(args);
 
+        // The CSV files are only parsed in parallel to extract the usernames and to update the CSV file
+        try (ParallelCsvReader parallelCsvReader = createUserMap || updateCsvFile
+                ? new ParallelCsvReader(config.getInt("us.ctic.jira.parallelThreadCount"), PARALLEL_CHUNK_SIZE)
+                : null)
+        {
+            runTasks(parallelCsvReader);
+        }
+    }
+
+    /**
+     * Runs the tasks selected by the command line arguments.
+     *
+     * @param parallelCsvReader The reader for parsing the CSV files in parallel, or null if no task parses them
+     * @since 1.1
+     */
+    private static void runTasks(ParallelCsvReader parallelCsvReader)
+    {
         List<String> sourceCsvFileNames = getSourceFileNames();
 
-        Set<String> csvUsernames = new HashSet<>();
-        if (createUserMap || updateCsvFile)
+        Set<String> csvUsernames = Collections.emptySet();
+        if (createUserMap)
         {
-            // Next we need to find all the unique usernames in the exported CSV file(s). If we are creating a user
-            // mapping, these will be mapped and stored in a file. If we are updating the CSV file, they will be
-            // replaced from the user mapping.
+            // Next we need to find all the unique usernames in the exported CSV file(s) so they can be mapped and
+            // stored in a file. Updating the CSV file only needs the mapping file, so we skip this otherwise.
             logger.info("Extracting usernames from: {}", sourceCsvFileNames);
-            csvUsernames.addAll(sourceCsvFileNames.stream()
-                    .map(UsernameExtractor::new)
-                    .map(UsernameExtractor::extractUserNames)
-                    .flatMap(Collection::stream)
-                    .collect(Collectors.toSet()));
+            csvUsernames = extractUsernames(parallelCsvReader, sourceCsvFileNames);
+            logger.info("Found {} unique usernames.", csvUsernames.size());
         }
 
-        // We need to connect to the servers for either mapping task
-        if (createUserMap || createIssueTypeMap)
+        // We need to connect to the servers for either mapping task (unless the user mapping is created from the
+        // snapshots of the user directories) and to export the user directories
+        boolean offlineUserMapping = config.getBoolean("us.ctic.jira.offlineUserMapping");
+        boolean connectToServers = (createUserMap && !offlineUserMapping) || createIssueTypeMap
+                || exportUserDirectories;
+        if (connectToServers)
         {
+            responseCache = createResponseCache();
             logger.info("Connecting to Jira servers...");
             sourceJiraService = getJiraService(SOURCE);
             targetJiraService = getJiraService(TARGET);
         }
 
+        if (exportUserDirectories)
+        {
+            exportUserDirectory(sourceJiraService, SOURCE);
+            exportUserDirectory(targetJiraService, TARGET);
+        }
+
+        if (createUserMap && offlineUserMapping && !loadUserDirectorySnapshots())
+        {
+            logger.error("Couldn't load the user directory snapshots, so the user mapping can't be created offline; " +
+                    "using the existing mapping file instead");
+            createUserMap = false;
+        }
+
         Map<String, String> usernameMapping;
         String userMapCsvFileName = config.getString("us.ctic.jira.userMapFileName");
         if (createUserMap)
         {
+            // When updating an existing mapping file, only the new users (and those that weren't found last time) are
+            // looked up again; the other entries may have been reviewed, so they're kept as they are
+            Map<String, String> existingMapping = Collections.emptyMap();
+            Map<String, String> notes = new TreeMap<>();
+            Set<String> usernamesToResolve = csvUsernames;
+            if (config.getBoolean("us.ctic.jira.incrementalUserMapping") && new File(userMapCsvFileName).isFile())
+            {
+                existingMapping = populateMappingFromFile(userMapCsvFileName, notes);
+                usernamesToResolve = getUsernamesToResolve(csvUsernames, existingMapping,
+                        config.getString("us.ctic.jira.target.defaultUsername"));
+                logger.info("Found {} of the {} usernames in {}; looking up the other {} (new or mapped to the " +
+                                "default user)", csvUsernames.size() - usernamesToResolve.size(), csvUsernames.size(),
+                        userMapCsvFileName, usernamesToResolve.size());
+
+                // The cached target searches (and directory download) that found nothing for the users mapped to the
+                // default user would find nothing again, so they're sent to the server again
+                if (targetJiraService != null && usernamesToResolve.stream().anyMatch(existingMapping::containsKey))
+                {
+                    targetJiraService.refreshCachedUsers();
+                }
+            }
+
             // Query the Jira instances to try to match usernames on the source instance to usernames on the target instance
-            usernameMapping = createUsernameMapping(csvUsernames);
+            Map<String, NameMatch> ambiguousMatches = new TreeMap<>();
+            Map<String, String> resolvedMapping = usernamesToResolve.isEmpty()
+                    ? Collections.emptyMap()
+                    : createUsernameMapping(usernamesToResolve, ambiguousMatches);
+
+            usernameMapping = new TreeMap<>(existingMapping);
+            usernameMapping.putAll(resolvedMapping);
+            notes.keySet().removeAll(resolvedMapping.keySet());
+            notes.putAll(getReviewNotes(ambiguousMatches));
 
             // Write the mapping to a file so we don't have to do this again next time since it takes so long
             logger.info("Writing user type mapping to file {}", userMapCsvFileName);
-            writeMappingToFile(usernameMapping, userMapCsvFileName, "User Mapping");
+            writeMappingToFile(usernameMapping, notes, userMapCsvFileName, "User Mapping");
+            if (!ambiguousMatches.isEmpty())
+            {
+                logger.warn("{} users were mapped to the default user, but have similar names on the target server; " +
+                        "review the candidates in the third column of {}", ambiguousMatches.size(), userMapCsvFileName);
+            }
         } else
         {
             usernameMapping = populateMappingFromFile(userMapCsvFileName);
@@ -117,24 +201,36 @@ public class Main
             logger.info("Populated issue type mapping from file {}: {}", issueTypeMapCsvFileName, issueTypeMapping);
         }
 
+        // We're done with the servers, so release the connections
+        if (sourceJiraService != null) sourceJiraService.close();
+        if (targetJiraService != null) targetJiraService.close();
+        if (responseCache != null) responseCache.close();
+        if (connectToServers) reportMetrics();
+
         if (updateCsvFile)
         {
             issueTypeMapping = cleanMappings(issueTypeMapping);
 
-            List<Map<String, String>> mappingsList = new ArrayList<>();
-            mappingsList.add(usernameMapping);
-            mappingsList.add(issueTypeMapping);
-
             String targetCsvFileName = config.getString("us.ctic.jira.target.csvFileName");
-            updateCsvFileWithMappings(sourceCsvFileNames, targetCsvFileName, mappingsList);
+            String splitFolder = config.getString("us.ctic.jira.target.csvFolderName");
+            CsvRecordMapper recordMapper = createRecordMapper(usernameMapping, issueTypeMapping);
+            if (config.getBoolean("us.ctic.jira.target.singlePassConversion"))
+            {
+                // Map, remove empty columns, and split in one pass over the source file(s)
+                new CsvConversionPipeline(sourceCsvFileNames, targetCsvFileName, splitFolder, recordMapper,
+                        issueTypeMapping, SPLIT_COUNT, TEMP_FOLDER_NAME, BUCKET_MEMORY_BUDGET_BYTES).run();
+            } else
+            {
+                updateCsvFileWithMappings(parallelCsvReader, sourceCsvFileNames, targetCsvFileName, recordMapper);
 
-            final EmptyColumnRemover emptyColumnRemover = new EmptyColumnRemover(targetCsvFileName);
-            final String newTargetCsvFileName = emptyColumnRemover.removeEmptyColumns();
+                final EmptyColumnRemover emptyColumnRemover = new EmptyColumnRemover(targetCsvFileName, parallelCsvReader,
+                        MEMORY_MAPPED_PARSING);
+                final String newTargetCsvFileName = emptyColumnRemover.removeEmptyColumns();
 
-            if (!issueTypeMapping.isEmpty())
-            {
-                String splitFolder = config.getString("us.ctic.jira.target.csvFolderName");
-                orderByIssueTypeAndSplitCsvFileByCount(newTargetCsvFileName, splitFolder, issueTypeMapping);
+                if (!issueTypeMapping.isEmpty())
+                {
+                    orderByIssueTypeAndSplitCsvFileByCount(newTargetCsvFileName, splitFolder, issueTypeMapping);
+                }
             }
         }
     }
@@ -161,6 +257,12 @@ public class Main
                 case "-u":
                     updateCsvFile = true;
                     break;
+                case "-s":
+                    exportUserDirectories = true;
+                    break;
+                case "--refresh":
+                    refreshCache = true;
+                    break;
                 default:
                     logger.warn("Unexpected argument: {}", arg);
             }
@@ -215,6 +317,77 @@ public class Main
         return sourceCsvFileNames;
     }
 
+    /**
+     * Extracts the unique usernames from the provided CSV files. The small files are processed in parallel by a
+     * work-stealing pool (sized by the config settings), largest first so a file isn't left running on its own at the
+     * end. Meanwhile the big files are processed one after another on this thread, each split into chunks by the
+     * parallel reader so all the processors can help with it; running them one at a time keeps the memory used to the
+     * chunks of a single file in flight.
+     *
+     * @param parallelCsvReader  The reader for parsing the big files in parallel
+     * @param sourceCsvFileNames The CSV files from which to extract usernames
+     * @return The set of unique usernames found in all the files
+     * @since 1.1
+     */
+    private static Set<String> extractUsernames(ParallelCsvReader parallelCsvReader, List<String> sourceCsvFileNames)
+    {
+        Set<String> csvUsernames = ConcurrentHashMap.newKeySet();
+        int threadCount = config.getInt("us.ctic.jira.source.extractionThreadCount");
+        if (threadCount <= 0)
+        {
+            threadCount = Runtime.getRuntime().availableProcessors();
+        }
+
+        Map<Boolean, List<String>> fileNamesByBigness = sourceCsvFileNames.stream()
+                .sorted(Comparator.comparingLong((String fileName) -> new File(fileName).length()).reversed())
+                .collect(Collectors.partitioningBy(fileName -> new File(fileName).length() > PARALLEL_CHUNK_SIZE));
+
+        List<Callable<Void>> extractionTasks = fileNamesByBigness.get(false).stream()
+                .map(fileName -> (Callable<Void>) () -> {
+                    // Collect each file separately so the threads only touch the shared set once per username per file
+                    Set<String> fileUsernames = new HashSet<>();
+                    new UsernameExtractor(fileName, MEMORY_MAPPED_PARSING).extractUserNames(fileUsernames::add);
+                    csvUsernames.addAll(fileUsernames);
+                    return null;
+                })
+                .collect(Collectors.toList());
+
+        ForkJoinPool extractionPool = new ForkJoinPool(Math.min(threadCount, Math.max(1, extractionTasks.size())));
+        try
+        {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (Callable<Void> extractionTask : extractionTasks)
+            {
+                futures.add(extractionPool.submit(extractionTask));
+            }
+
+            for (String fileName : fileNamesByBigness.get(true))
+            {
+                Set<String> fileUsernames = new HashSet<>();
+                new UsernameExtractor(fileName, MEMORY_MAPPED_PARSING)
+                        .extractUserNames(parallelCsvReader, fileUsernames::add);
+                csvUsernames.addAll(fileUsernames);
+            }
+
+            for (Future<Void> future : futures)
+            {
+                future.get();
+            }
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            logger.error("Interrupted while extracting usernames", e);
+        } catch (ExecutionException e)
+        {
+            logger.error("Error extracting usernames", e.getCause());
+        } finally
+        {
+            extractionPool.shutdown();
+        }
+
+        return csvUsernames;
+    }
+
     /**
      * Connects to a JIRA service for the given type.
      *
@@ -228,85 +401,297 @@ public class Main
         String password = config.getString(CONFIG_PREFIX + serviceType + ".password");
         String token = config.getString(CONFIG_PREFIX + serviceType + ".token");
         String projectKey = config.getString(CONFIG_PREFIX + serviceType + ".projectKey");
-        return new JiraService(host, username, password, token, projectKey);
+        return new JiraService(host, username, password, token, projectKey, getConnectionSettings(host));
+    }
+
+    /**
+     * Connects to a JIRA service for the given type with the non-blocking client.
+     *
+     * @param serviceType the type defined in the config file (source, or target)
+     * @return jira service of that type
+     */
+    private static AsyncJiraService getAsyncJiraService(String serviceType)
+    {
+        String host = config.getString(CONFIG_PREFIX + serviceType + ".host");
+        String username = config.getString(CONFIG_PREFIX + serviceType + ".username");
+        String password = config.getString(CONFIG_PREFIX + serviceType + ".password");
+        String token = config.getString(CONFIG_PREFIX + serviceType + ".token");
+        String projectKey = config.getString(CONFIG_PREFIX + serviceType + ".projectKey");
+        return new AsyncJiraService(host, username, password, token, projectKey, getConnectionSettings(host));
     }
 
     /**
-     * Creates a mapping of source username to target username for the set of provided names. If a user from the source
-     * Jira instance cannot be found on the target instance, a default user is used instead.
+     * Gets the settings of the connections to a host from the config file.
      *
-     * @param csvUsernames The usernames found in the Jira CSV export
-     * @return A map of source usernames to target usernames
+     * @param host The host of the Jira server
+     * @return The connection settings
      */
-    private static Map<String, String> createUsernameMapping(Set<String> csvUsernames)
+    private static JiraConnectionSettings getConnectionSettings(String host)
     {
-        String defaultTargetUsername = config.getString("us.ctic.jira.target.defaultUsername");
+        return JiraConnectionSettings.builder()
+                .maxConnectionsPerRoute(config.getInt("us.ctic.jira.http.maxConnectionsPerRoute"))
+                .keepAlive(config.getDuration("us.ctic.jira.http.keepAlive"))
+                .idleTimeout(config.getDuration("us.ctic.jira.http.idleTimeout"))
+                .responseCache(responseCache)
+                .rateLimiter(getRateLimiter(host))
+                .retryPolicy(createRetryPolicy())
+                .metrics(jiraMetrics)
+                .build();
+    }
 
-        logger.info("Verifying default user {} exists on target server...", defaultTargetUsername);
-        JiraUser defaultUser = targetJiraService.findUserByUsername(defaultTargetUsername);
-        if (defaultUser != null)
+    /**
+     * Gets the rate limiter for the requests to a host, creating it the first time.
+     *
+     * @param host The host of the Jira server
+     * @return The rate limiter
+     */
+    private static RateLimiter getRateLimiter(String host)
+    {
+        return rateLimitersByHost.computeIfAbsent(host, h -> new RateLimiter(
+                config.getDouble("us.ctic.jira.http.requestsPerSecond"),
+                config.getInt("us.ctic.jira.http.burst")));
+    }
+
+    private static RetryPolicy createRetryPolicy()
+    {
+        return new RetryPolicy(config.getInt("us.ctic.jira.http.retry.maxAttempts"),
+                config.getDuration("us.ctic.jira.http.retry.initialBackoff"),
+                config.getDuration("us.ctic.jira.http.retry.maxBackoff"),
+                config.getDuration("us.ctic.jira.http.retry.deadline"));
+    }
+
+    /**
+     * Creates the username mapping from the user directory snapshots, or with the blocking or non-blocking services,
+     * depending on the configuration.
+     *
+     * @param csvUsernames     The usernames to map
+     * @param ambiguousMatches The map to which to add the users with ambiguous matches by name
+     * @return A map of source usernames to target usernames, sorted by source username
+     * @since 1.1
+     */
+    private static Map<String, String> createUsernameMapping(Set<String> csvUsernames,
+                                                             Map<String, NameMatch> ambiguousMatches)
+    {
+        UsernameMapper usernameMapper;
+        if (config.getBoolean("us.ctic.jira.offlineUserMapping"))
+        {
+            usernameMapper = new UsernameMapper(sourceUserDirectory, targetUserDirectory,
+                    config.getString("us.ctic.jira.target.defaultUsername"),
+                    config.getBoolean("us.ctic.jira.source.lastNameDisplayedFirst"));
+        } else if (config.getBoolean("us.ctic.jira.asyncLookups"))
         {
-            logger.info("Found default user: {}", defaultUser);
+            return createUsernameMappingAsynchronously(csvUsernames, loadTargetUserDirectory(), ambiguousMatches);
         } else
         {
-            logger.warn("Couldn't find default user on {}: {}", targetJiraService, defaultTargetUsername);
+            usernameMapper = new UsernameMapper(sourceJiraService, targetJiraService,
+                    config.getString("us.ctic.jira.target.defaultUsername"),
+                    config.getBoolean("us.ctic.jira.source.lastNameDisplayedFirst"),
+                    config.getInt("us.ctic.jira.source.lookupConcurrency"),
+                    config.getInt("us.ctic.jira.target.lookupConcurrency"),
+                    loadTargetUserDirectory());
         }
+        Map<String, String> usernameMapping = usernameMapper.createUsernameMapping(csvUsernames);
+        ambiguousMatches.putAll(usernameMapper.getAmbiguousMatches());
+        return usernameMapping;
+    }
 
-        // Look up the user info that corresponds to the usernames in the CSV file from the source Jira instance.
-        logger.info("Getting user info from source Jira instance: {}...", sourceJiraService);
-        Map<String, JiraUser> sourceUsersByName = new TreeMap<>();
+    /**
+     * Finds the usernames that still need to be looked up when updating an existing mapping: the ones that aren't in
+     * it yet, and the ones mapped to the default user (which may be found now, e.g. after the user was created on the
+     * target instance).
+     *
+     * @param csvUsernames    The usernames found in the Jira CSV export
+     * @param existingMapping The existing mapping of source usernames to target usernames
+     * @param defaultUsername The username used when a user couldn't be found on the target instance
+     * @return The usernames to look up
+     * @since 1.1
+     */
+    static Set<String> getUsernamesToResolve(Set<String> csvUsernames, Map<String, String> existingMapping,
+                                             String defaultUsername)
+    {
+        Set<String> usernamesToResolve = new LinkedHashSet<>();
         for (String username : csvUsernames)
         {
-            JiraUser user = sourceJiraService.findUserByUsername(username);
-            if (user != null)
-            {
-                logger.debug("Found user: {}", user);
-                sourceUsersByName.put(username, user);
-            } else
-            {
-                logger.warn("Couldn't find user on {}: {}", sourceJiraService, username);
-            }
+            String targetUsername = existingMapping.get(username);
+            if (targetUsername == null || targetUsername.equals(defaultUsername)) usernamesToResolve.add(username);
+        }
+        return usernamesToResolve;
+    }
+
+    /**
+     * Creates the username mapping with non-blocking lookups, which keep many lookups in flight over a few connections.
+     *
+     * @param csvUsernames        The usernames found in the Jira CSV export
+     * @param targetUserDirectory The users of the target instance, downloaded in advance, or null
+     * @param ambiguousMatches    The map to which to add the users with ambiguous matches by name
+     * @return A map of source usernames to target usernames, sorted by source username
+     */
+    private static Map<String, String> createUsernameMappingAsynchronously(Set<String> csvUsernames,
+                                                                           UserDirectory targetUserDirectory,
+                                                                           Map<String, NameMatch> ambiguousMatches)
+    {
+        try (AsyncJiraService asyncSourceJiraService = getAsyncJiraService(SOURCE);
+             AsyncJiraService asyncTargetJiraService = getAsyncJiraService(TARGET))
+        {
+            AsyncUsernameMapper usernameMapper = new AsyncUsernameMapper(asyncSourceJiraService,
+                    asyncTargetJiraService,
+                    config.getString("us.ctic.jira.target.defaultUsername"),
+                    config.getBoolean("us.ctic.jira.source.lastNameDisplayedFirst"),
+                    config.getInt("us.ctic.jira.maxLookupsInFlight"),
+                    targetUserDirectory);
+            Map<String, String> usernameMapping = usernameMapper.createUsernameMapping(csvUsernames);
+            ambiguousMatches.putAll(usernameMapper.getAmbiguousMatches());
+            return usernameMapping;
         }
+    }
+
+    /**
+     * Logs the metrics of the requests to the Jira servers, and writes them to the metrics file if one is configured.
+     */
+    private static void reportMetrics()
+    {
+        jiraMetrics.logSummary();
+
+        String metricsFileName = config.getString("us.ctic.jira.metrics.fileName");
+        if (metricsFileName.isEmpty()) return;
+
+        try
+        {
+            jiraMetrics.writeJson(metricsFileName);
+            logger.info("Wrote the request metrics to {}", metricsFileName);
+        } catch (IOException e)
+        {
+            logger.error("Error writing the request metrics to {}", metricsFileName, e);
+        }
+    }
+
+    /**
+     * Creates the persistent cache of Jira responses, if one is configured.
+     *
+     * @return The cache or null if caching is disabled
+     */
+    private static ResponseCache createResponseCache()
+    {
+        String cacheFileName = config.getString("us.ctic.jira.cache.fileName");
+        if (cacheFileName.isEmpty()) return null;
 
-        logger.info("Found {} users on {}.", sourceUsersByName.size(), sourceJiraService);
+        return new ResponseCache(cacheFileName,
+                config.getDuration("us.ctic.jira.cache.timeToLive"),
+                config.getInt("us.ctic.jira.cache.maxEntries"),
+                refreshCache || config.getBoolean("us.ctic.jira.cache.refresh"));
+    }
 
-        // Now we need to find the corresponding users in the target Jira instance.
-        logger.info("Getting user info from target Jira instance: {}...", targetJiraService);
-        boolean lastNameDisplayedFirst = config.getBoolean("us.ctic.jira.source.lastNameDisplayedFirst");
+    /**
+     * Downloads the users of the target Jira instance if enabled in the config settings, either from the configured
+     * groups or by searching for all users.
+     *
+     * @return The directory of target users, or null if it's disabled or couldn't be downloaded
+     */
+    private static UserDirectory loadTargetUserDirectory()
+    {
+        if (!config.getBoolean("us.ctic.jira.target.prefetchUserDirectory")) return null;
 
-        Map<String, String> sourceUserToTargetUserMap = new TreeMap<>();
-        for (String sourceUserName : csvUsernames)
+        int pageSize = config.getInt("us.ctic.jira.target.userDirectoryPageSize");
+        List<String> groupNames = config.getStringList("us.ctic.jira.target.userDirectoryGroups");
+        List<JiraUser> users = new ArrayList<>();
+        if (groupNames.isEmpty())
+        {
+            String query = config.getString("us.ctic.jira.target.userDirectoryQuery");
+            logger.info("Downloading the users matching `{}` from {}...", query, targetJiraService);
+            List<JiraUser> matchingUsers = targetJiraService.getAllUsers(query, pageSize);
+            if (matchingUsers == null) users = null;
+            else users.addAll(matchingUsers);
+        } else
         {
-            JiraUser sourceUser = sourceUsersByName.get(sourceUserName);
-            if (sourceUser != null)
+            for (String groupName : groupNames)
             {
-                String firstName = null;
-                String lastName = null;
-                List<String> firstAndLastName = ParseUtils.getFirstAndLastName(sourceUser.getDisplayName(), lastNameDisplayedFirst);
-                if (firstAndLastName != null)
+                logger.info("Downloading the members of {} from {}...", groupName, targetJiraService);
+                List<JiraUser> members = targetJiraService.getGroupMembers(groupName, pageSize);
+                if (members == null)
                 {
-                    firstName = firstAndLastName.get(0);
-                    lastName = firstAndLastName.get(1);
+                    users = null;
+                    break;
                 }
+                users.addAll(members);
+            }
+        }
 
-                JiraUser targetUser = targetJiraService.findUser(null, sourceUser.getEmailAddress(), firstName, lastName);
-                if (targetUser != null)
-                {
-                    logger.debug("Found user: {}", targetUser);
-                    sourceUserToTargetUserMap.put(sourceUserName, targetUser.getName());
-                } else
+        if (users == null)
+        {
+            logger.warn("Couldn't download the users from {}; searching for each user instead", targetJiraService);
+            return null;
+        }
+
+        UserDirectory userDirectory = new UserDirectory(users);
+        logger.info("Downloaded {} users from {}.", userDirectory.size(), targetJiraService);
+        return userDirectory;
+    }
+
+    /**
+     * Exports the users of a Jira instance to the snapshot file set in the config settings, either from the configured
+     * groups or by searching for all users. The users are written as each page is downloaded, and the previous
+     * snapshot is only replaced if all of them were.
+     *
+     * @param jiraService The service for the Jira instance
+     * @param serviceType Whether this is the source or target instance
+     * @since 1.1
+     */
+    private static void exportUserDirectory(JiraService jiraService, String serviceType)
+    {
+        String snapshotFileName = config.getString(CONFIG_PREFIX + serviceType + ".userDirectorySnapshot");
+        if (snapshotFileName.isEmpty())
+        {
+            logger.warn("No user directory snapshot file is set for {}; not exporting its users", jiraService);
+            return;
+        }
+
+        int pageSize = config.getInt(CONFIG_PREFIX + serviceType + ".userDirectoryPageSize");
+        List<String> groupNames = config.getStringList(CONFIG_PREFIX + serviceType + ".userDirectoryGroups");
+        try (UserDirectorySnapshot.Writer writer = new UserDirectorySnapshot.Writer(snapshotFileName,
+                jiraService.toString()))
+        {
+            boolean exported = true;
+            if (groupNames.isEmpty())
+            {
+                String query = config.getString(CONFIG_PREFIX + serviceType + ".userDirectoryQuery");
+                logger.info("Exporting the users matching `{}` from {} to {}...", query, jiraService,
+                        snapshotFileName);
+                exported = jiraService.exportUsers(query, pageSize, writer);
+            } else
+            {
+                for (String groupName : groupNames)
                 {
-                    logger.warn("Couldn't find user on {}: {}; using default instead: {}", targetJiraService, sourceUser, defaultTargetUsername);
-                    sourceUserToTargetUserMap.put(sourceUserName, defaultTargetUsername);
+                    logger.info("Exporting the members of {} from {} to {}...", groupName, jiraService,
+                            snapshotFileName);
+                    exported = jiraService.exportGroupMembers(groupName, pageSize, writer);
+                    if (!exported) break;
                 }
-            } else
+            }
+
+            if (!exported)
             {
-                logger.warn("User no longer exists on {}: {}; using default instead: {}", sourceJiraService, sourceUserName, defaultTargetUsername);
-                sourceUserToTargetUserMap.put(sourceUserName, defaultTargetUsername);
+                logger.error("Couldn't export the users from {}; {} wasn't changed", jiraService, snapshotFileName);
+                return;
             }
+            writer.finish();
+            logger.info("Exported {} users from {} to {}", writer.getUserCount(), jiraService, snapshotFileName);
+        } catch (IOException e)
+        {
+            logger.error("Error writing the user directory snapshot {}", snapshotFileName, e);
         }
+    }
 
-        return sourceUserToTargetUserMap;
+    /**
+     * Loads the users of both instances from the snapshot files set in the config settings.
+     *
+     * @return True if both snapshots were loaded
+     * @since 1.1
+     */
+    private static boolean loadUserDirectorySnapshots()
+    {
+        sourceUserDirectory = UserDirectorySnapshot.load(config.getString("us.ctic.jira.source.userDirectorySnapshot"));
+        targetUserDirectory = UserDirectorySnapshot.load(config.getString("us.ctic.jira.target.userDirectorySnapshot"));
+        return sourceUserDirectory != null && targetUserDirectory != null;
     }
 
     /**
@@ -317,6 +702,22 @@ public class Main
      * @param mappingDisplayText The display text of the type of mapping being done
      */
     private static void writeMappingToFile(Map<String, String> mapping, String csvFilename, String mappingDisplayText)
+    {
+        writeMappingToFile(mapping, Collections.emptyMap(), csvFilename, mappingDisplayText);
+    }
+
+    /**
+     * Writes the provided mapping to the specified file as comma-separated values, with a third value on the lines
+     * that have a note for the reviewer. The third value is ignored when the file is read back.
+     *
+     * @param mapping            The mapping of source object to target object
+     * @param notes              The notes for the reviewer, by source object
+     * @param csvFilename        The name of the file to which to write
+     * @param mappingDisplayText The display text of the type of mapping being done
+     * @since 1.1
+     */
+    private static void writeMappingToFile(Map<String, String> mapping, Map<String, String> notes, String csvFilename,
+                                           String mappingDisplayText)
     {
         try (FileWriter fileWriter = new FileWriter(csvFilename);
              CSVPrinter csvPrinter = new CSVPrinter(fileWriter, CSVFormat.DEFAULT))
@@ -325,7 +726,14 @@ public class Main
             {
                 String key = entry.getKey();
                 String value = entry.getValue();
-                csvPrinter.printRecord(key, value);
+                String note = notes.get(key);
+                if (note != null)
+                {
+                    csvPrinter.printRecord(key, value, note);
+                } else
+                {
+                    csvPrinter.printRecord(key, value);
+                }
             }
         } catch (IOException e)
         {
@@ -333,6 +741,19 @@ public class Main
         }
     }
 
+    /**
+     * @param ambiguousMatches The users with ambiguous matches by name, by source username
+     * @return The notes for the reviewer of the user mapping file, by source username
+     * @since 1.1
+     */
+    private static Map<String, String> getReviewNotes(Map<String, NameMatch> ambiguousMatches)
+    {
+        Map<String, String> notes = new TreeMap<>();
+        ambiguousMatches.forEach((username, nameMatch) ->
+                notes.put(username, "REVIEW: similar names: " + nameMatch.describeCandidates()));
+        return notes;
+    }
+
     /**
      * Parses the specified file to populate a map of values. Each line of the file should be in the format:
      * {@code source-value,target-value}
@@ -341,13 +762,29 @@ public class Main
      * @return A map of source keys to target keys (i.e., usernames or issue types)
      */
     private static Map<String, String> populateMappingFromFile(String mapCsvFileName)
+    {
+        return populateMappingFromFile(mapCsvFileName, new LinkedHashMap<>());
+    }
+
+    /**
+     * Parses the specified file to populate a map of values, and the notes in the optional third value of each line.
+     *
+     * @param mapCsvFileName The name of the file to parse
+     * @param notes          The map to which to add the notes, by source key
+     * @return A map of source keys to target keys (i.e., usernames or issue types)
+     * @since 1.1
+     */
+    private static Map<String, String> populateMappingFromFile(String mapCsvFileName, Map<String, String> notes)
     {
         Map<String, String> sourceToTargetMap = new LinkedHashMap<>();
 
         try (Reader reader = new FileReader(mapCsvFileName);
              CSVParser csvParser = new CSVParser(reader, CSVFormat.DEFAULT))
         {
-            csvParser.getRecords().forEach(record -> sourceToTargetMap.put(record.get(0), record.get(1)));
+            csvParser.getRecords().forEach(record -> {
+                sourceToTargetMap.put(record.get(0), record.get(1));
+                if (record.size() > 2) notes.put(record.get(0), record.get(2));
+            });
         } catch (IOException e)
         {
             logger.error("Error parsing file: {}", mapCsvFileName, e);
@@ -406,133 +843,135 @@ public class Main
 
     /**
      * Sorts the issues in the provided source file by issue type and splits them into separate files in the specified
-     * folder with no more than the maximum number of issues.
+     * folder with no more than the maximum number of issues. The issues are streamed into {@link RecordBuckets}, so
+     * only the configured memory budget of issues is held in memory at once and the rest are spilled to disk.
      *
      * @param sourceCsvFileName The CSV file containing all of the issues
      * @param splitFolder       The folder to which to save the new split files
      * @param issueTypeMap      A mapping of issues types for sorting the issues
      */
-    private static void orderByIssueTypeAndSplitCsvFileByCount(String sourceCsvFileName, String splitFolder,
-                                                               Map<String, String> issueTypeMap)
+    static void orderByIssueTypeAndSplitCsvFileByCount(String sourceCsvFileName, String splitFolder,
+                                                       Map<String, String> issueTypeMap)
     {
-        List<String> headerRow;
-        List<CSVRecord> records;
-        try (Reader reader = new FileReader(sourceCsvFileName);
-             CSVParser csvParser = new CSVParser(reader, CSVFormat.DEFAULT.withHeader()))
-        {
-            headerRow = new ArrayList<>(csvParser.getHeaderNames());
-            records = new ArrayList<>(csvParser.getRecords());
-        } catch (IOException e)
-        {
-            logger.error("Error reading csv for splitting: {}", sourceCsvFileName, e);
-            return;
-        }
-
-        if (headerRow.isEmpty() || records.isEmpty())
+        try (RecordBuckets recordBuckets = new RecordBuckets(TEMP_FOLDER_NAME, BUCKET_MEMORY_BUDGET_BYTES))
         {
-            logger.error("No jira issues found in CSV file(s).");
-            return;
-        }
-
-        int issueTypePosition = headerRow.indexOf(ISSUE_TYPE_CSV_KEY);
-        if (issueTypePosition == -1)
-        {
-            logger.error("Could not find an issue type column in the CSV file.");
-            return;
-        }
-
-        Map<String, List<CSVRecord>> csvByIssueType = records.stream()
-                .collect(Collectors.groupingBy(strings -> strings.get(issueTypePosition)));
-
-        List<String> orderedIssueTypes = issueTypeMap.values().stream()
-                .distinct()
-                .collect(Collectors.toList());
-
-        List<String> unOrderedIssueTypes = csvByIssueType.keySet().stream()
-                .filter(Predicate.not(orderedIssueTypes::contains))
-                .collect(Collectors.toList());
+            String[] headerRow;
+            try (Reader reader = new FileReader(sourceCsvFileName);
+                 CSVParser csvParser = new CSVParser(reader, CSVFormat.DEFAULT))
+            {
+                Iterator<CSVRecord> iterator = csvParser.iterator();
+                if (!iterator.hasNext())
+                {
+                    logger.error("No jira issues found in CSV file(s).");
+                    return;
+                }
 
-        if (!unOrderedIssueTypes.isEmpty())
-        {
-            logger.warn("Found Issue Types in the CSV file that were not in the project issue type mapping file: {}",
-                    String.join(", ", unOrderedIssueTypes));
-        }
+                headerRow = CsvUtils.toArray(iterator.next());
+                int issueTypePosition = Arrays.asList(headerRow).indexOf(CsvConversionPipeline.ISSUE_TYPE_COLUMN_NAME);
+                if (issueTypePosition == -1)
+                {
+                    logger.error("Could not find an issue type column in the CSV file.");
+                    return;
+                }
 
-        List<String> allIssueTypesInOrder = Stream.concat(orderedIssueTypes.stream(), unOrderedIssueTypes.stream())
-                .collect(Collectors.toList());
+                while (iterator.hasNext())
+                {
+                    String[] values = CsvUtils.toArray(iterator.next());
+                    recordBuckets.add(issueTypePosition < values.length ? values[issueTypePosition] : "", values);
+                }
+            } catch (IOException e)
+            {
+                logger.error("Error reading csv for splitting: {}", sourceCsvFileName, e);
+                return;
+            }
 
-        List<CSVRecord> orderedCsvRecords = allIssueTypesInOrder.stream()
-                .map(csvByIssueType::get)
-                .filter(Objects::nonNull)
-                .flatMap(Collection::stream)
-                .collect(Collectors.toList());
+            if (recordBuckets.getRecordCount() == 0)
+            {
+                logger.error("No jira issues found in CSV file(s).");
+                return;
+            }
 
-        logger.info("Beginning splitting csv file for {} records.", orderedCsvRecords.size());
-        FileWriter writer = null;
-        CSVPrinter csvPrinter = null;
-        int previousFileNumber = 0;
-        String[] headerRowArray = new String[headerRow.size()];
-        headerRowArray = headerRow.toArray(headerRowArray);
+            List<String> allIssueTypesInOrder = CsvConversionPipeline.getIssueTypesInOrder(issueTypeMap,
+                    recordBuckets.getKeys());
 
-        final String fileNamePrefix = ParseUtils.getFileNameWithoutPathOrExtension(sourceCsvFileName);
-        try
-        {
-            for (int index = 0; index < orderedCsvRecords.size(); index++)
+            logger.info("Beginning splitting csv file for {} records.", recordBuckets.getRecordCount());
+            final String fileNamePrefix = ParseUtils.getFileNameWithoutPathOrExtension(sourceCsvFileName);
+            try (SplitCsvWriter splitCsvWriter = new SplitCsvWriter(splitFolder, fileNamePrefix, headerRow, SPLIT_COUNT))
             {
-                int remainder = (index + 1) % SPLIT_COUNT == 0 ? 0 : 1;
-                int fileNumber = (index + 1) / SPLIT_COUNT + remainder;
-
-                if (writer == null || previousFileNumber != fileNumber)
+                for (String issueType : allIssueTypesInOrder)
                 {
-                    // Always close previous file before we make a new one
-                    if (writer != null) writer.close();
-
-                    String fileName = fileNamePrefix + "_Split_" + fileNumber + ".csv";
-                    writer = new FileWriter(splitFolder + File.separator + fileName);
-                    csvPrinter = new CSVPrinter(writer, CSVFormat.DEFAULT.withHeader(headerRowArray));
-                    logger.debug("Creating csv file: {}", fileName);
+                    recordBuckets.forEachRecord(issueType, values -> splitCsvWriter.printRecord((Object[]) values));
                 }
-                csvPrinter.printRecord(orderedCsvRecords.get(index));
-                previousFileNumber = fileNumber;
+
+                logger.info("Completed splitting csv into {} files.", splitCsvWriter.getFileCount());
+            } catch (IOException e)
+            {
+                logger.error("Error creating a split csv file for: {}", sourceCsvFileName, e);
             }
+        }
+    }
 
-            logger.info("Completed splitting csv into {} files.", previousFileNumber);
-            if (writer != null) writer.close();
-        } catch (IOException e)
+    /**
+     * Creates the mapper for applying the user and issue type mappings to the CSV records, based on the config settings.
+     *
+     * @param usernameMapping  The mapping of source usernames to target usernames
+     * @param issueTypeMapping The mapping of source issue types to target issue types
+     * @return The record mapper
+     */
+    private static CsvRecordMapper createRecordMapper(Map<String, String> usernameMapping,
+                                                      Map<String, String> issueTypeMapping)
+    {
+        if (config.getBoolean("us.ctic.jira.target.columnScopedMapping"))
         {
-            logger.error("Error creating a split csv file for: {}", sourceCsvFileName, e);
+            return new ColumnScopedRecordMapper(usernameMapping, issueTypeMapping);
         }
+
+        // Combine the username and issue type mappings together so we only scan the text once
+        return new TextRecordMapper(List.of(usernameMapping, issueTypeMapping));
     }
 
     /**
-     * Replaces all occurrences of source mappings in the specified CSV file and outputs the result to the target CSV
-     * file (specified in the config settings).
+     * Applies the mappings to the records of the specified CSV files and outputs the result to the target CSV file
+     * (specified in the config settings). Only the header row of the first file is written. Each file is split into
+     * chunks that are mapped in parallel and written out in their original order.
      *
+     * @param parallelCsvReader The reader for parsing the files in parallel
      * @param sourceCsvFiles    The files to update
      * @param targetCsvFileName The file to save the update to
-     * @param mappingsList      List of mapping files
+     * @param recordMapper      The mapper to apply to each record
      */
-    private static void updateCsvFileWithMappings(List<String> sourceCsvFiles, String targetCsvFileName, List<Map<String, String>> mappingsList)
+    static void updateCsvFileWithMappings(ParallelCsvReader parallelCsvReader, List<String> sourceCsvFiles,
+                                          String targetCsvFileName, CsvRecordMapper recordMapper)
     {
         logger.info("Updating usernames and issue types in CSV file(s) and writing to {}...", targetCsvFileName);
 
-        // Combine the username and issue type mappings together so we don't have to loop over the file(s) twice
-        String[] sourceNames = mappingsList.stream().map(Map::keySet).flatMap(Collection::stream).toArray(String[]::new);
-        String[] targetNames = mappingsList.stream().map(Map::values).flatMap(Collection::stream).toArray(String[]::new);
-
-        try (PrintWriter writer = new PrintWriter(targetCsvFileName))
+        try (Writer writer = new BufferedWriter(new FileWriter(targetCsvFileName)))
         {
+            final boolean[] headerWritten = {false};
             for (String sourceCsvFileName : sourceCsvFiles)
             {
-                // Replace all instances of the source values in the CSV file with the target values.
-                BufferedReader bufferedReader = new BufferedReader(new FileReader(sourceCsvFileName));
-
-                String line;
-                while ((line = bufferedReader.readLine()) != null)
-                {
-                    String updatedLine = StringUtils.replaceEach(line, sourceNames, targetNames);
-                    writer.println(updatedLine);
-                }
+                // Parse the records (rather than reading lines) so multi-line quoted fields stay intact
+                parallelCsvReader.processChunks(sourceCsvFileName,
+                        headerRow -> {
+                            recordMapper.parseColumnHeaders(headerRow);
+                            if (!headerWritten[0])
+                            {
+                                writer.write(CsvUtils.toCsvText(Collections.singletonList(headerRow)));
+                                headerWritten[0] = true;
+                            }
+                        },
+                        records -> {
+                            List<String[]> mappedRecords = new ArrayList<>();
+                            for (CSVRecord record : records)
+                            {
+                                mappedRecords.add(recordMapper.mapRecord(CsvUtils.toArray(record)));
+                            }
+                            return CsvUtils.toCsvText(mappedRecords);
+                        },
+                        csvText -> {
+                            writer.write(csvText);
+                            return true;
+                        });
             }
         } catch (IOException e)
         {
@@ -0,0 +1,120 @@
+package us.ctic.jira;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the records of a CSV file through a memory-mapped view of the file, splitting them into fields with a
+ * {@link CsvTokenizer}. The file isn't copied into the heap or decoded to characters; only the values of the fields
+ * that are requested are. This makes it well suited to passes that only look at a few columns or only need to know if
+ * a field is empty.
+ * <p>
+ * Files larger than the window size are mapped one window at a time. When a record runs past the end of a window, the
+ * next window is mapped starting at the beginning of that record, so a record is never split across windows.
+ * <p>
+ * The file is decoded with the platform default charset (like {@link java.io.FileReader}), which must be ASCII
+ * compatible (e.g. UTF-8).
+ *
+ * @since 1.1
+ */
+public class MappedCsvReader implements Closeable
+{
+    private static final int DEFAULT_WINDOW_SIZE_BYTES = 256 * 1024 * 1024;
+
+    private final FileChannel fileChannel;
+    private final long fileSize;
+    private final Charset charset = Charset.defaultCharset();
+
+    private int windowSizeBytes;
+    private long windowStart;
+    private long windowEnd;
+    private CsvTokenizer tokenizer;
+
+    /**
+     * Constructor.
+     *
+     * @param csvFileName The name of the CSV file to read
+     * @throws IOException If the file couldn't be opened
+     */
+    public MappedCsvReader(String csvFileName) throws IOException
+    {
+        this(csvFileName, DEFAULT_WINDOW_SIZE_BYTES);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param csvFileName     The name of the CSV file to read
+     * @param windowSizeBytes The size of the part of the file that is mapped at a time. It will be increased if a single
+     *                        record is larger.
+     * @throws IOException If the file couldn't be opened
+     */
+    public MappedCsvReader(String csvFileName, int windowSizeBytes) throws IOException
+    {
+        this.fileChannel = FileChannel.open(Paths.get(csvFileName), StandardOpenOption.READ);
+        this.fileSize = fileChannel.size();
+        this.windowSizeBytes = Math.max(windowSizeBytes, 1);
+    }
+
+    /**
+     * Advances to the next record.
+     *
+     * @return True if there was another record, or false at the end of the file
+     * @throws IOException If an error occurred mapping the file, or a record is too large to be mapped
+     */
+    public boolean nextRecord() throws IOException
+    {
+        while (true)
+        {
+            if (tokenizer == null)
+            {
+                if (windowStart >= fileSize) return false;
+
+                windowEnd = Math.min(windowStart + windowSizeBytes, fileSize);
+                MappedByteBuffer window = fileChannel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowEnd - windowStart);
+                tokenizer = new CsvTokenizer(window, windowEnd == fileSize, charset);
+            }
+
+            if (tokenizer.nextRecord()) return true;
+
+            if (windowEnd == fileSize) return false;
+
+            // Map the next window starting at the first record that isn't complete in this one
+            if (tokenizer.isIncomplete() && tokenizer.getPosition() == 0)
+            {
+                if (windowSizeBytes == Integer.MAX_VALUE)
+                {
+                    throw new IOException("Record at byte " + windowStart + " is too large to be mapped");
+                }
+                windowSizeBytes = (int) Math.min(windowSizeBytes * 2L, Integer.MAX_VALUE);
+            }
+            windowStart += tokenizer.getPosition();
+            tokenizer = null;
+        }
+    }
+
+    /**
+     * @return The current record; only valid until the next call to {@link #nextRecord()}
+     */
+    public CsvTokenizer.Record getRecord()
+    {
+        return tokenizer.getRecord();
+    }
+
+    /**
+     * Closes the file. The mapped windows are released when they are garbage collected.
+     *
+     * @throws IOException If an error occurred closing the file
+     */
+    @Override
+    public void close() throws IOException
+    {
+        tokenizer = null;
+        fileChannel.close();
+    }
+}
@@ -0,0 +1,100 @@
+package us.ctic.jira;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Remembers the results of the searches made through another {@link UserSearcher}, so each distinct query is only
+ * searched once (e.g. when many users share a common last name). Concurrent searches for the same query share a single
+ * search that is already in flight instead of starting their own. Searches that find no users are remembered too, but
+ * searches that fail are not, so they are tried again the next time (see {@link AsyncMemo}).
+ * <p>
+ * Instances are safe to use from multiple threads.
+ *
+ * @since 1.1
+ */
+public class MemoizingUserSearcher implements UserSearcher
+{
+    private final UserSearcher delegate;
+    private final AsyncMemo<String, List<JiraUser>> resultsByQuery = new AsyncMemo<>();
+
+    /**
+     * Constructor.
+     *
+     * @param delegate The searcher that actually performs the searches
+     */
+    public MemoizingUserSearcher(UserSearcher delegate)
+    {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Finds the users matching the query, using the result of an earlier or in-flight search for the same query if
+     * there is one.
+     *
+     * @param query The query string for matching users
+     * @return The (unmodifiable) users matching the query
+     * @throws IOException If a problem occurred when searching
+     */
+    @Override
+    public List<JiraUser> findUsers(String query) throws IOException
+    {
+        // The first search for the query is performed on this thread, so its result is complete once it returns
+        return await(resultsByQuery.get(query, firstQuery -> {
+            try
+            {
+                return CompletableFuture.completedFuture(
+                        Collections.unmodifiableList(new ArrayList<>(delegate.findUsers(firstQuery))));
+            } catch (IOException e)
+            {
+                return CompletableFuture.failedFuture(e);
+            }
+        }));
+    }
+
+    /**
+     * @return The total number of searches requested
+     */
+    public long getSearchCount()
+    {
+        return resultsByQuery.getRequestCount();
+    }
+
+    /**
+     * @return The number of searches answered by an earlier or in-flight search for the same query
+     */
+    public long getMemoizedCount()
+    {
+        return resultsByQuery.getMemoizedCount();
+    }
+
+    /**
+     * Waits for the result of a search, which may have been made by another thread.
+     *
+     * @param result The future result of the search
+     * @return The users found
+     * @throws IOException If the search failed or the thread was interrupted while waiting
+     */
+    private static List<JiraUser> await(CompletableFuture<List<JiraUser>> result) throws IOException
+    {
+        try
+        {
+            return result.get();
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a user search");
+        } catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new IOException("Error searching for users", cause);
+        }
+    }
+}
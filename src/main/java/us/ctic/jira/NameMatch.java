@@ -0,0 +1,92 @@
+package us.ctic.jira;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The result of matching a display name against the users of a directory with a {@link FuzzyNameMatcher}: the users
+ * with the most similar names, best first, and whether the best one is similar enough (and far enough ahead of the
+ * others) to be used without a second look.
+ *
+ * @since 1.1
+ */
+public class NameMatch
+{
+    static final NameMatch NO_MATCH = new NameMatch(Collections.emptyList(), new double[0], false);
+
+    private final List<JiraUser> candidates;
+    private final double[] scores;
+    private final boolean confident;
+
+    /**
+     * Constructor.
+     *
+     * @param candidates The users with similar names, best first
+     * @param scores     The similarity scores of the candidates, from 0 to 1
+     * @param confident  True if the first candidate is a confident match
+     */
+    NameMatch(List<JiraUser> candidates, double[] scores, boolean confident)
+    {
+        this.candidates = Collections.unmodifiableList(candidates);
+        this.scores = scores;
+        this.confident = confident;
+    }
+
+    /**
+     * @return The matching user, or null if no user matched confidently
+     */
+    public JiraUser getUser()
+    {
+        return confident ? candidates.get(0) : null;
+    }
+
+    /**
+     * @return True if there are users with similar names, but none of them matched confidently, so the match should
+     * be reviewed by hand
+     */
+    public boolean isAmbiguous()
+    {
+        return !confident && !candidates.isEmpty();
+    }
+
+    /**
+     * @return The users with similar names, best first
+     */
+    public List<JiraUser> getCandidates()
+    {
+        return candidates;
+    }
+
+    /**
+     * @param index The index of the candidate
+     * @return The similarity score of the candidate, from 0 to 1
+     */
+    public double getScore(int index)
+    {
+        return scores[index];
+    }
+
+    /**
+     * @return The candidates and their scores, for a reviewer (e.g. "jsmith (John Smith, 0.91); jsmyth (Jon Smyth,
+     * 0.89)")
+     */
+    public String describeCandidates()
+    {
+        StringBuilder description = new StringBuilder();
+        for (int i = 0; i < candidates.size(); i++)
+        {
+            JiraUser candidate = candidates.get(i);
+            if (i > 0) description.append("; ");
+            description.append(candidate.getName()).append(" (").append(candidate.getDisplayName()).append(", ")
+                    .append(String.format(Locale.ROOT, "%.2f", scores[i])).append(')');
+        }
+        return description.toString();
+    }
+
+    @Override
+    public String toString()
+    {
+        return (confident ? "Match: " : "Candidates: ") + describeCandidates();
+    }
+}
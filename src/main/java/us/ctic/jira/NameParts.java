@@ -0,0 +1,136 @@
+package us.ctic.jira;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The words of a display name, as parsed by {@link ParseUtils#parseName(String, boolean, NameParts)} or
+ * {@link ParseUtils#normalizeName(String, NameParts)}. An instance can be reused for one name after another, so parsing
+ * the names of a whole directory only allocates the words themselves.
+ * <p>
+ * Instances aren't safe to share between threads.
+ *
+ * @since 1.1
+ */
+public class NameParts
+{
+    private String[] words = new String[4];
+    private int wordCount;
+    private boolean lastNameFirst;
+
+    /**
+     * @return The number of words
+     */
+    public int getWordCount()
+    {
+        return wordCount;
+    }
+
+    /**
+     * @param index The index of the word
+     * @return The word
+     */
+    public String getWord(int index)
+    {
+        if (index >= wordCount) throw new IndexOutOfBoundsException("Index " + index + ", size " + wordCount);
+        return words[index];
+    }
+
+    /**
+     * @return A copy of the words
+     */
+    public List<String> getWords()
+    {
+        return Arrays.asList(toArray());
+    }
+
+    /**
+     * @return A copy of the words
+     */
+    public String[] toArray()
+    {
+        return Arrays.copyOf(words, wordCount);
+    }
+
+    /**
+     * @return True if the name has exactly two words, a first and a last name
+     */
+    public boolean hasFirstAndLastName()
+    {
+        return wordCount == 2;
+    }
+
+    /**
+     * @return The first name, or null if the name doesn't have exactly two words
+     */
+    public String getFirstName()
+    {
+        return hasFirstAndLastName() ? words[lastNameFirst ? 1 : 0] : null;
+    }
+
+    /**
+     * @return The last name, or null if the name doesn't have exactly two words
+     */
+    public String getLastName()
+    {
+        return hasFirstAndLastName() ? words[lastNameFirst ? 0 : 1] : null;
+    }
+
+    @Override
+    public String toString()
+    {
+        return getWords().toString();
+    }
+
+    /**
+     * Clears the words, so the instance can be used for another name.
+     *
+     * @param lastNameFirst True if the last name is listed first in the next name
+     */
+    void clear(boolean lastNameFirst)
+    {
+        Arrays.fill(words, 0, wordCount, null);
+        wordCount = 0;
+        this.lastNameFirst = lastNameFirst;
+    }
+
+    void addWord(String word)
+    {
+        if (wordCount == words.length) words = Arrays.copyOf(words, wordCount * 2);
+        words[wordCount++] = word;
+    }
+
+    /**
+     * @param word A word
+     * @return True if the word is already one of the words
+     */
+    boolean containsWord(String word)
+    {
+        for (int i = 0; i < wordCount; i++)
+        {
+            if (words[i].equals(word)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Removes the one-letter words (initials) if there are at least two longer words.
+     */
+    void removeInitials()
+    {
+        int longWordCount = 0;
+        for (int i = 0; i < wordCount; i++)
+        {
+            if (words[i].length() > 1) longWordCount++;
+        }
+        if (longWordCount < 2 || longWordCount == wordCount) return;
+
+        int count = 0;
+        for (int i = 0; i < wordCount; i++)
+        {
+            if (words[i].length() > 1) words[count++] = words[i];
+        }
+        Arrays.fill(words, count, wordCount, null);
+        wordCount = count;
+    }
+}
@@ -0,0 +1,351 @@
+package us.ctic.jira;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Parses a single CSV file on multiple threads by splitting it into chunks of whole records.
+ * <p>
+ * The file is read sequentially in blocks of about the chunk size. While reading, every byte is scanned once to track
+ * whether it is inside a quoted field, so each block can be cut at the last line break that is outside of quotes (i.e.
+ * a true record boundary, even with the multi-line quoted Description and Comment fields Jira exports). The remainder
+ * of the block is carried into the next chunk. Each chunk is parsed and processed on a worker thread, and the results
+ * are passed back to the caller in the order of the chunks, so the output is deterministic regardless of which chunk
+ * finishes first. At most one chunk per thread (plus the one being read) is in flight at a time, which bounds the
+ * memory used to about the chunk size times the thread count.
+ * <p>
+ * The file is decoded with the platform default charset (like {@link java.io.FileReader}), which must be ASCII
+ * compatible (e.g. UTF-8) so quotes and line breaks can be found in the raw bytes.
+ *
+ * @since 1.1
+ */
+public class ParallelCsvReader implements Closeable
+{
+    private static final byte QUOTE = '"';
+    private static final byte LINE_FEED = '\n';
+
+    private final int threadCount;
+    private final int chunkSizeBytes;
+    private final ExecutorService executorService;
+    private final Charset charset = Charset.defaultCharset();
+
+    /**
+     * Constructor.
+     *
+     * @param threadCount    The number of threads with which to process the chunks, or 0 for one per processor
+     * @param chunkSizeBytes The approximate size of each chunk
+     */
+    public ParallelCsvReader(int threadCount, int chunkSizeBytes)
+    {
+        this.threadCount = threadCount > 0 ? threadCount : Runtime.getRuntime().availableProcessors();
+        this.chunkSizeBytes = Math.max(chunkSizeBytes, 1);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        executorService = Executors.newFixedThreadPool(this.threadCount, runnable -> {
+            Thread thread = new Thread(runnable, "csv-chunk-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Processes the records of the CSV file in parallel chunks.
+     *
+     * @param csvFileName     The CSV file to process
+     * @param headerHandler   The handler for the header row, which is called before any chunks are processed
+     * @param chunkProcessor  The processor for the records of each chunk; called concurrently from multiple threads
+     * @param resultConsumer  The consumer of the result of each chunk, called on this thread in chunk order
+     * @param <T>             The type of the result of processing a chunk
+     * @throws IOException If an error occurred reading the file or processing the chunks
+     */
+    public <T> void processChunks(String csvFileName, HeaderHandler headerHandler, ChunkProcessor<T> chunkProcessor,
+                                  ResultConsumer<T> resultConsumer) throws IOException
+    {
+        readChunks(csvFileName, headerHandler, chunk -> processChunk(chunk, chunkProcessor), resultConsumer);
+    }
+
+    /**
+     * Same as {@link #processChunks(String, HeaderHandler, ChunkProcessor, ResultConsumer)}, but each chunk is split
+     * into records with a {@link CsvTokenizer} directly over its bytes, so fields that aren't needed are never decoded.
+     *
+     * @param csvFileName        The CSV file to process
+     * @param headerHandler      The handler for the header row, which is called before any chunks are processed
+     * @param tokenizerProcessor The processor for the records of each chunk; called concurrently from multiple threads
+     * @param resultConsumer     The consumer of the result of each chunk, called on this thread in chunk order
+     * @param <T>                The type of the result of processing a chunk
+     * @throws IOException If an error occurred reading the file or processing the chunks
+     */
+    public <T> void tokenizeChunks(String csvFileName, HeaderHandler headerHandler,
+                                   TokenizerProcessor<T> tokenizerProcessor, ResultConsumer<T> resultConsumer)
+            throws IOException
+    {
+        readChunks(csvFileName, headerHandler,
+                chunk -> tokenizerProcessor.process(new CsvTokenizer(ByteBuffer.wrap(chunk), true, charset)),
+                resultConsumer);
+    }
+
+    /**
+     * Reads the file in chunks of whole records and submits each chunk to be processed by the provided task.
+     *
+     * @param csvFileName    The CSV file to process
+     * @param headerHandler  The handler for the header row, which is called before any chunks are processed
+     * @param chunkTask      The task that processes the bytes of each chunk
+     * @param resultConsumer The consumer of the result of each chunk, called on this thread in chunk order
+     * @param <T>            The type of the result of processing a chunk
+     * @throws IOException If an error occurred reading the file or processing the chunks
+     */
+    private <T> void readChunks(String csvFileName, HeaderHandler headerHandler, ChunkTask<T> chunkTask,
+                                ResultConsumer<T> resultConsumer) throws IOException
+    {
+        Deque<Future<T>> pendingResults = new ArrayDeque<>();
+        try (FileChannel fileChannel = FileChannel.open(Paths.get(csvFileName), StandardOpenOption.READ))
+        {
+            byte[] buffer = new byte[chunkSizeBytes];
+            int length = 0;
+            int scannedLength = 0;
+            int lastRecordEnd = 0;
+            int headerEnd = -1;
+            boolean inQuotes = false;
+            boolean endOfFile = false;
+
+            while (!endOfFile)
+            {
+                // Fill the buffer
+                while (length < buffer.length)
+                {
+                    int bytesRead = fileChannel.read(ByteBuffer.wrap(buffer, length, buffer.length - length));
+                    if (bytesRead < 0)
+                    {
+                        endOfFile = true;
+                        break;
+                    }
+                    length += bytesRead;
+                }
+
+                // Find the record boundaries in the newly read bytes
+                for (int i = scannedLength; i < length; i++)
+                {
+                    byte b = buffer[i];
+                    if (b == QUOTE)
+                    {
+                        inQuotes = !inQuotes; // An escaped quote ("") toggles twice, so it has no effect
+                    } else if (b == LINE_FEED && !inQuotes)
+                    {
+                        lastRecordEnd = i + 1;
+                        if (headerEnd < 0) headerEnd = lastRecordEnd;
+                    }
+                }
+                scannedLength = length;
+
+                int chunkEnd = endOfFile ? length : lastRecordEnd;
+
+                // The header has to be handled before any chunk is processed, since the processing depends on it
+                if (headerEnd < 0 && endOfFile) headerEnd = length;
+                if (headerEnd > 0)
+                {
+                    String[] headerRow = parseHeaderRow(Arrays.copyOf(buffer, headerEnd));
+                    if (headerRow == null) return;
+
+                    headerHandler.accept(headerRow);
+                    System.arraycopy(buffer, headerEnd, buffer, 0, length - headerEnd);
+                    length -= headerEnd;
+                    scannedLength -= headerEnd;
+                    chunkEnd = Math.max(chunkEnd - headerEnd, 0);
+                    lastRecordEnd = Math.max(lastRecordEnd - headerEnd, 0);
+                    headerEnd = 0; // Never handle it again
+                }
+
+                if (chunkEnd == 0 && !endOfFile)
+                {
+                    // A single record is bigger than the buffer, so make room for more of it
+                    if (length == buffer.length) buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                    continue;
+                }
+
+                if (chunkEnd > 0)
+                {
+                    byte[] chunk = Arrays.copyOf(buffer, chunkEnd);
+                    pendingResults.add(executorService.submit(() -> chunkTask.process(chunk)));
+
+                    System.arraycopy(buffer, chunkEnd, buffer, 0, length - chunkEnd);
+                    length -= chunkEnd;
+                    scannedLength -= chunkEnd;
+                    lastRecordEnd = 0;
+                }
+
+                // Keep at most one chunk per thread in flight, consuming the results in order
+                while (pendingResults.size() > threadCount || (endOfFile && !pendingResults.isEmpty()))
+                {
+                    if (!resultConsumer.accept(getResult(pendingResults.remove())))
+                    {
+                        return;
+                    }
+                }
+            }
+        } finally
+        {
+            pendingResults.forEach(future -> future.cancel(true));
+        }
+    }
+
+    /**
+     * @return The number of threads processing chunks
+     */
+    public int getThreadCount()
+    {
+        return threadCount;
+    }
+
+    /**
+     * Stops the processing threads.
+     */
+    @Override
+    public void close()
+    {
+        executorService.shutdownNow();
+    }
+
+    /**
+     * Parses the values of the header row.
+     *
+     * @param headerBytes The bytes of the header row
+     * @return The values of the header row or null if it's empty
+     * @throws IOException If the header row couldn't be parsed
+     */
+    private String[] parseHeaderRow(byte[] headerBytes) throws IOException
+    {
+        try (CSVParser csvParser = new CSVParser(openReader(headerBytes), CSVFormat.DEFAULT))
+        {
+            Iterator<CSVRecord> iterator = csvParser.iterator();
+            return iterator.hasNext() ? CsvUtils.toArray(iterator.next()) : null;
+        }
+    }
+
+    /**
+     * Parses the chunk and passes the records to the processor.
+     *
+     * @param chunk          The bytes of the chunk, which contain only whole records
+     * @param chunkProcessor The processor for the records
+     * @param <T>            The type of the result of processing the chunk
+     * @return The result of processing the chunk
+     * @throws IOException If the chunk couldn't be parsed or processed
+     */
+    private <T> T processChunk(byte[] chunk, ChunkProcessor<T> chunkProcessor) throws IOException
+    {
+        try (CSVParser csvParser = new CSVParser(openReader(chunk), CSVFormat.DEFAULT))
+        {
+            return chunkProcessor.process(csvParser);
+        }
+    }
+
+    private Reader openReader(byte[] bytes)
+    {
+        return new InputStreamReader(new ByteArrayInputStream(bytes), charset);
+    }
+
+    /**
+     * Waits for the result of processing a chunk.
+     *
+     * @param future The future result
+     * @param <T>    The type of the result
+     * @return The result
+     * @throws IOException If processing the chunk failed
+     */
+    private static <T> T getResult(Future<T> future) throws IOException
+    {
+        try
+        {
+            return future.get();
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while processing chunks", e);
+        } catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof UncheckedIOException) throw ((UncheckedIOException) cause).getCause();
+            throw new IOException("Error processing chunk", cause);
+        }
+    }
+
+    /**
+     * Handler for the header row of the file.
+     */
+    @FunctionalInterface
+    public interface HeaderHandler
+    {
+        void accept(String[] headerRow) throws IOException;
+    }
+
+    /**
+     * Processes the records of a chunk. Must be safe to call concurrently.
+     *
+     * @param <T> The type of the result of processing a chunk
+     */
+    @FunctionalInterface
+    public interface ChunkProcessor<T>
+    {
+        T process(Iterable<CSVRecord> records) throws IOException;
+    }
+
+    /**
+     * Processes the records of a chunk using a tokenizer over the bytes of the chunk. Must be safe to call concurrently.
+     *
+     * @param <T> The type of the result of processing a chunk
+     */
+    @FunctionalInterface
+    public interface TokenizerProcessor<T>
+    {
+        T process(CsvTokenizer tokenizer) throws IOException;
+    }
+
+    /**
+     * Processes the raw bytes of a chunk.
+     *
+     * @param <T> The type of the result of processing a chunk
+     */
+    @FunctionalInterface
+    private interface ChunkTask<T>
+    {
+        T process(byte[] chunk) throws IOException;
+    }
+
+    /**
+     * Consumes the results of the chunks in order.
+     *
+     * @param <T> The type of the result of processing a chunk
+     */
+    @FunctionalInterface
+    public interface ResultConsumer<T>
+    {
+        /**
+         * @param result The result of processing a chunk
+         * @return True to continue processing, or false to stop reading the file
+         * @throws IOException If an error occurred handling the result
+         */
+        boolean accept(T result) throws IOException;
+    }
+}
@@ -4,19 +4,33 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.lang.invoke.MethodHandles;
+import java.text.Normalizer;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
+import java.util.function.IntPredicate;
 
 public class ParseUtils
 {
     private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
-    private static final Pattern ACCOUNT_REMOVED_PATTERN = Pattern.compile("\\[X]", Pattern.CASE_INSENSITIVE);
-    private static final Pattern ADMIN_PATTERN = Pattern.compile("\\(admin\\)", Pattern.CASE_INSENSITIVE);
-    private static final Pattern MIDDLE_INITIAL_PATTERN = Pattern.compile("[a-z]", Pattern.CASE_INSENSITIVE);
-    private static final Pattern SUFFIX_PATTERN = Pattern.compile("jr|sr|i{1,3}", Pattern.CASE_INSENSITIVE);
+    private static final String ACCOUNT_REMOVED_MARKER = "[x]";
+    private static final String ADMIN_MARKER = "(admin)";
+    // Suffixes and titles, which aren't part of the first or last name
+    private static final String[] AFFIXES = {"jr", "sr", "ii", "iii", "iv", "phd", "esq", "mr", "mrs", "ms", "dr"};
+    // The words dropped from a normalized name: the affixes, and "admin" since the parentheses are gone by then
+    private static final char[][] NORMALIZED_IGNORED_WORDS;
+
+    static
+    {
+        NORMALIZED_IGNORED_WORDS = new char[AFFIXES.length + 1][];
+        for (int i = 0; i < AFFIXES.length; i++)
+        {
+            NORMALIZED_IGNORED_WORDS[i] = AFFIXES[i].toCharArray();
+        }
+        NORMALIZED_IGNORED_WORDS[AFFIXES.length] = "admin".toCharArray();
+    }
+
+    // The characters of the word being normalized, reused by each thread for one name after another
+    private static final ThreadLocal<char[]> WORD_BUFFER = ThreadLocal.withInitial(() -> new char[32]);
 
     /**
      * Parses the provided display name to get the first and last name.
@@ -27,34 +41,220 @@ public class ParseUtils
      */
     public static List<String> getFirstAndLastName(String displayName, boolean lastNameDisplayedFirst)
     {
-        String[] names = displayName.split(",|\\s|\\.");
-
-        // This is pretty naive, but it works for users I have with the two Jira instances I am working with,
-        // which use the following formats:
-        // - "First <M.> Last <Suffix> <(Admin)> <[X]>"
-        // - "Last <Suffix>, First <M.>"
-        List<String> remainingNames = Arrays.stream(names)
-                .filter(name -> !ACCOUNT_REMOVED_PATTERN.matcher(name).matches())
-                .filter(name -> !ADMIN_PATTERN.matcher(name).matches())
-                .filter(name -> !MIDDLE_INITIAL_PATTERN.matcher(name).matches())
-                .filter(name -> !SUFFIX_PATTERN.matcher(name).matches())
-                .collect(Collectors.toList());
+        NameParts nameParts = parseName(displayName, lastNameDisplayedFirst, new NameParts());
 
         // We should only have two names left...
-        if (remainingNames.size() != 2)
+        if (!nameParts.hasFirstAndLastName())
         {
-            // TODO KMB: This doesn't handle compound names well (e.g. Ann Marie Smith or Jean-Claude Van Damme). We
-            //  should update it to take a guess or maybe try both options (compound first name and compound last name).
-            logger.warn("Invalid number of fields left; should only have first and last. Fields: {}", remainingNames);
+            logger.warn("Invalid number of fields left; should only have first and last. Fields: {}", nameParts);
             return null;
         }
 
-        if (lastNameDisplayedFirst)
+        return Arrays.asList(nameParts.getFirstName(), nameParts.getLastName());
+    }
+
+    /**
+     * Parses a display name into its words in a single pass, splitting it on commas, periods, and whitespace and
+     * dropping the words that aren't part of the first or last name: middle initials, suffixes and titles (e.g. "Jr"
+     * or "Dr"), and the "(Admin)" and "[X]" (removed account) markers. Names with exactly two words left have a first
+     * and last name; longer ones (e.g. compound names) are left for the {@link FuzzyNameMatcher}.
+     * <p>
+     * This is pretty naive, but it works for the users of the two Jira instances it was written for, which use the
+     * following formats:
+     * <ul>
+     * <li>"First &lt;M.&gt; Last &lt;Suffix&gt; &lt;(Admin)&gt; &lt;[X]&gt;"</li>
+     * <li>"Last &lt;Suffix&gt;, First &lt;M.&gt;"</li>
+     * </ul>
+     *
+     * @param displayName            The display name to parse, or null
+     * @param lastNameDisplayedFirst Indicates if the last name is listed first in the display name (e.g. Doe, John)
+     * @param nameParts              The instance to which to parse the name; its previous words are cleared
+     * @return The name parts that were passed in
+     * @since 1.1
+     */
+    public static NameParts parseName(String displayName, boolean lastNameDisplayedFirst, NameParts nameParts)
+    {
+        nameParts.clear(lastNameDisplayedFirst);
+        if (displayName == null) return nameParts;
+
+        scanWords(displayName, ParseUtils::isNameSeparator, (start, end) -> {
+            if (!isIgnoredName(displayName, start, end)) nameParts.addWord(displayName.substring(start, end));
+        });
+        return nameParts;
+    }
+
+    /**
+     * Scans a value for its words in a single pass: the runs of characters between the separators.
+     *
+     * @param value        The value to scan
+     * @param isSeparator  Tests whether a character separates the words
+     * @param wordConsumer Called with the start (inclusive) and end (exclusive) of each word, in order
+     * @since 1.1
+     */
+    static void scanWords(String value, IntPredicate isSeparator, WordConsumer wordConsumer)
+    {
+        int start = -1;
+        for (int i = 0; i <= value.length(); i++)
+        {
+            if (i < value.length() && !isSeparator.test(value.charAt(i)))
+            {
+                if (start < 0) start = i;
+            } else if (start >= 0)
+            {
+                wordConsumer.accept(start, i);
+                start = -1;
+            }
+        }
+    }
+
+    /**
+     * Normalizes a display name into words in a single pass, for comparing names that are written differently: the
+     * accents are removed, the letters are lowercased, apostrophes are dropped (e.g. "O'Brien" becomes "obrien"), and
+     * the name is split on anything else that isn't a letter or a digit. Suffixes, titles, and "admin" are dropped,
+     * and so are initials if there are at least two longer words. Repeated words are only kept once.
+     *
+     * @param displayName The display name to normalize, or null
+     * @param nameParts   The instance to which to parse the name; its previous words are cleared
+     * @return The name parts that were passed in
+     * @since 1.1
+     */
+    public static NameParts normalizeName(String displayName, NameParts nameParts)
+    {
+        nameParts.clear(false);
+        if (displayName == null) return nameParts;
+
+        // Decompose the accented letters, so the accents can be dropped; most names don't have any
+        String name = isAscii(displayName) ? displayName : Normalizer.normalize(displayName, Normalizer.Form.NFD);
+        // A folded letter can take two characters (e.g. "ss" for a sharp s)
+        char[] word = getWordBuffer(2 * name.length());
+        int wordLength = 0;
+        for (int i = 0; i <= name.length(); i++)
         {
-            Collections.reverse(remainingNames);
+            char c = i < name.length() ? name.charAt(i) : ' ';
+            if (Character.getType(c) == Character.NON_SPACING_MARK || c == '\'' || c == '\u2019') continue;
+
+            if (Character.isLetterOrDigit(c))
+            {
+                wordLength = appendFolded(word, wordLength, Character.toLowerCase(c));
+            } else if (wordLength > 0)
+            {
+                if (!isIgnoredWord(word, wordLength))
+                {
+                    String normalizedWord = new String(word, 0, wordLength);
+                    if (!nameParts.containsWord(normalizedWord)) nameParts.addWord(normalizedWord);
+                }
+                wordLength = 0;
+            }
         }
 
-        return remainingNames;
+        nameParts.removeInitials();
+        return nameParts;
+    }
+
+    private static boolean isNameSeparator(int c)
+    {
+        return c == ',' || c == '.' || Character.isWhitespace(c);
+    }
+
+    /**
+     * @param length The length of the longest word to be held
+     * @return The word buffer of the current thread, grown if needed
+     */
+    private static char[] getWordBuffer(int length)
+    {
+        char[] wordBuffer = WORD_BUFFER.get();
+        if (wordBuffer.length < length)
+        {
+            wordBuffer = new char[Math.max(length, wordBuffer.length * 2)];
+            WORD_BUFFER.set(wordBuffer);
+        }
+        return wordBuffer;
+    }
+
+    /**
+     * @return True if the word of the display name from start to end isn't part of the first or last name
+     */
+    private static boolean isIgnoredName(String displayName, int start, int end)
+    {
+        int length = end - start;
+        char firstChar = displayName.charAt(start);
+        if (length == 1) return isAsciiLetter(firstChar); // Middle initial
+        if (firstChar == '[') return matchesIgnoringCase(displayName, start, length, ACCOUNT_REMOVED_MARKER);
+        if (firstChar == '(') return matchesIgnoringCase(displayName, start, length, ADMIN_MARKER);
+
+        for (String affix : AFFIXES)
+        {
+            if (matchesIgnoringCase(displayName, start, length, affix)) return true;
+        }
+        return false;
+    }
+
+    private static boolean matchesIgnoringCase(String displayName, int start, int length, String word)
+    {
+        return length == word.length() && displayName.regionMatches(true, start, word, 0, length);
+    }
+
+    private static boolean isIgnoredWord(char[] word, int length)
+    {
+        for (char[] ignoredWord : NORMALIZED_IGNORED_WORDS)
+        {
+            if (ignoredWord.length == length && Arrays.equals(word, 0, length, ignoredWord, 0, length)) return true;
+        }
+        return false;
+    }
+
+    private static boolean isAsciiLetter(char c)
+    {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isAscii(String value)
+    {
+        for (int i = 0; i < value.length(); i++)
+        {
+            if (value.charAt(i) >= 0x80) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Appends a lowercase letter to a word, replacing the letters that don't decompose into a base letter and an
+     * accent.
+     *
+     * @return The new length of the word
+     */
+    private static int appendFolded(char[] word, int length, char c)
+    {
+        switch (c)
+        {
+            case '\u00df': // sharp s
+                word[length++] = 's';
+                word[length++] = 's';
+                break;
+            case '\u00e6': // ae
+                word[length++] = 'a';
+                word[length++] = 'e';
+                break;
+            case '\u0153': // oe
+                word[length++] = 'o';
+                word[length++] = 'e';
+                break;
+            case '\u00f8': // o with stroke
+                word[length++] = 'o';
+                break;
+            case '\u0142': // l with stroke
+                word[length++] = 'l';
+                break;
+            case '\u0111': // d with stroke
+                word[length++] = 'd';
+                break;
+            case '\u0131': // dotless i
+                word[length++] = 'i';
+                break;
+            default:
+                word[length++] = c;
+        }
+        return length;
     }
 
     /**
@@ -110,4 +310,19 @@ public class ParseUtils
     {
         // Private constructor to prevent instantiation
     }
+
+    /**
+     * Receives the words found by {@link #scanWords(String, IntPredicate, WordConsumer)}.
+     *
+     * @since 1.1
+     */
+    @FunctionalInterface
+    interface WordConsumer
+    {
+        /**
+         * @param start The index of the first character of the word
+         * @param end   The index after the last character of the word
+         */
+        void accept(int start, int end);
+    }
 }
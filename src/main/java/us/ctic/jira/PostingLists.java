@@ -0,0 +1,113 @@
+package us.ctic.jira;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Helpers for the posting lists of the in-memory user indexes: sorted arrays of the ids of the users with a key.
+ *
+ * @since 1.1
+ */
+final class PostingLists
+{
+    static final int[] EMPTY = new int[0];
+
+    private PostingLists()
+    {
+    }
+
+    /**
+     * @param ids1 A sorted posting list
+     * @param ids2 Another sorted posting list
+     * @return The ids in both lists, sorted
+     */
+    static int[] intersect(int[] ids1, int[] ids2)
+    {
+        int[] ids = new int[Math.min(ids1.length, ids2.length)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < ids1.length && j < ids2.length)
+        {
+            if (ids1[i] < ids2[j])
+            {
+                i++;
+            } else if (ids1[i] > ids2[j])
+            {
+                j++;
+            } else
+            {
+                ids[count++] = ids1[i];
+                i++;
+                j++;
+            }
+        }
+        return count == ids.length ? ids : Arrays.copyOf(ids, count);
+    }
+
+    /**
+     * @param ids1 A sorted posting list
+     * @param ids2 Another sorted posting list
+     * @return The ids in either list, sorted
+     */
+    static int[] union(int[] ids1, int[] ids2)
+    {
+        if (ids1.length == 0) return ids2;
+        if (ids2.length == 0) return ids1;
+
+        int[] ids = new int[ids1.length + ids2.length];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < ids1.length || j < ids2.length)
+        {
+            if (j == ids2.length || (i < ids1.length && ids1[i] < ids2[j]))
+            {
+                ids[count++] = ids1[i++];
+            } else if (i == ids1.length || ids1[i] > ids2[j])
+            {
+                ids[count++] = ids2[j++];
+            } else
+            {
+                ids[count++] = ids1[i];
+                i++;
+                j++;
+            }
+        }
+        return count == ids.length ? ids : Arrays.copyOf(ids, count);
+    }
+
+    /**
+     * @param builders The builders of the posting lists by key
+     * @return The posting lists by key
+     */
+    static Map<String, int[]> build(Map<String, Builder> builders)
+    {
+        Map<String, int[]> postingLists = new HashMap<>(builders.size() * 2);
+        builders.forEach((key, builder) -> postingLists.put(key, builder.toArray()));
+        return postingLists;
+    }
+
+    /**
+     * Collects the ids of a posting list, which are added in increasing order.
+     */
+    static class Builder
+    {
+        private int[] ids = new int[1];
+        private int size;
+
+        void add(int id)
+        {
+            if (size > 0 && ids[size - 1] == id) return;
+
+            if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            ids[size++] = id;
+        }
+
+        int[] toArray()
+        {
+            return size == ids.length ? ids : Arrays.copyOf(ids, size);
+        }
+    }
+}
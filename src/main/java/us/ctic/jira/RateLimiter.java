@@ -0,0 +1,228 @@
+package us.ctic.jira;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * A token bucket that limits the rate of the requests sent to a Jira server, shared by all the requests to the host.
+ * <p>
+ * The rate adapts to what the server accepts: it is halved (and the requests are paused) whenever the server throttles
+ * a request, and then climbs back up towards the configured maximum as requests succeed again. If the server publishes
+ * its limits in the {@code X-RateLimit-*} headers (as Jira Data Center does when rate limiting is enabled), the rate
+ * and burst are kept within them, so the requests stay just under the limit instead of repeatedly running into it.
+ * <p>
+ * Instances are safe to use from multiple threads.
+ *
+ * @see <a href="https://confluence.atlassian.com/adminjiraserver/improving-instance-stability-with-rate-limiting-983794911.html">Jira rate limiting</a>
+ * @since 1.1
+ */
+public class RateLimiter
+{
+    // Never slow down to less than one request every 10 seconds
+    private static final double MIN_REQUESTS_PER_SECOND = 0.1;
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+    // The requests that were already in flight when the rate was lowered are likely to be throttled too, so the rate is
+    // only lowered once in this period
+    private static final long SLOW_DOWN_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    // After being lowered, the rate climbs back to the maximum over about this many seconds of successful requests
+    private static final double RECOVERY_SECONDS = 10;
+
+    private final double maxRequestsPerSecond;
+    private final double maxBurst;
+    // The limits published by the server, if any
+    private double serverRequestsPerSecond = Double.POSITIVE_INFINITY;
+    private double serverBurst = Double.POSITIVE_INFINITY;
+    private double requestsPerSecond;
+    private double tokens;
+    // Tokens are only added after this time, which is moved ahead to pause the requests
+    private long lastRefillNanos;
+    private long lastSlowDownNanos;
+
+    /**
+     * Constructor.
+     *
+     * @param requestsPerSecond The maximum rate of requests
+     * @param burst             The maximum number of requests that can be sent at once after an idle period
+     */
+    public RateLimiter(double requestsPerSecond, int burst)
+    {
+        this.maxRequestsPerSecond = Math.max(requestsPerSecond, MIN_REQUESTS_PER_SECOND);
+        this.maxBurst = Math.max(burst, 1);
+        this.requestsPerSecond = maxRequestsPerSecond;
+        this.tokens = maxBurst;
+        this.lastRefillNanos = System.nanoTime();
+        this.lastSlowDownNanos = lastRefillNanos - SLOW_DOWN_INTERVAL_NANOS;
+    }
+
+    /**
+     * Waits until a request can be sent.
+     *
+     * @param deadlineNanos The {@link System#nanoTime()} by which the request must be sent
+     * @return True if the request can be sent, or false if it couldn't be sent before the deadline
+     * @throws InterruptedException If interrupted while waiting
+     */
+    public boolean acquire(long deadlineNanos) throws InterruptedException
+    {
+        while (true)
+        {
+            long waitNanos;
+            synchronized (this)
+            {
+                long now = System.nanoTime();
+                refill(now);
+                if (tokens >= 1 && now - lastRefillNanos >= 0)
+                {
+                    tokens -= 1;
+                    return true;
+                }
+
+                waitNanos = Math.max(lastRefillNanos - now, 0) + (long) ((1 - tokens) / requestsPerSecond * NANOS_PER_SECOND);
+                if (now + waitNanos - deadlineNanos > 0) return false;
+            }
+
+            TimeUnit.NANOSECONDS.sleep(Math.max(waitNanos, 1));
+        }
+    }
+
+    /**
+     * Reserves a permit for a request without waiting for it, for callers that schedule the request themselves. The
+     * reservations are granted in order, so a burst of them is spread out at the current rate.
+     *
+     * @param deadlineNanos The {@link System#nanoTime()} by which the request must be sent
+     * @return How long to wait (in nanoseconds) before sending the request, or -1 if it couldn't be sent before the
+     * deadline (in which case nothing is reserved)
+     */
+    public synchronized long reserve(long deadlineNanos)
+    {
+        long now = System.nanoTime();
+        refill(now);
+
+        // The tokens go negative to account for the requests that are already waiting
+        long waitNanos = Math.max(lastRefillNanos - now, 0);
+        if (tokens < 1) waitNanos += (long) ((1 - tokens) / requestsPerSecond * NANOS_PER_SECOND);
+        if (now + waitNanos - deadlineNanos > 0) return -1;
+
+        tokens -= 1;
+        return waitNanos;
+    }
+
+    /**
+     * Keeps the rate and burst within the limits published by the server in the {@code X-RateLimit-*} headers of a
+     * response, if there are any.
+     *
+     * @param headers Gets the value of a header of the response by name, or null if it doesn't have the header
+     */
+    public void onResponseHeaders(Function<String, String> headers)
+    {
+        Double limit = parseHeader(headers, "X-RateLimit-Limit");
+        Double remaining = parseHeader(headers, "X-RateLimit-Remaining");
+        Double fillRate = parseHeader(headers, "X-RateLimit-FillRate");
+        Double intervalSeconds = parseHeader(headers, "X-RateLimit-Interval-Seconds");
+        if (limit != null || remaining != null || fillRate != null)
+        {
+            onServerLimits(limit, remaining, fillRate, intervalSeconds);
+        }
+    }
+
+    /**
+     * Records that a request succeeded, which gradually raises the rate back towards the maximum (linearly, reaching it
+     * after about {@value #RECOVERY_SECONDS} seconds of successful requests).
+     */
+    public synchronized void onSuccess()
+    {
+        double rateCeiling = getRateCeiling();
+        requestsPerSecond = Math.min(requestsPerSecond + rateCeiling / RECOVERY_SECONDS / requestsPerSecond,
+                rateCeiling);
+    }
+
+    /**
+     * Records that the server throttled a request, which halves the rate (at most once a second) and pauses all the
+     * requests.
+     *
+     * @param pause How long to pause the requests (e.g. the server's {@code Retry-After})
+     */
+    public synchronized void onThrottled(Duration pause)
+    {
+        long now = System.nanoTime();
+        refill(now);
+        if (now - lastSlowDownNanos >= SLOW_DOWN_INTERVAL_NANOS)
+        {
+            requestsPerSecond = Math.max(requestsPerSecond / 2, MIN_REQUESTS_PER_SECOND);
+            lastSlowDownNanos = now;
+        }
+        // Keep any debt from reservations, so they stay spaced out after the pause
+        tokens = Math.min(tokens, 0);
+
+        long resumeNanos = now + pause.toNanos();
+        if (resumeNanos - lastRefillNanos > 0) lastRefillNanos = resumeNanos;
+    }
+
+    /**
+     * Keeps the rate and burst within the limits published by the server. Any of the values may be null if the server
+     * didn't send them.
+     *
+     * @param limit           The maximum number of tokens in the server's bucket ({@code X-RateLimit-Limit})
+     * @param remaining       The number of tokens left in the server's bucket ({@code X-RateLimit-Remaining})
+     * @param fillRate        The number of tokens the server adds per interval ({@code X-RateLimit-FillRate})
+     * @param intervalSeconds The length of the server's interval ({@code X-RateLimit-Interval-Seconds})
+     */
+    public synchronized void onServerLimits(Double limit, Double remaining, Double fillRate, Double intervalSeconds)
+    {
+        refill(System.nanoTime());
+        if (fillRate != null && intervalSeconds != null && fillRate > 0 && intervalSeconds > 0)
+        {
+            serverRequestsPerSecond = fillRate / intervalSeconds;
+            requestsPerSecond = Math.max(Math.min(requestsPerSecond, getRateCeiling()), MIN_REQUESTS_PER_SECOND);
+        }
+        if (limit != null && limit >= 1)
+        {
+            serverBurst = limit;
+            tokens = Math.min(tokens, getBurst());
+        }
+        if (remaining != null)
+        {
+            tokens = Math.min(tokens, remaining);
+        }
+    }
+
+    /**
+     * @return The current maximum rate of requests
+     */
+    public synchronized double getRequestsPerSecond()
+    {
+        return requestsPerSecond;
+    }
+
+    private static Double parseHeader(Function<String, String> headers, String name)
+    {
+        String value = headers.apply(name);
+        if (value == null) return null;
+
+        try
+        {
+            return Double.valueOf(value.trim());
+        } catch (NumberFormatException e)
+        {
+            return null;
+        }
+    }
+
+    private void refill(long now)
+    {
+        if (now - lastRefillNanos <= 0) return;
+
+        tokens = Math.min(tokens + (now - lastRefillNanos) / NANOS_PER_SECOND * requestsPerSecond, getBurst());
+        lastRefillNanos = now;
+    }
+
+    private double getRateCeiling()
+    {
+        return Math.min(maxRequestsPerSecond, serverRequestsPerSecond);
+    }
+
+    private double getBurst()
+    {
+        return Math.min(maxBurst, serverBurst);
+    }
+}
@@ -0,0 +1,243 @@
+package us.ctic.jira;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.commons.csv.CSVRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.invoke.MethodHandles;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Groups CSV records into buckets by a key (e.g. the issue type) while preserving the order of the records within each
+ * bucket. Records are held in memory until the estimated size of all the buffered records exceeds the memory budget, at
+ * which point the largest buckets are spilled to temporary files. This bounds the heap used for grouping by the budget
+ * rather than by the size of the export.
+ *
+ * @since 1.1
+ */
+public class RecordBuckets implements Closeable
+{
+    private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    private static final String TEMP_FILE_PREFIX = "jira-csv-";
+
+    // Rough estimates of the JVM overhead of a buffered record and of each of its values
+    private static final long RECORD_OVERHEAD_BYTES = 32;
+    private static final long VALUE_OVERHEAD_BYTES = 48;
+
+    private final Path tempFolderParent;
+    private final long memoryBudgetBytes;
+    private final Map<String, Bucket> bucketsByKey = new LinkedHashMap<>();
+
+    private Path tempFolder;
+    private long bufferedBytes;
+    private long recordCount;
+
+    /**
+     * Constructor.
+     *
+     * @param tempFolderName    The folder in which to create the temporary files, or empty to use the system default
+     * @param memoryBudgetBytes The approximate number of bytes of records to buffer in memory before spilling to disk
+     */
+    public RecordBuckets(String tempFolderName, long memoryBudgetBytes)
+    {
+        this.tempFolderParent = tempFolderName == null || tempFolderName.isEmpty() ? null : Paths.get(tempFolderName);
+        this.memoryBudgetBytes = memoryBudgetBytes;
+    }
+
+    /**
+     * Adds the record to the bucket for the provided key.
+     *
+     * @param key    The key of the bucket
+     * @param values The values of the record
+     * @throws IOException If buckets needed to be spilled to disk and an error occurred writing them
+     */
+    public void add(String key, String[] values) throws IOException
+    {
+        Bucket bucket = bucketsByKey.computeIfAbsent(key, k -> new Bucket());
+
+        long recordBytes = estimateSize(values);
+        bucket.bufferedRecords.add(values);
+        bucket.bufferedBytes += recordBytes;
+        bufferedBytes += recordBytes;
+        recordCount++;
+
+        if (bufferedBytes > memoryBudgetBytes)
+        {
+            spill();
+        }
+    }
+
+    /**
+     * @return The keys of the buckets, in the order they were first added
+     */
+    public Set<String> getKeys()
+    {
+        return Collections.unmodifiableSet(bucketsByKey.keySet());
+    }
+
+    /**
+     * @return The total number of records in all the buckets
+     */
+    public long getRecordCount()
+    {
+        return recordCount;
+    }
+
+    /**
+     * Passes each record in the bucket for the provided key to the consumer, in the order they were added.
+     *
+     * @param key      The key of the bucket
+     * @param consumer The consumer of the records
+     * @throws IOException If an error occurs reading the spilled records or in the consumer
+     */
+    public void forEachRecord(String key, RecordConsumer consumer) throws IOException
+    {
+        Bucket bucket = bucketsByKey.get(key);
+        if (bucket == null) return;
+
+        // Anything that was spilled was added before the records that are still buffered
+        if (bucket.file != null)
+        {
+            bucket.csvPrinter.flush();
+            try (Reader reader = Files.newBufferedReader(bucket.file);
+                 CSVParser csvParser = new CSVParser(reader, CSVFormat.DEFAULT))
+            {
+                for (CSVRecord record : csvParser)
+                {
+                    consumer.accept(CsvUtils.toArray(record));
+                }
+            }
+        }
+
+        for (String[] values : bucket.bufferedRecords)
+        {
+            consumer.accept(values);
+        }
+    }
+
+    /**
+     * Closes and deletes any temporary files.
+     */
+    @Override
+    public void close()
+    {
+        for (Bucket bucket : bucketsByKey.values())
+        {
+            if (bucket.csvPrinter != null)
+            {
+                try
+                {
+                    bucket.csvPrinter.close();
+                } catch (IOException e)
+                {
+                    logger.warn("Unable to close temporary file: {}", bucket.file, e);
+                }
+            }
+        }
+        bucketsByKey.clear();
+
+        if (tempFolder == null) return;
+
+        try (Stream<Path> paths = Files.walk(tempFolder))
+        {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e)
+        {
+            logger.warn("Unable to delete temporary folder: {}", tempFolder, e);
+        }
+        tempFolder = null;
+    }
+
+    /**
+     * Writes the largest buckets to disk until the buffered records take up no more than half the memory budget, so we
+     * aren't spilling again after every record.
+     *
+     * @throws IOException If an error occurs writing the records
+     */
+    private void spill() throws IOException
+    {
+        List<Bucket> bucketsBySize = new ArrayList<>(bucketsByKey.values());
+        bucketsBySize.sort(Comparator.comparingLong((Bucket bucket) -> bucket.bufferedBytes).reversed());
+
+        for (Bucket bucket : bucketsBySize)
+        {
+            if (bufferedBytes <= memoryBudgetBytes / 2) break;
+
+            if (bucket.file == null)
+            {
+                if (tempFolder == null)
+                {
+                    tempFolder = tempFolderParent == null
+                            ? Files.createTempDirectory(TEMP_FILE_PREFIX)
+                            : Files.createTempDirectory(tempFolderParent, TEMP_FILE_PREFIX);
+                    logger.info("Memory budget exceeded; spilling records to {}", tempFolder);
+                }
+
+                bucket.file = Files.createTempFile(tempFolder, TEMP_FILE_PREFIX, ".csv");
+                bucket.csvPrinter = new CSVPrinter(Files.newBufferedWriter(bucket.file), CSVFormat.DEFAULT);
+            }
+
+            for (String[] values : bucket.bufferedRecords)
+            {
+                bucket.csvPrinter.printRecord((Object[]) values);
+            }
+
+            bufferedBytes -= bucket.bufferedBytes;
+            bucket.bufferedRecords.clear();
+            bucket.bufferedBytes = 0;
+        }
+    }
+
+    /**
+     * Estimates the number of bytes of heap used by a buffered record.
+     *
+     * @param values The values of the record
+     * @return The estimated size of the record
+     */
+    private static long estimateSize(String[] values)
+    {
+        long size = RECORD_OVERHEAD_BYTES;
+        for (String value : values)
+        {
+            size += VALUE_OVERHEAD_BYTES + value.length();
+        }
+        return size;
+    }
+
+    /**
+     * Consumer of record values that may throw an {@link IOException}.
+     */
+    @FunctionalInterface
+    public interface RecordConsumer
+    {
+        void accept(String[] values) throws IOException;
+    }
+
+    /**
+     * The records for a single key: any records that have been spilled are in the file, followed by the buffered ones.
+     */
+    private static class Bucket
+    {
+        private final List<String[]> bufferedRecords = new ArrayList<>();
+        private long bufferedBytes;
+        private Path file;
+        private CSVPrinter csvPrinter;
+    }
+}
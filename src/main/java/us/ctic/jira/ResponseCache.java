@@ -0,0 +1,243 @@
+package us.ctic.jira;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A persistent cache of Jira responses, so reruns don't have to query the servers again for things that rarely change
+ * (like the users). The responses are stored as JSON in a single file, keyed by the host, endpoint, and query of the
+ * request. The file is loaded when the cache is created and written back when it is closed.
+ * <p>
+ * Entries older than the time-to-live are ignored and dropped. When there are more entries than the maximum, the least
+ * recently used ones are evicted. A refresh ignores the entries that were already in the file (so every request is sent
+ * to the servers again and the responses replace the old ones), for when something is known to have changed.
+ * <p>
+ * Instances are safe to use from multiple threads.
+ *
+ * @since 1.1
+ */
+public class ResponseCache implements AutoCloseable
+{
+    private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final String CREATED_FIELD = "created";
+    private static final String VALUE_FIELD = "value";
+
+    private final Path cacheFile;
+    private final long timeToLiveMillis;
+    private final int maxEntries;
+    // Entries created before this time are ignored (the time the cache was opened when refreshing)
+    private final long ignoreEntriesBeforeMillis;
+    // Entries in access order, so the first one is always the least recently used
+    private final Map<String, ObjectNode> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private boolean modified;
+
+    /**
+     * Constructor. Loads the existing entries from the file, if there is one.
+     *
+     * @param cacheFileName The name of the file in which the cache is stored
+     * @param timeToLive    How long a cached response can be used
+     * @param maxEntries    The maximum number of responses to keep
+     * @param refresh       True to ignore the existing entries and query the servers again
+     */
+    public ResponseCache(String cacheFileName, Duration timeToLive, int maxEntries, boolean refresh)
+    {
+        this.cacheFile = Paths.get(cacheFileName);
+        this.timeToLiveMillis = timeToLive.toMillis();
+        this.maxEntries = Math.max(maxEntries, 1);
+        this.ignoreEntriesBeforeMillis = refresh ? System.currentTimeMillis() : Long.MIN_VALUE;
+
+        if (Files.exists(cacheFile))
+        {
+            load();
+        }
+
+        if (refresh)
+        {
+            logger.info("Refreshing the cached Jira responses in {}", cacheFile);
+        }
+    }
+
+    /**
+     * Gets the cached response for the key.
+     *
+     * @param key           The key of the request
+     * @param typeReference The type of the response
+     * @param <T>           The type of the response
+     * @return The cached response, or null if there isn't one that is still valid
+     */
+    public <T> T get(String key, TypeReference<T> typeReference)
+    {
+        ObjectNode entry;
+        synchronized (this)
+        {
+            entry = entries.get(key);
+            if (entry != null && entry.path(CREATED_FIELD).asLong() < ignoreEntriesBeforeMillis)
+            {
+                entry = null;
+            } else if (entry != null && isExpired(entry))
+            {
+                entries.remove(key);
+                modified = true;
+                entry = null;
+            }
+        }
+
+        if (entry == null)
+        {
+            missCount.incrementAndGet();
+            return null;
+        }
+
+        try
+        {
+            T value = OBJECT_MAPPER.convertValue(entry.get(VALUE_FIELD), typeReference);
+            hitCount.incrementAndGet();
+            return value;
+        } catch (IllegalArgumentException e)
+        {
+            logger.warn("Ignoring unreadable cache entry for {}", key, e);
+            missCount.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * Caches the response for the key.
+     *
+     * @param key   The key of the request
+     * @param value The response
+     */
+    public void put(String key, Object value)
+    {
+        ObjectNode entry = OBJECT_MAPPER.createObjectNode();
+        entry.put(CREATED_FIELD, System.currentTimeMillis());
+        entry.set(VALUE_FIELD, OBJECT_MAPPER.valueToTree(value));
+
+        synchronized (this)
+        {
+            entries.put(key, entry);
+            modified = true;
+            evictLeastRecentlyUsed();
+        }
+    }
+
+    /**
+     * Drops the cached responses whose keys start with a prefix, so those requests are sent to the servers again.
+     *
+     * @param keyPrefix The start of the keys of the responses to drop (e.g. a host and endpoint)
+     * @return The number of responses dropped
+     */
+    public synchronized int refresh(String keyPrefix)
+    {
+        int size = entries.size();
+        entries.keySet().removeIf(key -> key.startsWith(keyPrefix));
+        int droppedCount = size - entries.size();
+        if (droppedCount > 0) modified = true;
+        return droppedCount;
+    }
+
+    /**
+     * @return The number of requests that were answered from the cache
+     */
+    public long getHitCount()
+    {
+        return hitCount.get();
+    }
+
+    /**
+     * @return The number of requests that weren't in the cache
+     */
+    public long getMissCount()
+    {
+        return missCount.get();
+    }
+
+    /**
+     * Writes the entries to the file (if anything changed) and logs how effective the cache was.
+     */
+    @Override
+    public synchronized void close()
+    {
+        logger.info("Jira response cache: {} hits, {} misses", hitCount.get(), missCount.get());
+
+        if (!modified) return;
+
+        entries.values().removeIf(this::isExpired);
+        try
+        {
+            Path parent = cacheFile.toAbsolutePath().getParent();
+            if (parent != null) Files.createDirectories(parent);
+
+            // Write to a temporary file first so a failure doesn't leave a corrupt cache behind
+            Path tempFile = Files.createTempFile(parent, cacheFile.getFileName().toString(), ".tmp");
+            OBJECT_MAPPER.writeValue(tempFile.toFile(), entries);
+            Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+            modified = false;
+            logger.info("Saved {} cached Jira responses to {}", entries.size(), cacheFile);
+        } catch (IOException e)
+        {
+            logger.error("Error saving the Jira response cache to {}", cacheFile, e);
+        }
+    }
+
+    /**
+     * Loads the entries from the file, skipping any that have expired.
+     */
+    private void load()
+    {
+        try
+        {
+            JsonNode root = OBJECT_MAPPER.readTree(cacheFile.toFile());
+            Iterator<Map.Entry<String, JsonNode>> fields = root.fields();
+            while (fields.hasNext())
+            {
+                Map.Entry<String, JsonNode> field = fields.next();
+                if (field.getValue() instanceof ObjectNode && !isExpired((ObjectNode) field.getValue()))
+                {
+                    entries.put(field.getKey(), (ObjectNode) field.getValue());
+                }
+            }
+            evictLeastRecentlyUsed();
+            logger.info("Loaded {} cached Jira responses from {}", entries.size(), cacheFile);
+        } catch (IOException e)
+        {
+            logger.warn("Unable to read the Jira response cache from {}; starting with an empty cache", cacheFile, e);
+        }
+    }
+
+    private boolean isExpired(ObjectNode entry)
+    {
+        return System.currentTimeMillis() - entry.path(CREATED_FIELD).asLong() > timeToLiveMillis;
+    }
+
+    private void evictLeastRecentlyUsed()
+    {
+        Iterator<String> keys = entries.keySet().iterator();
+        while (entries.size() > maxEntries && keys.hasNext())
+        {
+            keys.next();
+            keys.remove();
+            modified = true;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package us.ctic.jira;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * How failed requests to a Jira server are retried: up to a number of attempts, waiting longer (exponentially, with
+ * jitter so the retries from many threads don't all arrive at once) after each one, and never past the deadline for the
+ * request.
+ *
+ * @since 1.1
+ */
+public class RetryPolicy
+{
+    private static final int SC_TOO_MANY_REQUESTS = 429;
+    private static final int SC_BAD_GATEWAY = 502;
+    private static final int SC_SERVICE_UNAVAILABLE = 503;
+    private static final int SC_GATEWAY_TIMEOUT = 504;
+
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Duration deadline;
+
+    /**
+     * Constructor.
+     *
+     * @param maxAttempts    The maximum number of times to send a request (including the first)
+     * @param initialBackoff How long to wait before the first retry (on average)
+     * @param maxBackoff     The longest to wait between attempts
+     * @param deadline       How long a request (including all its retries) can take before giving up
+     */
+    public RetryPolicy(int maxAttempts, Duration initialBackoff, Duration maxBackoff, Duration deadline)
+    {
+        this.maxAttempts = Math.max(maxAttempts, 1);
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.deadline = deadline;
+    }
+
+    /**
+     * @return The maximum number of times to send a request (including the first)
+     */
+    public int getMaxAttempts()
+    {
+        return maxAttempts;
+    }
+
+    /**
+     * @return How long a request (including all its retries) can take before giving up
+     */
+    public Duration getDeadline()
+    {
+        return deadline;
+    }
+
+    /**
+     * Gets how long to wait after a failed attempt. The backoff doubles with each attempt (up to the maximum), and a
+     * random half of it is jittered.
+     *
+     * @param attempt The number of the attempt that failed, starting at 1
+     * @return How long to wait before the next attempt
+     */
+    public Duration getBackoff(int attempt)
+    {
+        long backoffMillis = initialBackoff.toMillis() << Math.min(attempt - 1, 30);
+        if (backoffMillis <= 0 || backoffMillis > maxBackoff.toMillis()) backoffMillis = maxBackoff.toMillis();
+
+        long halfMillis = backoffMillis / 2;
+        return Duration.ofMillis(halfMillis + ThreadLocalRandom.current().nextLong(backoffMillis - halfMillis + 1));
+    }
+
+    /**
+     * Decides whether to retry a failed attempt at a request, and how long to wait before the next attempt: the
+     * {@code Retry-After} the server sent, or else the backoff. When the server is throttling, the wait is applied to
+     * all the requests to the host through the rate limiter instead, so the retry itself doesn't wait any longer.
+     *
+     * @param attempt       The number of the attempt that failed, starting at 1
+     * @param statusCode    The status code of the response, or 0 if the connection failed
+     * @param retryAfter    How long the server asked to wait before retrying, or null
+     * @param rateLimiter   The rate limiter for the requests to the host
+     * @param deadlineNanos The {@link System#nanoTime()} by which the request must be done
+     * @return How long to wait before the next attempt, or null if the request shouldn't be retried (the status can't
+     * be retried, or the request is out of attempts or would retry past its deadline)
+     */
+    public Duration getRetryDelay(int attempt, int statusCode, Duration retryAfter, RateLimiter rateLimiter,
+                                  long deadlineNanos)
+    {
+        if (statusCode != 0 && !isRetryableStatus(statusCode)) return null;
+
+        Duration delay = retryAfter != null ? retryAfter : getBackoff(attempt);
+        if (isThrottlingStatus(statusCode))
+        {
+            // Slow down every request to the host, not just this one
+            rateLimiter.onThrottled(delay);
+            delay = Duration.ZERO;
+        }
+
+        if (attempt >= maxAttempts || System.nanoTime() + delay.toNanos() - deadlineNanos > 0) return null;
+
+        return delay;
+    }
+
+    /**
+     * @param statusCode The status code of a response
+     * @return True if the request can be retried: the server is throttling (429 or 503) or temporarily unavailable
+     * (502 or 504)
+     */
+    public static boolean isRetryableStatus(int statusCode)
+    {
+        return isThrottlingStatus(statusCode)
+                || statusCode == SC_BAD_GATEWAY
+                || statusCode == SC_GATEWAY_TIMEOUT;
+    }
+
+    /**
+     * @param statusCode The status code of a response
+     * @return True if the server is throttling the requests (429 or 503), so all of them should slow down
+     */
+    public static boolean isThrottlingStatus(int statusCode)
+    {
+        return statusCode == SC_TOO_MANY_REQUESTS || statusCode == SC_SERVICE_UNAVAILABLE;
+    }
+
+    /**
+     * Parses how long the server asked to wait before retrying, from a {@code Retry-After} header (which is either a
+     * number of seconds or a date).
+     *
+     * @param value The value of the header, or null
+     * @return How long to wait, or null if the value is missing or invalid
+     */
+    public static Duration parseRetryAfter(String value)
+    {
+        if (value == null) return null;
+
+        String trimmedValue = value.trim();
+        try
+        {
+            return Duration.ofSeconds(Math.max(Long.parseLong(trimmedValue), 0));
+        } catch (NumberFormatException e)
+        {
+            try
+            {
+                ZonedDateTime date = ZonedDateTime.parse(trimmedValue, DateTimeFormatter.RFC_1123_DATE_TIME);
+                Duration wait = Duration.between(ZonedDateTime.now(date.getZone()), date);
+                return wait.isNegative() ? Duration.ZERO : wait;
+            } catch (DateTimeParseException e2)
+            {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package us.ctic.jira;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+
+/**
+ * Writes CSV records to a sequence of files in a folder, starting a new file (with its own header row) each time the
+ * maximum number of records per file is reached. The files are named {@code <prefix>_Split_<n>.csv}.
+ *
+ * @since 1.1
+ */
+public class SplitCsvWriter implements Closeable
+{
+    private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    private final String splitFolder;
+    private final String fileNamePrefix;
+    private final String[] headerRow;
+    private final int maxRecordsPerFile;
+
+    private CSVPrinter csvPrinter;
+    private int recordsInCurrentFile;
+    private int fileCount;
+    private long recordCount;
+
+    /**
+     * Constructor.
+     *
+     * @param splitFolder       The folder to which to save the split files
+     * @param fileNamePrefix    The prefix for the names of the split files
+     * @param headerRow         The header row to write at the top of each file
+     * @param maxRecordsPerFile The maximum number of records (not including the header) in each file
+     */
+    public SplitCsvWriter(String splitFolder, String fileNamePrefix, String[] headerRow, int maxRecordsPerFile)
+    {
+        if (maxRecordsPerFile < 1)
+        {
+            throw new IllegalArgumentException("The maximum records per file must be positive: " + maxRecordsPerFile);
+        }
+
+        this.splitFolder = splitFolder;
+        this.fileNamePrefix = fileNamePrefix;
+        this.headerRow = headerRow;
+        this.maxRecordsPerFile = maxRecordsPerFile;
+    }
+
+    /**
+     * Writes the record to the current split file, starting a new file first if the current one is full.
+     *
+     * @param values The values of the record
+     * @throws IOException If the record couldn't be written
+     */
+    public void printRecord(Object... values) throws IOException
+    {
+        if (csvPrinter == null || recordsInCurrentFile == maxRecordsPerFile)
+        {
+            // Always close previous file before we make a new one
+            if (csvPrinter != null) csvPrinter.close();
+
+            fileCount++;
+            String fileName = fileNamePrefix + "_Split_" + fileCount + ".csv";
+            csvPrinter = new CSVPrinter(new FileWriter(splitFolder + File.separator + fileName),
+                    CSVFormat.DEFAULT.withHeader(headerRow));
+            recordsInCurrentFile = 0;
+            logger.debug("Creating csv file: {}", fileName);
+        }
+
+        csvPrinter.printRecord(values);
+        recordsInCurrentFile++;
+        recordCount++;
+    }
+
+    /**
+     * @return The number of split files created so far
+     */
+    public int getFileCount()
+    {
+        return fileCount;
+    }
+
+    /**
+     * @return The number of records written across all the split files
+     */
+    public long getRecordCount()
+    {
+        return recordCount;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        if (csvPrinter != null)
+        {
+            csvPrinter.close();
+            csvPrinter = null;
+        }
+    }
+}
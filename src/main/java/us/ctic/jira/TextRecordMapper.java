@@ -0,0 +1,42 @@
+package us.ctic.jira;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps records by replacing the source values of the mappings anywhere they appear in any field of the record. This
+ * catches usernames in columns the {@link ColumnScopedRecordMapper} doesn't know about (e.g. custom user picker
+ * fields), at the cost of scanning all the text of every record.
+ *
+ * @since 1.1
+ */
+public class TextRecordMapper implements CsvRecordMapper
+{
+    private final AhoCorasickReplacer replacer;
+
+    /**
+     * Constructor.
+     *
+     * @param mappingsList The mappings of source values to target values
+     */
+    public TextRecordMapper(List<Map<String, String>> mappingsList)
+    {
+        replacer = new AhoCorasickReplacer(mappingsList);
+    }
+
+    @Override
+    public void parseColumnHeaders(String[] headerRow)
+    {
+        // Every column is mapped, so there's nothing to do
+    }
+
+    @Override
+    public String[] mapRecord(String[] values)
+    {
+        for (int columnIndex = 0; columnIndex < values.length; columnIndex++)
+        {
+            values[columnIndex] = replacer.replace(values[columnIndex]);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,197 @@
+package us.ctic.jira;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * An in-memory copy of the users of a Jira instance that can be searched locally, so finding users doesn't need a
+ * request to the server per query. Like the {@code /rest/api/2/user/search} endpoint, a query matches (ignoring case)
+ * any user whose username, email address, or a word of their display name starts with the query. Finding the user for a
+ * person doesn't run those searches though: it's resolved with exact lookups in a {@link UserIndex}, and the people
+ * that can't be found that way can be matched by similar display names with a {@link FuzzyNameMatcher}.
+ * <p>
+ * Only the {@link UserIndex} is built up front. The index for the searches and the {@link FuzzyNameMatcher} are built
+ * the first time they're needed, since a directory is often only used for exact lookups (e.g. the source users when
+ * the mapping is created from {@link UserDirectorySnapshot}s), and they take longer to build than the rest of loading
+ * a snapshot.
+ * <p>
+ * Instances are immutable (apart from the lazily built indexes) and safe to share between threads.
+ *
+ * @since 1.1
+ */
+public class UserDirectory implements UserSearcher
+{
+    private final Collection<JiraUser> users;
+    private final UserIndex userIndex;
+    // The users indexed by each lowercased username, email address, and display name word; built on first use
+    private volatile NavigableMap<String, List<JiraUser>> usersByToken;
+    // Built on first use
+    private volatile FuzzyNameMatcher fuzzyNameMatcher;
+    private final int size;
+    private final String name;
+
+    /**
+     * Constructor.
+     *
+     * @param users The users in the directory. If there's more than one user with the same username, the first is used.
+     */
+    public UserDirectory(Collection<JiraUser> users)
+    {
+        this(users, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param users The users in the directory. If there's more than one user with the same username, the first is used.
+     * @param name  The name of the instance the users are from (e.g. its host), for the logs; or null
+     */
+    public UserDirectory(Collection<JiraUser> users, String name)
+    {
+        this.name = name;
+        Map<String, JiraUser> usersByName = new LinkedHashMap<>();
+        for (JiraUser user : users)
+        {
+            if (user.getName() != null) usersByName.putIfAbsent(user.getName(), user);
+        }
+        this.users = usersByName.values();
+        size = usersByName.size();
+        userIndex = new UserIndex(this.users);
+    }
+
+    /**
+     * Finds the users with a username, email address, or display name word that starts with the query.
+     *
+     * @param query The query string for matching users
+     * @return The matching users, sorted by username (like the server returns them)
+     */
+    @Override
+    public List<JiraUser> findUsers(String query)
+    {
+        if (query == null || query.isEmpty()) return Collections.emptyList();
+
+        String prefix = normalize(query);
+        Set<JiraUser> matches = new LinkedHashSet<>();
+        for (List<JiraUser> users : getUsersByToken().subMap(prefix, true, prefix + Character.MAX_VALUE, true).values())
+        {
+            matches.addAll(users);
+        }
+
+        if (matches.size() <= 1) return new ArrayList<>(matches);
+
+        List<JiraUser> sortedMatches = new ArrayList<>(matches);
+        sortedMatches.sort((user1, user2) -> user1.getName().compareTo(user2.getName()));
+        return sortedMatches;
+    }
+
+    /**
+     * Attempts to find the user using the provided username, email, last name, and first name, in that order, with the
+     * {@link UserIndex#findUser(String, String, String, String) UserIndex}. Unlike the searches of
+     * {@link JiraService#findUser(String, String, String, String)}, the username and email must match exactly and the
+     * names must match whole words of the display name.
+     *
+     * @param username  The username for which to search
+     * @param email     The email for the user
+     * @param firstName The first name for the user
+     * @param lastName  The last name for the user
+     * @return The User or null if not found.
+     */
+    public JiraUser findUser(String username, String email, String firstName, String lastName)
+    {
+        return userIndex.findUser(username, email, firstName, lastName);
+    }
+
+    /**
+     * Finds the users with display names similar to a display name, with the {@link FuzzyNameMatcher}. This is meant
+     * for the people that {@link #findUser(String, String, String, String)} can't find, such as those with compound
+     * names, nicknames, or accents.
+     *
+     * @param displayName The display name of the user
+     * @return The match, which has a user only if one matched confidently
+     */
+    public NameMatch matchName(String displayName)
+    {
+        return getFuzzyNameMatcher().match(displayName);
+    }
+
+    /**
+     * @return The number of users in the directory
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    @Override
+    public String toString()
+    {
+        return name != null ? name : "UserDirectory{" + size + " users}";
+    }
+
+    /**
+     * @return The users indexed by each lowercased username, email address, and display name word
+     */
+    private NavigableMap<String, List<JiraUser>> getUsersByToken()
+    {
+        NavigableMap<String, List<JiraUser>> usersByToken = this.usersByToken;
+        if (usersByToken != null) return usersByToken;
+
+        synchronized (this)
+        {
+            if (this.usersByToken == null) this.usersByToken = indexByToken(users);
+            return this.usersByToken;
+        }
+    }
+
+    /**
+     * @return The matcher for similar display names
+     */
+    private FuzzyNameMatcher getFuzzyNameMatcher()
+    {
+        FuzzyNameMatcher fuzzyNameMatcher = this.fuzzyNameMatcher;
+        if (fuzzyNameMatcher != null) return fuzzyNameMatcher;
+
+        synchronized (this)
+        {
+            if (this.fuzzyNameMatcher == null) this.fuzzyNameMatcher = new FuzzyNameMatcher(users);
+            return this.fuzzyNameMatcher;
+        }
+    }
+
+    private static NavigableMap<String, List<JiraUser>> indexByToken(Collection<JiraUser> users)
+    {
+        NavigableMap<String, List<JiraUser>> usersByToken = new TreeMap<>();
+        for (JiraUser user : users)
+        {
+            Set<String> tokens = new LinkedHashSet<>();
+            tokens.add(normalize(user.getName()));
+            if (user.getEmailAddress() != null) tokens.add(normalize(user.getEmailAddress()));
+            String displayName = user.getDisplayName();
+            if (displayName != null)
+            {
+                ParseUtils.scanWords(displayName, c -> c == ',' || Character.isWhitespace(c),
+                        (start, end) -> tokens.add(normalize(displayName.substring(start, end))));
+            }
+
+            for (String token : tokens)
+            {
+                usersByToken.computeIfAbsent(token, k -> new ArrayList<>(1)).add(user);
+            }
+        }
+        return usersByToken;
+    }
+
+    private static String normalize(String value)
+    {
+        return value.toLowerCase(Locale.ROOT);
+    }
+}
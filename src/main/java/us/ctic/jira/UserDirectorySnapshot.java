@@ -0,0 +1,207 @@
+package us.ctic.jira;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A local copy of the user directory of a Jira instance, so the username mapping can be created (and recreated, e.g.
+ * while tuning the matching) without the servers. The users are written one at a time as they're downloaded (see
+ * {@link JiraService#exportUsers(String, int, Writer)}), and read back into a {@link UserDirectory}, which builds its
+ * indexes as the snapshot is loaded.
+ * <p>
+ * The file is binary: a header (a magic number, the format version, the name of the instance, and when it was
+ * exported), then a flags byte per user saying which of its username, email address, and display name follow (as
+ * modified UTF-8), and finally an end marker and the number of users. A snapshot that was cut short (e.g. by a failed
+ * download) is never left behind, since it's written to a temporary file that only replaces the snapshot once complete.
+ *
+ * @since 1.1
+ */
+public final class UserDirectorySnapshot
+{
+    private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    private static final int MAGIC = 0x4A555344; // "JUSD"
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int END = 0;
+    private static final int USER = 1;
+    private static final int HAS_NAME = 2;
+    private static final int HAS_EMAIL_ADDRESS = 4;
+    private static final int HAS_DISPLAY_NAME = 8;
+
+    private UserDirectorySnapshot()
+    {
+    }
+
+    /**
+     * Reads a snapshot into a directory, which is named after the instance it was exported from.
+     *
+     * @param fileName The name of the snapshot file
+     * @return The directory, or null if the snapshot couldn't be read
+     */
+    public static UserDirectory load(String fileName)
+    {
+        long startNanos = System.nanoTime();
+        try (DataInputStream input = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(Paths.get(fileName)), BUFFER_SIZE)))
+        {
+            if (input.readInt() != MAGIC) throw new IOException("Not a user directory snapshot");
+            int version = input.readInt();
+            if (version != VERSION) throw new IOException("Unsupported snapshot version " + version);
+            String instanceName = input.readUTF();
+            Instant exportedAt = Instant.ofEpochMilli(input.readLong());
+
+            List<JiraUser> users = new ArrayList<>();
+            for (int flags = input.readUnsignedByte(); flags != END; flags = input.readUnsignedByte())
+            {
+                if ((flags & USER) == 0) throw new IOException("Corrupt snapshot: unexpected flags " + flags);
+
+                String name = (flags & HAS_NAME) != 0 ? input.readUTF() : null;
+                String emailAddress = (flags & HAS_EMAIL_ADDRESS) != 0 ? input.readUTF() : null;
+                String displayName = (flags & HAS_DISPLAY_NAME) != 0 ? input.readUTF() : null;
+                users.add(new JiraUser(name, emailAddress, displayName));
+            }
+            int userCount = input.readInt();
+            if (userCount != users.size())
+            {
+                throw new IOException("Corrupt snapshot: expected " + userCount + " users, read " + users.size());
+            }
+
+            UserDirectory userDirectory = new UserDirectory(users, instanceName);
+            logger.info("Loaded {} users of {} (exported {}) from {} in {} ms", userDirectory.size(), instanceName,
+                    exportedAt, fileName, (System.nanoTime() - startNanos) / 1_000_000);
+            return userDirectory;
+        } catch (IOException e)
+        {
+            logger.error("Error reading the user directory snapshot {}", fileName, e);
+        }
+
+        return null;
+    }
+
+    /**
+     * Writes the users of an instance to a snapshot as they're downloaded. The snapshot only replaces the file once
+     * {@link #finish()} is called; closing the writer without finishing it discards what was written.
+     * <p>
+     * Instances aren't safe to share between threads.
+     */
+    public static class Writer implements Closeable
+    {
+        private final Path snapshotFile;
+        private final Path tempFile;
+        private final DataOutputStream output;
+        private int userCount;
+        private boolean finished;
+
+        /**
+         * Constructor.
+         *
+         * @param fileName     The name of the snapshot file
+         * @param instanceName The name of the instance whose users are written (e.g. its host)
+         * @throws IOException If the temporary file couldn't be created
+         */
+        public Writer(String fileName, String instanceName) throws IOException
+        {
+            snapshotFile = Paths.get(fileName).toAbsolutePath();
+            Path parent = snapshotFile.getParent();
+            if (parent != null) Files.createDirectories(parent);
+
+            // Write to a temporary file first so a failed download doesn't leave a partial snapshot behind
+            tempFile = Files.createTempFile(parent, snapshotFile.getFileName().toString(), ".tmp");
+            output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile), BUFFER_SIZE));
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeUTF(instanceName);
+            output.writeLong(System.currentTimeMillis());
+        }
+
+        /**
+         * Writes the users.
+         *
+         * @param users The users to write
+         * @throws IOException If a problem occurred when writing
+         */
+        public void write(List<JiraUser> users) throws IOException
+        {
+            for (JiraUser user : users)
+            {
+                write(user);
+            }
+        }
+
+        /**
+         * Writes a user.
+         *
+         * @param user The user to write
+         * @throws IOException If a problem occurred when writing
+         */
+        public void write(JiraUser user) throws IOException
+        {
+            int flags = USER;
+            if (user.getName() != null) flags |= HAS_NAME;
+            if (user.getEmailAddress() != null) flags |= HAS_EMAIL_ADDRESS;
+            if (user.getDisplayName() != null) flags |= HAS_DISPLAY_NAME;
+
+            output.writeByte(flags);
+            if (user.getName() != null) output.writeUTF(user.getName());
+            if (user.getEmailAddress() != null) output.writeUTF(user.getEmailAddress());
+            if (user.getDisplayName() != null) output.writeUTF(user.getDisplayName());
+            userCount++;
+        }
+
+        /**
+         * @return The number of users written so far
+         */
+        public int getUserCount()
+        {
+            return userCount;
+        }
+
+        /**
+         * Completes the snapshot and moves it into place, replacing any earlier snapshot.
+         *
+         * @throws IOException If a problem occurred when writing or moving the file
+         */
+        public void finish() throws IOException
+        {
+            output.writeByte(END);
+            output.writeInt(userCount);
+            output.close();
+            Files.move(tempFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING);
+            finished = true;
+        }
+
+        /**
+         * Discards the snapshot if it wasn't finished.
+         */
+        @Override
+        public void close()
+        {
+            if (finished) return;
+
+            try
+            {
+                output.close();
+                Files.deleteIfExists(tempFile);
+            } catch (IOException e)
+            {
+                logger.warn("Error deleting the partial user directory snapshot {}", tempFile, e);
+            }
+        }
+    }
+}
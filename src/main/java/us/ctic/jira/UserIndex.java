@@ -0,0 +1,242 @@
+package us.ctic.jira;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * An in-memory index of users, so a person can be resolved to a user with a few hash lookups instead of searches and
+ * scans of the results. It has hash maps on the lowercased usernames and email addresses, and an inverted index from
+ * the words of the display names (lowercased and split on anything that isn't a letter or a digit) to the users with
+ * them. The users are numbered in username order and the posting lists are sorted, so the users with all the words of
+ * a name are found by intersecting the posting lists, and the first of several matches is the one with the lowest
+ * username (the same one a search would return first).
+ * <p>
+ * The index can be built from any list of users, such as the users downloaded from a server (which are kept in the
+ * response cache between runs). Instances are immutable and safe to share between threads.
+ *
+ * @since 1.1
+ */
+public class UserIndex
+{
+    private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    // The users in username order; a user's id is its position
+    private final JiraUser[] users;
+    private final Map<String, Integer> userIdsByUsername;
+    private final Map<String, int[]> userIdsByEmail;
+    private final Map<String, int[]> userIdsByNameToken;
+
+    /**
+     * Constructor.
+     *
+     * @param users The users to index. If there's more than one user with the same username, the first is used.
+     */
+    public UserIndex(Collection<JiraUser> users)
+    {
+        Map<String, JiraUser> usersByName = new LinkedHashMap<>();
+        for (JiraUser user : users)
+        {
+            if (user.getName() != null) usersByName.putIfAbsent(user.getName(), user);
+        }
+        this.users = usersByName.values().toArray(new JiraUser[0]);
+        Arrays.sort(this.users, (user1, user2) -> user1.getName().compareTo(user2.getName()));
+
+        userIdsByUsername = new HashMap<>(this.users.length * 2);
+        Map<String, PostingLists.Builder> emailPostings = new HashMap<>(this.users.length * 2);
+        Map<String, PostingLists.Builder> nameTokenPostings = new HashMap<>();
+        for (int id = 0; id < this.users.length; id++)
+        {
+            JiraUser user = this.users[id];
+            userIdsByUsername.putIfAbsent(normalize(user.getName()), id);
+            if (user.getEmailAddress() != null)
+            {
+                emailPostings.computeIfAbsent(normalize(user.getEmailAddress()), k -> new PostingLists.Builder())
+                        .add(id);
+            }
+            for (String token : tokenize(user.getDisplayName()))
+            {
+                nameTokenPostings.computeIfAbsent(token, k -> new PostingLists.Builder()).add(id);
+            }
+        }
+
+        userIdsByEmail = PostingLists.build(emailPostings);
+        userIdsByNameToken = PostingLists.build(nameTokenPostings);
+    }
+
+    /**
+     * Attempts to find the user using the provided username, email, last name, and first name, in that order. The
+     * username and email must match exactly (ignoring case), and the names must match whole words of the display name.
+     * Like the searches of {@link UserMatcher}, a user found by email or name is only returned if it is the only
+     * match or the only one left after narrowing down the matches by name.
+     *
+     * @param username  The username for which to search
+     * @param email     The email for the user
+     * @param firstName The first name for the user
+     * @param lastName  The last name for the user
+     * @return The User or null if not found.
+     */
+    public JiraUser findUser(String username, String email, String firstName, String lastName)
+    {
+        if (username != null)
+        {
+            JiraUser user = findUserByUsername(username);
+            if (user != null) return user;
+        }
+
+        if (email != null)
+        {
+            JiraUser user = matchEmail(email, firstName, lastName);
+            if (user != null) return user;
+        }
+
+        if (lastName != null || firstName != null)
+        {
+            JiraUser user = matchName(firstName, lastName);
+            if (user != null) return user;
+
+            logger.debug("No users found for {}, {}, {}, {}", username, email, lastName, firstName);
+        }
+
+        return null;
+    }
+
+    /**
+     * @param username The username (ignoring case)
+     * @return The user with the username, or null if there isn't one
+     */
+    public JiraUser findUserByUsername(String username)
+    {
+        Integer id = userIdsByUsername.get(normalize(username));
+        return id == null ? null : users[id];
+    }
+
+    /**
+     * @param email The email address (ignoring case)
+     * @return The users with the email address, in username order
+     */
+    public List<JiraUser> findUsersByEmail(String email)
+    {
+        return getUsers(userIdsByEmail.getOrDefault(normalize(email), PostingLists.EMPTY));
+    }
+
+    /**
+     * @param name A name (e.g. "Smith" or "Mary Ann")
+     * @return The users with all the words of the name in their display names, in username order
+     */
+    public List<JiraUser> findUsersByName(String name)
+    {
+        return getUsers(findUserIdsByName(name));
+    }
+
+    /**
+     * @return The number of users in the index
+     */
+    public int size()
+    {
+        return users.length;
+    }
+
+    private JiraUser matchEmail(String email, String firstName, String lastName)
+    {
+        int[] ids = userIdsByEmail.getOrDefault(normalize(email), PostingLists.EMPTY);
+        if (ids.length == 1) return users[ids[0]];
+        if (ids.length == 0) return null;
+
+        // Email should be unique, but a service account may reuse a user's email, so narrow it down by name
+        String name = lastName == null ? firstName : lastName;
+        if (name == null) return null;
+
+        int[] idsWithName = PostingLists.intersect(ids, findUserIdsByName(name));
+        if (idsWithName.length > 1)
+        {
+            logger.warn("Multiple users found with the email `{}`; returning the first one: {}", email,
+                    users[idsWithName[0]]);
+        }
+        return idsWithName.length == 0 ? null : users[idsWithName[0]];
+    }
+
+    private JiraUser matchName(String firstName, String lastName)
+    {
+        int[] ids = findUserIdsByName(lastName == null ? firstName : lastName);
+        if (ids.length == 1) return users[ids[0]];
+        if (ids.length == 0 || lastName == null || firstName == null) return null;
+
+        int[] idsWithBothNames = PostingLists.intersect(ids, findUserIdsByName(firstName));
+        if (idsWithBothNames.length > 1)
+        {
+            // Hopefully the username mapping file will be double checked before the final CSV conversion
+            logger.warn("Multiple users found with the name `{} {}`; returning the first one: {}", firstName,
+                    lastName, users[idsWithBothNames[0]]);
+        }
+        return idsWithBothNames.length == 0 ? null : users[idsWithBothNames[0]];
+    }
+
+    private int[] findUserIdsByName(String name)
+    {
+        List<String> tokens = tokenize(name);
+        if (tokens.isEmpty()) return PostingLists.EMPTY;
+
+        // Intersect the shortest posting lists first, so the intermediate results stay small
+        List<int[]> postingLists = new ArrayList<>(tokens.size());
+        for (String token : tokens)
+        {
+            int[] ids = userIdsByNameToken.get(token);
+            if (ids == null) return PostingLists.EMPTY;
+            postingLists.add(ids);
+        }
+        postingLists.sort((ids1, ids2) -> Integer.compare(ids1.length, ids2.length));
+
+        int[] ids = postingLists.get(0);
+        for (int i = 1; i < postingLists.size() && ids.length > 0; i++)
+        {
+            ids = PostingLists.intersect(ids, postingLists.get(i));
+        }
+        return ids;
+    }
+
+    private List<JiraUser> getUsers(int[] ids)
+    {
+        if (ids.length == 0) return Collections.emptyList();
+
+        List<JiraUser> matchingUsers = new ArrayList<>(ids.length);
+        for (int id : ids)
+        {
+            matchingUsers.add(users[id]);
+        }
+        return matchingUsers;
+    }
+
+    /**
+     * Splits a name into lowercased words, on anything that isn't a letter or a digit.
+     *
+     * @param name The name, or null
+     * @return The words of the name, without duplicates
+     */
+    static List<String> tokenize(String name)
+    {
+        if (name == null) return Collections.emptyList();
+
+        List<String> tokens = new ArrayList<>(3);
+        ParseUtils.scanWords(name, c -> !Character.isLetterOrDigit(c), (start, end) -> {
+            String token = normalize(name.substring(start, end));
+            if (!tokens.contains(token)) tokens.add(token);
+        });
+        return tokens;
+    }
+
+    private static String normalize(String value)
+    {
+        return value.toLowerCase(Locale.ROOT);
+    }
+}
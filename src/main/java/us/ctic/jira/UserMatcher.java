@@ -0,0 +1,244 @@
+package us.ctic.jira;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds the single user that best matches what is known about a person, using a {@link UserSearcher} to run the
+ * queries, which can be sent to a Jira server or run against a local {@link UserDirectory} (although a directory finds
+ * users with its {@link UserIndex} instead, which doesn't need to search). Each step of the cascade is also available
+ * separately, so {@link AsyncJiraService} can compose the same steps from asynchronous searches.
+ *
+ * @since 1.1
+ */
+public final class UserMatcher
+{
+    private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    private UserMatcher()
+    {
+    }
+
+    /**
+     * Attempts to find the user using the provided username, email, last name, and first name, in that order.
+     *
+     * @param userSearcher The searcher with which to run the queries
+     * @param username     The username for which to search
+     * @param email        The email for the user
+     * @param firstName    The first name for the user
+     * @param lastName     The last name for the user
+     * @return The User or null if not found.
+     * @throws IOException If a problem occurred when searching
+     */
+    public static JiraUser findUser(UserSearcher userSearcher, String username, String email, String firstName,
+                                    String lastName) throws IOException
+    {
+        JiraUser user;
+
+        if (username != null)
+        {
+            user = matchUsername(username, userSearcher.findUsers(username));
+            if (user != null) return user;
+        }
+
+        if (email != null)
+        {
+            user = matchEmail(email, firstName, lastName, userSearcher.findUsers(email));
+            if (user != null) return user;
+        }
+
+        if (lastName != null || firstName != null)
+        {
+            user = matchName(firstName, lastName, userSearcher.findUsers(getNameQuery(firstName, lastName)));
+            if (user != null) return user;
+
+            logger.debug("No users found for {}, {}, {}, {}", username, email, lastName, firstName);
+        }
+
+        return null;
+    }
+
+    /**
+     * Finds the user in a downloaded directory by email and name, or else by a similar display name. Both
+     * {@link UsernameMapper} and {@link AsyncUsernameMapper} match the target users this way. A match by a similar name
+     * is logged, and an ambiguous one is recorded for review.
+     *
+     * @param userDirectory    The directory in which to find the user
+     * @param sourceUsername   The username from the CSV export
+     * @param sourceUser       The user on the source instance
+     * @param firstName        The first name for the user
+     * @param lastName         The last name for the user
+     * @param ambiguousMatches The map to which to add the match if users have similar names but none matched
+     *                         confidently
+     * @return The user or null if not found
+     * @since 1.1
+     */
+    static JiraUser findUserInDirectory(UserDirectory userDirectory, String sourceUsername, JiraUser sourceUser,
+                                        String firstName, String lastName, Map<String, NameMatch> ambiguousMatches)
+    {
+        JiraUser user = userDirectory.findUser(null, sourceUser.getEmailAddress(), firstName, lastName);
+        if (user != null) return user;
+
+        NameMatch nameMatch = userDirectory.matchName(sourceUser.getDisplayName());
+        if (nameMatch.getUser() != null)
+        {
+            logger.info("Matched {} to {} by a similar name ({})", sourceUser, nameMatch.getUser(),
+                    nameMatch.describeCandidates());
+        } else if (nameMatch.isAmbiguous())
+        {
+            logger.warn("Found users with names similar to {}, but none matched confidently: {}", sourceUser,
+                    nameMatch.describeCandidates());
+            ambiguousMatches.put(sourceUsername, nameMatch);
+        }
+        return nameMatch.getUser();
+    }
+
+    /**
+     * Picks the user with the username from the results of searching for it.
+     *
+     * @param username The username that was searched for
+     * @param users    The users found by the search
+     * @return The user or null if there isn't a match
+     */
+    static JiraUser matchUsername(String username, List<JiraUser> users)
+    {
+        if (users.size() == 1)
+        {
+            return users.get(0);
+        }
+
+        // It's possible to find multiple matches since the query isn't applied to just the username. For example,
+        // for a username of "john.doe", it may match another user named "john.f.doe" if his email was "john.doe@gmail.com".
+        // If that happens, return the one with the right username.
+        for (JiraUser user : users)
+        {
+            if (user.getName().equals(username)) return user;
+        }
+
+        return null;
+    }
+
+    /**
+     * Picks the user with the email address from the results of searching for it.
+     *
+     * @param email     The email that was searched for
+     * @param firstName The first name for the user
+     * @param lastName  The last name for the user
+     * @param users     The users found by the search
+     * @return The user or null if there isn't a match
+     */
+    static JiraUser matchEmail(String email, String firstName, String lastName, List<JiraUser> users)
+    {
+        if (users.size() == 1)
+        {
+            return users.get(0);
+        }
+
+        // Email should be unique, but there may be more than one user for an email address if a service account
+        // reuses a user's email. Let's use the last name or first name to narrow it down.
+        String name = lastName == null ? firstName : lastName;
+        List<JiraUser> usersWithName = filterUsersWithName(name, users);
+
+        if (!usersWithName.isEmpty())
+        {
+            JiraUser firstUser = usersWithName.get(0);
+            if (usersWithName.size() > 1)
+            {
+                logger.warn("Multiple users found with the email `{}`; returning the first one: {}",
+                        email, firstUser);
+            }
+
+            return firstUser;
+        }
+
+        return null;
+    }
+
+    /**
+     * Gets the name to search for when searching by name. The last name is used if there is one.
+     * <p>
+     * The REST API only supports substring matching, and we don't want to just concatenate the first name and last
+     * name for several reasons:
+     * <ul>
+     *     <li>the display name could be in several different formats (e.g. "first last" vs. "last, first")</li>
+     *     <li>the user may have a middle initial included in the display name (e.g. "first MI last")</li>
+     * </ul>
+     * so we search by last name and then try to refine by first name (see {@link #matchName(String, String, List)}).
+     *
+     * @param firstName The first name for the user
+     * @param lastName  The last name for the user
+     * @return The name for which to search
+     */
+    static String getNameQuery(String firstName, String lastName)
+    {
+        return lastName == null ? firstName : lastName;
+    }
+
+    /**
+     * Picks the user with the name from the results of searching for it.
+     *
+     * @param firstName The first name for the user
+     * @param lastName  The last name for the user
+     * @param users     The users found by searching for {@link #getNameQuery(String, String)}
+     * @return The user or null if there isn't a match
+     */
+    static JiraUser matchName(String firstName, String lastName, List<JiraUser> users)
+    {
+        if (users.isEmpty()) return null;
+
+        // Maybe we got lucky and only got one result...
+        if (users.size() == 1)
+        {
+            return users.get(0);
+        }
+
+        // ...but probably not, so refine with the first name (if both were provided)
+        if (lastName != null && firstName != null)
+        {
+            List<JiraUser> usersWithBothNames = filterUsersWithName(firstName, users);
+
+            if (!usersWithBothNames.isEmpty())
+            {
+                JiraUser firstUser = usersWithBothNames.get(0);
+                if (usersWithBothNames.size() > 1)
+                {
+                    // This isn't perfect, but not sure what else to do... hopefully the username mapping
+                    // file will be double checked before the final CSV conversion.
+                    logger.warn("Multiple users found with the name `{} {}`; returning the first one: {}",
+                            firstName, lastName, firstUser);
+                }
+
+                return firstUser;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Searches for the users that have the provided name as part of their display name.
+     *
+     * @param name  The name
+     * @param users The users to search
+     * @return The list of users that have the provided name in their display name.
+     */
+    static List<JiraUser> filterUsersWithName(String name, List<JiraUser> users)
+    {
+        List<JiraUser> usersWithName = new ArrayList<>();
+        for (JiraUser user : users)
+        {
+            String displayName = user.getDisplayName();
+            if (displayName.contains(name))
+            {
+                usersWithName.add(user);
+            }
+        }
+        return usersWithName;
+    }
+}
@@ -0,0 +1,23 @@
+package us.ctic.jira;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Searches for Jira users the way the {@code /rest/api/2/user/search} endpoint does: the query is matched against the
+ * start of the username, the email address, and the words of the display name.
+ *
+ * @since 1.1
+ */
+@FunctionalInterface
+public interface UserSearcher
+{
+    /**
+     * Finds the users matching the query.
+     *
+     * @param query The query string for matching users
+     * @return The users matching the query, or an empty list if there aren't any
+     * @throws IOException If a problem occurred when searching
+     */
+    List<JiraUser> findUsers(String query) throws IOException;
+}
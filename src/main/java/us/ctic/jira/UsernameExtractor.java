@@ -14,12 +14,18 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.TreeSet;
 import java.util.function.Consumer;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Extracts the set of usernames from a CSV file exported from Jira. This is necessary so the usernames can be swapped
@@ -29,19 +35,19 @@ public class UsernameExtractor
 {
     private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
-    private static final String COMMENT_COLUMN_NAME = "Comment";
-    private static final String WORK_LOG_COLUMN_NAME = "Log Work";
+    static final String COMMENT_COLUMN_NAME = "Comment";
+    static final String WORK_LOG_COLUMN_NAME = "Log Work";
 
     // The names of columns that contain just a username
-    private static final List<String> USER_COLUMN_NAMES = Arrays.asList("Assignee", "Reporter", "Creator", "Watchers");
+    static final List<String> USER_COLUMN_NAMES = Arrays.asList("Assignee", "Reporter", "Creator", "Watchers");
 
     // The regex for finding user tags in comments, which are formatted like "[~username]".
-    private static final Pattern USER_TAG_PATTERN = Pattern.compile("\\[~([\\w.@-]+?)]");
+    static final Pattern USER_TAG_PATTERN = Pattern.compile("\\[~([\\w.@-]+?)]");
 
     // Map of column name to all the column indices with that name (since Jira reuses column names for things like Comment)
     private final Map<String, List<Integer>> columnNameToIndexMap = new HashMap<>();
-    private final Set<String> uniqueUsernames = new TreeSet<>();
     private final String jiraCsvFileName;
+    private final boolean memoryMappedParsing;
 
     /**
      * Constructor
@@ -49,8 +55,23 @@ public class UsernameExtractor
      * @param jiraCsvFileName The name of the file from which to extract usernames
      */
     public UsernameExtractor(String jiraCsvFileName)
+    {
+        this(jiraCsvFileName, false);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param jiraCsvFileName     The name of the file from which to extract usernames
+     * @param memoryMappedParsing True to split the records into fields directly over the bytes of the file (see
+     *                            {@link MappedCsvReader}), so only the values of the user columns are decoded; false to
+     *                            parse the file with Apache Commons CSV
+     * @since 1.1
+     */
+    public UsernameExtractor(String jiraCsvFileName, boolean memoryMappedParsing)
     {
         this.jiraCsvFileName = jiraCsvFileName;
+        this.memoryMappedParsing = memoryMappedParsing;
     }
 
     /**
@@ -60,57 +81,209 @@ public class UsernameExtractor
      */
     public Set<String> extractUserNames()
     {
+        Set<String> uniqueUsernames = new TreeSet<>();
+        extractUserNames(uniqueUsernames::add);
+
+        logger.info("Found {} unique usernames.", uniqueUsernames.size());
+
+        return Collections.unmodifiableSet(uniqueUsernames);
+    }
+
+    /**
+     * Searches all the relevant columns in the CSV file for usernames and passes each one to the provided consumer as
+     * the records are read, so the file is never loaded into memory all at once. A username is passed to the consumer
+     * each time it is found, so the consumer will see duplicates.
+     *
+     * @param usernameConsumer The consumer of the usernames
+     * @since 1.1
+     */
+    public void extractUserNames(Consumer<String> usernameConsumer)
+    {
+        // If a column was empty, it will result in an empty string, which isn't a username
+        Consumer<String> nonEmptyUsernameConsumer = username -> {
+            if (!username.isEmpty()) usernameConsumer.accept(username);
+        };
+
+        if (memoryMappedParsing)
+        {
+            extractUserNamesFromMappedFile(nonEmptyUsernameConsumer);
+            return;
+        }
+
         try (Reader reader = new FileReader(jiraCsvFileName);
              CSVParser csvParser = new CSVParser(reader, CSVFormat.DEFAULT))
         {
-            List<CSVRecord> records = csvParser.getRecords();
+            Iterator<CSVRecord> iterator = csvParser.iterator();
 
-            if (!records.isEmpty())
+            if (iterator.hasNext())
             {
                 // Apache CSV doesn't like duplicate column names, so we manage the column names manually
-                parseColumnHeaders(records.get(0));
+                parseColumnHeaders(CsvUtils.toArray(iterator.next()));
             }
 
-            for (int i = 1; i < records.size(); i++)
+            while (iterator.hasNext())
             {
-                CSVRecord record = records.get(i);
+                extractUserNames(CsvFields.of(iterator.next()), nonEmptyUsernameConsumer);
+            }
+        } catch (IOException e)
+        {
+            logger.error("Error parsing file: {}", jiraCsvFileName, e);
+        }
+    }
 
-                // First the easy part: get the usernames from the columns that only have a username
-                for (String usernameColumn : USER_COLUMN_NAMES)
-                {
-                    applyHandlerToColumns(record, usernameColumn, uniqueUsernames::add);
-                }
+    /**
+     * Searches all the relevant columns in the memory-mapped CSV file for usernames.
+     *
+     * @param usernameConsumer The consumer of the usernames
+     */
+    private void extractUserNamesFromMappedFile(Consumer<String> usernameConsumer)
+    {
+        try (MappedCsvReader csvReader = new MappedCsvReader(jiraCsvFileName))
+        {
+            if (csvReader.nextRecord())
+            {
+                parseColumnHeaders(csvReader.getRecord().toArray());
+            }
+
+            while (csvReader.nextRecord())
+            {
+                extractUserNames(csvReader.getRecord(), usernameConsumer);
+            }
+        } catch (IOException e)
+        {
+            logger.error("Error parsing file: {}", jiraCsvFileName, e);
+        }
+    }
 
-                // Next look through all the work logs, which we have to parse to get just the username
-                applyHandlerToColumns(record, WORK_LOG_COLUMN_NAME, this::findUsernameInWorkLog);
+    /**
+     * Searches all the relevant columns in the CSV file for usernames, parsing chunks of the file in parallel, and passes
+     * the usernames to the provided consumer. The usernames of each chunk are deduplicated before being passed to the
+     * consumer (on the calling thread, in the order of the chunks), but the consumer may still see duplicates across
+     * chunks.
+     *
+     * @param parallelCsvReader The reader with which to parse the file
+     * @param usernameConsumer  The consumer of the usernames
+     * @since 1.1
+     */
+    public void extractUserNames(ParallelCsvReader parallelCsvReader, Consumer<String> usernameConsumer)
+    {
+        ParallelCsvReader.ResultConsumer<Set<String>> resultConsumer = chunkUsernames -> {
+            for (String username : chunkUsernames)
+            {
+                if (!username.isEmpty()) usernameConsumer.accept(username);
+            }
+            return true;
+        };
 
-                // And finally the hard part: for comments, we need the username of the commenter and any tags of others
-                applyHandlerToColumns(record, COMMENT_COLUMN_NAME, this::findUsernamesInComment);
+        try
+        {
+            if (memoryMappedParsing)
+            {
+                parallelCsvReader.tokenizeChunks(jiraCsvFileName, this::parseColumnHeaders,
+                        tokenizer -> {
+                            Set<String> chunkUsernames = new HashSet<>();
+                            while (tokenizer.nextRecord())
+                            {
+                                extractUserNames(tokenizer.getRecord(), chunkUsernames::add);
+                            }
+                            return chunkUsernames;
+                        },
+                        resultConsumer);
+            } else
+            {
+                parallelCsvReader.processChunks(jiraCsvFileName, this::parseColumnHeaders,
+                        records -> {
+                            Set<String> chunkUsernames = new HashSet<>();
+                            for (CSVRecord record : records)
+                            {
+                                extractUserNames(CsvFields.of(record), chunkUsernames::add);
+                            }
+                            return chunkUsernames;
+                        },
+                        resultConsumer);
             }
         } catch (IOException e)
         {
             logger.error("Error parsing file: {}", jiraCsvFileName, e);
         }
+    }
+
+    /**
+     * Lazily searches all the relevant columns in the CSV file for usernames. The file is read as the stream is
+     * consumed, and a username is included each time it is found, so the stream will contain duplicates. The stream
+     * must be closed to close the file.
+     *
+     * @return The stream of usernames found in the CSV file
+     * @since 1.1
+     */
+    public Stream<String> streamUserNames()
+    {
+        final CSVParser csvParser;
+        try
+        {
+            csvParser = new CSVParser(new FileReader(jiraCsvFileName), CSVFormat.DEFAULT);
+        } catch (IOException e)
+        {
+            logger.error("Error parsing file: {}", jiraCsvFileName, e);
+            return Stream.empty();
+        }
 
-        // If a column was empty, it will result in an empty string. Instead of checking for that every time, we just
-        // remove it at the end.
-        uniqueUsernames.remove("");
+        Iterator<CSVRecord> iterator = csvParser.iterator();
+        if (iterator.hasNext())
+        {
+            parseColumnHeaders(CsvUtils.toArray(iterator.next()));
+        }
 
-        logger.info("Found {} unique usernames.", uniqueUsernames.size());
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+                .flatMap(record -> {
+                    Stream.Builder<String> usernames = Stream.builder();
+                    extractUserNames(CsvFields.of(record), usernames);
+                    return usernames.build();
+                })
+                .filter(username -> !username.isEmpty())
+                .onClose(() -> {
+                    try
+                    {
+                        csvParser.close();
+                    } catch (IOException e)
+                    {
+                        logger.warn("Error closing file: {}", jiraCsvFileName, e);
+                    }
+                });
+    }
 
-        return Collections.unmodifiableSet(uniqueUsernames);
+    /**
+     * Searches all the relevant columns in the provided record for usernames.
+     *
+     * @param record           The fields of the CSV record to search
+     * @param usernameConsumer The consumer of the usernames
+     */
+    private void extractUserNames(CsvFields record, Consumer<String> usernameConsumer)
+    {
+        // First the easy part: get the usernames from the columns that only have a username
+        for (String usernameColumn : USER_COLUMN_NAMES)
+        {
+            applyHandlerToColumns(record, usernameColumn, usernameConsumer);
+        }
+
+        // Next look through all the work logs, which we have to parse to get just the username
+        applyHandlerToColumns(record, WORK_LOG_COLUMN_NAME, workLog -> findUsernameInWorkLog(workLog, usernameConsumer));
+
+        // And finally the hard part: for comments, we need the username of the commenter and any tags of others
+        applyHandlerToColumns(record, COMMENT_COLUMN_NAME, comment -> findUsernamesInComment(comment, usernameConsumer));
     }
 
     /**
      * Parse the header row to construct a map of column name to the indices with that name.
      *
-     * @param headerRecord The header row
+     * @param headerRow The values of the header row
      */
-    private void parseColumnHeaders(CSVRecord headerRecord)
+    private void parseColumnHeaders(String[] headerRow)
     {
-        for (int i = 0; i < headerRecord.size(); i++)
+        columnNameToIndexMap.clear();
+        for (int i = 0; i < headerRow.length; i++)
         {
-            String columnName = headerRecord.get(i);
+            String columnName = headerRow[i];
             List<Integer> columnIndices = columnNameToIndexMap.computeIfAbsent(columnName, k -> new ArrayList<>());
             columnIndices.add(i);
         }
@@ -123,7 +296,7 @@ public class UsernameExtractor
      * @param columnName    The name of the column to handle
      * @param columnHandler The handler to perform the desired action on the columns
      */
-    private void applyHandlerToColumns(CSVRecord csvRecord, String columnName, Consumer<String> columnHandler)
+    private void applyHandlerToColumns(CsvFields csvRecord, String columnName, Consumer<String> columnHandler)
     {
         List<Integer> columnIndices = columnNameToIndexMap.get(columnName);
 
@@ -131,17 +304,21 @@ public class UsernameExtractor
         
         for (Integer columnIndex : columnIndices)
         {
+            // Empty columns can't contain a username, so don't bother creating their values
+            if (csvRecord.isEmpty(columnIndex)) continue;
+
             String columnText = csvRecord.get(columnIndex);
             columnHandler.accept(columnText);
         }
     }
 
     /**
-     * Searches the provided work log for the username and adds it to the username set.
+     * Searches the provided work log for the username and passes it to the consumer.
      *
-     * @param workLog The work log to search
+     * @param workLog          The work log to search
+     * @param usernameConsumer The consumer of the username
      */
-    private void findUsernameInWorkLog(String workLog)
+    private void findUsernameInWorkLog(String workLog, Consumer<String> usernameConsumer)
     {
         // A work log is formatted as <comment>;<date>;<user>;<time_minutes>
         String[] workLogFields = workLog.split(";");
@@ -149,16 +326,17 @@ public class UsernameExtractor
         if (workLogFields.length >= 3)
         {
             String username = workLogFields[2];
-            uniqueUsernames.add(username);
+            usernameConsumer.accept(username);
         }
     }
 
     /**
-     * Searches the provided comment for any usernames and adds them to the username set.
+     * Searches the provided comment for any usernames and passes them to the consumer.
      *
-     * @param comment The comment to search
+     * @param comment          The comment to search
+     * @param usernameConsumer The consumer of the usernames
      */
-    private void findUsernamesInComment(String comment)
+    private void findUsernamesInComment(String comment, Consumer<String> usernameConsumer)
     {
         // A comment is formatted as <date>;<user>;<text>
         String[] commentFields = comment.split(";", 3);
@@ -166,12 +344,12 @@ public class UsernameExtractor
         if (commentFields.length == 3)
         {
             String username = commentFields[1];
-            uniqueUsernames.add(username);
+            usernameConsumer.accept(username);
 
             // In addition to the user that wrote the comment, there could be users tagged in the comment
             USER_TAG_PATTERN.matcher(commentFields[2])
                     .results()
-                    .forEach(matchResult -> uniqueUsernames.add(matchResult.group(1)));
+                    .forEach(matchResult -> usernameConsumer.accept(matchResult.group(1)));
         }
     }
 }
@@ -0,0 +1,363 @@
+package us.ctic.jira;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Maps the usernames found in the CSV export to usernames on the target Jira instance by looking up each user on the
+ * source instance and then searching the target instance for the same person (by email and name).
+ * <p>
+ * Each username is resolved by its own task, which goes straight from the source lookup to the target lookup, so the
+ * target lookups start as soon as the first source lookup finishes rather than after all of them. The tasks run on
+ * virtual threads when the JDK supports them (or a fixed pool of platform threads otherwise), and the number of
+ * concurrent requests to each server is limited separately so neither server is overwhelmed. The resulting map is
+ * sorted by source username, so it's the same regardless of the order in which the lookups finish.
+ * <p>
+ * If the users of the target instance were downloaded in advance (see {@link UserDirectory}), the target users are
+ * found locally with the same searches instead of by sending them to the target instance. The users that still can't
+ * be found are then matched by similar display names (see {@link FuzzyNameMatcher}): a confident match is used, and an
+ * ambiguous one is mapped to the default user and reported by {@link #getAmbiguousMatches()} for review.
+ * <p>
+ * If the users of both instances are available locally (e.g. loaded from {@link UserDirectorySnapshot}s), the mapping
+ * can also be created offline, without sending any requests at all.
+ * <p>
+ * A user that couldn't be looked up because of an error (as opposed to not being found) is left out of the mapping
+ * rather than mapped to the default user, so a server that is struggling doesn't silently corrupt the mapping. Running
+ * the mapping again retries those users.
+ *
+ * @since 1.1
+ */
+public class UsernameMapper
+{
+    private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    private static final int PROGRESS_LOG_INTERVAL = 500;
+
+    private final JiraService sourceJiraService;
+    private final JiraService targetJiraService;
+    private final String defaultTargetUsername;
+    private final boolean lastNameDisplayedFirst;
+    private final int sourceConcurrency;
+    private final int targetConcurrency;
+    private final Semaphore sourcePermits;
+    private final Semaphore targetPermits;
+    private final UserDirectory sourceUserDirectory;
+    private final UserDirectory targetUserDirectory;
+    // The names of the instances, for the logs
+    private final String sourceName;
+    private final String targetName;
+    private final Map<String, NameMatch> ambiguousMatches = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param sourceJiraService      The service for the source Jira instance
+     * @param targetJiraService      The service for the target Jira instance
+     * @param defaultTargetUsername  The username to use when a user can't be found on the target instance
+     * @param lastNameDisplayedFirst True if the last name is listed first in the display names on the source instance
+     * @param sourceConcurrency      The maximum number of concurrent lookups on the source instance
+     * @param targetConcurrency      The maximum number of concurrent lookups on the target instance
+     */
+    public UsernameMapper(JiraService sourceJiraService, JiraService targetJiraService, String defaultTargetUsername,
+                          boolean lastNameDisplayedFirst, int sourceConcurrency, int targetConcurrency)
+    {
+        this(sourceJiraService, targetJiraService, defaultTargetUsername, lastNameDisplayedFirst, sourceConcurrency,
+                targetConcurrency, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param sourceJiraService      The service for the source Jira instance
+     * @param targetJiraService      The service for the target Jira instance
+     * @param defaultTargetUsername  The username to use when a user can't be found on the target instance
+     * @param lastNameDisplayedFirst True if the last name is listed first in the display names on the source instance
+     * @param sourceConcurrency      The maximum number of concurrent lookups on the source instance
+     * @param targetConcurrency      The maximum number of concurrent lookups on the target instance
+     * @param targetUserDirectory    The users of the target instance, downloaded in advance, in which to find the
+     *                               target users locally; or null to search the target instance for each user
+     */
+    public UsernameMapper(JiraService sourceJiraService, JiraService targetJiraService, String defaultTargetUsername,
+                          boolean lastNameDisplayedFirst, int sourceConcurrency, int targetConcurrency,
+                          UserDirectory targetUserDirectory)
+    {
+        this(sourceJiraService, targetJiraService, null, targetUserDirectory, defaultTargetUsername,
+                lastNameDisplayedFirst, sourceConcurrency, targetConcurrency);
+    }
+
+    /**
+     * Constructor for creating the mapping offline, from the users of both instances, without the servers. The users
+     * are looked up on as many threads as there are processors.
+     *
+     * @param sourceUserDirectory    The users of the source instance
+     * @param targetUserDirectory    The users of the target instance
+     * @param defaultTargetUsername  The username to use when a user can't be found on the target instance
+     * @param lastNameDisplayedFirst True if the last name is listed first in the display names on the source instance
+     */
+    public UsernameMapper(UserDirectory sourceUserDirectory, UserDirectory targetUserDirectory,
+                          String defaultTargetUsername, boolean lastNameDisplayedFirst)
+    {
+        this(null, null, sourceUserDirectory, targetUserDirectory, defaultTargetUsername, lastNameDisplayedFirst,
+                Runtime.getRuntime().availableProcessors(), Runtime.getRuntime().availableProcessors());
+    }
+
+    private UsernameMapper(JiraService sourceJiraService, JiraService targetJiraService,
+                           UserDirectory sourceUserDirectory, UserDirectory targetUserDirectory,
+                           String defaultTargetUsername, boolean lastNameDisplayedFirst, int sourceConcurrency,
+                           int targetConcurrency)
+    {
+        this.sourceJiraService = sourceJiraService;
+        this.targetJiraService = targetJiraService;
+        this.sourceUserDirectory = sourceUserDirectory;
+        this.sourceName = String.valueOf(sourceJiraService != null ? sourceJiraService : sourceUserDirectory);
+        this.targetName = String.valueOf(targetJiraService != null ? targetJiraService : targetUserDirectory);
+        this.defaultTargetUsername = defaultTargetUsername;
+        this.lastNameDisplayedFirst = lastNameDisplayedFirst;
+        this.sourceConcurrency = Math.max(sourceConcurrency, 1);
+        this.targetConcurrency = Math.max(targetConcurrency, 1);
+        this.sourcePermits = new Semaphore(this.sourceConcurrency);
+        this.targetPermits = new Semaphore(this.targetConcurrency);
+        this.targetUserDirectory = targetUserDirectory;
+    }
+
+    /**
+     * Creates a mapping of source username to target username for the set of provided names. If a user from the source
+     * Jira instance cannot be found on the target instance, a default user is used instead. Users that couldn't be
+     * looked up because of an error are logged and left out.
+     *
+     * @param csvUsernames The usernames found in the Jira CSV export
+     * @return A map of source usernames to target usernames, sorted by source username
+     */
+    public Map<String, String> createUsernameMapping(Set<String> csvUsernames)
+    {
+        logger.info("Verifying default user {} exists on target server...", defaultTargetUsername);
+        JiraUser defaultUser = targetUserDirectory != null
+                ? targetUserDirectory.findUser(defaultTargetUsername, null, null, null)
+                : targetJiraService.findUserByUsername(defaultTargetUsername);
+        if (defaultUser != null)
+        {
+            logger.info("Found default user: {}", defaultUser);
+        } else
+        {
+            logger.warn("Couldn't find default user on {}: {}", targetName, defaultTargetUsername);
+        }
+
+        logger.info("Looking up {} users on {} (up to {} at a time) and {} (up to {} at a time)...",
+                csvUsernames.size(), sourceName, sourceConcurrency, targetName, targetConcurrency);
+
+        Map<String, String> sourceUserToTargetUserMap = new TreeMap<>();
+        List<String> failedUsernames = new ArrayList<>();
+        AtomicInteger resolvedCount = new AtomicInteger();
+        ExecutorService executorService = createExecutorService();
+        try
+        {
+            List<Future<String>> futures = new ArrayList<>(csvUsernames.size());
+            for (String username : csvUsernames)
+            {
+                futures.add(executorService.submit(() -> {
+                    String targetUsername = resolveUsername(username);
+
+                    int count = resolvedCount.incrementAndGet();
+                    if (count % PROGRESS_LOG_INTERVAL == 0)
+                    {
+                        logger.info("Resolved {} of {} users...", count, csvUsernames.size());
+                    }
+                    return targetUsername;
+                }));
+            }
+
+            // Collect the results in the order the usernames were submitted
+            int i = 0;
+            for (String username : csvUsernames)
+            {
+                String targetUsername = getTargetUsername(username, futures.get(i++));
+                if (targetUsername != null)
+                {
+                    sourceUserToTargetUserMap.put(username, targetUsername);
+                } else
+                {
+                    failedUsernames.add(username);
+                }
+            }
+        } finally
+        {
+            executorService.shutdownNow();
+        }
+
+        if (!failedUsernames.isEmpty())
+        {
+            logger.error("Couldn't look up {} users because of errors, so they were left out of the mapping; " +
+                    "run the mapping again to retry them: {}", failedUsernames.size(), failedUsernames);
+        }
+
+        return sourceUserToTargetUserMap;
+    }
+
+    /**
+     * Looks up the user on the source instance and then the corresponding user on the target instance.
+     *
+     * @param sourceUsername The username from the CSV export
+     * @return The username on the target instance, or the default username if the user couldn't be found
+     * @throws InterruptedException If interrupted while waiting to make a request
+     * @throws IOException          If a problem occurred when looking up the user
+     */
+    private String resolveUsername(String sourceUsername) throws InterruptedException, IOException
+    {
+        JiraUser sourceUser = findSourceUser(sourceUsername);
+        if (sourceUser == null)
+        {
+            logger.warn("User no longer exists on {}: {}; using default instead: {}", sourceName, sourceUsername,
+                    defaultTargetUsername);
+            return defaultTargetUsername;
+        }
+        logger.debug("Found user: {}", sourceUser);
+
+        NameParts nameParts = ParseUtils.parseName(sourceUser.getDisplayName(), lastNameDisplayedFirst,
+                new NameParts());
+        if (!nameParts.hasFirstAndLastName())
+        {
+            logger.debug("Couldn't parse a first and last name from {}: {}", sourceUser, nameParts);
+        }
+
+        JiraUser targetUser = findTargetUser(sourceUsername, sourceUser, nameParts.getFirstName(),
+                nameParts.getLastName());
+        if (targetUser == null)
+        {
+            logger.warn("Couldn't find user on {}: {}; using default instead: {}", targetName, sourceUser,
+                    defaultTargetUsername);
+            return defaultTargetUsername;
+        }
+
+        logger.debug("Found user: {}", targetUser);
+        return targetUser.getName();
+    }
+
+    /**
+     * Finds the user on the source instance, either in the local directory or by searching the server.
+     *
+     * @param sourceUsername The username from the CSV export
+     * @return The source user or null if not found
+     * @throws InterruptedException If interrupted while waiting to make a request
+     * @throws IOException          If a problem occurred when searching the source instance
+     */
+    private JiraUser findSourceUser(String sourceUsername) throws InterruptedException, IOException
+    {
+        if (sourceUserDirectory != null)
+        {
+            return sourceUserDirectory.findUser(sourceUsername, null, null, null);
+        }
+
+        sourcePermits.acquire();
+        try
+        {
+            return sourceJiraService.lookUpUser(sourceUsername, null, null, null);
+        } finally
+        {
+            sourcePermits.release();
+        }
+    }
+
+    /**
+     * Finds the user on the target instance, either in the downloaded directory (falling back to a similar display
+     * name) or by searching the server.
+     *
+     * @param sourceUsername The username from the CSV export
+     * @param sourceUser     The user on the source instance
+     * @param firstName      The first name for the user
+     * @param lastName       The last name for the user
+     * @return The target user or null if not found
+     * @throws InterruptedException If interrupted while waiting to make a request
+     * @throws IOException          If a problem occurred when searching the target instance
+     */
+    private JiraUser findTargetUser(String sourceUsername, JiraUser sourceUser, String firstName, String lastName)
+            throws InterruptedException, IOException
+    {
+        if (targetUserDirectory != null)
+        {
+            return UserMatcher.findUserInDirectory(targetUserDirectory, sourceUsername, sourceUser, firstName,
+                    lastName, ambiguousMatches);
+        }
+
+        targetPermits.acquire();
+        try
+        {
+            return targetJiraService.lookUpUser(null, sourceUser.getEmailAddress(), firstName, lastName);
+        } finally
+        {
+            targetPermits.release();
+        }
+    }
+
+    /**
+     * @return The source usernames that were mapped to the default user although there are users with similar names on
+     * the target instance, and the matches with those users, sorted by source username
+     */
+    public Map<String, NameMatch> getAmbiguousMatches()
+    {
+        return new TreeMap<>(ambiguousMatches);
+    }
+
+    /**
+     * Waits for the result of resolving a username.
+     *
+     * @param sourceUsername The username from the CSV export
+     * @param future         The future result of resolving it
+     * @return The username on the target instance, or null if it couldn't be resolved because of an error
+     */
+    private String getTargetUsername(String sourceUsername, Future<String> future)
+    {
+        try
+        {
+            return future.get();
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            logger.error("Interrupted while looking up {}", sourceUsername);
+        } catch (ExecutionException e)
+        {
+            logger.error("Error looking up {}", sourceUsername, e.getCause());
+        }
+        return null;
+    }
+
+    /**
+     * Creates the executor for the lookup tasks. Virtual threads are used if the JDK has them (Java 21+), since the
+     * tasks spend nearly all their time waiting on the servers. Otherwise, there are just enough platform threads for
+     * every permit to be in use.
+     *
+     * @return The executor service
+     */
+    private ExecutorService createExecutorService()
+    {
+        try
+        {
+            // Looked up reflectively so this still runs on older JDKs
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e)
+        {
+            logger.debug("Virtual threads aren't available; using platform threads");
+        }
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        return Executors.newFixedThreadPool(sourceConcurrency + targetConcurrency, runnable -> {
+            Thread thread = new Thread(runnable, "user-lookup-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -0,0 +1,119 @@
+package us.ctic.jira;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Tests {@link AhoCorasickReplacer}, including that it replaces the same values as {@link StringUtils#replaceEach}
+ * when every value in the text is a whole token.
+ */
+class AhoCorasickReplacerTest
+{
+    private static final String[] SEPARATORS = {" ", ", ", "\n", "[~", "]", "(", ")", "; ", "\r\n", "\""};
+
+    @Test
+    void replacesOnlyWholeTokens()
+    {
+        AhoCorasickReplacer replacer = createReplacer(Map.of("al", "alice", "jdoe", "john.doe"));
+
+        assertEquals("alice", replacer.replace("al"));
+        assertEquals("[~alice] and (john.doe), alice!", replacer.replace("[~al] and (jdoe), al!"));
+        assertEquals("also al.b al_b al-b al@b bal al1 jdoes xjdoe",
+                replacer.replace("also al.b al_b al-b al@b bal al1 jdoes xjdoe"));
+    }
+
+    @Test
+    void replacesTheLongestValueAtTheSameStart()
+    {
+        String text = "John Doe, John Smith, John";
+
+        // The order of the mappings doesn't matter
+        assertEquals("jdoe, jsmith, john",
+                createReplacer(Map.of("John", "john", "John Doe", "jdoe", "John Smith", "jsmith")).replace(text));
+        assertEquals("jdoe, jsmith, john", new AhoCorasickReplacer(List.of(
+                orderedMapping("John", "john", "John Doe", "jdoe"), Map.of("John Smith", "jsmith"))).replace(text));
+        assertEquals("jdoe, jsmith, john", new AhoCorasickReplacer(List.of(
+                orderedMapping("John Doe", "jdoe", "John", "john"), Map.of("John Smith", "jsmith"))).replace(text));
+    }
+
+    @Test
+    void replacesTheLeftmostOfOverlappingValues()
+    {
+        assertEquals("AB c", createReplacer(Map.of("a b", "AB", "b c", "BC")).replace("a b c"));
+        assertEquals("x AB c BC", createReplacer(Map.of("b c", "BC", "a b", "AB")).replace("x a b c b c"));
+    }
+
+    @Test
+    void usesTheFirstMappingOfADuplicatedValue()
+    {
+        AhoCorasickReplacer replacer = new AhoCorasickReplacer(List.of(Map.of("jdoe", "first"),
+                Map.of("jdoe", "second", "mbrown", "mary")));
+
+        assertEquals(2, replacer.size());
+        assertEquals("first mary", replacer.replace("jdoe mbrown"));
+    }
+
+    @Test
+    void returnsTheSameTextWhenNothingIsReplaced()
+    {
+        String text = "Nothing to see here, not even jdoes";
+
+        assertSame(text, createReplacer(Map.of("jdoe", "john.doe")).replace(text));
+        assertSame(text, new AhoCorasickReplacer(List.of()).replace(text));
+    }
+
+    @Test
+    void matchesReplaceEachOnTextsOfWholeTokens()
+    {
+        // Values that are prefixes of each other, so replaceEach only finds the longest match if it tries them first
+        Map<String, String> mapping = new LinkedHashMap<>();
+        for (int i = 0; i < 200; i++)
+        {
+            mapping.put("user" + i, "target.user" + i);
+        }
+        List<String> searchList = new ArrayList<>(mapping.keySet());
+        searchList.sort(Comparator.comparingInt(String::length).reversed());
+        String[] searchValues = searchList.toArray(new String[0]);
+        String[] replacementValues = searchList.stream().map(mapping::get).toArray(String[]::new);
+
+        AhoCorasickReplacer replacer = createReplacer(mapping);
+        Random random = new Random(2);
+        for (int i = 0; i < 200; i++)
+        {
+            StringBuilder text = new StringBuilder();
+            for (int j = random.nextInt(20); j >= 0; j--)
+            {
+                text.append(SEPARATORS[random.nextInt(SEPARATORS.length)]);
+                text.append("user").append(random.nextInt(mapping.size()));
+            }
+
+            assertEquals(StringUtils.replaceEach(text.toString(), searchValues, replacementValues),
+                    replacer.replace(text.toString()), text.toString());
+        }
+    }
+
+    private static AhoCorasickReplacer createReplacer(Map<String, String> mapping)
+    {
+        return new AhoCorasickReplacer(List.of(mapping));
+    }
+
+    private static Map<String, String> orderedMapping(String... sourceAndTargetValues)
+    {
+        Map<String, String> mapping = new LinkedHashMap<>();
+        for (int i = 0; i < sourceAndTargetValues.length; i += 2)
+        {
+            mapping.put(sourceAndTargetValues[i], sourceAndTargetValues[i + 1]);
+        }
+        return mapping;
+    }
+}
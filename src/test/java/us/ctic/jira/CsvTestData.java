@@ -0,0 +1,103 @@
+package us.ctic.jira;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * CSV data for the parser tests, and the records Apache Commons CSV parses from it, which the faster parsers must
+ * match.
+ */
+final class CsvTestData
+{
+    // Values with the characters that need quoting, including multi-line values like Jira's Description and Comment
+    private static final String[] VALUES = {"", "jdoe", "John Doe", "a,b", "He said \"hi\"", "\"", "line 1\nline 2",
+            "line 1\r\nline 2", "\r\n", "Ren\u00e9e O'Hara", " padded ", "[~jdoe] please review", "\"\"", ",,,"};
+
+    private CsvTestData()
+    {
+    }
+
+    /**
+     * Parses the CSV data with Apache Commons CSV.
+     *
+     * @param csv The CSV data
+     * @return The values of each record
+     * @throws IOException If the data couldn't be parsed
+     */
+    static List<List<String>> parseWithCommonsCsv(String csv) throws IOException
+    {
+        List<List<String>> rows = new ArrayList<>();
+        try (CSVParser csvParser = new CSVParser(new StringReader(csv), CSVFormat.DEFAULT))
+        {
+            for (CSVRecord csvRecord : csvParser)
+            {
+                rows.add(Arrays.asList(CsvUtils.toArray(csvRecord)));
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Creates random rows, of which some are shorter than the first (the header) and many of the values need quoting.
+     *
+     * @param random      The source of randomness
+     * @param rowCount    The number of rows, including the header
+     * @param columnCount The number of columns of the header
+     * @return The rows
+     */
+    static List<List<String>> createRandomRows(Random random, int rowCount, int columnCount)
+    {
+        List<List<String>> rows = new ArrayList<>(rowCount);
+        for (int i = 0; i < rowCount; i++)
+        {
+            // A row with a single empty value would be an empty line, which the parsers skip
+            int size = i == 0 || random.nextInt(4) > 0 ? columnCount : 2 + random.nextInt(columnCount - 1);
+            List<String> row = new ArrayList<>(size);
+            for (int j = 0; j < size; j++)
+            {
+                String value = VALUES[random.nextInt(VALUES.length)] + (random.nextInt(3) == 0 ? j : "");
+                row.add(i == 0 ? "Column " + j : value);
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    /**
+     * Writes rows as CSV, quoting only the values that need it, with a line feed or CRLF after each row.
+     *
+     * @param rows The rows
+     * @return The CSV data
+     */
+    static String toCsv(List<List<String>> rows)
+    {
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < rows.size(); i++)
+        {
+            List<String> row = rows.get(i);
+            for (int j = 0; j < row.size(); j++)
+            {
+                if (j > 0) csv.append(',');
+
+                String value = row.get(j);
+                if (value.matches("(?s).*[,\"\r\n].*"))
+                {
+                    csv.append('"').append(value.replace("\"", "\"\"")).append('"');
+                } else
+                {
+                    csv.append(value);
+                }
+            }
+            csv.append(i % 2 == 0 ? "\n" : "\r\n");
+        }
+        return csv.toString();
+    }
+}
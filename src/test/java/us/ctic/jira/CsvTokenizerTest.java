@@ -0,0 +1,122 @@
+package us.ctic.jira;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that {@link CsvTokenizer} splits records the same way Apache Commons CSV does.
+ */
+class CsvTokenizerTest
+{
+    private static final Charset CHARSET = StandardCharsets.UTF_8;
+
+    @Test
+    void parsesQuotedMultiLineFieldsWithEscapedQuotes() throws IOException
+    {
+        String csv = "Summary,Description,Reporter\n"
+                + "\"Fix \"\"login\"\"\",\"Line 1\nLine 2\r\nLine 3\",jdoe\r\n"
+                + "\"a,b\",\"\"\"\",\"\"\n";
+
+        List<List<String>> records = tokenize(csv);
+
+        assertEquals(Arrays.asList(
+                Arrays.asList("Summary", "Description", "Reporter"),
+                Arrays.asList("Fix \"login\"", "Line 1\nLine 2\r\nLine 3", "jdoe"),
+                Arrays.asList("a,b", "\"", "")), records);
+        assertEquals(CsvTestData.parseWithCommonsCsv(csv), records);
+    }
+
+    @Test
+    void parsesRecordsShorterThanTheHeader() throws IOException
+    {
+        String csv = "Summary,Assignee,Reporter,Watchers\nFirst,jdoe\nSecond,,\n\"Third\nissue\"\n";
+
+        List<List<String>> records = tokenize(csv);
+
+        assertEquals(Arrays.asList(
+                Arrays.asList("Summary", "Assignee", "Reporter", "Watchers"),
+                Arrays.asList("First", "jdoe"),
+                Arrays.asList("Second", "", ""),
+                Arrays.asList("Third\nissue")), records);
+        assertEquals(CsvTestData.parseWithCommonsCsv(csv), records);
+    }
+
+    @Test
+    void parsesTheLastRecordWithoutALineBreak()
+    {
+        assertEquals(Arrays.asList(Arrays.asList("a", "b"), Arrays.asList("c", "")), tokenize("a,b\nc,"));
+        assertEquals(Arrays.asList(Arrays.asList("a", "b"), Arrays.asList("c", "d e")), tokenize("a,b\r\nc,\"d e\""));
+    }
+
+    @Test
+    void skipsEmptyLines()
+    {
+        assertEquals(Arrays.asList(Arrays.asList("a", "b"), Arrays.asList("c", "d")), tokenize("\na,b\n\r\n\nc,d\n\n"));
+    }
+
+    @Test
+    void stopsAtARecordCutInsideAQuotedField()
+    {
+        String csv = "a,b\nc,\"quoted\nvalue, with \"\"escapes\"\"\"\ne,f\n";
+        byte[] bytes = csv.getBytes(CHARSET);
+        int secondRecordStart = csv.indexOf('c');
+
+        // Cut the data at every position within the quoted field, including right after each of its quotes
+        for (int cut = csv.indexOf('"') + 1; cut <= csv.lastIndexOf('"') + 1; cut++)
+        {
+            CsvTokenizer tokenizer = new CsvTokenizer(ByteBuffer.wrap(bytes, 0, cut), false, CHARSET);
+            assertTrue(tokenizer.nextRecord());
+            assertEquals(Arrays.asList("a", "b"), Arrays.asList(tokenizer.getRecord().toArray()));
+            assertFalse(tokenizer.nextRecord(), "Cut at " + cut);
+            assertTrue(tokenizer.isIncomplete(), "Cut at " + cut);
+            assertEquals(secondRecordStart, tokenizer.getPosition(), "Cut at " + cut);
+
+            // Continuing from the start of the incomplete record with the rest of the data finds the same records
+            List<List<String>> rest = tokenize(ByteBuffer.wrap(bytes, tokenizer.getPosition(),
+                    bytes.length - tokenizer.getPosition()));
+            assertEquals(Arrays.asList(Arrays.asList("c", "quoted\nvalue, with \"escapes\""), Arrays.asList("e", "f")),
+                    rest, "Cut at " + cut);
+        }
+    }
+
+    @Test
+    void matchesCommonsCsvOnRandomData() throws IOException
+    {
+        Random random = new Random(9);
+        for (int i = 0; i < 100; i++)
+        {
+            String csv = CsvTestData.toCsv(CsvTestData.createRandomRows(random, 1 + random.nextInt(20), 6));
+
+            assertEquals(CsvTestData.parseWithCommonsCsv(csv), tokenize(csv), csv);
+        }
+    }
+
+    private static List<List<String>> tokenize(String csv)
+    {
+        return tokenize(ByteBuffer.wrap(csv.getBytes(CHARSET)));
+    }
+
+    private static List<List<String>> tokenize(ByteBuffer buffer)
+    {
+        CsvTokenizer tokenizer = new CsvTokenizer(buffer, true, CHARSET);
+        List<List<String>> records = new ArrayList<>();
+        while (tokenizer.nextRecord())
+        {
+            records.add(Arrays.asList(tokenizer.getRecord().toArray()));
+        }
+        assertFalse(tokenizer.isIncomplete());
+        return records;
+    }
+}
@@ -0,0 +1,105 @@
+package us.ctic.jira;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that {@link FuzzyNameMatcher} matches the names that are written differently confidently, and reports the
+ * names it can't tell apart for review.
+ */
+class FuzzyNameMatcherTest
+{
+    private static final List<JiraUser> USERS = Arrays.asList(
+            new JiraUser("asmith", "annmarie.smith@example.com", "Annmarie Smith"),
+            new JiraUser("wjones", "william.jones@example.com", "William Jones"),
+            new JiraUser("jgarcia", "jose.garcia@example.com", "Jose Garcia"),
+            new JiraUser("jsmith", "john.smith@example.com", "John Smith"),
+            new JiraUser("jsmith2", "jane.smith@example.com", "Jane Smith"),
+            new JiraUser("kbrown", "katherine.brown@example.com", "Katherine Brown"),
+            new JiraUser("kbrown2", "katie.brown@example.com", "Katie Brown"),
+            new JiraUser("tnguyen", "thomas.nguyen@example.com", "Thomas Nguyen"));
+
+    private final FuzzyNameMatcher fuzzyNameMatcher = new FuzzyNameMatcher(USERS);
+
+    @Test
+    void matchesACompoundNameWrittenAsOneWord()
+    {
+        assertConfidentMatch("asmith", "Ann Marie Smith");
+        assertConfidentMatch("asmith", "Ann-Marie Smith");
+    }
+
+    @Test
+    void matchesANicknameWithTheFullName()
+    {
+        assertConfidentMatch("wjones", "Bill Jones");
+        assertConfidentMatch("tnguyen", "Tom Nguyen");
+    }
+
+    @Test
+    void matchesANameWithAccents()
+    {
+        assertConfidentMatch("jgarcia", "Jos\u00e9 Garc\u00eda");
+    }
+
+    @Test
+    void matchesANameInADifferentOrder()
+    {
+        assertConfidentMatch("jsmith", "Smith, John");
+        assertConfidentMatch("jsmith", "Smith, John Q. Jr.");
+    }
+
+    @Test
+    void reportsTheCandidatesWhenTheBestIsNotFarEnoughAhead()
+    {
+        // Both Katherine and Katie are Kate, so the two users score the same
+        NameMatch nameMatch = fuzzyNameMatcher.match("Kate Brown");
+
+        assertNull(nameMatch.getUser());
+        assertTrue(nameMatch.isAmbiguous());
+        assertEquals(Arrays.asList("kbrown", "kbrown2"), getUsernames(nameMatch));
+        assertTrue(nameMatch.getScore(0) - nameMatch.getScore(1) < FuzzyNameMatcher.MIN_MARGIN);
+    }
+
+    @Test
+    void neverMatchesASingleWordConfidently()
+    {
+        NameMatch nameMatch = fuzzyNameMatcher.match("Garcia");
+
+        assertNull(nameMatch.getUser());
+        assertTrue(nameMatch.isAmbiguous());
+        assertEquals(Arrays.asList("jgarcia"), getUsernames(nameMatch));
+        assertTrue(nameMatch.getScore(0) < FuzzyNameMatcher.ACCEPT_SCORE);
+    }
+
+    @Test
+    void findsNoCandidatesForADifferentName()
+    {
+        NameMatch nameMatch = fuzzyNameMatcher.match("Olga Petrova");
+
+        assertNull(nameMatch.getUser());
+        assertFalse(nameMatch.isAmbiguous());
+        assertTrue(nameMatch.getCandidates().isEmpty());
+    }
+
+    private void assertConfidentMatch(String expectedUsername, String displayName)
+    {
+        NameMatch nameMatch = fuzzyNameMatcher.match(displayName);
+
+        assertEquals(expectedUsername, nameMatch.getUser() == null ? null : nameMatch.getUser().getName(),
+                displayName + ": " + nameMatch);
+        assertTrue(nameMatch.getScore(0) >= FuzzyNameMatcher.ACCEPT_SCORE, displayName);
+    }
+
+    private static List<String> getUsernames(NameMatch nameMatch)
+    {
+        String[] usernames = nameMatch.getCandidates().stream().map(JiraUser::getName).toArray(String[]::new);
+        return Arrays.asList(usernames);
+    }
+}
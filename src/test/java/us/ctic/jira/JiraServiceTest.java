@@ -0,0 +1,207 @@
+package us.ctic.jira;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link JiraService} against a {@link MockJiraServer}: the cascade of user searches, the retries of throttled
+ * requests, and the paging of the user downloads.
+ */
+class JiraServiceTest
+{
+    private static final RetryPolicy RETRY_POLICY = new RetryPolicy(3, Duration.ofMillis(10), Duration.ofMillis(50),
+            Duration.ofSeconds(10));
+    private static final List<JiraUser> USERS = Arrays.asList(
+            new JiraUser("jdoe", "jane.doe@example.com", "Jane Doe"),
+            new JiraUser("mbrown", "mary.brown@example.com", "Mary Brown"),
+            new JiraUser("pbrown", "peter.brown@example.com", "Peter Brown"));
+
+    private MockJiraServer server;
+    private JiraService jiraService;
+
+    @BeforeEach
+    void setUp() throws IOException
+    {
+        server = new MockJiraServer(USERS, Duration.ZERO, 0, 0);
+        jiraService = createJiraService(server, RETRY_POLICY);
+    }
+
+    @AfterEach
+    void tearDown()
+    {
+        jiraService.close();
+        server.close();
+    }
+
+    @Test
+    void findsUserByUsernameWithoutSearchingTheEmailOrName() throws IOException
+    {
+        JiraUser user = jiraService.lookUpUser("jdoe", "jane.doe@example.com", "Jane", "Doe");
+
+        assertEquals("jdoe", user.getName());
+        assertEquals(List.of("jdoe"), server.getSearchQueries());
+    }
+
+    @Test
+    void fallsBackToTheEmailWhenTheUsernameIsNotFound() throws IOException
+    {
+        JiraUser user = jiraService.lookUpUser("janed", "jane.doe@example.com", "Jane", "Doe");
+
+        assertEquals("jdoe", user.getName());
+        assertEquals(List.of("janed", "jane.doe@example.com"), server.getSearchQueries());
+    }
+
+    @Test
+    void fallsBackToTheNameWhenTheEmailIsNotFound() throws IOException
+    {
+        // Both Browns match the last name, so the first name has to pick one
+        JiraUser user = jiraService.lookUpUser("maryb", "mary@other.example.com", "Mary", "Brown");
+
+        assertEquals("mbrown", user.getName());
+        assertEquals(List.of("maryb", "mary@other.example.com", "Brown"), server.getSearchQueries());
+    }
+
+    @Test
+    void returnsNullWhenNoSearchFindsTheUser() throws IOException
+    {
+        assertNull(jiraService.lookUpUser("gone", "gone@example.com", "Nobody", "Here"));
+        assertEquals(List.of("gone", "gone@example.com", "Here"), server.getSearchQueries());
+    }
+
+    @Test
+    void searchesEachQueryOnlyOnce() throws IOException
+    {
+        jiraService.lookUpUser("gone", "jane.doe@example.com", null, null);
+        jiraService.lookUpUser("gone", "jane.doe@example.com", null, null);
+
+        assertEquals(List.of("gone", "jane.doe@example.com"), server.getSearchQueries());
+    }
+
+    @Test
+    void retriesThrottledRequestAfterTheRetryAfter() throws IOException
+    {
+        server.throttleNextRequests(1, Duration.ofSeconds(1));
+        long startNanos = System.nanoTime();
+
+        JiraUser user = jiraService.lookUpUser("jdoe", null, null, null);
+
+        assertEquals("jdoe", user.getName());
+        assertEquals(1, server.getThrottledCount());
+        assertEquals(List.of("jdoe", "jdoe"), server.getSearchQueries());
+        assertTrue(System.nanoTime() - startNanos >= Duration.ofMillis(900).toNanos(),
+                "The retry should wait for the Retry-After");
+    }
+
+    @Test
+    void givesUpWhenTheRetryAfterIsPastTheDeadline() throws IOException
+    {
+        try (JiraService impatientJiraService = createJiraService(server,
+                new RetryPolicy(5, Duration.ofMillis(10), Duration.ofMillis(50), Duration.ofSeconds(2))))
+        {
+            server.throttleNextRequests(5, Duration.ofSeconds(60));
+            long startNanos = System.nanoTime();
+
+            assertThrows(IOException.class, () -> impatientJiraService.lookUpUser("jdoe", null, null, null));
+            assertEquals(1, server.getThrottledCount());
+            assertTrue(System.nanoTime() - startNanos < Duration.ofSeconds(10).toNanos(),
+                    "The request should fail without waiting for the Retry-After");
+        }
+    }
+
+    @Test
+    void givesUpAfterTheMaximumAttempts() throws IOException
+    {
+        server.throttleNextRequests(5, Duration.ZERO);
+
+        assertThrows(IOException.class, () -> jiraService.lookUpUser("jdoe", null, null, null));
+        assertEquals(RETRY_POLICY.getMaxAttempts(), server.getThrottledCount());
+    }
+
+    @Test
+    void downloadsAllUsersWhenTheServerReturnsShorterPagesThanRequested() throws IOException
+    {
+        try (MockJiraServer largeServer = new MockJiraServer(MockJiraServer.createSourceUsers(120), Duration.ZERO, 0,
+                0);
+             JiraService largeJiraService = createJiraService(largeServer, RETRY_POLICY))
+        {
+            largeServer.setMaxResultsLimit(50);
+
+            List<JiraUser> users = largeJiraService.getAllUsers(".", 100);
+
+            assertEquals(getUsernames(MockJiraServer.createSourceUsers(120)), getUsernames(users));
+            assertEquals(120, users.size());
+            // Pages of 50, 50, and 20 users, and then an empty one
+            assertEquals(4, largeServer.getSearchQueries().size());
+        }
+    }
+
+    @Test
+    void downloadsAllGroupMembersWhenTheServerReturnsShorterPagesThanRequested() throws IOException
+    {
+        try (MockJiraServer largeServer = new MockJiraServer(MockJiraServer.createSourceUsers(120), Duration.ZERO, 0,
+                0);
+             JiraService largeJiraService = createJiraService(largeServer, RETRY_POLICY))
+        {
+            largeServer.setMaxResultsLimit(50);
+
+            List<JiraUser> members = largeJiraService.getGroupMembers(MockJiraServer.GROUP_NAME, 100);
+
+            assertEquals(getUsernames(MockJiraServer.createSourceUsers(120)), getUsernames(members));
+            assertEquals(120, members.size());
+        }
+    }
+
+    @Test
+    void stopsDownloadingUsersWhenTheServerIgnoresTheStartAt() throws IOException
+    {
+        try (MockJiraServer largeServer = new MockJiraServer(MockJiraServer.createSourceUsers(120), Duration.ZERO, 0,
+                0);
+             JiraService largeJiraService = createJiraService(largeServer, RETRY_POLICY))
+        {
+            largeServer.setMaxResultsLimit(50);
+            largeServer.setIgnoringStartAt(true);
+
+            List<JiraUser> users = largeJiraService.getAllUsers(".", 100);
+
+            // The first page, and then the same page again, which isn't added
+            assertEquals(50, users.size());
+            assertEquals(2, largeServer.getSearchQueries().size());
+        }
+    }
+
+    @Test
+    void returnsNoUsersWhenAPageFails()
+    {
+        server.failSearchesFor(".");
+
+        assertNull(jiraService.getAllUsers(".", 100));
+    }
+
+    private static JiraService createJiraService(MockJiraServer server, RetryPolicy retryPolicy)
+    {
+        return new JiraService(server.getHost(), "user", "pass", "", "PROJ", JiraConnectionSettings.builder()
+                .maxConnectionsPerRoute(4)
+                .rateLimiter(new RateLimiter(1000, 100))
+                .retryPolicy(retryPolicy)
+                .build());
+    }
+
+    private static Set<String> getUsernames(List<JiraUser> users)
+    {
+        return users.stream().map(JiraUser::getName).collect(Collectors.toCollection(TreeSet::new));
+    }
+}
@@ -0,0 +1,491 @@
+package us.ctic.jira;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An in-process stand-in for a Jira server, so the user lookups can be load tested without a real instance. It serves
+ * the parts of the REST API that the converter uses ({@code serverInfo}, {@code user/search}, {@code group/member}, and
+ * {@code issue/createmeta}) from a list of users, searched the same way as a {@link UserDirectory}, and pages the
+ * results like Jira does. Each request can be delayed, and a fraction of them can fail with a 500 or be throttled with
+ * a 429 (and a {@code Retry-After}). For the tests, the failures can also be scripted: the next requests can be
+ * throttled, the searches for given queries can always fail, and the page size can be capped lower.
+ * <p>
+ * The server counts the requests and the connections they arrived on, so the connection reuse of the clients can be
+ * checked, and records the queries of the user searches. The credentials aren't checked.
+ */
+public class MockJiraServer implements AutoCloseable
+{
+    /**
+     * The group that all the users are members of.
+     */
+    static final String GROUP_NAME = "jira-users";
+    /**
+     * The user of the target server to map the users that can't be found to.
+     */
+    static final String DEFAULT_USERNAME = "default.user";
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final String[] FIRST_NAMES = {"James", "Mary", "John", "Patricia", "Robert", "Jennifer", "Michael",
+            "Linda", "William", "Elizabeth", "David", "Barbara", "Richard", "Susan", "Joseph", "Jessica", "Thomas",
+            "Sarah", "Charles", "Karen", "Wei", "Priya", "Ahmed", "Olga", "Hiroshi", "Fatima", "Carlos", "Ana"};
+    private static final String[] LAST_NAMES = {"Smith", "Johnson", "Williams", "Brown", "Jones", "Garcia", "Miller",
+            "Davis", "Rodriguez", "Martinez", "Hernandez", "Lopez", "Gonzalez", "Wilson", "Anderson", "Thomas",
+            "Taylor", "Moore", "Jackson", "Martin", "Lee", "Perez", "Thompson", "White", "Harris", "Sanchez", "Clark",
+            "Ramirez", "Lewis", "Robinson", "Walker", "Young", "Allen", "King", "Wright", "Scott", "Torres", "Nguyen",
+            "Hill", "Flores", "Green", "Adams", "Nelson", "Baker", "Hall", "Rivera", "Campbell", "Mitchell", "Carter",
+            "Roberts", "Chen", "Patel", "Kim", "Ivanova", "Tanaka", "Khan", "Silva", "Costa", "Muller", "Rossi"};
+    private static final int DEFAULT_MAX_RESULTS = 50;
+    // Jira caps the page size of the user searches
+    private static final int MAX_RESULTS_LIMIT = 1000;
+    private static final int SC_OK = 200;
+    private static final int SC_BAD_REQUEST = 400;
+    private static final int SC_NOT_FOUND = 404;
+    private static final int SC_TOO_MANY_REQUESTS = 429;
+    private static final int SC_INTERNAL_SERVER_ERROR = 500;
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    static
+    {
+        // The server sends the headers and the body of a response separately, so without this Nagle's algorithm holds
+        // the body back until the client's delayed ACK (40 ms on Linux), which would dwarf the latency being measured
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final List<JiraUser> users;
+    private final UserDirectory userDirectory;
+    private final long latencyNanos;
+    private final double errorRate;
+    private final double throttleRate;
+    private final LongAdder requestCount = new LongAdder();
+    private final LongAdder errorCount = new LongAdder();
+    private final LongAdder throttledCount = new LongAdder();
+    // The client address and port of each connection a request arrived on
+    private final Set<InetSocketAddress> connections = ConcurrentHashMap.newKeySet();
+    private final Queue<String> searchQueries = new ConcurrentLinkedQueue<>();
+    private final Set<String> failingQueries = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger requestsToThrottle = new AtomicInteger();
+    private volatile String retryAfter = RETRY_AFTER_SECONDS;
+    private volatile int maxResultsLimit = MAX_RESULTS_LIMIT;
+    private volatile boolean ignoringStartAt;
+
+    /**
+     * Constructor. Starts the server on a free port of the loopback address.
+     *
+     * @param users        The users of the server
+     * @param latency      The average time to wait before responding to a request (each wait is picked at random
+     *                     between half and one and a half times this)
+     * @param errorRate    The fraction of the requests that fail with a 500
+     * @param throttleRate The fraction of the requests that are throttled with a 429
+     * @throws IOException If the server couldn't be started
+     */
+    public MockJiraServer(List<JiraUser> users, Duration latency, double errorRate, double throttleRate)
+            throws IOException
+    {
+        this.users = new ArrayList<>(users);
+        this.users.sort((user1, user2) -> user1.getName().compareTo(user2.getName()));
+        this.userDirectory = new UserDirectory(users);
+        this.latencyNanos = latency.toNanos();
+        this.errorRate = errorRate;
+        this.throttleRate = throttleRate;
+
+        // The handlers sleep to simulate the latency, so each request needs its own thread
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "mock-jira-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(executor);
+        server.createContext(JiraRequests.SERVER_INFO_PATH, exchange -> handle(exchange, this::getServerInfo));
+        server.createContext(JiraRequests.USER_SEARCH_PATH, exchange -> handle(exchange, this::searchUsers));
+        server.createContext("/rest/api/2/group/member", exchange -> handle(exchange, this::getGroupMembers));
+        server.createContext(JiraRequests.ISSUE_TYPE_PATH, exchange -> handle(exchange, this::getCreateMeta));
+        server.start();
+    }
+
+    /**
+     * Creates the synthetic users of a source server, with the same usernames as the users in a
+     * {@link SyntheticJiraExport}.
+     *
+     * @param count The number of users
+     * @return The users
+     */
+    static List<JiraUser> createSourceUsers(int count)
+    {
+        List<JiraUser> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+        {
+            users.add(createUser(SyntheticJiraExport.getUsername(i), "user" + i + "@example.com", i));
+        }
+        return users;
+    }
+
+    /**
+     * Creates the synthetic users of a target server for the users created by {@link #createSourceUsers(int)}, with the
+     * same usernames as {@link SyntheticJiraExport#createUsernameMapping(int)}. Like in a real migration, not all of
+     * them can be found by email: 70% have the same email address as on the source server, 20% have a different one
+     * (so they can only be found by name), and 10% don't exist on the target server. There's also a
+     * {@link #DEFAULT_USERNAME} user.
+     *
+     * @param count The number of source users
+     * @return The users
+     */
+    static List<JiraUser> createTargetUsers(int count)
+    {
+        List<JiraUser> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+        {
+            if (i % 10 == 9) continue;
+
+            String emailDomain = i % 10 < 7 ? "example.com" : "target.example.com";
+            users.add(createUser("target.user" + i, "user" + i + "@" + emailDomain, i));
+        }
+        users.add(createUser(DEFAULT_USERNAME, "jira-admin@example.com", count));
+        return users;
+    }
+
+    /**
+     * Creates a user with a display name made up of a common first and last name, so the searches by name return many
+     * users, like they do on a large instance.
+     */
+    private static JiraUser createUser(String username, String emailAddress, int index)
+    {
+        Map<String, String> user = new LinkedHashMap<>();
+        user.put("name", username);
+        user.put("emailAddress", emailAddress);
+        user.put("displayName", FIRST_NAMES[index % FIRST_NAMES.length] + " "
+                + LAST_NAMES[(index / FIRST_NAMES.length) % LAST_NAMES.length]);
+        return OBJECT_MAPPER.convertValue(user, JiraUser.class);
+    }
+
+    /**
+     * @return The host and port of the server, to pass to {@link JiraService} or {@link AsyncJiraService}
+     */
+    public String getHost()
+    {
+        return "localhost:" + server.getAddress().getPort();
+    }
+
+    /**
+     * @return The number of requests received (including the ones that failed or were throttled)
+     */
+    public long getRequestCount()
+    {
+        return requestCount.sum();
+    }
+
+    /**
+     * @return The number of requests that failed with a 500
+     */
+    public long getErrorCount()
+    {
+        return errorCount.sum();
+    }
+
+    /**
+     * @return The number of requests that were throttled with a 429
+     */
+    public long getThrottledCount()
+    {
+        return throttledCount.sum();
+    }
+
+    /**
+     * @return The number of distinct connections the requests arrived on
+     */
+    public int getConnectionCount()
+    {
+        return connections.size();
+    }
+
+    /**
+     * @return The queries of the user searches received, in the order they arrived (including the ones that failed or
+     * were throttled)
+     */
+    public List<String> getSearchQueries()
+    {
+        return new ArrayList<>(searchQueries);
+    }
+
+    /**
+     * Throttles the next requests with a 429, whatever the throttle rate.
+     *
+     * @param count      The number of requests to throttle
+     * @param retryAfter The {@code Retry-After} to send with them
+     */
+    public void throttleNextRequests(int count, Duration retryAfter)
+    {
+        this.retryAfter = String.valueOf(retryAfter.getSeconds());
+        requestsToThrottle.set(count);
+    }
+
+    /**
+     * Makes every search for a query fail with a 500.
+     *
+     * @param query The query of the user search (the {@code username} parameter)
+     */
+    public void failSearchesFor(String query)
+    {
+        failingQueries.add(query);
+    }
+
+    /**
+     * Caps the number of users per page lower than Jira does, so short pages can be tested with few users.
+     *
+     * @param maxResultsLimit The most users to return per page
+     */
+    public void setMaxResultsLimit(int maxResultsLimit)
+    {
+        this.maxResultsLimit = maxResultsLimit;
+    }
+
+    /**
+     * Makes the server return the first page for every request, like a server that doesn't support paging.
+     *
+     * @param ignoringStartAt True to ignore the {@code startAt} parameter
+     */
+    public void setIgnoringStartAt(boolean ignoringStartAt)
+    {
+        this.ignoringStartAt = ignoringStartAt;
+    }
+
+    /**
+     * Stops the server, without waiting for the requests in progress.
+     */
+    @Override
+    public void close()
+    {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "MockJiraServer{" +
+                "host='" + getHost() + '\'' +
+                ", users=" + users.size() +
+                ", requests=" + getRequestCount() +
+                ", connections=" + getConnectionCount() +
+                '}';
+    }
+
+    private void handle(HttpExchange exchange, ResponseCreator responseCreator) throws IOException
+    {
+        try
+        {
+            requestCount.increment();
+            connections.add(exchange.getRemoteAddress());
+            waitForLatency();
+
+            Map<String, String> parameters = parseQuery(exchange.getRequestURI());
+            String query = parameters.getOrDefault("username", "");
+            if (exchange.getRequestURI().getPath().equals(JiraRequests.USER_SEARCH_PATH)) searchQueries.add(query);
+
+            double random = ThreadLocalRandom.current().nextDouble();
+            if (requestsToThrottle.getAndUpdate(count -> Math.max(count - 1, 0)) > 0)
+            {
+                throttledCount.increment();
+                exchange.getResponseHeaders().add("Retry-After", retryAfter);
+                sendJson(exchange, SC_TOO_MANY_REQUESTS, createErrorMessages("Rate limit exceeded"));
+            } else if (random < throttleRate)
+            {
+                throttledCount.increment();
+                exchange.getResponseHeaders().add("Retry-After", RETRY_AFTER_SECONDS);
+                sendJson(exchange, SC_TOO_MANY_REQUESTS, createErrorMessages("Rate limit exceeded"));
+            } else if (random < throttleRate + errorRate || failingQueries.contains(query))
+            {
+                errorCount.increment();
+                sendJson(exchange, SC_INTERNAL_SERVER_ERROR, createErrorMessages("Internal server error"));
+            } else
+            {
+                responseCreator.createResponse(exchange, parameters);
+            }
+        } finally
+        {
+            exchange.close();
+        }
+    }
+
+    private void waitForLatency()
+    {
+        if (latencyNanos <= 0) return;
+
+        long waitNanos = latencyNanos / 2 + ThreadLocalRandom.current().nextLong(latencyNanos + 1);
+        try
+        {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void getServerInfo(HttpExchange exchange, Map<String, String> parameters) throws IOException
+    {
+        Map<String, Object> serverInfo = new LinkedHashMap<>();
+        serverInfo.put("baseUrl", "http://" + getHost());
+        serverInfo.put("version", "8.13.5");
+        serverInfo.put("deploymentType", "Server");
+        serverInfo.put("serverTitle", "Mock Jira");
+        sendJson(exchange, SC_OK, serverInfo);
+    }
+
+    private void searchUsers(HttpExchange exchange, Map<String, String> parameters) throws IOException
+    {
+        String query = parameters.get("username");
+        if (query == null || query.isEmpty())
+        {
+            sendJson(exchange, SC_BAD_REQUEST, createErrorMessages("The username query parameter was not provided"));
+            return;
+        }
+
+        // Like the wildcard searches on Jira Server, "." and "%" match every user
+        List<JiraUser> matchingUsers = ".".equals(query) || "%".equals(query)
+                ? users
+                : userDirectory.findUsers(query);
+        sendJson(exchange, SC_OK, getPage(matchingUsers, parameters));
+    }
+
+    private void getGroupMembers(HttpExchange exchange, Map<String, String> parameters) throws IOException
+    {
+        if (!GROUP_NAME.equals(parameters.get("groupname")))
+        {
+            sendJson(exchange, SC_NOT_FOUND, createErrorMessages("The specified group does not exist"));
+            return;
+        }
+
+        List<JiraUser> members = getPage(users, parameters);
+        int startAt = getIntParameter(parameters, "startAt", 0);
+        Map<String, Object> groupMembers = new LinkedHashMap<>();
+        groupMembers.put("maxResults", getIntParameter(parameters, "maxResults", DEFAULT_MAX_RESULTS));
+        groupMembers.put("startAt", startAt);
+        groupMembers.put("total", users.size());
+        groupMembers.put("isLast", startAt + members.size() >= users.size());
+        groupMembers.put("values", members);
+        sendJson(exchange, SC_OK, groupMembers);
+    }
+
+    private void getCreateMeta(HttpExchange exchange, Map<String, String> parameters) throws IOException
+    {
+        List<Map<String, Object>> issueTypes = new ArrayList<>();
+        for (int i = 0; i < SyntheticJiraExport.ISSUE_TYPES.length; i++)
+        {
+            Map<String, Object> issueType = new LinkedHashMap<>();
+            issueType.put("id", String.valueOf(10000 + i));
+            issueType.put("name", SyntheticJiraExport.ISSUE_TYPES[i]);
+            issueType.put("subtask", SyntheticJiraExport.ISSUE_TYPES[i].equals("Sub-task"));
+            issueTypes.add(issueType);
+        }
+
+        List<Map<String, Object>> projects = new ArrayList<>();
+        String projectKeys = parameters.get(JiraRequests.PROJECT_KEY_TOKEN);
+        if (projectKeys != null)
+        {
+            for (String projectKey : projectKeys.split(","))
+            {
+                Map<String, Object> project = new LinkedHashMap<>();
+                project.put("key", projectKey);
+                project.put("name", projectKey);
+                project.put("issuetypes", issueTypes);
+                projects.add(project);
+            }
+        }
+
+        sendJson(exchange, SC_OK, Collections.singletonMap("projects", projects));
+    }
+
+    private List<JiraUser> getPage(List<JiraUser> users, Map<String, String> parameters)
+    {
+        int startAt = ignoringStartAt ? 0 : Math.max(getIntParameter(parameters, "startAt", 0), 0);
+        int maxResults = Math.min(getIntParameter(parameters, "maxResults", DEFAULT_MAX_RESULTS), maxResultsLimit);
+        if (startAt >= users.size() || maxResults <= 0) return Collections.emptyList();
+
+        return users.subList(startAt, Math.min(startAt + maxResults, users.size()));
+    }
+
+    private static int getIntParameter(Map<String, String> parameters, String name, int defaultValue)
+    {
+        try
+        {
+            String value = parameters.get(name);
+            return value == null ? defaultValue : Integer.parseInt(value);
+        } catch (NumberFormatException e)
+        {
+            return defaultValue;
+        }
+    }
+
+    private static Map<String, String> parseQuery(URI uri)
+    {
+        Map<String, String> parameters = new HashMap<>();
+        String query = uri.getRawQuery();
+        if (query == null) return parameters;
+
+        for (String parameter : query.split("&"))
+        {
+            int equalsIndex = parameter.indexOf('=');
+            if (equalsIndex < 0) continue;
+
+            parameters.put(URLDecoder.decode(parameter.substring(0, equalsIndex), StandardCharsets.UTF_8),
+                    URLDecoder.decode(parameter.substring(equalsIndex + 1), StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    private static Map<String, Object> createErrorMessages(String message)
+    {
+        Map<String, Object> errors = new LinkedHashMap<>();
+        errors.put("errorMessages", Collections.singletonList(message));
+        errors.put("errors", Collections.emptyMap());
+        return errors;
+    }
+
+    private static void sendJson(HttpExchange exchange, int statusCode, Object body) throws IOException
+    {
+        byte[] bytes = OBJECT_MAPPER.writeValueAsBytes(body);
+        exchange.getResponseHeaders().add("Content-Type", "application/json;charset=UTF-8");
+        exchange.sendResponseHeaders(statusCode, bytes.length);
+        try (OutputStream responseBody = exchange.getResponseBody())
+        {
+            responseBody.write(bytes);
+        }
+    }
+
+    @FunctionalInterface
+    private interface ResponseCreator
+    {
+        void createResponse(HttpExchange exchange, Map<String, String> parameters) throws IOException;
+    }
+}
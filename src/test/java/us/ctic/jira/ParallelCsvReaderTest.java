@@ -0,0 +1,171 @@
+package us.ctic.jira;
+
+import org.apache.commons.csv.CSVRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that {@link ParallelCsvReader} finds the same records as Apache Commons CSV reading the whole file, with chunks
+ * small enough that they are often cut inside quoted multi-line fields.
+ */
+class ParallelCsvReaderTest
+{
+    private static final int CHUNK_SIZE_BYTES = 16;
+    private static final Charset CHARSET = Charset.defaultCharset();
+
+    @TempDir
+    Path tempFolder;
+
+    private ParallelCsvReader parallelCsvReader;
+
+    @BeforeEach
+    void setUp()
+    {
+        parallelCsvReader = new ParallelCsvReader(3, CHUNK_SIZE_BYTES);
+    }
+
+    @AfterEach
+    void tearDown()
+    {
+        parallelCsvReader.close();
+    }
+
+    @Test
+    void processChunksMatchesCommonsCsv() throws IOException
+    {
+        Random random = new Random(8);
+        for (int i = 0; i < 20; i++)
+        {
+            String csv = createRandomCsv(random, 2 + random.nextInt(30));
+            List<List<String>> expectedRecords = CsvTestData.parseWithCommonsCsv(csv);
+
+            AtomicReference<List<String>> headerRow = new AtomicReference<>();
+            List<List<List<String>>> chunks = new ArrayList<>();
+            parallelCsvReader.processChunks(writeFile(csv), header -> headerRow.set(Arrays.asList(header)),
+                    ParallelCsvReaderTest::toLists, chunks::add);
+
+            assertEquals(expectedRecords.get(0), headerRow.get());
+            assertEquals(expectedRecords.subList(1, expectedRecords.size()), concatenate(chunks), csv);
+        }
+    }
+
+    @Test
+    void tokenizeChunksMatchesCommonsCsv() throws IOException
+    {
+        Random random = new Random(8);
+        for (int i = 0; i < 20; i++)
+        {
+            String csv = createRandomCsv(random, 2 + random.nextInt(30));
+            List<List<String>> expectedRecords = CsvTestData.parseWithCommonsCsv(csv);
+
+            AtomicReference<List<String>> headerRow = new AtomicReference<>();
+            List<List<List<String>>> chunks = new ArrayList<>();
+            parallelCsvReader.tokenizeChunks(writeFile(csv), header -> headerRow.set(Arrays.asList(header)),
+                    ParallelCsvReaderTest::toLists, chunks::add);
+
+            assertEquals(expectedRecords.get(0), headerRow.get());
+            assertEquals(expectedRecords.subList(1, expectedRecords.size()), concatenate(chunks), csv);
+        }
+    }
+
+    @Test
+    void readsRecordsBiggerThanAChunk() throws IOException
+    {
+        String description = "\"Quoted\"\n" + String.join("\r\n", Collections.nCopies(20, "line, of text"));
+        String csv = "Summary,Description\nFirst,\"" + description.replace("\"", "\"\"") + "\"\nSecond,short\n";
+
+        List<List<List<String>>> chunks = new ArrayList<>();
+        parallelCsvReader.tokenizeChunks(writeFile(csv), header -> { }, ParallelCsvReaderTest::toLists, chunks::add);
+
+        assertEquals(Arrays.asList(Arrays.asList("First", description), Arrays.asList("Second", "short")),
+                concatenate(chunks));
+    }
+
+    @Test
+    void readsTheLastRecordWithoutALineBreak() throws IOException
+    {
+        String csv = "Summary,Assignee\nFirst,jdoe\nSecond,\"multi\nline\"";
+
+        List<List<List<String>>> chunks = new ArrayList<>();
+        parallelCsvReader.processChunks(writeFile(csv), header -> { }, ParallelCsvReaderTest::toLists, chunks::add);
+
+        assertEquals(Arrays.asList(Arrays.asList("First", "jdoe"), Arrays.asList("Second", "multi\nline")),
+                concatenate(chunks));
+    }
+
+    @Test
+    void stopsReadingWhenTheConsumerReturnsFalse() throws IOException
+    {
+        String csv = createRandomCsv(new Random(8), 50);
+        List<List<String>> expectedRecords = CsvTestData.parseWithCommonsCsv(csv);
+
+        List<List<List<String>>> chunks = new ArrayList<>();
+        parallelCsvReader.tokenizeChunks(writeFile(csv), header -> { }, ParallelCsvReaderTest::toLists, chunk -> {
+            chunks.add(chunk);
+            return chunks.size() < 2;
+        });
+
+        assertEquals(2, chunks.size());
+        List<List<String>> records = concatenate(chunks);
+        assertTrue(records.size() < expectedRecords.size() - 1);
+        assertEquals(expectedRecords.subList(1, records.size() + 1), records);
+    }
+
+    private String writeFile(String csv) throws IOException
+    {
+        Path csvFile = Files.createTempFile(tempFolder, "export", ".csv");
+        Files.write(csvFile, csv.getBytes(CHARSET));
+        return csvFile.toString();
+    }
+
+    private static String createRandomCsv(Random random, int rowCount)
+    {
+        String csv = CsvTestData.toCsv(CsvTestData.createRandomRows(random, rowCount, 5));
+
+        // The reader decodes the file with the default charset, which can't always encode every value
+        return new String(csv.getBytes(CHARSET), CHARSET);
+    }
+
+    private static List<List<String>> toLists(Iterable<CSVRecord> csvRecords)
+    {
+        List<List<String>> records = new ArrayList<>();
+        for (CSVRecord csvRecord : csvRecords)
+        {
+            records.add(Arrays.asList(CsvUtils.toArray(csvRecord)));
+        }
+        return records;
+    }
+
+    private static List<List<String>> toLists(CsvTokenizer tokenizer)
+    {
+        List<List<String>> records = new ArrayList<>();
+        while (tokenizer.nextRecord())
+        {
+            records.add(Arrays.asList(tokenizer.getRecord().toArray()));
+        }
+        return records;
+    }
+
+    private static List<List<String>> concatenate(List<List<List<String>>> chunks)
+    {
+        List<List<String>> records = new ArrayList<>();
+        chunks.forEach(records::addAll);
+        return records;
+    }
+}
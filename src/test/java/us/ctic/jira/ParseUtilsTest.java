@@ -0,0 +1,99 @@
+package us.ctic.jira;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that {@link ParseUtils} finds the first and last names in the display name formats listed in
+ * {@link ParseUtils#parseName(String, boolean, NameParts)}.
+ */
+class ParseUtilsTest
+{
+    // The display name, whether the last name is displayed first, and the expected first and last name
+    private static final Object[][] FIRST_AND_LAST_NAMES = {
+            {"John Doe", false, "John", "Doe"},
+            {"John Q. Doe", false, "John", "Doe"},
+            {"John Q Doe Jr. (Admin) [X]", false, "John", "Doe"},
+            {"John Doe Sr", false, "John", "Doe"},
+            {"John Doe III", false, "John", "Doe"},
+            {"John Doe IV", false, "John", "Doe"},
+            {"John Doe, PhD", false, "John", "Doe"},
+            {"John Doe, Esq.", false, "John", "Doe"},
+            {"Dr. John Doe", false, "John", "Doe"},
+            {"Mr. John Doe", false, "John", "Doe"},
+            {"Mrs. Jane Doe", false, "Jane", "Doe"},
+            {"Ms Jane Doe [x]", false, "Jane", "Doe"},
+            {"  John   Doe  ", false, "John", "Doe"},
+            {"Doe, John", true, "John", "Doe"},
+            {"Doe,John", true, "John", "Doe"},
+            {"Doe Jr, John Q.", true, "John", "Doe"},
+            {"Doe, Dr. John (ADMIN)", true, "John", "Doe"},
+    };
+
+    // The display names that don't have exactly a first and last name, and the words that are left of them
+    private static final Object[][] OTHER_NAMES = {
+            {"Ann Marie Smith", Arrays.asList("Ann", "Marie", "Smith")},
+            {"Jean-Claude Van Damme", Arrays.asList("Jean-Claude", "Van", "Damme")},
+            {"Doe", Collections.singletonList("Doe")},
+            {"Dr. Doe", Collections.singletonList("Doe")},
+            {"J. Q. (Admin)", Collections.emptyList()},
+            {"", Collections.emptyList()},
+    };
+
+    @Test
+    void parsesTheFirstAndLastNames()
+    {
+        for (Object[] row : FIRST_AND_LAST_NAMES)
+        {
+            String displayName = (String) row[0];
+            boolean lastNameDisplayedFirst = (Boolean) row[1];
+            List<String> expected = Arrays.asList((String) row[2], (String) row[3]);
+
+            NameParts nameParts = ParseUtils.parseName(displayName, lastNameDisplayedFirst, new NameParts());
+
+            assertTrue(nameParts.hasFirstAndLastName(), displayName);
+            assertEquals(expected, Arrays.asList(nameParts.getFirstName(), nameParts.getLastName()), displayName);
+            assertEquals(expected, ParseUtils.getFirstAndLastName(displayName, lastNameDisplayedFirst), displayName);
+        }
+    }
+
+    @Test
+    void leavesTheOtherNamesWithoutAFirstAndLastName()
+    {
+        for (Object[] row : OTHER_NAMES)
+        {
+            String displayName = (String) row[0];
+
+            NameParts nameParts = ParseUtils.parseName(displayName, false, new NameParts());
+
+            assertFalse(nameParts.hasFirstAndLastName(), displayName);
+            assertEquals(row[1], nameParts.getWords(), displayName);
+            assertNull(ParseUtils.getFirstAndLastName(displayName, false), displayName);
+        }
+    }
+
+    @Test
+    void clearsTheWordsOfTheNameParsedBefore()
+    {
+        NameParts nameParts = new NameParts();
+
+        ParseUtils.parseName("Ann Marie Smith", false, nameParts);
+        ParseUtils.parseName("Doe, John", true, nameParts);
+
+        assertEquals(Arrays.asList("Doe", "John"), nameParts.getWords());
+        assertEquals("John", nameParts.getFirstName());
+        assertEquals("Doe", nameParts.getLastName());
+
+        ParseUtils.parseName(null, false, nameParts);
+
+        assertEquals(0, nameParts.getWordCount());
+    }
+}
@@ -0,0 +1,200 @@
+package us.ctic.jira;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generates CSV files shaped like a Jira export for the benchmarks: 200+ columns (most of them custom fields that are
+ * sparse or entirely empty), the repeated Watchers, Log Work, and Comment columns, multi-line quoted Description and
+ * Comment fields, and user tags in the comments. The content is generated from a fixed seed, so the same parameters
+ * always produce the same file, and generated files are reused between benchmark runs.
+ */
+final class SyntheticJiraExport
+{
+    static final String[] ISSUE_TYPES = {"Bug", "Story", "Task", "Epic", "Sub-task", "Improvement"};
+
+    private static final int WATCHER_COLUMN_COUNT = 3;
+    private static final int WORK_LOG_COLUMN_COUNT = 4;
+    private static final int COMMENT_COLUMN_COUNT = 12;
+    private static final int SPARSE_CUSTOM_FIELD_COUNT = 160;
+    private static final int EMPTY_CUSTOM_FIELD_COUNT = 30;
+
+    private static final String FOLDER_PROPERTY = "us.ctic.jira.benchmarkFolder";
+    private static final long SEED = 42;
+
+    private SyntheticJiraExport()
+    {
+    }
+
+    /**
+     * Gets the synthetic export with the provided number of rows, generating it if it doesn't already exist.
+     *
+     * @param rowCount  The number of issues in the export
+     * @param userCount The number of distinct users in the export
+     * @return The path of the CSV file
+     */
+    static Path getOrCreate(int rowCount, int userCount)
+    {
+        Path file = getFolder().resolve("jira-export-" + rowCount + "-" + userCount + ".csv");
+        if (Files.exists(file)) return file;
+
+        try
+        {
+            Path tempFile = Files.createTempFile(getFolder(), "jira-export-", ".tmp");
+            try (Writer writer = Files.newBufferedWriter(tempFile);
+                 CSVPrinter csvPrinter = new CSVPrinter(writer, CSVFormat.DEFAULT))
+            {
+                write(csvPrinter, rowCount, userCount);
+            }
+            return Files.move(tempFile, file);
+        } catch (IOException e)
+        {
+            throw new UncheckedIOException("Unable to generate " + file, e);
+        }
+    }
+
+    /**
+     * @return The folder in which the generated files are kept
+     */
+    static Path getFolder()
+    {
+        Path folder = Paths.get(System.getProperty(FOLDER_PROPERTY, System.getProperty("java.io.tmpdir")),
+                "jira-csv-benchmarks");
+        try
+        {
+            return Files.createDirectories(folder);
+        } catch (IOException e)
+        {
+            throw new UncheckedIOException("Unable to create " + folder, e);
+        }
+    }
+
+    /**
+     * Creates a mapping of every synthetic source username to a target username.
+     *
+     * @param userCount The number of users
+     * @return The username mapping
+     */
+    static Map<String, String> createUsernameMapping(int userCount)
+    {
+        Map<String, String> usernameMapping = new LinkedHashMap<>();
+        for (int i = 0; i < userCount; i++)
+        {
+            usernameMapping.put(getUsername(i), "target.user" + i);
+        }
+        return usernameMapping;
+    }
+
+    /**
+     * @return A mapping for some of the synthetic issue types, in the order they should be split
+     */
+    static Map<String, String> createIssueTypeMapping()
+    {
+        Map<String, String> issueTypeMapping = new LinkedHashMap<>();
+        issueTypeMapping.put("Epic", "Epic");
+        issueTypeMapping.put("Story", "Story");
+        issueTypeMapping.put("Bug", "Defect");
+        issueTypeMapping.put("Improvement", "Enhancement");
+        return issueTypeMapping;
+    }
+
+    /**
+     * @param index The index of a synthetic user
+     * @return The username of the user on the source server
+     */
+    static String getUsername(int index)
+    {
+        return "source.user" + index;
+    }
+
+    private static void write(CSVPrinter csvPrinter, int rowCount, int userCount) throws IOException
+    {
+        List<String> header = new ArrayList<>(Arrays.asList("Summary", "Issue key", "Issue id", "Issue Type", "Status",
+                "Priority", "Assignee", "Reporter", "Creator", "Created", "Updated", "Description"));
+        addRepeated(header, "Watchers", WATCHER_COLUMN_COUNT);
+        addRepeated(header, UsernameExtractor.WORK_LOG_COLUMN_NAME, WORK_LOG_COLUMN_COUNT);
+        addRepeated(header, UsernameExtractor.COMMENT_COLUMN_NAME, COMMENT_COLUMN_COUNT);
+        for (int i = 0; i < SPARSE_CUSTOM_FIELD_COUNT + EMPTY_CUSTOM_FIELD_COUNT; i++)
+        {
+            header.add("Custom field (Field " + i + ")");
+        }
+        csvPrinter.printRecord(header);
+
+        Random random = new Random(SEED);
+        List<String> values = new ArrayList<>(header.size());
+        for (int row = 0; row < rowCount; row++)
+        {
+            values.clear();
+            String reporter = getUsername(random.nextInt(userCount));
+            values.add("Synthetic issue " + row + " with a \"quoted\" word, and a comma");
+            values.add("PROJ-" + (row + 1));
+            values.add(String.valueOf(10000 + row));
+            values.add(ISSUE_TYPES[random.nextInt(ISSUE_TYPES.length)]);
+            values.add(random.nextBoolean() ? "Open" : "Done");
+            values.add("Medium");
+            values.add(random.nextInt(4) == 0 ? "" : getUsername(random.nextInt(userCount)));
+            values.add(reporter);
+            values.add(reporter);
+            values.add("01/Jan/21 10:00 AM");
+            values.add("02/Jan/21 11:30 AM");
+            values.add("Steps to reproduce:\n1. Open the thing\n2. Click the \"other\" thing\n\nExpected: it works, "
+                    + "mostly.\nActual: it doesn't.");
+
+            for (int i = 0; i < WATCHER_COLUMN_COUNT; i++)
+            {
+                values.add(random.nextInt(WATCHER_COLUMN_COUNT) > i ? getUsername(random.nextInt(userCount)) : "");
+            }
+
+            int workLogCount = random.nextInt(WORK_LOG_COLUMN_COUNT + 1);
+            for (int i = 0; i < WORK_LOG_COLUMN_COUNT; i++)
+            {
+                values.add(i < workLogCount
+                        ? "Worked on it;03/Jan/21 9:00 AM;" + getUsername(random.nextInt(userCount)) + ";3600"
+                        : "");
+            }
+
+            int commentCount = random.nextInt(COMMENT_COLUMN_COUNT + 1);
+            for (int i = 0; i < COMMENT_COLUMN_COUNT; i++)
+            {
+                values.add(i < commentCount
+                        ? "04/Jan/21 2:15 PM;" + getUsername(random.nextInt(userCount)) + ";I looked into this.\n"
+                                + "[~" + getUsername(random.nextInt(userCount)) + "] can you take a look, "
+                                + "since \"it\" is yours?"
+                        : "");
+            }
+
+            for (int i = 0; i < SPARSE_CUSTOM_FIELD_COUNT; i++)
+            {
+                values.add(random.nextInt(20) == 0 ? "Value " + i : "");
+            }
+
+            for (int i = 0; i < EMPTY_CUSTOM_FIELD_COUNT; i++)
+            {
+                values.add("");
+            }
+
+            csvPrinter.printRecord(values);
+        }
+    }
+
+    private static void addRepeated(List<String> header, String columnName, int count)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            header.add(columnName);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package us.ctic.jira;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Tests {@link UsernameMapper} against a pair of {@link MockJiraServer}s.
+ */
+class UsernameMapperTest
+{
+    private static final int USER_COUNT = 20;
+    private static final RetryPolicy RETRY_POLICY = new RetryPolicy(2, Duration.ofMillis(10), Duration.ofMillis(50),
+            Duration.ofSeconds(10));
+
+    private MockJiraServer sourceServer;
+    private MockJiraServer targetServer;
+    private JiraService sourceJiraService;
+    private JiraService targetJiraService;
+
+    @BeforeEach
+    void setUp() throws IOException
+    {
+        sourceServer = new MockJiraServer(MockJiraServer.createSourceUsers(USER_COUNT), Duration.ZERO, 0, 0);
+        targetServer = new MockJiraServer(MockJiraServer.createTargetUsers(USER_COUNT), Duration.ZERO, 0, 0);
+        sourceJiraService = createJiraService(sourceServer);
+        targetJiraService = createJiraService(targetServer);
+    }
+
+    @AfterEach
+    void tearDown()
+    {
+        sourceJiraService.close();
+        targetJiraService.close();
+        sourceServer.close();
+        targetServer.close();
+    }
+
+    @Test
+    void mapsUsersFoundByEmailAndByName()
+    {
+        // User 0 has the same email address on both servers, and user 7 can only be found by name
+        Map<String, String> usernameMapping = createUsernameMapping("source.user0", "source.user7");
+
+        assertEquals(Map.of("source.user0", "target.user0", "source.user7", "target.user7"), usernameMapping);
+    }
+
+    @Test
+    void mapsUsersThatCannotBeFoundToTheDefaultUser()
+    {
+        // User 9 isn't on the target server, and the last user isn't on either
+        Map<String, String> usernameMapping = createUsernameMapping("source.user9", "source.user" + USER_COUNT);
+
+        assertEquals(Map.of("source.user9", MockJiraServer.DEFAULT_USERNAME,
+                "source.user" + USER_COUNT, MockJiraServer.DEFAULT_USERNAME), usernameMapping);
+    }
+
+    @Test
+    void leavesUsersThatFailedToBeLookedUpOnTheSourceOutOfTheMapping()
+    {
+        sourceServer.failSearchesFor("source.user3");
+
+        Map<String, String> usernameMapping = createUsernameMapping("source.user1", "source.user3", "source.user9");
+
+        assertEquals(Map.of("source.user1", "target.user1", "source.user9", MockJiraServer.DEFAULT_USERNAME),
+                usernameMapping);
+    }
+
+    @Test
+    void leavesUsersThatFailedToBeLookedUpOnTheTargetOutOfTheMapping()
+    {
+        targetServer.failSearchesFor("user5@example.com");
+
+        Map<String, String> usernameMapping = createUsernameMapping("source.user1", "source.user5");
+
+        assertEquals(Map.of("source.user1", "target.user1"), usernameMapping);
+        assertFalse(usernameMapping.containsKey("source.user5"));
+    }
+
+    @Test
+    void leavesUsersThatRanOutOfRetriesOutOfTheMapping()
+    {
+        // Enough 429s for the source lookup of one user to run out of attempts
+        sourceServer.throttleNextRequests(RETRY_POLICY.getMaxAttempts(), Duration.ZERO);
+
+        Map<String, String> usernameMapping = createUsernameMapping("source.user2");
+
+        assertEquals(Map.of(), usernameMapping);
+        assertEquals(Map.of("source.user2", "target.user2"), createUsernameMapping("source.user2"));
+    }
+
+    private Map<String, String> createUsernameMapping(String... csvUsernames)
+    {
+        Set<String> usernames = new LinkedHashSet<>(Set.of(csvUsernames));
+        return new UsernameMapper(sourceJiraService, targetJiraService, MockJiraServer.DEFAULT_USERNAME, false, 1, 1)
+                .createUsernameMapping(usernames);
+    }
+
+    private static JiraService createJiraService(MockJiraServer server)
+    {
+        return new JiraService(server.getHost(), "user", "pass", "", "PROJ", JiraConnectionSettings.builder()
+                .maxConnectionsPerRoute(4)
+                .rateLimiter(new RateLimiter(1000, 100))
+                .retryPolicy(RETRY_POLICY)
+                .build());
+    }
+}